@@ -0,0 +1,96 @@
+package agentMap.Benchmarks;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import agentMap.Core.InternalMap;
+import agentMap.Core.Tile;
+
+/**
+ * Measures building an InternalMap from a map file and the map operations agents call
+ * most often, on seeded generated maps
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+	private static final long SEED = 7;
+	private static final int NUM_UPDATES = 1024;
+	private static final int SEARCH_RADIUS = 16;
+
+	@Param({MapGenerator.OPEN, MapGenerator.MAZE, MapGenerator.RANDOM})
+	public String mapType;
+
+	@Param({"64", "512", "2048"})
+	public int size;
+
+	private String mapFile;
+	private Dimension mapDim;
+	private InternalMap iMap;
+	private Point[] updatePoints;
+	private Tile[] updateTiles;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		String text = MapGenerator.generate(mapType, size, SEED);
+		mapFile = MapGenerator.toTempFile(text);
+		int width = text.indexOf('\n');
+		mapDim = new Dimension(width, text.length() / (width + 1));
+		iMap = new InternalMap(mapFile, MapGenerator.tileTypes(), null, mapDim, false);
+		// Alternate between placing walls and floor at seeded positions
+		Random random = new Random(SEED);
+		Tile wall = MapGenerator.tileTypes().get('+');
+		Tile empty = MapGenerator.tileTypes().get(' ');
+		updatePoints = new Point[NUM_UPDATES];
+		updateTiles = new Tile[NUM_UPDATES];
+		for (int i = 0; i < NUM_UPDATES; i++) {
+			updatePoints[i] = new Point(random.nextInt(mapDim.width), random.nextInt(mapDim.height));
+			updateTiles[i] = (i % 2 == 0) ? wall : empty;
+		}
+	}
+
+	@Benchmark
+	public InternalMap construct() {
+		return new InternalMap(mapFile, MapGenerator.tileTypes(), null, mapDim, false);
+	}
+
+	@Benchmark
+	public ArrayList<Point> getLocOfTile() {
+		return iMap.getLocOfTile('g');
+	}
+
+	@Benchmark
+	public ArrayList<Point> getLocOfTileInRadius() {
+		Point center = updatePoints[next];
+		next = (next + 1) % NUM_UPDATES;
+		return iMap.getLocOfTileInRadius('g', center, SEARCH_RADIUS);
+	}
+
+	@Benchmark
+	public void updateMap() {
+		int update = next;
+		next = (next + 1) % NUM_UPDATES;
+		iMap.updateMap(updateTiles[update], updatePoints[update]);
+	}
+}
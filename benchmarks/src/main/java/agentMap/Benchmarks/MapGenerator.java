@@ -0,0 +1,214 @@
+package agentMap.Benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Random;
+
+import agentMap.Core.MapLoader;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+
+/**
+ * Generates maps in the text format of maps/map1.txt from a seed, so every run of a
+ * benchmark searches exactly the same maps. Each map holds one player tile 'o' and one
+ * gold tile 'g'.
+ */
+public class MapGenerator {
+	public static final String OPEN = "open";
+	public static final String MAZE = "maze";
+	public static final String RANDOM = "random";
+	private static final Tile UNKNOWN_TILE = new Tile('?', null, false, -99);
+
+	/**
+	 * Gets the tile blueprints used by the generated maps, the same tiles InternalMap.main uses
+	 * @return tile blueprints keyed by their character
+	 */
+	public static HashMap<Character, Tile> tileTypes() {
+		HashMap<Character, Tile> tileTypes = new HashMap<Character, Tile>();
+		tileTypes.put('-', new Tile('-', null, false, -99));
+		tileTypes.put('|', new Tile('|', null, false, -99));
+		tileTypes.put('+', new Tile('+', null, false, -99));
+		tileTypes.put(' ', new Tile(' ', null, true, 1));
+		tileTypes.put('g', new Tile('g', null, true, 1));
+		tileTypes.put('o', new Tile('o', null, true, 1));
+		return tileTypes;
+	}
+
+	/**
+	 * Generates a map of one of the supported kinds
+	 * @param mapType OPEN, MAZE or RANDOM
+	 * @param size approximate width and height of the map
+	 * @param seed seed of the generator
+	 * @return the map as text
+	 */
+	public static String generate(String mapType, int size, long seed) {
+		if (OPEN.equals(mapType)) {
+			return openField(size, size, seed);
+		} else if (MAZE.equals(mapType)) {
+			return maze(Math.max(1, size / 3), Math.max(1, size / 2), seed);
+		} else if (RANDOM.equals(mapType)) {
+			return randomObstacles(size, size, 0.3, seed);
+		}
+		throw new IllegalArgumentException("Unknown map type " + mapType);
+	}
+
+	/**
+	 * Generates a map without any obstacles
+	 * @param width number of columns
+	 * @param height number of rows
+	 * @param seed seed used to place the player and the gold
+	 * @return the map as text
+	 */
+	public static String openField(int width, int height, long seed) {
+		char[][] map = filled(width, height, ' ');
+		placeItems(map, new Random(seed));
+		return toText(map);
+	}
+
+	/**
+	 * Generates a map where each tile is an obstacle with the given probability
+	 * @param width number of columns
+	 * @param height number of rows
+	 * @param density probability of a tile being an obstacle
+	 * @param seed seed of the generator
+	 * @return the map as text
+	 */
+	public static String randomObstacles(int width, int height, double density, long seed) {
+		Random random = new Random(seed);
+		char[][] map = filled(width, height, ' ');
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (random.nextDouble() < density) map[y][x] = '+';
+			}
+		}
+		placeItems(map, random);
+		return toText(map);
+	}
+
+	/**
+	 * Generates a perfect maze drawn like maps/map1.txt, where each cell of the maze is two
+	 * tiles wide and one tile high with walls of '+', '-' and '|' between the cells. The
+	 * player starts in the top left cell and the gold is in the bottom right cell.
+	 * @param cellsX number of cells across the maze
+	 * @param cellsY number of cells down the maze
+	 * @param seed seed of the generator
+	 * @return the map as text
+	 */
+	public static String maze(int cellsX, int cellsY, long seed) {
+		Random random = new Random(seed);
+		int width = cellsX * 3 + 1;
+		int height = cellsY * 2 + 1;
+		char[][] map = filled(width, height, ' ');
+		for (int y = 0; y < height; y += 2) {
+			for (int x = 0; x < width; x++) {
+				map[y][x] = (x % 3 == 0) ? '+' : '-';
+			}
+		}
+		for (int y = 1; y < height; y += 2) {
+			for (int x = 0; x < width; x += 3) {
+				map[y][x] = '|';
+			}
+		}
+		// Carve passages with a depth first walk that uses an explicit stack
+		boolean[] visited = new boolean[cellsX * cellsY];
+		int[] stack = new int[cellsX * cellsY];
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		visited[0] = true;
+		int[] neighbours = new int[4];
+		while (stackSize > 0) {
+			int cell = stack[stackSize - 1];
+			int cellX = cell % cellsX;
+			int cellY = cell / cellsX;
+			int numNeighbours = 0;
+			if (cellX > 0 && !visited[cell - 1]) neighbours[numNeighbours++] = cell - 1;
+			if (cellX < cellsX - 1 && !visited[cell + 1]) neighbours[numNeighbours++] = cell + 1;
+			if (cellY > 0 && !visited[cell - cellsX]) neighbours[numNeighbours++] = cell - cellsX;
+			if (cellY < cellsY - 1 && !visited[cell + cellsX]) neighbours[numNeighbours++] = cell + cellsX;
+			if (numNeighbours == 0) {
+				stackSize--;
+				continue;
+			}
+			int next = neighbours[random.nextInt(numNeighbours)];
+			int nextX = next % cellsX;
+			int nextY = next / cellsX;
+			if (nextY == cellY) {
+				// Remove the wall between horizontally adjacent cells
+				map[cellY * 2 + 1][Math.max(cellX, nextX) * 3] = ' ';
+			} else {
+				int wallY = Math.max(cellY, nextY) * 2;
+				map[wallY][cellX * 3 + 1] = ' ';
+				map[wallY][cellX * 3 + 2] = ' ';
+			}
+			visited[next] = true;
+			stack[stackSize++] = next;
+		}
+		map[1][1] = 'o';
+		map[height - 2][width - 2] = 'g';
+		return toText(map);
+	}
+
+	/**
+	 * Reads a generated map into a grid
+	 * @param text the map as text
+	 * @return grid holding the map
+	 * @throws IOException if the map cannot be read
+	 */
+	public static TileGrid toGrid(String text) throws IOException {
+		return new MapLoader(tileTypes(), UNKNOWN_TILE).load(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)));
+	}
+
+	/**
+	 * Writes a generated map to a temporary file which is deleted when the JVM exits
+	 * @param text the map as text
+	 * @return path of the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static String toTempFile(String text) throws IOException {
+		File file = File.createTempFile("agentmap", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.ISO_8859_1));
+		return file.getPath();
+	}
+
+	private static char[][] filled(int width, int height, char tileChar) {
+		char[][] map = new char[height][width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				map[y][x] = tileChar;
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Places the player and the gold on two different open tiles
+	 * @param map the map to place them on
+	 * @param random source of the positions
+	 */
+	private static void placeItems(char[][] map, Random random) {
+		char[] items = {'o', 'g'};
+		for (char item : items) {
+			while (true) {
+				int x = random.nextInt(map[0].length);
+				int y = random.nextInt(map.length);
+				if (map[y][x] == ' ') {
+					map[y][x] = item;
+					break;
+				}
+			}
+		}
+	}
+
+	private static String toText(char[][] map) {
+		StringBuilder text = new StringBuilder(map.length * (map[0].length + 1));
+		for (char[] row : map) {
+			text.append(row).append('\n');
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,118 @@
+package agentMap.Benchmarks;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import agentMap.Core.Direction;
+import agentMap.Core.IHeuristic;
+import agentMap.Core.ISearch;
+import agentMap.Core.Pair;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.LandmarkHeuristic;
+import agentMap.Heuristics.ManhattanDist;
+import agentMap.Modules.aStarSearch;
+
+/**
+ * Measures aStarSearch.getPath on generated maps. Each invocation searches the next of a
+ * fixed set of seeded queries between open tiles that are connected, so different search
+ * algorithms can be compared on exactly the same work by changing createSearch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+	private static final int NUM_QUERIES = 64;
+	private static final long SEED = 42;
+	private static final int NUM_LANDMARKS = 8;
+
+	@Param({MapGenerator.OPEN, MapGenerator.MAZE, MapGenerator.RANDOM})
+	public String mapType;
+
+	@Param({"64", "512", "2048"})
+	public int size;
+
+	@Param({"false", "true"})
+	public boolean eightDirections;
+
+	@Param({"manhattan", "chebyshev", "landmarks"})
+	public String heuristic;
+
+	private TileGrid grid;
+	private ISearch search;
+	private Point[] starts;
+	private Point[] dests;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		grid = MapGenerator.toGrid(MapGenerator.generate(mapType, size, SEED));
+		search = createSearch();
+		// Only keep queries with a path so every invocation does a complete search
+		Random random = new Random(SEED);
+		ArrayList<Point> startList = new ArrayList<Point>();
+		ArrayList<Point> destList = new ArrayList<Point>();
+		for (int attempts = 0; startList.size() < NUM_QUERIES && attempts < NUM_QUERIES * 100; attempts++) {
+			Point start = randomOpenTile(random);
+			Point dest = randomOpenTile(random);
+			if (search.getPath(start, dest, grid) != null) {
+				startList.add(start);
+				destList.add(dest);
+			}
+		}
+		if (startList.isEmpty()) {
+			throw new IllegalStateException("No connected queries on the " + mapType + " map");
+		}
+		starts = startList.toArray(new Point[0]);
+		dests = destList.toArray(new Point[0]);
+	}
+
+	/**
+	 * Creates the search being measured
+	 * @return the search algorithm
+	 */
+	protected ISearch createSearch() {
+		IHeuristic h;
+		if ("landmarks".equals(heuristic)) {
+			h = new LandmarkHeuristic(grid, NUM_LANDMARKS, eightDirections);
+		} else {
+			h = "manhattan".equals(heuristic) ? new ManhattanDist() : new ChebyshevDist();
+		}
+		return new aStarSearch(h, eightDirections);
+	}
+
+	private Point randomOpenTile(Random random) {
+		while (true) {
+			int x = random.nextInt(grid.getWidth());
+			int y = random.nextInt(grid.getHeight());
+			if (grid.isPassable(x, y)) return new Point(x, y);
+		}
+	}
+
+	@Benchmark
+	public LinkedList<Pair<Direction, Point>> getPath() {
+		int query = next;
+		next = (next + 1) % starts.length;
+		return search.getPath(starts[query], dests[query], grid);
+	}
+}
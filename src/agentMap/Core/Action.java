@@ -0,0 +1,10 @@
+package agentMap.Core;
+
+/**
+ * An action of an agent that has to face the way it moves: stepping one tile forward in
+ * the direction it faces, or turning on the spot. In 8 direction mode a turn is an eighth
+ * of a full turn and in 4 direction mode it is a quarter turn.
+ */
+public enum Action {
+	FORWARD, TURN_LEFT, TURN_RIGHT;
+}
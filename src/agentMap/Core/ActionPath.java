@@ -0,0 +1,152 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.util.LinkedList;
+
+/**
+ * A plan for an agent that has to face the way it moves, stored as its starting point and
+ * heading followed by one byte per action. Replaying the actions only reads the bytes, so
+ * an agent can step through the plan without anything being allocated.
+ */
+public class ActionPath {
+	private static final Action[] ACTIONS = Action.values();
+	private int startX;
+	private int startY;
+	private Direction startHeading;
+	private boolean eightDirections;
+	private byte[] actions;
+	private int cost;
+
+	/**
+	 * Constructor
+	 * @param start first point of the plan
+	 * @param startHeading direction the agent faces at the start
+	 * @param eightDirections if a turn is an eighth of a full turn rather than a quarter
+	 * @param actions ordinal of each action in order, which the plan keeps rather than copies
+	 * @param cost cost of the plan
+	 */
+	public ActionPath(Point start, Direction startHeading, boolean eightDirections, byte[] actions, int cost) {
+		startX = start.x;
+		startY = start.y;
+		this.startHeading = startHeading;
+		this.eightDirections = eightDirections;
+		this.actions = actions;
+		this.cost = cost;
+	}
+
+	/**
+	 * Getter: gets the first point of the plan
+	 * @return starting point
+	 */
+	public Point getStart() {
+		return new Point(startX, startY);
+	}
+
+	/**
+	 * Getter: gets the direction the agent faces at the start
+	 * @return starting heading
+	 */
+	public Direction getStartHeading() {
+		return startHeading;
+	}
+
+	/**
+	 * Getter: gets the cost of the moves and turns of the plan
+	 * @return cost of the plan
+	 */
+	public int getCost() {
+		return cost;
+	}
+
+	/**
+	 * Gets the number of actions in the plan
+	 * @return number of actions
+	 */
+	public int size() {
+		return actions.length;
+	}
+
+	/**
+	 * Gets an action of the plan
+	 * @param i index of the action
+	 * @return the action
+	 */
+	public Action getAction(int i) {
+		return ACTIONS[actions[i]];
+	}
+
+	/**
+	 * Counts the turns in the plan
+	 * @return number of turning actions
+	 */
+	public int getNumTurns() {
+		int turns = 0;
+		for (int i = 0; i < actions.length; i++) {
+			if (actions[i] != Action.FORWARD.ordinal()) turns++;
+		}
+		return turns;
+	}
+
+	/**
+	 * Gets the direction faced after taking an action while facing a direction
+	 * @param heading direction faced before the action
+	 * @param action action taken
+	 * @param eightDirections if a turn is an eighth of a full turn rather than a quarter
+	 * @return direction faced after the action
+	 */
+	public static Direction turn(Direction heading, Action action, boolean eightDirections) {
+		if (action == Action.TURN_LEFT) {
+			return eightDirections ? heading.left() : heading.left().left();
+		} else if (action == Action.TURN_RIGHT) {
+			return eightDirections ? heading.right() : heading.right().right();
+		}
+		return heading;
+	}
+
+	/**
+	 * Gets the direction the agent faces at the end of the plan
+	 * @return final heading
+	 */
+	public Direction getEndHeading() {
+		Direction heading = startHeading;
+		for (int i = 0; i < actions.length; i++) {
+			heading = turn(heading, ACTIONS[actions[i]], eightDirections);
+		}
+		return heading;
+	}
+
+	/**
+	 * Converts the plan into the moves it makes, in the form returned by ISearch.getPath
+	 * @return a new queue of directions and points from the start to the end, where turns
+	 * do not add an entry
+	 */
+	public LinkedList<Pair<Direction, Point>> toPath() {
+		LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+		int x = startX;
+		int y = startY;
+		Direction heading = startHeading;
+		path.add(new Pair<Direction, Point>(Direction.NONE, new Point(x, y)));
+		for (int i = 0; i < actions.length; i++) {
+			Action action = ACTIONS[actions[i]];
+			if (action == Action.FORWARD) {
+				x += heading.dx;
+				y += heading.dy;
+				path.add(new Pair<Direction, Point>(heading, new Point(x, y)));
+			} else {
+				heading = turn(heading, action, eightDirections);
+			}
+		}
+		return path;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		str.append('(').append(startX).append(',').append(startY).append(") facing ").append(startHeading.name());
+		for (int i = 0; i < actions.length; i++) {
+			Action action = ACTIONS[actions[i]];
+			str.append(' ').append(action == Action.FORWARD ? 'F' : (action == Action.TURN_LEFT ? 'L' : 'R'));
+		}
+		return str.toString();
+	}
+}
@@ -0,0 +1,305 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A grid for very large maps that are mostly empty or only explored in part. The grid is
+ * split into square chunks which are kept in a hash index and only created once a tile in
+ * them is set, every tile of a chunk that does not exist is the default tile. Memory therefore
+ * grows with the area that has been changed rather than with the size of the map.
+ * Given a chunk store, chunks are loaded from the store when first used and the least
+ * recently used chunks are saved to it and dropped from memory once too many are loaded.
+ * The grid is not safe to use from several threads at once. It can be searched with
+ * aStarSearch.getPath, the other searches need a TileGrid.
+ */
+public class ChunkedGrid implements IGrid {
+	// Chunks are square blocks of 2^CHUNK_SHIFT tiles a side
+	public static final int CHUNK_SHIFT = 6;
+	public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int CHUNK_AREA = CHUNK_SIZE * CHUNK_SIZE;
+	// Key that no chunk can have, used while no chunk has been used yet
+	private static final long NO_CHUNK = Long.MIN_VALUE;
+	private int width;
+	private int height;
+	// Tile blueprints indexed by their tile type id, the default tile has the id 0
+	private Tile[] tileTypes;
+	private int numTileTypes;
+	private boolean[] passableOfId;
+	private int[] costOfId;
+	// First tile type id registered for each tile character
+	private HashMap<Character, Integer> charToId;
+	// Loaded chunks in order from least to most recently used
+	private LinkedHashMap<Long, Chunk> chunks;
+	private IChunkStore store;
+	private int maxLoadedChunks;
+	// The chunk used last, which saves a hash lookup while a search stays inside one chunk.
+	// The chunk is null if it only holds the default tile and has not been created.
+	private long lastKey;
+	private Chunk lastChunk;
+	private long loads;
+	private long evictions;
+
+	/**
+	 * A chunk of the grid, a chunk without ids only holds the default tile
+	 */
+	private static class Chunk {
+		int chunkX;
+		int chunkY;
+		byte[] ids;
+		// If the chunk has changed since it was loaded and has to be saved when evicted
+		boolean dirty;
+
+		Chunk(int chunkX, int chunkY) {
+			this.chunkX = chunkX;
+			this.chunkY = chunkY;
+		}
+	}
+
+	/**
+	 * Constructor for a grid that keeps every chunk in memory
+	 * @param width number of columns in the grid
+	 * @param height number of rows in the grid
+	 * @param defaultTile blueprint of the tile that fills the grid initially
+	 */
+	public ChunkedGrid(int width, int height, Tile defaultTile) {
+		this(width, height, defaultTile, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor for a grid that loads chunks from a store and evicts chunks to it
+	 * @param width number of columns in the grid
+	 * @param height number of rows in the grid
+	 * @param defaultTile blueprint of the tile for chunks that are not in the store
+	 * @param store store to load and save chunks, or null to keep every chunk in memory
+	 * @param maxLoadedChunks number of chunks kept in memory before the least recently
+	 * used one is evicted, which only applies when there is a store
+	 */
+	public ChunkedGrid(int width, int height, Tile defaultTile, IChunkStore store, int maxLoadedChunks) {
+		this.width = width;
+		this.height = height;
+		this.store = store;
+		// Without a store chunks cannot be evicted without losing their tiles
+		this.maxLoadedChunks = (store == null) ? Integer.MAX_VALUE : Math.max(1, maxLoadedChunks);
+		tileTypes = new Tile[TileGrid.MAX_TILE_TYPES];
+		passableOfId = new boolean[TileGrid.MAX_TILE_TYPES];
+		costOfId = new int[TileGrid.MAX_TILE_TYPES];
+		charToId = new HashMap<Character, Integer>();
+		chunks = new LinkedHashMap<Long, Chunk>(16, 0.75f, true);
+		lastKey = NO_CHUNK;
+		addTileType(defaultTile);
+	}
+
+	/**
+	 * Registers a tile blueprint with the grid, a blueprint matching an existing one
+	 * in character, passability and pass cost shares the existing tile type id
+	 * @param tile the tile blueprint to register
+	 * @return the tile type id of the blueprint
+	 */
+	public int addTileType(Tile tile) {
+		Integer firstId = charToId.get(tile.getTileChar());
+		if (firstId != null) {
+			for (int id = firstId; id < numTileTypes; id++) {
+				Tile curr = tileTypes[id];
+				if (curr.getTileChar() == tile.getTileChar() && curr.getPassable() == tile.getPassable()
+						&& curr.getPassCost() == tile.getPassCost()) {
+					return id;
+				}
+			}
+		}
+		if (numTileTypes == TileGrid.MAX_TILE_TYPES) {
+			throw new IllegalStateException("A grid cannot hold more than " + TileGrid.MAX_TILE_TYPES + " tile types");
+		}
+		int newId = numTileTypes++;
+		tileTypes[newId] = tile;
+		passableOfId[newId] = tile.getPassable();
+		costOfId[newId] = tile.getPassCost();
+		if (firstId == null) {
+			charToId.put(tile.getTileChar(), newId);
+		}
+		return newId;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public boolean inBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	@Override
+	public boolean isPassable(int x, int y) {
+		return passableOfId[getTileId(x, y)];
+	}
+
+	@Override
+	public int getPassCost(int x, int y) {
+		return costOfId[getTileId(x, y)];
+	}
+
+	@Override
+	public char getTileChar(int x, int y) {
+		return tileTypes[getTileId(x, y)].getTileChar();
+	}
+
+	@Override
+	public Tile getTile(int x, int y) {
+		return tileTypes[getTileId(x, y)].clone(new Point(x, y));
+	}
+
+	/**
+	 * Gets the tile type id at a position
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return the tile type id of the cell
+	 */
+	public int getTileId(int x, int y) {
+		Chunk chunk = getChunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, false);
+		if (chunk == null || chunk.ids == null) return 0;
+		return chunk.ids[((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)] & 0xFF;
+	}
+
+	@Override
+	public void setTile(int x, int y, Tile tile) {
+		int id = addTileType(tile);
+		Chunk chunk = getChunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, id != 0);
+		if (chunk == null) return;
+		if (chunk.ids == null) {
+			if (id == 0) return;
+			chunk.ids = new byte[CHUNK_AREA];
+		}
+		chunk.ids[((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)] = (byte) id;
+		chunk.dirty = true;
+	}
+
+	/**
+	 * Getter: gets the number of chunks held in memory
+	 * @return number of loaded chunks
+	 */
+	public int getLoadedChunks() {
+		return chunks.size();
+	}
+
+	/**
+	 * Getter: gets the number of times a chunk has been read from the store
+	 * @return number of chunk loads
+	 */
+	public long getLoads() {
+		return loads;
+	}
+
+	/**
+	 * Getter: gets the number of chunks dropped from memory to make room for others
+	 * @return number of evicted chunks
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Saves every changed chunk to the store without evicting it
+	 * @throws IOException if a chunk cannot be written
+	 */
+	public void flush() throws IOException {
+		if (store == null) return;
+		for (Chunk chunk : chunks.values()) {
+			if (chunk.dirty) {
+				saveChunk(chunk);
+			}
+		}
+	}
+
+	/**
+	 * Finds a chunk, loading it from the store if it is not in memory
+	 * @param chunkX column of the chunk
+	 * @param chunkY row of the chunk
+	 * @param create if a chunk should be created when there is no chunk to load
+	 * @return the chunk, or null if the chunk only holds the default tile and was not created
+	 */
+	private Chunk getChunk(int chunkX, int chunkY, boolean create) {
+		long key = ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+		if (key == lastKey && (lastChunk != null || !create)) return lastChunk;
+		Chunk chunk = chunks.get(key);
+		if (chunk == null) {
+			if (store != null) {
+				// Chunks missing from the store are remembered so the store is only asked once
+				chunk = loadChunk(chunkX, chunkY);
+			} else if (create) {
+				chunk = new Chunk(chunkX, chunkY);
+			}
+			if (chunk != null) {
+				chunks.put(key, chunk);
+				evictChunks();
+			}
+		}
+		lastKey = key;
+		lastChunk = chunk;
+		return chunk;
+	}
+
+	private Chunk loadChunk(int chunkX, int chunkY) {
+		Chunk chunk = new Chunk(chunkX, chunkY);
+		char[] tileChars;
+		try {
+			tileChars = store.readChunk(chunkX, chunkY);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		loads++;
+		if (tileChars != null) {
+			chunk.ids = new byte[CHUNK_AREA];
+			for (int i = 0; i < CHUNK_AREA && i < tileChars.length; i++) {
+				// Characters without a blueprint are read as the default tile, and a character
+				// shared by several blueprints is read as the first blueprint registered for it
+				Integer id = charToId.get(tileChars[i]);
+				chunk.ids[i] = (id == null) ? 0 : (byte) (int) id;
+			}
+		}
+		return chunk;
+	}
+
+	private void evictChunks() {
+		Iterator<Map.Entry<Long, Chunk>> eldest = chunks.entrySet().iterator();
+		while (chunks.size() > maxLoadedChunks) {
+			Map.Entry<Long, Chunk> entry = eldest.next();
+			Chunk chunk = entry.getValue();
+			if (chunk.dirty) {
+				try {
+					saveChunk(chunk);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			if (entry.getKey() == lastKey) {
+				lastKey = NO_CHUNK;
+				lastChunk = null;
+			}
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	private void saveChunk(Chunk chunk) throws IOException {
+		char[] tileChars = new char[CHUNK_AREA];
+		char defaultChar = tileTypes[0].getTileChar();
+		for (int i = 0; i < CHUNK_AREA; i++) {
+			tileChars[i] = (chunk.ids == null) ? defaultChar : tileTypes[chunk.ids[i] & 0xFF].getTileChar();
+		}
+		store.writeChunk(chunk.chunkX, chunk.chunkY, tileChars);
+		chunk.dirty = false;
+	}
+}
@@ -0,0 +1,350 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * A path stored as its starting point followed by runs of moves in the same direction.
+ * Each run takes a single byte holding the direction in the top 3 bits and the number of
+ * steps less one in the bottom 5 bits, so a run is at most 32 steps long and a longer
+ * straight line is split into several runs. A path costs at most one byte per step
+ * instead of a list node, a Pair and a Point per step.
+ * The points of the path are only created while iterating over it, and toQueue gives the
+ * path in the form returned by ISearch.getPath.
+ */
+public class CompactPath implements Iterable<Pair<Direction, Point>> {
+	private static final int MAX_RUN = 32;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private int startX;
+	private int startY;
+	private int endX;
+	private int endY;
+	// Direction paired with the starting point, which is NONE for paths from a search
+	private Direction firstDirection;
+	private byte[] runs;
+	private int numSteps;
+
+	/**
+	 * Builds a compact path one move at a time, joining consecutive moves in the same
+	 * direction into runs
+	 */
+	public static class Builder {
+		private int startX;
+		private int startY;
+		private int x;
+		private int y;
+		private Direction firstDirection;
+		private byte[] runs;
+		private int numRuns;
+		private int numSteps;
+
+		/**
+		 * Constructor for a path starting at the given point
+		 * @param start first point of the path
+		 * @param firstDirection direction paired with the first point
+		 */
+		public Builder(Point start, Direction firstDirection) {
+			startX = start.x;
+			startY = start.y;
+			x = start.x;
+			y = start.y;
+			this.firstDirection = firstDirection;
+			runs = new byte[16];
+		}
+
+		/**
+		 * Adds a move of one tile to the end of the path
+		 * @param direction direction moved, which cannot be NONE
+		 * @return this builder
+		 */
+		public Builder add(Direction direction) {
+			return add(direction, 1);
+		}
+
+		/**
+		 * Adds moves in a straight line to the end of the path
+		 * @param direction direction moved, which cannot be NONE
+		 * @param steps number of tiles moved
+		 * @return this builder
+		 */
+		public Builder add(Direction direction, int steps) {
+			if (direction == Direction.NONE) {
+				throw new IllegalArgumentException("A path cannot move in direction NONE");
+			}
+			x += direction.dx * steps;
+			y += direction.dy * steps;
+			numSteps += steps;
+			// Top up the last run before starting new ones
+			if (numRuns > 0 && runDirection(runs[numRuns - 1]) == direction) {
+				int length = runLength(runs[numRuns - 1]);
+				int extra = Math.min(steps, MAX_RUN - length);
+				runs[numRuns - 1] = encode(direction, length + extra);
+				steps -= extra;
+			}
+			while (steps > 0) {
+				int length = Math.min(steps, MAX_RUN);
+				if (numRuns == runs.length) {
+					runs = Arrays.copyOf(runs, runs.length * 2);
+				}
+				runs[numRuns++] = encode(direction, length);
+				steps -= length;
+			}
+			return this;
+		}
+
+		/**
+		 * Adds the moves along a straight line from the end of the path to a point, going
+		 * across each row the line crosses and then down or up into the next row. The cells
+		 * entered are among those TileGrid.hasLineOfSight checks, and every move is along a
+		 * row or column, so the moves are valid in either movement mode once the line has
+		 * been checked.
+		 * @param to point the line ends at
+		 * @return this builder
+		 */
+		public Builder addLine(Point to) {
+			int fromX = x;
+			int fromY = y;
+			int stepX = Integer.signum(to.x - fromX);
+			Direction across = (stepX > 0) ? Direction.E : Direction.W;
+			Direction between = (to.y > fromY) ? Direction.S : Direction.N;
+			for (int row = fromY; ; row += between.dy) {
+				int exit = GridLine.exit(fromX, fromY, to.x, to.y, row);
+				if (x != exit) add(across, Math.abs(exit - x));
+				if (row == to.y) return this;
+				add(between);
+			}
+		}
+
+		/**
+		 * Creates the path from the moves added so far
+		 * @return the compact path
+		 */
+		public CompactPath build() {
+			return new CompactPath(startX, startY, x, y, firstDirection, Arrays.copyOf(runs, numRuns), numSteps);
+		}
+	}
+
+	private CompactPath(int startX, int startY, int endX, int endY, Direction firstDirection, byte[] runs, int numSteps) {
+		this.startX = startX;
+		this.startY = startY;
+		this.endX = endX;
+		this.endY = endY;
+		this.firstDirection = firstDirection;
+		this.runs = runs;
+		this.numSteps = numSteps;
+	}
+
+	/**
+	 * Converts a path returned by ISearch.getPath. Points further apart than one tile along a
+	 * row, column or diagonal are joined by a straight run of moves, which is how
+	 * PathSmoother.keepTurns leaves the path. Other points further apart, such as the
+	 * waypoints of an any-angle path, are joined by moves through the cells that the
+	 * straight line between them crosses.
+	 * @param path list of directions and points
+	 * @return the compact path, or null if the path is null
+	 */
+	public static CompactPath fromPath(Iterable<Pair<Direction, Point>> path) {
+		if (path == null) return null;
+		Iterator<Pair<Direction, Point>> steps = path.iterator();
+		if (!steps.hasNext()) {
+			throw new IllegalArgumentException("A path needs a starting point");
+		}
+		Pair<Direction, Point> first = steps.next();
+		Builder builder = new Builder(first.second, first.first);
+		Point prev = first.second;
+		while (steps.hasNext()) {
+			Point next = steps.next().second;
+			int dx = next.x - prev.x;
+			int dy = next.y - prev.y;
+			if (dx == 0 || dy == 0 || Math.abs(dx) == Math.abs(dy)) {
+				builder.add(directionOf(Integer.signum(dx), Integer.signum(dy)), Math.max(Math.abs(dx), Math.abs(dy)));
+			} else {
+				builder.addLine(next);
+			}
+			prev = next;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Finds the direction of a move of one tile
+	 * @param dx change in x
+	 * @param dy change in y
+	 * @return direction of the move
+	 */
+	private static Direction directionOf(int dx, int dy) {
+		for (int i = 0; i < 8; i++) {
+			if (DIRECTIONS[i].dx == dx && DIRECTIONS[i].dy == dy) return DIRECTIONS[i];
+		}
+		throw new IllegalArgumentException("Consecutive points of a path cannot be the same");
+	}
+
+	private static byte encode(Direction direction, int length) {
+		return (byte) ((direction.ordinal() << 5) | (length - 1));
+	}
+
+	private static Direction runDirection(byte run) {
+		return DIRECTIONS[(run >> 5) & 0x7];
+	}
+
+	private static int runLength(byte run) {
+		return (run & 0x1F) + 1;
+	}
+
+	/**
+	 * Getter: gets the first point of the path
+	 * @return starting point
+	 */
+	public Point getStart() {
+		return new Point(startX, startY);
+	}
+
+	/**
+	 * Getter: gets the last point of the path
+	 * @return end point
+	 */
+	public Point getEnd() {
+		return new Point(endX, endY);
+	}
+
+	/**
+	 * Getter: gets the direction paired with the first point of the path
+	 * @return first direction
+	 */
+	public Direction getFirstDirection() {
+		return firstDirection;
+	}
+
+	/**
+	 * Gets the number of points on the path, including the starting point
+	 * @return number of points, the same as the size of toQueue
+	 */
+	public int size() {
+		return numSteps + 1;
+	}
+
+	/**
+	 * Getter: gets the number of moves made along the path
+	 * @return number of steps
+	 */
+	public int getNumSteps() {
+		return numSteps;
+	}
+
+	/**
+	 * Gets the number of runs the path is stored as
+	 * @return number of runs
+	 */
+	public int getNumRuns() {
+		return runs.length;
+	}
+
+	/**
+	 * Gets the direction of the moves in a run
+	 * @param run index of the run
+	 * @return direction moved
+	 */
+	public Direction getRunDirection(int run) {
+		return runDirection(runs[run]);
+	}
+
+	/**
+	 * Gets the number of moves in a run
+	 * @param run index of the run
+	 * @return number of steps, between 1 and 32
+	 */
+	public int getRunLength(int run) {
+		return runLength(runs[run]);
+	}
+
+	/**
+	 * Gets the number of bytes used to store the moves of the path
+	 * @return size of the encoded runs
+	 */
+	public int getEncodedSize() {
+		return runs.length;
+	}
+
+	/**
+	 * Adds up the pass costs of the tiles the path moves onto
+	 * @param grid grid the path is on
+	 * @return cost of the path
+	 */
+	public int getCost(IGrid grid) {
+		int x = startX;
+		int y = startY;
+		int cost = 0;
+		for (int run = 0; run < runs.length; run++) {
+			Direction direction = runDirection(runs[run]);
+			for (int step = runLength(runs[run]); step > 0; step--) {
+				x += direction.dx;
+				y += direction.dy;
+				cost += grid.getPassCost(x, y);
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * Iterates over the directions and points of the path, creating each point as it is
+	 * reached
+	 */
+	@Override
+	public Iterator<Pair<Direction, Point>> iterator() {
+		return new Iterator<Pair<Direction, Point>>() {
+			private int x = startX;
+			private int y = startY;
+			private int run = -1;
+			private int stepsLeft;
+
+			@Override
+			public boolean hasNext() {
+				return run < 0 || stepsLeft > 0 || run < runs.length - 1;
+			}
+
+			@Override
+			public Pair<Direction, Point> next() {
+				if (run < 0) {
+					run = 0;
+					stepsLeft = (runs.length > 0) ? runLength(runs[0]) : 0;
+					return new Pair<Direction, Point>(firstDirection, new Point(x, y));
+				}
+				if (stepsLeft == 0) {
+					if (run >= runs.length - 1) throw new NoSuchElementException();
+					run++;
+					stepsLeft = runLength(runs[run]);
+				}
+				Direction direction = runDirection(runs[run]);
+				x += direction.dx;
+				y += direction.dy;
+				stepsLeft--;
+				return new Pair<Direction, Point>(direction, new Point(x, y));
+			}
+		};
+	}
+
+	/**
+	 * Expands the path into the form returned by ISearch.getPath
+	 * @return a new queue of directions and points from the start to the end
+	 */
+	public LinkedList<Pair<Direction, Point>> toQueue() {
+		LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+		for (Pair<Direction, Point> step : this) {
+			path.add(step);
+		}
+		return path;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		str.append('(').append(startX).append(',').append(startY).append(')');
+		for (int run = 0; run < runs.length; run++) {
+			str.append(' ').append(runDirection(runs[run]).name()).append(runLength(runs[run]));
+		}
+		return str.toString();
+	}
+}
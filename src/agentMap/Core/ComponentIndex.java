@@ -0,0 +1,442 @@
+package agentMap.Core;
+
+import java.util.Arrays;
+
+/**
+ * Labels the connected components of the passable cells of a TileGrid, so whether one
+ * cell can be reached from another is answered without searching. Each cell holds a label
+ * and labels are joined in a union-find forest, so a cell that opens up only joins the
+ * labels of its neighbours. When a cell is closed the neighbours it leaves behind are
+ * searched from at the same time, one cell each in turn, until they meet again. A group of
+ * neighbours that runs out of cells first has been cut off and only its cells are given a
+ * new label, so the work is in proportion to the smaller side of the split.
+ * The labels are built the first time they are queried and kept up to date as tiles
+ * change, and are rebuilt if the grid changes without telling the index.
+ * Like a TileGrid the labels are kept in chunks, so a read only snapshot to go with a
+ * snapshot of the grid only copies references to the chunks and can be read from other
+ * threads while the index keeps changing.
+ */
+public class ComponentIndex implements IMapListener {
+	private static final Direction[] MOVES = {
+		Direction.W, Direction.E, Direction.N, Direction.S,
+		Direction.NW, Direction.NE, Direction.SW, Direction.SE
+	};
+	// Labels of cells and parents of labels are stored in chunks of 2^CHUNK_SHIFT which snapshots can share
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	// Grid the index listens to, null for a snapshot
+	private TileGrid grid;
+	private int width;
+	private int height;
+	private int numMoves;
+	// Label of each cell, or -1 for impassable cells
+	private int[][] labels;
+	// Union-find forest over labels along with the rank of each tree
+	private int[][] parent;
+	private int[] rank;
+	private int numLabels;
+	// Snapshot epoch in which each chunk was last copied, chunks from earlier epochs may be
+	// shared with a snapshot and are copied before they are written to
+	private int[] labelEpochs;
+	private int[] parentEpochs;
+	private int epoch;
+	// Version of the grid the labels match, or -1 before they are built
+	private int version;
+	// Snapshots of an index cannot be changed
+	private boolean readOnly;
+	// Working memory of the searches run when a cell is closed
+	private int[] stamp;
+	private int[] front;
+	private int generation;
+	private int[][] queues;
+	private int[] heads;
+	private int[] tails;
+	private int[] frontParent;
+
+	/**
+	 * Constructor, the index starts listening to the grid straight away
+	 * @param grid grid to label
+	 * @param eightDirections if diagonal neighbours are connected
+	 */
+	public ComponentIndex(TileGrid grid, boolean eightDirections) {
+		this.grid = grid;
+		width = grid.getWidth();
+		height = grid.getHeight();
+		numMoves = eightDirections ? 8 : 4;
+		version = -1;
+		grid.addListener(this);
+	}
+
+	/**
+	 * Constructor for a read only snapshot of another index
+	 * @param other index to take a snapshot of, whose labels must be up to date
+	 */
+	private ComponentIndex(ComponentIndex other) {
+		width = other.width;
+		height = other.height;
+		numMoves = other.numMoves;
+		// The chunks are shared, from now on the index copies a chunk before writing to it
+		labels = other.labels.clone();
+		parent = other.parent.clone();
+		other.epoch++;
+		numLabels = other.numLabels;
+		version = other.version;
+		readOnly = true;
+	}
+
+	/**
+	 * Takes a read only copy of the labels as they are now, to be read along with a snapshot
+	 * of the grid taken at the same time. The copy shares the chunks of the index, so it
+	 * takes time in proportion to the number of chunks rather than cells once the labels
+	 * have been built.
+	 * @return a snapshot of the index
+	 */
+	public ComponentIndex snapshot() {
+		if (readOnly) return this;
+		ensureCurrent();
+		return new ComponentIndex(this);
+	}
+
+	/**
+	 * Getter: gets the version of the grid the labels were last brought up to date with,
+	 * which for a snapshot is the version of the grid it was taken from
+	 * @return version of the grid, or -1 if the labels have not been built
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Stops the index from listening to the grid, after which it should not be used
+	 */
+	public void detach() {
+		if (grid != null) grid.removeListener(this);
+	}
+
+	/**
+	 * Labels every passable cell from scratch with a search from each unlabelled cell
+	 */
+	private void rebuild() {
+		int size = grid.size();
+		int numChunks = (size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+		labels = new int[numChunks][];
+		labelEpochs = new int[numChunks];
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			labels[chunk] = new int[CHUNK_SIZE];
+			Arrays.fill(labels[chunk], -1);
+			labelEpochs[chunk] = epoch;
+		}
+		parent = new int[0][];
+		parentEpochs = new int[0];
+		rank = new int[64];
+		numLabels = 0;
+		int[] queue = new int[64];
+		for (int cell = 0; cell < size; cell++) {
+			if (labelOf(cell) != -1 || !grid.isPassable(cell)) continue;
+			int label = newLabel();
+			setLabel(cell, label);
+			queue[0] = cell;
+			int tail = 1;
+			for (int head = 0; head < tail; head++) {
+				int curr = queue[head];
+				int currX = curr % width;
+				int currY = curr / width;
+				for (int i = 0; i < numMoves; i++) {
+					int nextX = currX + MOVES[i].dx;
+					int nextY = currY + MOVES[i].dy;
+					if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+					int next = nextY * width + nextX;
+					if (labelOf(next) != -1 || !grid.isPassable(next)) continue;
+					setLabel(next, label);
+					if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+					queue[tail++] = next;
+				}
+			}
+		}
+		version = grid.getVersion();
+	}
+
+	/**
+	 * Brings the labels up to date with the grid if changes were missed
+	 */
+	private void ensureCurrent() {
+		// A snapshot stays as it was taken
+		if (readOnly) return;
+		// Closing cells leaves unused labels behind, so start again once they outnumber the cells
+		if (version != grid.getVersion() || numLabels > 2 * grid.size() + 64) {
+			rebuild();
+		}
+	}
+
+	private int labelOf(int cell) {
+		return labels[cell >>> CHUNK_SHIFT][cell & CHUNK_MASK];
+	}
+
+	private void setLabel(int cell, int label) {
+		int chunk = cell >>> CHUNK_SHIFT;
+		if (labelEpochs[chunk] != epoch) {
+			labels[chunk] = labels[chunk].clone();
+			labelEpochs[chunk] = epoch;
+		}
+		labels[chunk][cell & CHUNK_MASK] = label;
+	}
+
+	private int parentOf(int label) {
+		return parent[label >>> CHUNK_SHIFT][label & CHUNK_MASK];
+	}
+
+	private void setParent(int label, int newParent) {
+		int chunk = label >>> CHUNK_SHIFT;
+		if (parentEpochs[chunk] != epoch) {
+			parent[chunk] = parent[chunk].clone();
+			parentEpochs[chunk] = epoch;
+		}
+		parent[chunk][label & CHUNK_MASK] = newParent;
+	}
+
+	private int newLabel() {
+		int chunk = numLabels >>> CHUNK_SHIFT;
+		if (chunk == parent.length) {
+			parent = Arrays.copyOf(parent, chunk + 1);
+			parent[chunk] = new int[CHUNK_SIZE];
+			parentEpochs = Arrays.copyOf(parentEpochs, chunk + 1);
+			parentEpochs[chunk] = epoch;
+		}
+		if (numLabels == rank.length) {
+			rank = Arrays.copyOf(rank, numLabels * 2);
+		}
+		setParent(numLabels, numLabels);
+		rank[numLabels] = 0;
+		return numLabels++;
+	}
+
+	private int find(int label) {
+		while (true) {
+			int up = parentOf(label);
+			if (up == label) return label;
+			int grand = parentOf(up);
+			// Path halving keeps the trees shallow, but a chunk a snapshot may share is only read
+			if (!readOnly && parentEpochs[label >>> CHUNK_SHIFT] == epoch) {
+				parent[label >>> CHUNK_SHIFT][label & CHUNK_MASK] = grand;
+			}
+			label = grand;
+		}
+	}
+
+	private void union(int a, int b) {
+		a = find(a);
+		b = find(b);
+		if (a == b) return;
+		if (rank[a] < rank[b]) {
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		setParent(b, a);
+		if (rank[a] == rank[b]) rank[a]++;
+	}
+
+	@Override
+	public void tileChanged(int x, int y, Tile oldTile, Tile newTile) {
+		if (version == -1 || version + 1 != grid.getVersion()) {
+			// Not built yet or missed a change, rebuild on the next query
+			return;
+		}
+		version = grid.getVersion();
+		if (oldTile.getPassable() == newTile.getPassable()) return;
+		int cell = grid.index(x, y);
+		if (newTile.getPassable()) {
+			open(cell);
+		} else {
+			close(cell);
+		}
+	}
+
+	/**
+	 * Gives a cell that became passable a label joined with the labels of its neighbours
+	 * @param cell index of the cell
+	 */
+	private void open(int cell) {
+		int label = newLabel();
+		setLabel(cell, label);
+		int x = cell % width;
+		int y = cell / width;
+		for (int i = 0; i < numMoves; i++) {
+			int nextX = x + MOVES[i].dx;
+			int nextY = y + MOVES[i].dy;
+			if (!grid.inBounds(nextX, nextY)) continue;
+			int next = nextY * width + nextX;
+			int nextLabel = labelOf(next);
+			if (nextLabel != -1) union(label, nextLabel);
+		}
+	}
+
+	/**
+	 * Removes a cell that became impassable and relabels any part of its component that
+	 * it was the only link to
+	 * @param cell index of the cell
+	 */
+	private void close(int cell) {
+		setLabel(cell, -1);
+		if (stamp == null) {
+			stamp = new int[grid.size()];
+			front = new int[grid.size()];
+			queues = new int[MOVES.length][16];
+			heads = new int[MOVES.length];
+			tails = new int[MOVES.length];
+			frontParent = new int[MOVES.length];
+		}
+		generation++;
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(stamp, 0);
+			generation = 1;
+		}
+		// Every passable neighbour starts a search of its own
+		int numFronts = 0;
+		int x = cell % width;
+		int y = cell / width;
+		for (int i = 0; i < numMoves; i++) {
+			int nextX = x + MOVES[i].dx;
+			int nextY = y + MOVES[i].dy;
+			if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+			int next = nextY * width + nextX;
+			if (labelOf(next) == -1) continue;
+			stamp[next] = generation;
+			front[next] = numFronts;
+			queues[numFronts][0] = next;
+			heads[numFronts] = 0;
+			tails[numFronts] = 1;
+			frontParent[numFronts] = numFronts;
+			numFronts++;
+		}
+		if (numFronts < 2) return;
+		int live = numFronts;
+		boolean[] done = new boolean[numFronts];
+		while (live > 1) {
+			for (int f = 0; f < numFronts && live > 1; f++) {
+				int group = findFront(f);
+				if (done[group]) continue;
+				if (heads[f] < tails[f]) {
+					live -= expand(f, width, height, done);
+				} else if (isExhausted(group, numFronts)) {
+					// Nothing left to search so the group has been cut off from the rest
+					relabel(group, numFronts);
+					done[group] = true;
+					live--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Expands the next cell of a search, joining it with any other search it runs into
+	 * @param f index of the search
+	 * @param width width of the grid
+	 * @param height height of the grid
+	 * @param done which groups of searches have been cut off
+	 * @return number of groups that were joined into another group
+	 */
+	private int expand(int f, int width, int height, boolean[] done) {
+		int merged = 0;
+		int curr = queues[f][heads[f]++];
+		int currX = curr % width;
+		int currY = curr / width;
+		for (int i = 0; i < numMoves; i++) {
+			int nextX = currX + MOVES[i].dx;
+			int nextY = currY + MOVES[i].dy;
+			if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+			int next = nextY * width + nextX;
+			if (labelOf(next) == -1) continue;
+			if (stamp[next] == generation) {
+				int a = findFront(f);
+				int b = findFront(front[next]);
+				if (a != b && !done[a] && !done[b]) {
+					frontParent[b] = a;
+					merged++;
+				}
+				continue;
+			}
+			stamp[next] = generation;
+			front[next] = f;
+			if (tails[f] == queues[f].length) queues[f] = Arrays.copyOf(queues[f], tails[f] * 2);
+			queues[f][tails[f]++] = next;
+		}
+		return merged;
+	}
+
+	private int findFront(int f) {
+		while (frontParent[f] != f) {
+			f = frontParent[f];
+		}
+		return f;
+	}
+
+	/**
+	 * Checks if every search in a group has run out of cells
+	 * @param group root of the group
+	 * @param numFronts number of searches
+	 * @return if the group has been fully searched
+	 */
+	private boolean isExhausted(int group, int numFronts) {
+		for (int f = 0; f < numFronts; f++) {
+			if (findFront(f) == group && heads[f] < tails[f]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gives every cell found by a group of searches a new label
+	 * @param group root of the group
+	 * @param numFronts number of searches
+	 */
+	private void relabel(int group, int numFronts) {
+		int label = newLabel();
+		for (int f = 0; f < numFronts; f++) {
+			if (findFront(f) != group) continue;
+			for (int i = 0; i < tails[f]; i++) {
+				setLabel(queues[f][i], label);
+			}
+		}
+	}
+
+	/**
+	 * Gets the component of a cell
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return id of the component, or -1 if the cell is impassable
+	 */
+	public int getComponent(int x, int y) {
+		ensureCurrent();
+		int label = labelOf(y * width + x);
+		return (label == -1) ? -1 : find(label);
+	}
+
+	/**
+	 * Checks if a path can lead from one cell to another. The starting cell does not have
+	 * to be passable, as searches only check the cells they move onto.
+	 * @param fromX column of the starting cell
+	 * @param fromY row of the starting cell
+	 * @param toX column of the destination cell
+	 * @param toY row of the destination cell
+	 * @return if the destination can be reached
+	 */
+	public boolean canReach(int fromX, int fromY, int toX, int toY) {
+		if (fromX == toX && fromY == toY) return true;
+		ensureCurrent();
+		int to = labelOf(toY * width + toX);
+		if (to == -1) return false;
+		to = find(to);
+		int from = labelOf(fromY * width + fromX);
+		if (from != -1) return find(from) == to;
+		// Leaving an impassable start can lead into the component of any neighbour
+		for (int i = 0; i < numMoves; i++) {
+			int nextX = fromX + MOVES[i].dx;
+			int nextY = fromY + MOVES[i].dy;
+			if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+			int label = labelOf(nextY * width + nextX);
+			if (label != -1 && find(label) == to) return true;
+		}
+		return false;
+	}
+}
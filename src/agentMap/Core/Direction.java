@@ -11,28 +11,46 @@ public enum Direction {
 	/**
 	 * The Directions act as a doubly linked list, where the first argument is its direction
 	 * in character form and the 2 arguments after are directions that are before and after the 
-	 * current direction in character form (Like pointers).
+	 * current direction in character form (Like pointers). The last 2 arguments are the
+	 * change in x and y when moving one tile in the direction.
 	 */
-	N("n", "nw", "ne"), S("s", "se", "sw"), 
-	E("e", "ne", "se"), W("w", "sw", "nw"), 
-	NE("ne", "n", "e"), NW("nw", "w", "n"),
-	SE("ne", "e", "s"), SW("se", "s", "w"),
-	NONE(" ", " ", " ");
+	N("n", "nw", "ne", 0, -1), S("s", "se", "sw", 0, 1), 
+	E("e", "ne", "se", 1, 0), W("w", "sw", "nw", -1, 0), 
+	NE("ne", "n", "e", 1, -1), NW("nw", "w", "n", -1, -1),
+	SE("se", "e", "s", 1, 1), SW("sw", "s", "w", -1, 1),
+	NONE(" ", " ", " ", 0, 0);
 	
 	public String strVal;
 	public String prev;
 	public String next;
+	public int dx;
+	public int dy;
+	// Directions on the left and right of each direction by ordinal, filled in once every
+	// direction exists so turning does not have to look the direction up by its string
+	private static final Direction[] LEFT = new Direction[values().length];
+	private static final Direction[] RIGHT = new Direction[values().length];
+	
+	static {
+		for (Direction d: values()) {
+			LEFT[d.ordinal()] = d.charToDirection(d.prev);
+			RIGHT[d.ordinal()] = d.charToDirection(d.next);
+		}
+	}
 	
 	/**
 	 * Constructor
 	 * @param strVal String representing the direction
 	 * @param prev direction on the left
 	 * @param next direction on the right
+	 * @param dx change in x when moving in the direction
+	 * @param dy change in y when moving in the direction
 	 */
-	Direction (String charVal, String prev, String next) {
+	Direction (String charVal, String prev, String next, int dx, int dy) {
 		this.strVal = charVal;
 		this.prev = prev;
 		this.next = next;
+		this.dx = dx;
+		this.dy = dy;
 	}
 	
 	/**
@@ -55,10 +73,26 @@ public enum Direction {
 	 */
 	public Direction changeDirection (char move) {
 		if (move == 'l') {
-			return charToDirection(this.prev);
+			return LEFT[ordinal()];
 		} else if (move == 'r') {
-			return charToDirection(this.next);
+			return RIGHT[ordinal()];
 		}
 		return null;
 	}
+	
+	/**
+	 * Gets the direction an eighth of a turn to the left
+	 * @return the direction on the left, or NONE for NONE
+	 */
+	public Direction left() {
+		return LEFT[ordinal()];
+	}
+	
+	/**
+	 * Gets the direction an eighth of a turn to the right
+	 * @return the direction on the right, or NONE for NONE
+	 */
+	public Direction right() {
+		return RIGHT[ordinal()];
+	}
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package agentMap.Core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Keeps each chunk of a ChunkedGrid in its own file in a directory, named after the
+ * column and row of the chunk
+ */
+public class DirectoryChunkStore implements IChunkStore {
+	private Path directory;
+
+	/**
+	 * Constructor which creates the directory if it does not exist
+	 * @param directory directory to keep the chunk files in
+	 * @throws IOException if the directory cannot be created
+	 */
+	public DirectoryChunkStore(String directory) throws IOException {
+		this.directory = Files.createDirectories(Paths.get(directory));
+	}
+
+	@Override
+	public char[] readChunk(int chunkX, int chunkY) throws IOException {
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(chunkFile(chunkX, chunkY));
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		char[] tileChars = new char[bytes.length / 2];
+		ByteBuffer.wrap(bytes).asCharBuffer().get(tileChars);
+		return tileChars;
+	}
+
+	@Override
+	public void writeChunk(int chunkX, int chunkY, char[] tileChars) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(tileChars.length * 2);
+		bytes.asCharBuffer().put(tileChars);
+		Files.write(chunkFile(chunkX, chunkY), bytes.array());
+	}
+
+	private Path chunkFile(int chunkX, int chunkY) {
+		return directory.resolve(chunkX + "_" + chunkY + ".chunk");
+	}
+}
@@ -0,0 +1,80 @@
+package agentMap.Core;
+
+/**
+ * Finds the cells crossed by a straight line between the centres of two cells, one row at
+ * a time. The cells a line crosses in one row are always next to each other, so they are
+ * given as the first and last cell met in that row. Where the line passes exactly through
+ * the corner of a cell, both cells beside the corner count as crossed, so a line never
+ * squeezes between two cells that only touch at a corner.
+ * Positions on the line are worked out as fractions of integers, so the cells found do
+ * not depend on rounding.
+ */
+final class GridLine {
+	private GridLine() {
+	}
+
+	/**
+	 * Gets the first cell the line meets in a row
+	 * @param x0 column of the starting cell
+	 * @param y0 row of the starting cell
+	 * @param x1 column of the end cell
+	 * @param y1 row of the end cell
+	 * @param y a row between y0 and y1
+	 * @return column of the first cell crossed in the row
+	 */
+	static int entry(int x0, int y0, int x1, int y1, int y) {
+		if (y == y0 || x0 == x1) return x0;
+		// The line enters the row through its top edge when moving down and its bottom edge when moving up
+		int edge = (y1 > y0) ? y : y + 1;
+		return (x1 > x0) ? ceilAt(x0, y0, x1, y1, edge) - 1 : floorAt(x0, y0, x1, y1, edge);
+	}
+
+	/**
+	 * Gets the last cell the line meets in a row
+	 * @param x0 column of the starting cell
+	 * @param y0 row of the starting cell
+	 * @param x1 column of the end cell
+	 * @param y1 row of the end cell
+	 * @param y a row between y0 and y1
+	 * @return column of the last cell crossed in the row
+	 */
+	static int exit(int x0, int y0, int x1, int y1, int y) {
+		if (y == y1 || x0 == x1) return x1;
+		int edge = (y1 > y0) ? y + 1 : y;
+		return (x1 > x0) ? floorAt(x0, y0, x1, y1, edge) : ceilAt(x0, y0, x1, y1, edge) - 1;
+	}
+
+	/**
+	 * Rounds down the x coordinate where the line crosses the edge between two rows, taking
+	 * cells to be one unit wide with their centres at half units
+	 * @return x rounded down
+	 */
+	private static int floorAt(int x0, int y0, int x1, int y1, int edge) {
+		long dx = x1 - x0;
+		long dy = y1 - y0;
+		// x = x0 + 0.5 + (edge - y0 - 0.5) * dx / dy, over a common denominator of 2 * dy
+		long num = (2L * x0 + 1) * dy + (2L * (edge - y0) - 1) * dx;
+		long den = 2 * dy;
+		if (den < 0) {
+			num = -num;
+			den = -den;
+		}
+		return (int) Math.floorDiv(num, den);
+	}
+
+	/**
+	 * Rounds up the x coordinate where the line crosses the edge between two rows
+	 * @return x rounded up
+	 */
+	private static int ceilAt(int x0, int y0, int x1, int y1, int edge) {
+		long dx = x1 - x0;
+		long dy = y1 - y0;
+		long num = (2L * x0 + 1) * dy + (2L * (edge - y0) - 1) * dx;
+		long den = 2 * dy;
+		if (den < 0) {
+			num = -num;
+			den = -den;
+		}
+		return (int) -Math.floorDiv(-num, den);
+	}
+}
@@ -0,0 +1,28 @@
+package agentMap.Core;
+
+import java.io.IOException;
+
+/**
+ * Storage that a ChunkedGrid loads chunks from when they are first used and saves chunks
+ * to when they are evicted from memory. A chunk is stored as the character of each of its
+ * tiles, row by row.
+ */
+public interface IChunkStore {
+	/**
+	 * Reads a chunk from the store
+	 * @param chunkX column of the chunk
+	 * @param chunkY row of the chunk
+	 * @return the tile characters of the chunk, or null if the chunk has never been saved
+	 * @throws IOException if the chunk cannot be read
+	 */
+	public char[] readChunk(int chunkX, int chunkY) throws IOException;
+
+	/**
+	 * Saves a chunk to the store, replacing any earlier copy of it
+	 * @param chunkX column of the chunk
+	 * @param chunkY row of the chunk
+	 * @param tileChars the tile characters of the chunk
+	 * @throws IOException if the chunk cannot be written
+	 */
+	public void writeChunk(int chunkX, int chunkY, char[] tileChars) throws IOException;
+}
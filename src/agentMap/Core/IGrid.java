@@ -0,0 +1,67 @@
+package agentMap.Core;
+
+/**
+ * A grid of tiles addressed by column and row, which searches can read without knowing
+ * how the tiles are stored
+ */
+public interface IGrid {
+	/**
+	 * Getter: gets the number of columns in the grid
+	 * @return width of the grid
+	 */
+	public int getWidth();
+
+	/**
+	 * Getter: gets the number of rows in the grid
+	 * @return height of the grid
+	 */
+	public int getHeight();
+
+	/**
+	 * Checks if a position lies on the grid
+	 * @param x column of the position
+	 * @param y row of the position
+	 * @return if the position is inside the grid
+	 */
+	public boolean inBounds(int x, int y);
+
+	/**
+	 * Gets whether the tile at a position can be bypassed by the agent
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return if the cell is passable
+	 */
+	public boolean isPassable(int x, int y);
+
+	/**
+	 * Gets the cost of passing the tile at a position
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return pass cost of the cell
+	 */
+	public int getPassCost(int x, int y);
+
+	/**
+	 * Gets the character of the tile at a position
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return character representing the tile
+	 */
+	public char getTileChar(int x, int y);
+
+	/**
+	 * Gets a copy of the tile blueprint at a position which carries the position
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return a tile with its position on the grid
+	 */
+	public Tile getTile(int x, int y);
+
+	/**
+	 * Places a tile on the grid, the tile is used as a blueprint for the cell
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @param tile blueprint of the tile to place
+	 */
+	public void setTile(int x, int y, Tile tile);
+}
@@ -9,4 +9,17 @@ import java.awt.Point;
  */
 public interface IHeuristic {
 	public int calcHeuristic(Point currLoc, Point goalLoc);
+	
+	/**
+	 * Returns the heuristic value of a position given as coordinates, searches call this
+	 * for every state so heuristics should override it to avoid creating points
+	 * @param currX x position of the state
+	 * @param currY y position of the state
+	 * @param goalX x position of the goal
+	 * @param goalY y position of the goal
+	 * @return estimated cost from the state to the goal
+	 */
+	public default int calcHeuristic(int currX, int currY, int goalX, int goalY) {
+		return calcHeuristic(new Point(currX, currY), new Point(goalX, goalY));
+	}
 }
@@ -0,0 +1,16 @@
+package agentMap.Core;
+
+/**
+ * Notified when a tile on a TileGrid is replaced, allowing data derived from the map
+ * to be updated for the changed tile only
+ */
+public interface IMapListener {
+	/**
+	 * Called after the tile at a position has been replaced by a different tile type
+	 * @param x x position of the tile
+	 * @param y y position of the tile
+	 * @param oldTile blueprint of the tile that was replaced
+	 * @param newTile blueprint of the tile now at the position
+	 */
+	public void tileChanged(int x, int y, Tile oldTile, Tile newTile);
+}
@@ -20,4 +20,67 @@ public interface ISearch {
 	 * @return
 	 */
 	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, Tile[][] map);
+	
+	/**
+	 * Returns a path from a starting point to another point on a compact tile grid. By default
+	 * the grid is expanded into a 2d array of tiles, search algorithms that can read the grid
+	 * directly should override this.
+	 * @param currLoc Position to start from
+	 * @param destLoc Position to end at
+	 * @param grid compact grid of tiles representing the map
+	 * @return
+	 */
+	public default LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, TileGrid grid) {
+		return getPath(currLoc, destLoc, grid.toTileArray());
+	}
+	
+	/**
+	 * Returns the best path a search can find within a budget along with a bound on how far
+	 * its cost is from the cheapest path. By default the budget is ignored and the search
+	 * runs to the end, with a bound of 1 since the path is taken to be the cheapest.
+	 * Anytime search algorithms, and searches that do not return the cheapest path, should
+	 * override this.
+	 * @param currLoc Position to start from
+	 * @param destLoc Position to end at
+	 * @param grid compact grid of tiles representing the map
+	 * @param budget limit on the work done by the search
+	 * @return the best path found and its suboptimality bound
+	 */
+	public default SearchResult getPath(Point currLoc, Point destLoc, TileGrid grid, SearchBudget budget) {
+		LinkedList<Pair<Direction, Point>> path = getPath(currLoc, destLoc, grid);
+		if (path == null) return new SearchResult(null, -1, Double.POSITIVE_INFINITY, true);
+		return new SearchResult(path, CompactPath.fromPath(path).getCost(grid), 1, true);
+	}
+	
+	/**
+	 * Returns a path from a starting point to another point in compact form. By default the
+	 * path from getPath is converted, search algorithms that can build the compact path
+	 * straight from their parent links should override this.
+	 * @param currLoc Position to start from
+	 * @param destLoc Position to end at
+	 * @param grid compact grid of tiles representing the map
+	 * @return the path, or null if the destination cannot be reached
+	 */
+	public default CompactPath getCompactPath(Point currLoc, Point destLoc, TileGrid grid) {
+		return CompactPath.fromPath(getPath(currLoc, destLoc, grid));
+	}
+	
+	/**
+	 * Gets the statistics of the last query made to this search. The statistics are
+	 * overwritten by the next query, so they have to be copied to be kept.
+	 * @return statistics of the last query, or null if the search does not keep them
+	 */
+	public default SearchStats getLastStats() {
+		return null;
+	}
+	
+	/**
+	 * Creates a search with the same settings that shares no working memory with this one,
+	 * so that each thread searching the map can have its own copy
+	 * @return a new search, or null if the search cannot be copied and has to be used
+	 * from one thread at a time
+	 */
+	public default ISearch copy() {
+		return null;
+	}
 }
@@ -0,0 +1,17 @@
+package agentMap.Core;
+
+import java.awt.Point;
+
+/**
+ * Notified by InternalMap after every path query, allowing statistics to be gathered
+ * about the searches run on the map
+ */
+public interface ISearchListener {
+	/**
+	 * Called after a path query has finished
+	 * @param startLoc starting point of the query
+	 * @param destLoc destination point of the query
+	 * @param stats statistics of the query, which the listener may keep
+	 */
+	public void searchCompleted(Point startLoc, Point destLoc, SearchStats stats);
+}
@@ -1,17 +1,26 @@
 package agentMap.Core;
 import java.awt.Dimension;
 import java.awt.Point;
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.awt.Rectangle;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
-import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 import agentMap.Heuristics.ChebyshevDist;
 import agentMap.Heuristics.ManhattanDist;
+import agentMap.Modules.CompressedPathDatabase;
+import agentMap.Modules.CooperativePlanner;
+import agentMap.Modules.FlowField;
+import agentMap.Modules.NearestTileSearch;
+import agentMap.Modules.PathSmoother;
 import agentMap.Modules.aStarSearch;
 
 /**
@@ -20,67 +29,109 @@ import agentMap.Modules.aStarSearch;
  * only supports a fully observable environment.
  */
 public class InternalMap {
-	private Tile map[][];
+	// Blueprint for cells of the grid that have not been read in from the map yet
+	private static final Tile UNKNOWN_TILE = new Tile('?', null, false, -99);
+	// Time steps each agent looks ahead when planning paths for a group of agents
+	private static final int COOPERATIVE_WINDOW = 16;
+	// The map is kept as a compact grid of tile type ids rather than a Tile per cell
+	private TileGrid grid;
 	// Note: Tiles in this hashtable can be referred to as "Tile blueprints"
 	private HashMap<Character, Tile> tileTypes; 
-	private HashMap<Character, ArrayList<Tile>> tileCollection;
 	private boolean fullyObservable;
+	private boolean eightDirections;
 	private ISearch searchAlgo;
+	// Used to find paths to the closest tiles of a type
+	private NearestTileSearch nearestSearch;
+	// Optional cache of path results, null while caching is disabled
+	private PathCache pathCache;
+	// Copies of the search algorithm for each thread running batch queries
+	private ThreadLocal<ISearch> workerSearch;
+	// Snapshot of the grid used by batch queries, retaken once the grid changes
+	private TileGrid snapshot;
+	// Component labels taken along with the batch snapshot
+	private ComponentIndex snapshotComponents;
+	// Locations of each tile character, kept up to date as the map changes
+	private TileIndex tileIndex;
+	// Connected components of the passable cells, used to turn down unreachable queries
+	private ComponentIndex components;
+	// Told about every getPath query, queries are only measured while there are listeners.
+	// Queries on other threads iterate over it while listeners are added, so it is copied on write.
+	private CopyOnWriteArrayList<ISearchListener> searchListeners;
+	// Latest snapshot of the grid read by queries in concurrent mode, null outside concurrent mode
+	private volatile TileGrid published;
+	// Snapshot of the component labels published along with each snapshot of the grid
+	private volatile ComponentIndex publishedComponents;
+	// A cell in each component holding each tile type asked about, published along with each snapshot
+	private volatile TileComponents publishedTiles;
+	// Held while the grid is changed so updates from several threads are applied one at a time
+	private Object writeLock;
+	// Copies of the nearest tile search for each thread querying in concurrent mode
+	private ThreadLocal<NearestTileSearch> workerNearest;
 	
 	/**
 	 * Base constructor which assumes the map is fully observable
 	 * @param inputFile file to read the map from
 	 * @param tileTypes different tiles that are on the map 
 	 * @param player the tile representing the player (or agent)
-	 * @param mapHeight height of the map
-	 * @param mapWidth width of the map
+	 * @param mapDim width (number of columns) and height (number of rows) of the map, which
+	 * is only used if the file cannot be read since the dimensions are taken from the file
+	 * @param eightDirections if the agent is able to move diagonally
 	 * @precondition the map has to have a size of n x m where n, m > 1, additionally
 	 * all rows and columns of the input file have to be filled with some character
 	 * @postcondition an internal map of the input file will be generated and stored 
 	 */
 	public InternalMap(String inputFile, HashMap<Character, Tile> tileTypes, Tile player, 
 			Dimension mapDim, boolean eightDirections) {
+		this(loadGrid(inputFile, tileTypes, mapDim), tileTypes, eightDirections);
+	}
+	
+	/**
+	 * Constructor for a map that has already been loaded into a grid, which assumes the
+	 * map is fully observable
+	 * @param grid grid holding the map, which the internal map keeps and updates
+	 * @param tileTypes different tiles that are on the map
+	 * @param eightDirections if the agent is able to move diagonally
+	 */
+	public InternalMap(TileGrid grid, HashMap<Character, Tile> tileTypes, boolean eightDirections) {
+		this.grid = grid;
 		this.tileTypes = tileTypes;
 		this.fullyObservable = true;
-		map = new Tile[mapDim.width][mapDim.height];
+		this.eightDirections = eightDirections;
+		nearestSearch = new NearestTileSearch(eightDirections);
+		tileIndex = new TileIndex(grid);
+		components = new ComponentIndex(grid, eightDirections);
+		searchListeners = new CopyOnWriteArrayList<ISearchListener>();
+		writeLock = new Object();
 		IHeuristic heuristic = (eightDirections == true) ? new ChebyshevDist() : new ManhattanDist();
-		// tileCollection stores the location of all the known tiles
-		tileCollection = new HashMap<Character, ArrayList<Tile>>();
-		for (char curr: tileTypes.keySet()) {
-			tileCollection.put(curr, new ArrayList<Tile>());
+		// Register every blueprint with the grid so each tile type receives its id
+		for (Tile curr: tileTypes.values()) {
+			grid.addTileType(curr);
 		}
 		// By default an A* search algorithm is used for searching
-		searchAlgo = new aStarSearch(heuristic, eightDirections);
 		// By default the heuristic used for A* is the manhatten distance
-		// Read the file and store each tile in the 2d array 
-		Scanner sc = null;
+		setSearchAlgo(new aStarSearch(heuristic, eightDirections));
+	}
+	
+	/**
+	 * Reads a map file into a grid, falling back to a grid of unknown tiles if the file
+	 * cannot be read
+	 * @param inputFile file to read the map from
+	 * @param tileTypes different tiles that are on the map
+	 * @param mapDim dimensions of the grid used when the file cannot be read
+	 * @return grid holding the map
+	 */
+	private static TileGrid loadGrid(String inputFile, HashMap<Character, Tile> tileTypes, Dimension mapDim) {
 		try {
-			sc = new Scanner(new File(inputFile));
-			int currY = 0;
-			while (sc.hasNextLine()) {
-				String mapRow = sc.nextLine();
-				char[] splitMapRow = mapRow.toCharArray();
-				/* Use the tiles from tileTypes to determine which tile the current
-				character being looked at it corresponds to*/
-				for (int currX = 0; currX < splitMapRow.length; currX++) {
-					Tile tempTile = tileTypes.get(splitMapRow[currX]);
-					// Create a deep clone of the tile blueprint with the new position
-					Tile newTile = tempTile.clone(new Point(currX, currY));
-					map[currY][currX] = newTile;
-					tileCollection.get(splitMapRow[currX]).add(newTile);
-				}
-				currY++;
-			}
+			return new MapLoader(tileTypes, UNKNOWN_TILE).load(inputFile);
 		// Account for the case where the file is specified but does not exist in directory
-		} catch (FileNotFoundException e) {
+		} catch (NoSuchFileException e) {
 			System.out.printf("File: %s not found", inputFile);
 			e.printStackTrace();
 		} catch (IOException e) {
 			System.out.printf("I/O Error when attempting to read file: %s\n", inputFile);
 			e.printStackTrace();
-		} finally {
-			sc.close();
 		}
+		return new TileGrid(mapDim.width, mapDim.height, UNKNOWN_TILE);
 	}
 	
 	/**
@@ -99,14 +150,138 @@ public class InternalMap {
 		tileTypes.remove(tileChar);
 	}
 	
+	/**
+	 * Getter: gets the grid of tiles that the map is stored in. In concurrent mode the grid
+	 * is changed by updateMap, so other threads should read getSnapshot instead.
+	 * @return the grid holding the map
+	 */
+	public TileGrid getGrid() {
+		return grid;
+	}
+	
+	/**
+	 * Replaces the search algorithm used to find paths on the map. The path cache is
+	 * cleared, since its paths were found by the old search algorithm.
+	 * @param searchAlgo the new search algorithm
+	 */
+	public void setSearchAlgo(final ISearch searchAlgo) {
+		if (published != null && searchAlgo.copy() == null) {
+			throw new IllegalStateException("Concurrent mode needs a search algorithm that can be copied for each thread");
+		}
+		this.searchAlgo = searchAlgo;
+		if (pathCache != null) {
+			pathCache.clear();
+		}
+		// Threads running batch queries each take their own copy of the new algorithm
+		workerSearch = new ThreadLocal<ISearch>() {
+			@Override
+			protected ISearch initialValue() {
+				return searchAlgo.copy();
+			}
+		};
+	}
+	
+	/**
+	 * Lets several threads query the map while other threads update it. Each update is
+	 * applied to the grid under a lock and then published as a new snapshot, and queries
+	 * search the latest published snapshot with their own copy of the search algorithm, so
+	 * they never wait for an update and never see one half applied. Taking a snapshot only
+	 * copies the references to the chunks of the grid, and the grid copies a chunk the next
+	 * time it writes to it.
+	 * Nearest tile queries check the components holding the tile type that were published
+	 * with the snapshot rather than the tile index of the grid.
+	 * Location queries still read the tile index of the grid and briefly wait for an update
+	 * that is being applied. Flow fields and grid listeners are told about changes on the
+	 * thread making them, so they should only be read by that thread.
+	 * @throws IllegalStateException if the search algorithm cannot be copied for each thread
+	 */
+	public void enableConcurrentMode() {
+		if (searchAlgo.copy() == null) {
+			throw new IllegalStateException("Concurrent mode needs a search algorithm that can be copied for each thread");
+		}
+		synchronized (writeLock) {
+			if (published != null) return;
+			final boolean eight = eightDirections;
+			workerNearest = new ThreadLocal<NearestTileSearch>() {
+				@Override
+				protected NearestTileSearch initialValue() {
+					return new NearestTileSearch(eight);
+				}
+			};
+			publish();
+		}
+	}
+	
+	/**
+	 * Getter: gets whether the map is in concurrent mode
+	 * @return if queries read published snapshots of the map
+	 */
+	public boolean isConcurrent() {
+		return published != null;
+	}
+	
+	/**
+	 * Gets a read only snapshot of the map which later updates do not change, so a search
+	 * can keep reading it for as long as it needs. In concurrent mode this is the snapshot
+	 * queries are currently reading and costs nothing to get.
+	 * @return snapshot of the grid
+	 */
+	public TileGrid getSnapshot() {
+		TileGrid current = published;
+		if (current != null) return current;
+		synchronized (writeLock) {
+			return grid.snapshot();
+		}
+	}
+	
+	/**
+	 * Publishes a snapshot of the grid and its component labels for queries to read, called
+	 * while holding the write lock. The labels are published first, so a query that reads
+	 * the labels after the grid may see labels newer than its grid but never older.
+	 * The components holding each tile type that nearest tile queries have asked about are
+	 * found again from the tile index, so queries do not read the index while it changes.
+	 */
+	private void publish() {
+		TileComponents previous = publishedTiles;
+		publishedComponents = components.snapshot();
+		TileComponents tiles = new TileComponents(grid.getVersion());
+		if (previous != null) {
+			for (Character tileChar : previous.cells.keySet()) {
+				tiles.cells.put(tileChar, componentCells(components, grid.getWidth(), tileIndex.findTileCells(tileChar)));
+			}
+		}
+		publishedTiles = tiles;
+		published = grid.snapshot();
+	}
+	
+	/**
+	 * Gets the grid queries should read, which is the published snapshot in concurrent mode
+	 * @return grid to read
+	 */
+	private TileGrid readGrid() {
+		TileGrid current = published;
+		return (current != null) ? current : grid;
+	}
+	
+	/**
+	 * Gets the search algorithm a query on the given grid should use, which is the calling
+	 * thread's own copy when the grid is a published snapshot
+	 * @param view grid returned by readGrid
+	 * @return search algorithm to use
+	 */
+	private ISearch readSearch(TileGrid view) {
+		return (view != grid) ? workerSearch.get() : searchAlgo;
+	}
+	
 	/**
 	 * Displays the map as a 2d grid with the different characters to represent
 	 * each different tile
 	 */
 	public void displayMap() {
-		for (int y = 0; y < map.length; y++) {
-			for (int x = 0; x < map[0].length; x++) {
-				System.out.print(map[y][x].getTileChar());
+		TileGrid view = readGrid();
+		for (int y = 0; y < view.getHeight(); y++) {
+			for (int x = 0; x < view.getWidth(); x++) {
+				System.out.print(view.getTileChar(x, y));
 			}
 			System.out.println();
 		}
@@ -118,70 +293,612 @@ public class InternalMap {
 	 */
 	public void displayTileCount() {
 		System.out.println("Count of all known tiles:");
+		TileGrid view = readGrid();
 		for (char curr: tileTypes.keySet()) {
-			System.out.printf("%c: %d\n", curr, tileCollection.get(curr).size());
+			System.out.printf("%c: %d\n", curr, view.getTileCount(curr));
 		}
 	}
 	
+	/**
+	 * Places a tile on the map, the tile is used as a blueprint for the cell
+	 * @param tile the tile to place
+	 * @param point position of the tile on the map
+	 * @throws IllegalArgumentException if the point is off the map
+	 */
 	public void updateMap(Tile tile, Point point) {
-		map[point.y][point.x] = tile;
+		if (published == null) {
+			grid.setTile(point.x, point.y, tile);
+			return;
+		}
+		synchronized (writeLock) {
+			grid.setTile(point.x, point.y, tile);
+			publish();
+		}
 	}
 	
 	/**
-	 * Gets a path from one point to another point using a search algorithm 
+	 * Places several tiles on the map at once. In concurrent mode queries see either none or
+	 * all of the tiles, and a single snapshot is published for the whole batch.
+	 * @param tiles the tiles to place
+	 * @param points position of each tile on the map
+	 * @throws IllegalArgumentException if the lists differ in length or a point is off the
+	 * map, in which case no tile is placed
+	 */
+	public void updateMap(List<Tile> tiles, List<Point> points) {
+		if (tiles.size() != points.size()) {
+			throw new IllegalArgumentException("Every tile needs a position");
+		}
+		synchronized (writeLock) {
+			// Check the whole batch before changing anything so it is never half applied
+			for (int i = 0; i < points.size(); i++) {
+				Point point = points.get(i);
+				if (!grid.inBounds(point.x, point.y)) {
+					throw new IllegalArgumentException("Point " + point + " is outside the map");
+				}
+			}
+			for (int i = 0; i < tiles.size(); i++) {
+				grid.addTileType(tiles.get(i));
+			}
+			for (int i = 0; i < tiles.size(); i++) {
+				grid.setTile(points.get(i).x, points.get(i).y, tiles.get(i));
+			}
+			if (published != null) {
+				publish();
+			}
+		}
+	}
+	
+	/**
+	 * Gets a path from one point to another point using a search algorithm. A destination
+	 * in a different connected component is turned down without searching.
 	 * @param startLoc Starting point
 	 * @param destLoc Destination point
 	 * @return Queue of points representing the path between the two points
 	 */
 	public Queue<Pair<Direction, Point>> getPath(Point startLoc, Point destLoc) {
-		Queue<Pair<Direction, Point>> path = searchAlgo.getPath(startLoc, destLoc, map);
+		TileGrid view = readGrid();
+		ISearch search = readSearch(view);
+		if (isUnreachable(view, startLoc, destLoc)) {
+			notifyUnreachable(startLoc, destLoc);
+			return null;
+		}
+		if (!searchListeners.isEmpty()) {
+			return getMeasuredPath(startLoc, destLoc, view, search);
+		}
+		if (pathCache != null) {
+			return pathCache.getPath(startLoc, destLoc, view, search);
+		}
+		Queue<Pair<Direction, Point>> path = search.getPath(startLoc, destLoc, view);
 		return path;
 	}
 	
-	public ArrayList<Point> getLocOfTile(char tileChar) {
-		ArrayList<Point> points = new ArrayList<Point>();
-		ArrayList<Tile> tileList = tileCollection.get(tileChar);
-		Iterator<Tile> tileIt = tileList.iterator();
-		while (tileIt.hasNext()) {
-			Tile currTile = tileIt.next();
-			Point currPos = currTile.getTilePos();
-			points.add(new Point (currPos.x, currPos.y));
+	/**
+	 * Gets the best path the search algorithm can find within a budget, for agents that have
+	 * to act by a deadline. Only anytime searches such as an ARAStarSearch or
+	 * WeightedAStarSearch stop when the budget runs out, other searches run to the end.
+	 * The path cache is not used.
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @param budget limit on the work done by the search
+	 * @return the best path found along with its suboptimality bound
+	 */
+	public SearchResult getPath(Point startLoc, Point destLoc, SearchBudget budget) {
+		TileGrid view = readGrid();
+		if (isUnreachable(view, startLoc, destLoc)) {
+			return new SearchResult(null, -1, Double.POSITIVE_INFINITY, true);
 		}
-		return points;
+		return readSearch(view).getPath(startLoc, destLoc, view, budget);
 	}
 	
-	public static void main(String args[]) {
-		Scanner sc = null;
-		String inputFile = "maps/map1.txt";
-		/* Attempt to read the contents of the map and determine the
-		height and width of the map to initialise a 2d array in the Internal Map*/
-		int mapWidth = -1;
-		int mapHeight = 0;
-		try {
-			sc = new Scanner(new File(inputFile));
-			while (sc.hasNextLine()) {
-				String nextLine = sc.nextLine();
-				if (mapWidth == -1) {
-					mapWidth = nextLine.length();
-				}
-				mapHeight += 1;
+	/**
+	 * Gets a path from one point to another point as a few waypoints, where the agent moves
+	 * in a straight line from each waypoint to the next. The path of the search algorithm
+	 * is shortened with PathSmoother, so a search that already returns waypoints such as
+	 * ThetaStarSearch is only shortened further where it can be.
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @return Queue of waypoints from the start to the destination, or null if the
+	 * destination cannot be reached
+	 */
+	public Queue<Pair<Direction, Point>> getSmoothPath(Point startLoc, Point destLoc) {
+		Queue<Pair<Direction, Point>> path = getPath(startLoc, destLoc);
+		return PathSmoother.smooth(path, readGrid());
+	}
+	
+	/**
+	 * Builds a first-move database of the map as it is now, which can be saved and passed
+	 * to setSearchAlgo once the map stops changing. Once the map changes the database
+	 * is no longer used and searches fall back to A*.
+	 * @return the database
+	 */
+	public CompressedPathDatabase buildPathDatabase() {
+		return CompressedPathDatabase.build(getSnapshot(), eightDirections);
+	}
+	
+	/**
+	 * Gets a path from one point to another point in compact form, which stores a long path
+	 * in a few bytes instead of a queue entry per step
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @return the path, or null if the destination cannot be reached
+	 */
+	public CompactPath getCompactPath(Point startLoc, Point destLoc) {
+		TileGrid view = readGrid();
+		ISearch search = readSearch(view);
+		if (isUnreachable(view, startLoc, destLoc)) {
+			notifyUnreachable(startLoc, destLoc);
+			return null;
+		}
+		if (!searchListeners.isEmpty()) {
+			PathCache cache = pathCache;
+			long startTime = System.nanoTime();
+			CompactPath path = (cache != null) ? cache.getCompactPath(startLoc, destLoc, view, search)
+					: search.getCompactPath(startLoc, destLoc, view);
+			boolean cacheHit = cache != null && cache.isLastLookupHit();
+			notifySearchListeners(startLoc, destLoc, path, System.nanoTime() - startTime, cacheHit, view, search);
+			return path;
+		}
+		if (pathCache != null) {
+			return pathCache.getCompactPath(startLoc, destLoc, view, search);
+		}
+		return search.getCompactPath(startLoc, destLoc, view);
+	}
+	
+	/**
+	 * Checks the component index for a destination that cannot be reached, which a search
+	 * would only find out after expanding every cell it can reach
+	 * @param view grid the query reads
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @return if the destination certainly cannot be reached
+	 */
+	private boolean isUnreachable(TileGrid view, Point startLoc, Point destLoc) {
+		if (!view.inBounds(startLoc.x, startLoc.y) || !view.inBounds(destLoc.x, destLoc.y)) {
+			return false;
+		}
+		ComponentIndex index = componentsFor(view);
+		return index != null && !index.canReach(startLoc.x, startLoc.y, destLoc.x, destLoc.y);
+	}
+	
+	/**
+	 * Gets the component labels that match a grid a query reads
+	 * @param view grid returned by readGrid
+	 * @return the labels, or null if the labels published with the grid have since been
+	 * replaced, in which case the query is not checked
+	 */
+	private ComponentIndex componentsFor(TileGrid view) {
+		if (view == grid) return components;
+		ComponentIndex index = publishedComponents;
+		return (index != null && index.getVersion() == view.getVersion()) ? index : null;
+	}
+	
+	/**
+	 * Checks the component index for a tile type that cannot be reached from a point
+	 * @param view grid the query reads
+	 * @param startLoc Starting point
+	 * @param tileChar character of the tile
+	 * @return if no tile of the type can be reached
+	 */
+	private boolean isTileUnreachable(TileGrid view, Point startLoc, char tileChar) {
+		if (!view.inBounds(startLoc.x, startLoc.y)) return false;
+		if (view == grid) return !canReachTile(components, startLoc, tileChar);
+		ComponentIndex index = componentsFor(view);
+		TileComponents tiles = publishedTiles;
+		// Skip the check rather than wait when the snapshot has been replaced since it was read
+		if (index == null || tiles == null || tiles.version != view.getVersion()) return false;
+		if (view.getTileCount(tileChar) == 0) return true;
+		if (view.getTileType(view.getTileId(view.index(startLoc.x, startLoc.y))).getTileChar() == tileChar) {
+			return false;
+		}
+		int[] cells = tiles.cells.get(tileChar);
+		if (cells == null) {
+			// Found once from the snapshot, later snapshots find it again from the tile index
+			cells = componentCells(index, view.getWidth(), findTileCells(view, tileChar));
+			tiles.cells.put(tileChar, cells);
+		}
+		for (int i = 0; i < cells.length; i++) {
+			if (index.canReach(startLoc.x, startLoc.y, cells[i] % view.getWidth(), cells[i] / view.getWidth())) {
+				return false;
 			}
-			// Exit the program if map with invalid dimensions is given
-			if (mapHeight < 1 || mapWidth < 1) {
-				return;
+		}
+		return true;
+	}
+	
+	/**
+	 * Picks one cell from each component that holds some of the given cells
+	 * @param index component labels the cells are read from
+	 * @param width width of the grid
+	 * @param cells cells holding a tile type
+	 * @return a passable cell in each component holding the tile type
+	 */
+	private static int[] componentCells(ComponentIndex index, int width, int[] cells) {
+		HashMap<Integer, Integer> picked = new HashMap<Integer, Integer>();
+		for (int i = 0; i < cells.length; i++) {
+			int component = index.getComponent(cells[i] % width, cells[i] / width);
+			if (component != -1 && !picked.containsKey(component)) picked.put(component, cells[i]);
+		}
+		int[] result = new int[picked.size()];
+		int next = 0;
+		for (int cell : picked.values()) {
+			result[next++] = cell;
+		}
+		return result;
+	}
+	
+	/**
+	 * Finds the cells holding a tile type by reading every cell of a grid
+	 * @param view grid to read
+	 * @param tileChar character of the tile
+	 * @return cells holding the tile type
+	 */
+	private static int[] findTileCells(TileGrid view, char tileChar) {
+		int[] cells = new int[view.getTileCount(tileChar)];
+		int next = 0;
+		for (int cell = 0; cell < view.size() && next < cells.length; cell++) {
+			if (view.getTileType(view.getTileId(cell)).getTileChar() == tileChar) cells[next++] = cell;
+		}
+		return cells;
+	}
+	
+	/**
+	 * Tells the search listeners about a query that was turned down without searching
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 */
+	private void notifyUnreachable(Point startLoc, Point destLoc) {
+		if (searchListeners.isEmpty()) return;
+		SearchStats stats = new SearchStats();
+		stats.setPathCost(-1);
+		for (ISearchListener listener : searchListeners) {
+			listener.searchCompleted(startLoc, destLoc, stats);
+		}
+	}
+	
+	/**
+	 * Checks if any tile with the given character can be reached from a point
+	 * @param index component labels matching the live grid
+	 * @param startLoc Starting point
+	 * @param tileChar character of the tile
+	 * @return if a tile of the type is in the same component as the point
+	 */
+	private boolean canReachTile(ComponentIndex index, Point startLoc, char tileChar) {
+		if (grid.getTileCount(tileChar) == 0) return false;
+		int width = grid.getWidth();
+		int[] cells = tileIndex.findTileCells(tileChar);
+		for (int i = 0; i < cells.length; i++) {
+			if (index.canReach(startLoc.x, startLoc.y, cells[i] % width, cells[i] / width)) return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Gets a path while measuring the query and tells the search listeners about it
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @param view grid to search
+	 * @param search search algorithm to use
+	 * @return Queue of points representing the path between the two points
+	 */
+	private Queue<Pair<Direction, Point>> getMeasuredPath(Point startLoc, Point destLoc, TileGrid view, ISearch search) {
+		return getMeasuredPath(startLoc, destLoc, view, search, pathCache);
+	}
+	
+	/**
+	 * Gets a path while measuring the query and tells the search listeners about it
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @param view grid to search
+	 * @param search search algorithm to use
+	 * @param cache path cache to use, or null to always search
+	 * @return Queue of points representing the path between the two points
+	 */
+	private Queue<Pair<Direction, Point>> getMeasuredPath(Point startLoc, Point destLoc, TileGrid view, ISearch search,
+			PathCache cache) {
+		long startTime = System.nanoTime();
+		Queue<Pair<Direction, Point>> path;
+		if (cache != null) {
+			path = cache.getPath(startLoc, destLoc, view, search);
+		} else {
+			path = search.getPath(startLoc, destLoc, view);
+		}
+		boolean cacheHit = cache != null && cache.isLastLookupHit();
+		notifySearchListeners(startLoc, destLoc, path, System.nanoTime() - startTime, cacheHit, view, search);
+		return path;
+	}
+	
+	/**
+	 * Tells the search listeners about a query that has finished
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @param path the path found, or null
+	 * @param wallTime time the query took in nanoseconds
+	 * @param cacheHit if the path came from the path cache
+	 * @param view grid the query searched
+	 * @param search search algorithm that answered the query
+	 */
+	private void notifySearchListeners(Point startLoc, Point destLoc, Iterable<Pair<Direction, Point>> path,
+			long wallTime, boolean cacheHit, TileGrid view, ISearch search) {
+		SearchStats searchStats = search.getLastStats();
+		SearchStats stats = (searchStats == null || cacheHit) ? new SearchStats() : new SearchStats(searchStats);
+		if (searchStats == null || cacheHit) {
+			stats.setPathCost(pathCost(path, view));
+		}
+		stats.setWallTimeNanos(wallTime);
+		stats.setCacheHit(cacheHit);
+		for (ISearchListener listener : searchListeners) {
+			listener.searchCompleted(startLoc, destLoc, stats);
+		}
+	}
+	
+	/**
+	 * Adds up the pass costs of the tiles a path moves onto
+	 * @param path the path, or null
+	 * @param view grid the path is on
+	 * @return cost of the path, or -1 if there is no path
+	 */
+	private static int pathCost(Iterable<Pair<Direction, Point>> path, TileGrid view) {
+		if (path == null) return -1;
+		if (path instanceof CompactPath) {
+			return ((CompactPath) path).getCost(view);
+		}
+		int cost = 0;
+		boolean first = true;
+		for (Pair<Direction, Point> step : path) {
+			if (!first) cost += view.getPassCost(step.second.x, step.second.y);
+			first = false;
+		}
+		return cost;
+	}
+	
+	/**
+	 * Registers a listener to be told about every getPath query along with its statistics.
+	 * Queries are only measured while at least one listener is registered.
+	 * @param listener the listener to add, e.g. a SearchMetrics
+	 */
+	public void addSearchListener(ISearchListener listener) {
+		searchListeners.add(listener);
+	}
+	
+	/**
+	 * Stops a listener from being told about getPath queries
+	 * @param listener the listener to remove
+	 */
+	public void removeSearchListener(ISearchListener listener) {
+		searchListeners.remove(listener);
+	}
+	
+	/**
+	 * Gets a path to the closest tile with the given character using one search, rather than
+	 * searching for a path to every location returned by getLocOfTile
+	 * @param startLoc Starting point
+	 * @param tileChar character of the tile to find
+	 * @return Queue of points representing the path to the closest tile, or null if
+	 * no tile of the type can be reached
+	 */
+	public Queue<Pair<Direction, Point>> getPathToNearest(Point startLoc, char tileChar) {
+		TileGrid view = readGrid();
+		if (isTileUnreachable(view, startLoc, tileChar)) {
+			return null;
+		}
+		return nearestSearch(view).getPathToNearest(startLoc, tileChar, view);
+	}
+	
+	/**
+	 * Gets the paths to the k closest tiles with the given character using one search
+	 * @param startLoc Starting point
+	 * @param tileChar character of the tiles to find
+	 * @param k number of tiles to find
+	 * @return paths to at most k tiles ordered from closest to furthest
+	 */
+	public List<Queue<Pair<Direction, Point>>> getPathsToNearest(Point startLoc, char tileChar, int k) {
+		TileGrid view = readGrid();
+		if (isTileUnreachable(view, startLoc, tileChar)) {
+			return new ArrayList<Queue<Pair<Direction, Point>>>();
+		}
+		return new ArrayList<Queue<Pair<Direction, Point>>>(nearestSearch(view).getPathsToNearest(startLoc, tileChar, k, view));
+	}
+	
+	/**
+	 * Gets the nearest tile search a query on the given grid should use
+	 * @param view grid returned by readGrid
+	 * @return the calling thread's own search when the grid is a published snapshot
+	 */
+	private NearestTileSearch nearestSearch(TileGrid view) {
+		return (view != grid) ? workerNearest.get() : nearestSearch;
+	}
+	
+	/**
+	 * Creates a flow field towards a set of goals which agents can read their next step from
+	 * instead of searching, the field is kept up to date as the map changes until it is detached
+	 * @param goals the tiles to move towards
+	 * @return flow field over the map
+	 */
+	public FlowField createFlowField(Point... goals) {
+		return new FlowField(grid, goals, eightDirections);
+	}
+	
+	/**
+	 * Gets the paths for a batch of queries, searching them in parallel when the search algorithm
+	 * can be copied for each thread. Every query in the batch sees the map as it was when the
+	 * batch started. In concurrent mode the batch reads the published snapshot.
+	 * As with getPath a destination in a different connected component is turned down
+	 * without searching and the search listeners are told about every query, from the
+	 * thread that answered it. Unlike getPath the path cache is not used.
+	 * @param starts starting point of each query
+	 * @param dests destination point of each query
+	 * @return the path for each query in the same order as the queries, with null for any
+	 * destination that cannot be reached
+	 */
+	public List<Queue<Pair<Direction, Point>>> getPaths(List<Point> starts, List<Point> dests) {
+		if (starts.size() != dests.size()) {
+			throw new IllegalArgumentException("Every starting point needs a destination point");
+		}
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Queue<Pair<Direction, Point>>[] paths = new Queue[starts.size()];
+		if (workerSearch.get() == null) {
+			// The search has to be used by one thread at a time
+			for (int i = 0; i < paths.length; i++) {
+				paths[i] = getBatchPath(starts.get(i), dests.get(i), grid, components);
 			}
-		// Account for the case where the file is specified but does not exist in directory
-		} catch (FileNotFoundException e) {
-			System.out.printf("File: %s not found\n", inputFile);
-			e.printStackTrace();
-		} catch (IOException e) {
-			System.out.printf("I/O Error when attempting to read file: %s\n", inputFile);
-			e.printStackTrace();
-		// Always remember to close the file
-		} finally {
-			sc.close();
+		} else {
+			TileGrid view = published;
+			ComponentIndex index;
+			if (view == null) {
+				if (snapshot == null || snapshot.getVersion() != grid.getVersion()) {
+					snapshot = grid.snapshot();
+					snapshotComponents = components.snapshot();
+				}
+				view = snapshot;
+				index = snapshotComponents;
+			} else {
+				index = componentsFor(view);
+			}
+			ForkJoinPool.commonPool().invoke(new PathBatch(this, view, index, starts, dests, paths, 0, paths.length));
 		}
-		System.out.printf("(Debug) Map: %s read successfully\n", inputFile);
+		return Arrays.asList(paths);
+	}
+	
+	/**
+	 * Answers one query of a batch on the thread running it
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @param view grid the batch reads
+	 * @param index component labels matching the grid, or null to search every query
+	 * @return Queue of points representing the path between the two points, or null if the
+	 * destination cannot be reached
+	 */
+	Queue<Pair<Direction, Point>> getBatchPath(Point startLoc, Point destLoc, TileGrid view, ComponentIndex index) {
+		if (index != null && view.inBounds(startLoc.x, startLoc.y) && view.inBounds(destLoc.x, destLoc.y)
+				&& !index.canReach(startLoc.x, startLoc.y, destLoc.x, destLoc.y)) {
+			notifyUnreachable(startLoc, destLoc);
+			return null;
+		}
+		ISearch search = readSearch(view);
+		if (!searchListeners.isEmpty()) {
+			return getMeasuredPath(startLoc, destLoc, view, search, null);
+		}
+		return search.getPath(startLoc, destLoc, view);
+	}
+	
+	/**
+	 * Plans paths for a group of agents that never put two agents in the same cell or swap
+	 * two agents' places, rather than planning each agent on its own and repairing the
+	 * collisions afterwards
+	 * @param starts position of each agent
+	 * @param goals goal of each agent, in the same order as the starting points
+	 * @param maxSteps most time steps to plan for
+	 * @return path of each agent in the same order as the agents, where an entry with the
+	 * direction NONE after the first is a wait in place
+	 */
+	public List<LinkedList<Pair<Direction, Point>>> getCooperativePaths(List<Point> starts, List<Point> goals, int maxSteps) {
+		IHeuristic heuristic = (eightDirections == true) ? new ChebyshevDist() : new ManhattanDist();
+		CooperativePlanner planner = new CooperativePlanner(heuristic, eightDirections, COOPERATIVE_WINDOW);
+		return planner.plan(starts, goals, readGrid(), maxSteps);
+	}
+	
+	/**
+	 * Caches the results of getPath so repeated queries do not search again, a cached path is
+	 * dropped once the map changes in a way that could alter it
+	 * @param capacity maximum number of paths to keep
+	 */
+	public void enablePathCache(int capacity) {
+		pathCache = new PathCache(capacity);
+	}
+	
+	/**
+	 * Stops caching the results of getPath and discards the cached paths
+	 */
+	public void disablePathCache() {
+		pathCache = null;
+	}
+	
+	/**
+	 * Getter: gets the path cache, which also holds its hit and miss statistics
+	 * @return the path cache, or null if caching is disabled
+	 */
+	public PathCache getPathCache() {
+		return pathCache;
+	}
+	
+	/**
+	 * Gets the location of every tile with the given character on the map
+	 * @param tileChar character of the tile to find
+	 * @return list of positions of the tile, ordered row by row
+	 */
+	public ArrayList<Point> getLocOfTile(char tileChar) {
+		if (published == null) return tileIndex.findTiles(tileChar);
+		synchronized (writeLock) {
+			return tileIndex.findTiles(tileChar);
+		}
+	}
+	
+	/**
+	 * Gets the location of every tile with the given character inside an area of the map
+	 * @param tileChar character of the tile to find
+	 * @param area rectangle of the map to search
+	 * @return list of positions of the tile, ordered row by row
+	 */
+	public ArrayList<Point> getLocOfTile(char tileChar, Rectangle area) {
+		if (published == null) return tileIndex.findTiles(tileChar, area);
+		synchronized (writeLock) {
+			return tileIndex.findTiles(tileChar, area);
+		}
+	}
+	
+	/**
+	 * Gets the location of every tile with the given character near a point, e.g. the
+	 * resources an agent can see
+	 * @param tileChar character of the tile to find
+	 * @param center point to search around
+	 * @param radius largest straight line distance from the point, in tiles
+	 * @return list of positions of the tile, ordered row by row
+	 */
+	public ArrayList<Point> getLocOfTileInRadius(char tileChar, Point center, int radius) {
+		if (published == null) return tileIndex.findTilesInRadius(tileChar, center, radius);
+		synchronized (writeLock) {
+			return tileIndex.findTilesInRadius(tileChar, center, radius);
+		}
+	}
+	
+	/**
+	 * Checks if a path can lead from one point to another from the connected components of
+	 * the map, without searching
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @return if the destination can be reached, which is never the case for points off the map
+	 */
+	public boolean canReach(Point startLoc, Point destLoc) {
+		if (!grid.inBounds(startLoc.x, startLoc.y) || !grid.inBounds(destLoc.x, destLoc.y)) return false;
+		ComponentIndex index = (published == null) ? components : publishedComponents;
+		return index.canReach(startLoc.x, startLoc.y, destLoc.x, destLoc.y);
+	}
+	
+	/**
+	 * Counts the tiles with the given character on the map from the counts the grid keeps
+	 * of each tile type, so it does not depend on the size of the map
+	 * @param tileChar character of the tile to count
+	 * @return number of tiles
+	 */
+	public int getTileCount(char tileChar) {
+		return readGrid().getTileCount(tileChar);
+	}
+	
+	/**
+	 * A passable cell in each component holding each tile type, for the snapshot of the
+	 * grid with the same version. Types are added the first time they are asked about.
+	 */
+	private static class TileComponents {
+		private final int version;
+		private final ConcurrentHashMap<Character, int[]> cells;
+		
+		private TileComponents(int version) {
+			this.version = version;
+			cells = new ConcurrentHashMap<Character, int[]>();
+		}
+	}
+	
+	public static void main(String args[]) {
+		String inputFile = "maps/map1.txt";
 		// TODO: Allow for a configuration file to load in the tile types on the map
 		// Hardcode all the tile types for now
 		Tile wall1 = new Tile('-', null, false, -99);
@@ -197,10 +914,26 @@ public class InternalMap {
 		tileTypes.put('g', gold);
 		tileTypes.put('o', player);
 		tileTypes.put(' ', empty);
-		Dimension mapDim = new Dimension(mapHeight, mapWidth);
+		/* Read the contents of the map in one pass, the height and width of the
+		map are worked out while it is read*/
+		TileGrid grid = null;
+		try {
+			grid = new MapLoader(tileTypes, UNKNOWN_TILE).load(inputFile);
+		// Account for the case where the file is specified but does not exist in directory
+		} catch (NoSuchFileException e) {
+			System.out.printf("File: %s not found\n", inputFile);
+			e.printStackTrace();
+			return;
+		// Exit the program if the map cannot be read or has no tiles
+		} catch (IOException e) {
+			System.out.printf("I/O Error when attempting to read file: %s\n", inputFile);
+			e.printStackTrace();
+			return;
+		}
+		System.out.printf("(Debug) Map: %s read successfully\n", inputFile);
 		boolean eightDirections = false;
-		// Create an internal map using dimensions and blueprint tiles  
-		InternalMap iMap = new InternalMap(inputFile, tileTypes, player, mapDim, eightDirections);
+		// Create an internal map using the grid and blueprint tiles  
+		InternalMap iMap = new InternalMap(grid, tileTypes, eightDirections);
 		// TODO: Make JUnit tests
 		System.out.printf("(Debug) Internal map created successfully\n");
 		iMap.displayMap();
@@ -0,0 +1,217 @@
+package agentMap.Core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Reads a map where each character is one tile and each line is one row of the map, in a
+ * single pass that works out the dimensions of the map as it goes. Files are memory mapped
+ * and streams are read in blocks, every byte is turned into a tile type id through a lookup
+ * table so no Character or Tile is created per cell. The width of the map is the length of
+ * its first line, shorter rows are filled with the unknown tile and longer rows are cut off.
+ * Only tiles whose characters fit in a single byte can be read.
+ */
+public class MapLoader {
+	// Files are mapped in windows of this many bytes so maps over 2GB can be read
+	private static final long MAP_WINDOW = 1L << 30;
+	private static final int BLOCK_SIZE = 1 << 16;
+	// Largest number of cells an array of tile ids can hold
+	private static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+	private Tile unknownTile;
+	// Distinct blueprints in the order their local ids were given, the unknown tile is id 0
+	private ArrayList<Tile> tiles;
+	// Local tile id of each byte value
+	private byte[] lookup;
+
+	/**
+	 * Constructor
+	 * @param tileTypes tile blueprints keyed by the character that represents them
+	 * @param unknownTile blueprint for characters that are not in tileTypes and for the
+	 * missing end of short rows
+	 */
+	public MapLoader(Map<Character, Tile> tileTypes, Tile unknownTile) {
+		this.unknownTile = unknownTile;
+		tiles = new ArrayList<Tile>();
+		tiles.add(unknownTile);
+		lookup = new byte[256];
+		for (Map.Entry<Character, Tile> entry : tileTypes.entrySet()) {
+			char tileChar = entry.getKey();
+			if (tileChar > 0xFF) {
+				throw new IllegalArgumentException("Tile character " + tileChar + " does not fit in a byte");
+			}
+			if (tiles.size() == TileGrid.MAX_TILE_TYPES) {
+				throw new IllegalArgumentException("A map cannot hold more than " + TileGrid.MAX_TILE_TYPES + " tile types");
+			}
+			lookup[tileChar] = (byte) tiles.size();
+			tiles.add(entry.getValue());
+		}
+	}
+
+	/**
+	 * Reads a map from a file by memory mapping it
+	 * @param inputFile file to read the map from
+	 * @return grid holding the map
+	 * @throws IOException if the file cannot be read or holds no tiles
+	 */
+	public TileGrid load(String inputFile) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+		try {
+			long fileSize = channel.size();
+			Reader reader = new Reader(fileSize);
+			byte[] block = new byte[BLOCK_SIZE];
+			for (long position = 0; position < fileSize; position += MAP_WINDOW) {
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+						Math.min(MAP_WINDOW, fileSize - position));
+				reader.read(window, block);
+			}
+			return reader.finish();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Reads a map from a channel until it reaches the end of the channel
+	 * @param channel channel to read the map from, which is not closed
+	 * @return grid holding the map
+	 * @throws IOException if the channel cannot be read or holds no tiles
+	 */
+	public TileGrid load(ReadableByteChannel channel) throws IOException {
+		Reader reader = new Reader(BLOCK_SIZE);
+		ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+		byte[] block = new byte[BLOCK_SIZE];
+		while (channel.read(buffer) >= 0) {
+			buffer.flip();
+			reader.read(buffer, block);
+			buffer.clear();
+		}
+		return reader.finish();
+	}
+
+	/**
+	 * Reads a map from a stream until it reaches the end of the stream
+	 * @param in stream to read the map from, which is not closed
+	 * @return grid holding the map
+	 * @throws IOException if the stream cannot be read or holds no tiles
+	 */
+	public TileGrid load(InputStream in) throws IOException {
+		return load(Channels.newChannel(in));
+	}
+
+	/**
+	 * Collects the tile ids of one map as its bytes arrive
+	 */
+	private class Reader {
+		private byte[] ids;
+		private int numCells;
+		// Width of the map, or -1 until the first line has ended
+		private int width;
+		private int currX;
+		private int numRows;
+		private boolean rowOpen;
+
+		/**
+		 * Constructor
+		 * @param expectedSize expected number of bytes in the map, used to size the ids
+		 */
+		Reader(long expectedSize) {
+			ids = new byte[(int) Math.max(16, Math.min(expectedSize, MAX_CELLS))];
+			width = -1;
+		}
+
+		/**
+		 * Reads the remaining bytes of a buffer
+		 * @param buffer bytes of the map
+		 * @param block scratch array the bytes are copied into
+		 * @throws IOException if the map has more cells than a grid can hold
+		 */
+		void read(ByteBuffer buffer, byte[] block) throws IOException {
+			while (buffer.hasRemaining()) {
+				int length = Math.min(block.length, buffer.remaining());
+				buffer.get(block, 0, length);
+				for (int i = 0; i < length; i++) {
+					byte curr = block[i];
+					if (curr == '\n') {
+						endRow();
+					} else if (curr != '\r') {
+						addCell(lookup[curr & 0xFF]);
+					}
+				}
+			}
+		}
+
+		private void addCell(byte id) throws IOException {
+			rowOpen = true;
+			if (width != -1 && currX >= width) return;
+			if (numCells == ids.length) {
+				if (ids.length == MAX_CELLS) throw tooLarge();
+				ids = Arrays.copyOf(ids, (int) Math.min((long) ids.length * 2, MAX_CELLS));
+			}
+			ids[numCells++] = id;
+			currX++;
+		}
+
+		private void endRow() throws IOException {
+			if (width == -1) {
+				width = currX;
+			} else {
+				// Short rows keep the unknown tile, which is id 0, for their missing cells
+				long rowEnd = (long) numRows * width + width;
+				if (rowEnd > MAX_CELLS) throw tooLarge();
+				if (rowEnd > ids.length) {
+					ids = Arrays.copyOf(ids, (int) Math.min(Math.max((long) ids.length * 2, rowEnd), MAX_CELLS));
+				}
+				Arrays.fill(ids, numCells, (int) rowEnd, (byte) 0);
+				numCells = (int) rowEnd;
+			}
+			numRows++;
+			currX = 0;
+			rowOpen = false;
+		}
+
+		private IOException tooLarge() {
+			return new IOException("The map has more than " + MAX_CELLS + " tiles");
+		}
+
+		/**
+		 * Creates the grid from the tile ids read
+		 * @return grid holding the map
+		 * @throws IOException if no tiles were read
+		 */
+		TileGrid finish() throws IOException {
+			// The last line does not need to end with a new line
+			if (rowOpen || width == -1) endRow();
+			if (width < 1) {
+				throw new IOException("The map does not contain any tiles");
+			}
+			// The grid copies the ids into its chunks, so any unused space at the end is not trimmed
+			byte[] cells = ids;
+			ids = null;
+			TileGrid grid = new TileGrid(width, numRows, unknownTile, false);
+			// Blueprints that match another blueprint share its id in the grid
+			byte[] remap = new byte[tiles.size()];
+			boolean sameIds = true;
+			for (int id = 0; id < tiles.size(); id++) {
+				remap[id] = (byte) grid.addTileType(tiles.get(id));
+				sameIds &= remap[id] == (byte) id;
+			}
+			if (!sameIds) {
+				for (int i = 0; i < numCells; i++) {
+					cells[i] = remap[cells[i] & 0xFF];
+				}
+			}
+			grid.loadTileIds(cells);
+			return grid;
+		}
+	}
+}
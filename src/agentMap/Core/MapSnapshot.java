@@ -0,0 +1,229 @@
+package agentMap.Core;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves a grid to a compact binary file and restores it again, which is far quicker than
+ * parsing the text format of a map. The file holds the dimensions of the grid, its table of
+ * tile types and the tile type id of every cell. The cells are split into chunks of rows and
+ * each chunk is stored either as raw ids or run length encoded, whichever is smaller, with a
+ * table of chunk offsets so a chunk can be found without reading the ones before it.
+ * Restoring maps the file into memory and copies raw chunks and expands runs straight from
+ * the mapped file into the chunks of the grid, without an array of every id in between.
+ *
+ * Layout, big endian:
+ * magic (int), format version (int), width (int), height (int), rows per chunk (int),
+ * number of tile types (int), then per type: character (char), passable (byte), pass cost (int),
+ * then the offset of every chunk and the end of the file (long each), then the chunks. A
+ * chunk is an encoding byte followed by its ids, or by (id byte, run length varint) pairs.
+ */
+public class MapSnapshot {
+	private static final int MAGIC = 0x54475244;
+	private static final int FORMAT_VERSION = 1;
+	private static final int ROWS_PER_CHUNK = 64;
+	private static final byte RAW = 0;
+	private static final byte RUN_LENGTH = 1;
+
+	/**
+	 * Saves a grid to a file, replacing the file if it exists
+	 * @param grid grid to save
+	 * @param file file to save the grid to
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(TileGrid grid, String file) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			int width = grid.getWidth();
+			int height = grid.getHeight();
+			int numChunks = (height + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
+			int numTypes = grid.getNumTileTypes();
+			ByteBuffer header = ByteBuffer.allocate(24 + numTypes * 7 + (numChunks + 1) * 8);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(width).putInt(height)
+					.putInt(ROWS_PER_CHUNK).putInt(numTypes);
+			for (int id = 0; id < numTypes; id++) {
+				Tile tile = grid.getTileType(id);
+				header.putChar(tile.getTileChar());
+				header.put((byte) (tile.getPassable() ? 1 : 0));
+				header.putInt(tile.getPassCost());
+			}
+			int offsetTable = header.position();
+			// The chunks are written first and their offsets filled in afterwards
+			long position = header.capacity();
+			channel.position(position);
+			int chunkCells = ROWS_PER_CHUNK * width;
+			// Runs are only kept while they are smaller than the raw ids, so either encoding fits
+			ByteBuffer chunk = ByteBuffer.allocate(1 + chunkCells);
+			byte[] raw = new byte[chunkCells];
+			for (int i = 0; i < numChunks; i++) {
+				header.putLong(offsetTable + i * 8, position);
+				int start = i * chunkCells;
+				int length = Math.min(chunkCells, grid.size() - start);
+				for (int j = 0; j < length; j++) {
+					raw[j] = (byte) grid.getTileId(start + j);
+				}
+				chunk.clear();
+				if (!encodeRuns(raw, length, chunk)) {
+					chunk.clear();
+					chunk.put(RAW).put(raw, 0, length);
+				}
+				chunk.flip();
+				while (chunk.hasRemaining()) {
+					position += channel.write(chunk);
+				}
+			}
+			header.putLong(offsetTable + numChunks * 8, position);
+			header.clear();
+			channel.position(0);
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Run length encodes the ids of a chunk, giving up once the runs take more than half the
+	 * space of the raw ids since short runs are slower to restore than copying the raw ids
+	 * @param raw ids of the chunk
+	 * @param length number of ids in the chunk
+	 * @param out buffer the encoded chunk is written to
+	 * @return if the runs were smaller and have been written
+	 */
+	private static boolean encodeRuns(byte[] raw, int length, ByteBuffer out) {
+		out.put(RUN_LENGTH);
+		int i = 0;
+		while (i < length) {
+			byte id = raw[i];
+			int run = 1;
+			while (i + run < length && raw[i + run] == id) run++;
+			i += run;
+			if (out.position() + 6 > length / 2 + 1) return false;
+			out.put(id);
+			// The run length is stored 7 bits at a time, lowest bits first
+			while (run >= 0x80) {
+				out.put((byte) ((run & 0x7F) | 0x80));
+				run >>>= 7;
+			}
+			out.put((byte) run);
+		}
+		return true;
+	}
+
+	/**
+	 * Restores a grid from a file by mapping the file into memory
+	 * @param file file holding a saved grid
+	 * @return the restored grid
+	 * @throws IOException if the file cannot be read or is not a saved grid
+	 */
+	public static TileGrid load(String file) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+		try {
+			return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Restores a grid from a buffer holding a saved grid, from the buffer's position
+	 * @param buffer buffer holding a saved grid, such as a mapped file
+	 * @return the restored grid
+	 * @throws IOException if the buffer does not hold a valid saved grid
+	 */
+	public static TileGrid load(ByteBuffer buffer) throws IOException {
+		ByteBuffer in = buffer.duplicate();
+		int base = in.position();
+		try {
+			if (in.getInt() != MAGIC) {
+				throw new IOException("Not a saved map");
+			}
+			int formatVersion = in.getInt();
+			if (formatVersion != FORMAT_VERSION) {
+				throw new IOException("Unsupported saved map version " + formatVersion);
+			}
+			int width = in.getInt();
+			int height = in.getInt();
+			int rowsPerChunk = in.getInt();
+			int numTypes = in.getInt();
+			if (width < 1 || height < 1 || rowsPerChunk < 1 || numTypes < 1 || numTypes > TileGrid.MAX_TILE_TYPES
+					|| (long) width * height > Integer.MAX_VALUE) {
+				throw new IOException("Saved map has an invalid header");
+			}
+			Tile[] types = new Tile[numTypes];
+			for (int id = 0; id < numTypes; id++) {
+				types[id] = new Tile(in.getChar(), null, in.get() != 0, in.getInt());
+			}
+			TileGrid grid = new TileGrid(width, height, types[0], false);
+			for (int id = 1; id < numTypes; id++) {
+				if (grid.addTileType(types[id]) != id) {
+					throw new IOException("Saved map has a repeated tile type");
+				}
+			}
+			int numChunks = (height + rowsPerChunk - 1) / rowsPerChunk;
+			int offsetTable = in.position();
+			int chunkCells = rowsPerChunk * width;
+			for (int i = 0; i < numChunks; i++) {
+				int start = i * chunkCells;
+				int length = Math.min(chunkCells, grid.size() - start);
+				in.position(base + (int) in.getLong(offsetTable + i * 8));
+				in.limit(base + (int) in.getLong(offsetTable + i * 8 + 8));
+				byte encoding = in.get();
+				if (encoding == RAW) {
+					grid.loadTileIds(in, start, length);
+				} else if (encoding == RUN_LENGTH) {
+					decodeRuns(in, grid, start, length);
+				} else {
+					throw new IOException("Saved map has an unknown chunk encoding " + encoding);
+				}
+				in.limit(in.capacity());
+			}
+			grid.finishLoading();
+			return grid;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Saved map is truncated", e);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Saved map is corrupt", e);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Saved map is corrupt", e);
+		}
+	}
+
+	/**
+	 * Expands the runs of a chunk into the cells of the grid
+	 * @param in buffer holding the runs of the chunk, limited to the end of the chunk
+	 * @param grid grid being restored
+	 * @param start index of the first cell in the chunk
+	 * @param length number of cells in the chunk
+	 * @throws IOException if the runs do not cover the chunk exactly
+	 */
+	private static void decodeRuns(ByteBuffer in, TileGrid grid, int start, int length) throws IOException {
+		int end = start + length;
+		int curr = start;
+		while (curr < end && in.hasRemaining()) {
+			byte id = in.get();
+			int run = 0;
+			int shift = 0;
+			byte next;
+			do {
+				next = in.hasRemaining() ? in.get() : 0;
+				run |= (next & 0x7F) << shift;
+				shift += 7;
+			} while (next < 0 && shift < 35);
+			if (run < 1 || run > end - curr) {
+				throw new IOException("Saved map has a run past the end of its chunk");
+			}
+			grid.fillTileIds(curr, run, id);
+			curr += run;
+		}
+		if (curr != end) {
+			throw new IOException("Saved map has a chunk that is too short");
+		}
+	}
+}
@@ -11,7 +11,7 @@ public class Pair<T, S> {
 	public T first;
 	public S second;
 	
-	Pair (T first, S second) {
+	public Pair (T first, S second) {
 		this.first = first;
 		this.second = second;
 	}
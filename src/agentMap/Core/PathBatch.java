@@ -0,0 +1,62 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task that finds the paths for a range of a batch of queries, splitting the
+ * range in half until it is small enough to search on one thread. Each thread searches
+ * with its own copy of the search algorithm.
+ */
+class PathBatch extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+	// Ranges with at most this many queries are searched without splitting further
+	private static final int SPLIT_THRESHOLD = 4;
+	private InternalMap map;
+	private TileGrid grid;
+	private ComponentIndex components;
+	private List<Point> starts;
+	private List<Point> dests;
+	private Queue<Pair<Direction, Point>>[] paths;
+	private int from;
+	private int to;
+
+	/**
+	 * Constructor
+	 * @param map map answering the queries, which gives each thread its own search algorithm
+	 * @param grid read only snapshot of the grid to search
+	 * @param components read only component labels matching the grid, or null to search
+	 * every query
+	 * @param starts starting point of each query
+	 * @param dests destination point of each query
+	 * @param paths array the path of each query is written into
+	 * @param from first query of the range
+	 * @param to end of the range (exclusive)
+	 */
+	PathBatch(InternalMap map, TileGrid grid, ComponentIndex components, List<Point> starts, List<Point> dests,
+			Queue<Pair<Direction, Point>>[] paths, int from, int to) {
+		this.map = map;
+		this.grid = grid;
+		this.components = components;
+		this.starts = starts;
+		this.dests = dests;
+		this.paths = paths;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= SPLIT_THRESHOLD) {
+			for (int i = from; i < to; i++) {
+				paths[i] = map.getBatchPath(starts.get(i), dests.get(i), grid, components);
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		invokeAll(new PathBatch(map, grid, components, starts, dests, paths, from, middle),
+				new PathBatch(map, grid, components, starts, dests, paths, middle, to));
+	}
+}
@@ -0,0 +1,329 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * A bounded cache of path results keyed by their start and destination cells, the least
+ * recently used result is evicted once the cache is full. Each cached path remembers the
+ * version of every region of the grid it passes through along with the grid's opening
+ * version, so a result is dropped when a tile on or near the path changes or when a
+ * tile anywhere becomes passable or cheaper.
+ * Results of getPath and getCompactPath are cached apart, since a search's getPath may
+ * give waypoints where its compact path has a point per tile.
+ */
+public class PathCache {
+	private LinkedHashMap<Long, CachedPath> entries;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+	// Whether the last lookup made by each thread found a valid cached result
+	private ThreadLocal<Boolean> lastHit;
+
+	/**
+	 * A cached path stored in compact form, a null path records that the destination could
+	 * not be reached
+	 */
+	private static class CachedPath {
+		CompactPath path;
+		// What getPath returned when it was not a point per tile, such as the waypoints of an
+		// any-angle path, otherwise null and the points are read off the compact path
+		LinkedList<Pair<Direction, Point>> waypoints;
+		int openingVersion;
+		int[] regions;
+		int[] regionVersions;
+	}
+
+	/**
+	 * Constructor
+	 * @param capacity maximum number of paths kept in the cache
+	 */
+	public PathCache(final int capacity) {
+		lastHit = new ThreadLocal<Boolean>();
+		entries = new LinkedHashMap<Long, CachedPath>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CachedPath> eldest) {
+				if (size() > capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Gets a path from the cache, or searches for it and caches the result if there is no
+	 * valid cached result
+	 * @param startLoc starting point, used as the first point of the path
+	 * @param destLoc destination point
+	 * @param grid grid the path is on
+	 * @param searchAlgo search algorithm used when the path is not cached
+	 * @return a new queue holding the path which the caller is free to change, or null
+	 * if the destination cannot be reached. A cached path has the same points as the path
+	 * the search returned, so waypoints stay waypoints.
+	 */
+	public LinkedList<Pair<Direction, Point>> getPath(Point startLoc, Point destLoc, TileGrid grid, ISearch searchAlgo) {
+		if (!isOnGrid(startLoc, destLoc, grid)) {
+			return searchAlgo.getPath(startLoc, destLoc, grid);
+		}
+		Long key = key(startLoc, destLoc, grid, false);
+		CachedPath entry = lookup(key, grid);
+		if (entry != null) {
+			if (entry.path == null) return null;
+			return (entry.waypoints != null) ? copyOf(entry.waypoints, startLoc) : toPath(entry.path, startLoc);
+		}
+		// Search without holding the lock so other lookups are not held up
+		LinkedList<Pair<Direction, Point>> path = searchAlgo.getPath(startLoc, destLoc, grid);
+		put(key, grid, CompactPath.fromPath(path), isStepByStep(path) ? null : copyOf(path, startLoc));
+		return path;
+	}
+
+	/**
+	 * Gets a path in compact form from the cache, or searches for it and caches the result if
+	 * there is no valid cached result. Cached paths are shared, which is safe as they cannot
+	 * be changed.
+	 * @param startLoc starting point
+	 * @param destLoc destination point
+	 * @param grid grid the path is on
+	 * @param searchAlgo search algorithm used when the path is not cached
+	 * @return the path, or null if the destination cannot be reached
+	 */
+	public CompactPath getCompactPath(Point startLoc, Point destLoc, TileGrid grid, ISearch searchAlgo) {
+		if (!isOnGrid(startLoc, destLoc, grid)) {
+			return searchAlgo.getCompactPath(startLoc, destLoc, grid);
+		}
+		Long key = key(startLoc, destLoc, grid, true);
+		CachedPath entry = lookup(key, grid);
+		if (entry != null) {
+			return entry.path;
+		}
+		CompactPath path = searchAlgo.getCompactPath(startLoc, destLoc, grid);
+		put(key, grid, path, null);
+		return path;
+	}
+
+	/**
+	 * Finds a valid cached result, dropping the cached result if it is out of date
+	 * @param key start and destination cells of the search
+	 * @param grid grid the path is on
+	 * @return the cached result, or null if the path has to be searched for
+	 */
+	private synchronized CachedPath lookup(Long key, TileGrid grid) {
+		CachedPath entry = entries.get(key);
+		if (entry != null && isValid(entry, grid)) {
+			hits++;
+			lastHit.set(Boolean.TRUE);
+			return entry;
+		}
+		if (entry != null) {
+			entries.remove(key);
+			invalidations++;
+		}
+		misses++;
+		lastHit.set(Boolean.FALSE);
+		return null;
+	}
+
+	/**
+	 * Gets whether the last getPath or getCompactPath made by the calling thread was
+	 * answered from the cache. Lookups made by other threads in the meantime do not change
+	 * the answer, unlike comparing getHits before and after the lookup.
+	 * @return if the last lookup of the thread found a valid cached result
+	 */
+	public boolean isLastLookupHit() {
+		return lastHit.get() == Boolean.TRUE;
+	}
+
+	/**
+	 * Expands a cached path into a new queue
+	 * @param path the cached path
+	 * @param startLoc starting point, used as the first point of the path
+	 * @return the path as a new queue
+	 */
+	private LinkedList<Pair<Direction, Point>> toPath(CompactPath path, Point startLoc) {
+		LinkedList<Pair<Direction, Point>> steps = path.toQueue();
+		steps.getFirst().second = startLoc;
+		return steps;
+	}
+
+	/**
+	 * Copies a path so that neither the copy nor the original can change the other
+	 * @param path the path
+	 * @param startLoc starting point, used as the first point of the copy
+	 * @return the copy as a new queue
+	 */
+	private static LinkedList<Pair<Direction, Point>> copyOf(Iterable<Pair<Direction, Point>> path, Point startLoc) {
+		LinkedList<Pair<Direction, Point>> copy = new LinkedList<Pair<Direction, Point>>();
+		for (Pair<Direction, Point> step : path) {
+			copy.add(new Pair<Direction, Point>(step.first, copy.isEmpty() ? startLoc : new Point(step.second)));
+		}
+		return copy;
+	}
+
+	/**
+	 * Checks if every point of a path is next to the point before it, so the compact path
+	 * gives back the same points
+	 * @param path the path, or null
+	 * @return if the path moves one tile at a time
+	 */
+	private static boolean isStepByStep(Iterable<Pair<Direction, Point>> path) {
+		if (path == null) return true;
+		Point prev = null;
+		for (Pair<Direction, Point> step : path) {
+			Point curr = step.second;
+			if (prev != null && (Math.abs(curr.x - prev.x) > 1 || Math.abs(curr.y - prev.y) > 1)) return false;
+			prev = curr;
+		}
+		return true;
+	}
+
+	/**
+	 * Stores the result of a search along with the versions it depends on
+	 * @param key start and destination cells of the search
+	 * @param grid grid the path is on
+	 * @param path the path found, or null if the destination could not be reached
+	 * @param waypoints the points getPath returned when they are not a point per tile, or
+	 * null
+	 */
+	private synchronized void put(Long key, TileGrid grid, CompactPath path, LinkedList<Pair<Direction, Point>> waypoints) {
+		CachedPath entry = new CachedPath();
+		entry.openingVersion = grid.getOpeningVersion();
+		entry.path = path;
+		entry.waypoints = waypoints;
+		if (path != null) {
+			int[] regions = new int[path.getNumRuns() + 1];
+			int numRegions = 0;
+			Point start = path.getStart();
+			int x = start.x;
+			int y = start.y;
+			regions[numRegions++] = grid.regionOf(x, y);
+			for (int run = 0; run < path.getNumRuns(); run++) {
+				Direction direction = path.getRunDirection(run);
+				for (int step = path.getRunLength(run); step > 0; step--) {
+					x += direction.dx;
+					y += direction.dy;
+					int region = grid.regionOf(x, y);
+					// Consecutive steps are usually in the same region so only changes are recorded
+					if (regions[numRegions - 1] != region) {
+						if (numRegions == regions.length) {
+							regions = Arrays.copyOf(regions, regions.length * 2);
+						}
+						regions[numRegions++] = region;
+					}
+				}
+			}
+			entry.regions = new int[numRegions];
+			entry.regionVersions = new int[numRegions];
+			for (int j = 0; j < numRegions; j++) {
+				entry.regions[j] = regions[j];
+				entry.regionVersions[j] = grid.getRegionVersion(regions[j]);
+			}
+		}
+		entries.put(key, entry);
+	}
+
+	/**
+	 * Checks that nothing has changed on the grid that could alter a cached result
+	 * @param entry the cached result
+	 * @param grid grid the result is on
+	 * @return if the result is still the result a search would give
+	 */
+	private boolean isValid(CachedPath entry, TileGrid grid) {
+		if (entry.openingVersion != grid.getOpeningVersion()) return false;
+		if (entry.path == null) return true;
+		for (int i = 0; i < entry.regions.length; i++) {
+			if (grid.getRegionVersion(entry.regions[i]) != entry.regionVersions[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks that both points of a query are on the grid. A point off the grid shares its
+	 * cell index with a cell on it, so such queries are passed to the search uncached.
+	 * @param startLoc starting point
+	 * @param destLoc destination point
+	 * @param grid grid the path is on
+	 * @return if the query can be cached
+	 */
+	private boolean isOnGrid(Point startLoc, Point destLoc, TileGrid grid) {
+		if (grid.inBounds(startLoc.x, startLoc.y) && grid.inBounds(destLoc.x, destLoc.y)) return true;
+		lastHit.set(Boolean.FALSE);
+		return false;
+	}
+
+	/**
+	 * Makes the key of a query from its cells, whose indexes fit in 31 bits, leaving the top
+	 * bit to tell compact paths apart from the results of getPath
+	 * @param startLoc starting point
+	 * @param destLoc destination point
+	 * @param grid grid the path is on
+	 * @param compact if the result is a compact path
+	 * @return the key
+	 */
+	private static Long key(Point startLoc, Point destLoc, TileGrid grid, boolean compact) {
+		long key = ((long) grid.index(startLoc.x, startLoc.y) << 32) | (grid.index(destLoc.x, destLoc.y) & 0xFFFFFFFFL);
+		return compact ? key | Long.MIN_VALUE : key;
+	}
+
+	/**
+	 * Removes every cached path
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Getter: gets the number of lookups that found a valid path
+	 * @return number of cache hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Getter: gets the number of lookups that had to search
+	 * @return number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Getter: gets the number of paths removed to make room for newer paths
+	 * @return number of evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Getter: gets the number of paths removed because the map changed
+	 * @return number of invalidations
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Gets the number of paths currently cached
+	 * @return size of the cache
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		long lookups = hits + misses;
+		double hitRate = (lookups == 0) ? 0 : 100.0 * hits / lookups;
+		return String.format("hits: %d, misses: %d (%.1f%% hit rate), evictions: %d, invalidations: %d, size: %d",
+				hits, misses, hitRate, evictions, invalidations, entries.size());
+	}
+}
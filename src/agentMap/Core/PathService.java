@@ -0,0 +1,304 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers path queries on an InternalMap asynchronously on a fixed pool of worker threads,
+ * so agents can ask for paths without each searching on its own thread.
+ * A query for the same start and destination as a query that is still waiting or being
+ * searched joins it rather than searching again, and gets its own copy of the path when
+ * the search finishes. Such a query can be answered from the map as it was when the
+ * search it joined started.
+ * At most a fixed number of searches can be waiting or running at once. When that many
+ * are pending a new query either waits for one to finish (back-pressure) or fails straight
+ * away with a RejectedExecutionException (load shedding), depending on the overflow policy.
+ */
+public class PathService {
+	/**
+	 * What happens to a query that arrives when the service is full
+	 */
+	public enum OverflowPolicy {
+		// The thread making the query waits until a search finishes
+		BLOCK,
+		// The query's future fails with a RejectedExecutionException
+		REJECT
+	}
+
+	private InternalMap map;
+	private int width;
+	private int height;
+	private OverflowPolicy policy;
+	private ExecutorService workers;
+	// One permit for each search that can be waiting or running
+	private Semaphore permits;
+	private int maxPending;
+	// Queries that are waiting or being searched by their start and destination cells
+	private HashMap<Long, Query> inFlight;
+	private long searches;
+	private long coalesced;
+	private long rejected;
+
+	/**
+	 * A search along with the futures of every query waiting for it
+	 */
+	private class Query implements Runnable {
+		private Long key;
+		private Point startLoc;
+		private Point destLoc;
+		private CompletableFuture<Queue<Pair<Direction, Point>>> first;
+		// Futures of queries that joined the search, guarded by the inFlight lock
+		private ArrayList<CompletableFuture<Queue<Pair<Direction, Point>>>> joined;
+
+		Query(Long key, Point startLoc, Point destLoc, CompletableFuture<Queue<Pair<Direction, Point>>> first) {
+			this.key = key;
+			this.startLoc = startLoc;
+			this.destLoc = destLoc;
+			this.first = first;
+			joined = new ArrayList<CompletableFuture<Queue<Pair<Direction, Point>>>>();
+		}
+
+		@Override
+		public void run() {
+			Queue<Pair<Direction, Point>> path;
+			try {
+				path = map.getPath(startLoc, destLoc);
+			} catch (Throwable e) {
+				fail(e);
+				return;
+			} finally {
+				permits.release();
+			}
+			ArrayList<CompletableFuture<Queue<Pair<Direction, Point>>>> waiting = close();
+			// The copies are made before the first query can start changing the path
+			for (int i = 0; i < waiting.size(); i++) {
+				waiting.get(i).complete(copy(path));
+			}
+			first.complete(path);
+		}
+
+		/**
+		 * Fails the futures of the query and every query that joined it
+		 * @param cause why the search could not be made
+		 */
+		void fail(Throwable cause) {
+			ArrayList<CompletableFuture<Queue<Pair<Direction, Point>>>> waiting = close();
+			for (int i = 0; i < waiting.size(); i++) {
+				waiting.get(i).completeExceptionally(cause);
+			}
+			first.completeExceptionally(cause);
+		}
+
+		/**
+		 * Stops other queries from joining the search
+		 * @return futures of the queries that joined
+		 */
+		private ArrayList<CompletableFuture<Queue<Pair<Direction, Point>>>> close() {
+			synchronized (inFlight) {
+				inFlight.remove(key);
+				return joined;
+			}
+		}
+	}
+
+	/**
+	 * Constructor for a service with a worker for each processor that makes queries wait
+	 * once 64 searches per worker are pending
+	 * @param map map to search, which is switched to concurrent mode
+	 * @throws IllegalStateException if the map's search algorithm cannot be copied for each thread
+	 */
+	public PathService(InternalMap map) {
+		this(map, Runtime.getRuntime().availableProcessors(),
+				64 * Runtime.getRuntime().availableProcessors(), OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Constructor
+	 * @param map map to search, which is switched to concurrent mode so the workers can
+	 * search it while it is being updated
+	 * @param numThreads number of worker threads
+	 * @param maxPending most searches that can be waiting or running at once
+	 * @param policy what happens to a query that arrives when maxPending searches are pending
+	 * @throws IllegalStateException if the map's search algorithm cannot be copied for each thread
+	 */
+	public PathService(InternalMap map, int numThreads, int maxPending, OverflowPolicy policy) {
+		if (numThreads < 1 || maxPending < 1) {
+			throw new IllegalArgumentException("A path service needs at least one thread and one pending search");
+		}
+		map.enableConcurrentMode();
+		TileGrid snapshot = map.getSnapshot();
+		this.map = map;
+		width = snapshot.getWidth();
+		height = snapshot.getHeight();
+		this.policy = policy;
+		this.maxPending = maxPending;
+		permits = new Semaphore(maxPending);
+		inFlight = new HashMap<Long, Query>();
+		// The permits bound the queue, so it never holds more than maxPending searches
+		workers = new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "path-service-" + count.incrementAndGet());
+						// Workers should not keep the program running once it is done with the map
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Asks for a path from one point to another point
+	 * @param startLoc Starting point
+	 * @param destLoc Destination point
+	 * @return a future completed with a path the caller is free to change, or with null if
+	 * the destination cannot be reached. The future fails with a RejectedExecutionException
+	 * if the query was shed or the service has been shut down.
+	 */
+	public CompletableFuture<Queue<Pair<Direction, Point>>> getPath(Point startLoc, Point destLoc) {
+		if (startLoc.x < 0 || startLoc.y < 0 || startLoc.x >= width || startLoc.y >= height
+				|| destLoc.x < 0 || destLoc.y < 0 || destLoc.x >= width || destLoc.y >= height) {
+			throw new IllegalArgumentException("The points of a path query have to be on the map");
+		}
+		Long key = ((long) (startLoc.y * width + startLoc.x) << 32) | ((destLoc.y * width + destLoc.x) & 0xFFFFFFFFL);
+		CompletableFuture<Queue<Pair<Direction, Point>>> future = new CompletableFuture<Queue<Pair<Direction, Point>>>();
+		synchronized (inFlight) {
+			Query query = inFlight.get(key);
+			if (query != null) {
+				query.joined.add(future);
+				coalesced++;
+				return future;
+			}
+		}
+		if (!acquire()) {
+			synchronized (inFlight) {
+				rejected++;
+			}
+			future.completeExceptionally(new RejectedExecutionException((policy == OverflowPolicy.REJECT)
+					? "Too many path searches are pending" : "Interrupted while waiting for a pending search to finish"));
+			return future;
+		}
+		Query query = new Query(key, new Point(startLoc), new Point(destLoc), future);
+		synchronized (inFlight) {
+			Query other = inFlight.get(key);
+			if (other != null) {
+				// Another thread started the same search while this one was waiting for a permit
+				permits.release();
+				other.joined.add(future);
+				coalesced++;
+				return future;
+			}
+			inFlight.put(key, query);
+			searches++;
+		}
+		try {
+			workers.execute(query);
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			query.fail(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Takes a permit for a new search according to the overflow policy
+	 * @return if a permit was taken, which when waiting is only false if the thread was interrupted
+	 */
+	private boolean acquire() {
+		if (policy == OverflowPolicy.REJECT) {
+			return permits.tryAcquire();
+		}
+		try {
+			permits.acquire();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Copies a path so the copy can be changed without changing the original
+	 * @param path the path, or null
+	 * @return the copy, or null if the path is null
+	 */
+	private static Queue<Pair<Direction, Point>> copy(Queue<Pair<Direction, Point>> path) {
+		if (path == null) return null;
+		LinkedList<Pair<Direction, Point>> copy = new LinkedList<Pair<Direction, Point>>();
+		for (Pair<Direction, Point> step : path) {
+			copy.add(new Pair<Direction, Point>(step.first, new Point(step.second)));
+		}
+		return copy;
+	}
+
+	/**
+	 * Gets the number of searches waiting or running
+	 * @return number of pending searches
+	 */
+	public int getPending() {
+		return maxPending - permits.availablePermits();
+	}
+
+	/**
+	 * Getter: gets the number of searches started, not counting queries that joined a search
+	 * @return number of searches
+	 */
+	public long getSearches() {
+		synchronized (inFlight) {
+			return searches;
+		}
+	}
+
+	/**
+	 * Getter: gets the number of queries that joined a search already pending rather than
+	 * starting their own
+	 * @return number of coalesced queries
+	 */
+	public long getCoalesced() {
+		synchronized (inFlight) {
+			return coalesced;
+		}
+	}
+
+	/**
+	 * Getter: gets the number of queries shed because the service was full
+	 * @return number of rejected queries
+	 */
+	public long getRejected() {
+		synchronized (inFlight) {
+			return rejected;
+		}
+	}
+
+	/**
+	 * Stops the service from taking new queries, the searches already pending still finish
+	 */
+	public void shutdown() {
+		workers.shutdown();
+	}
+
+	/**
+	 * Waits for the searches pending at shutdown to finish
+	 * @param timeout longest time to wait
+	 * @param unit unit of the timeout
+	 * @return if every search finished before the timeout
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return workers.awaitTermination(timeout, unit);
+	}
+}
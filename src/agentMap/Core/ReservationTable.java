@@ -0,0 +1,147 @@
+package agentMap.Core;
+
+import java.util.Arrays;
+
+/**
+ * Records which agent will be in a cell at each time step, so agents can plan paths that
+ * stay out of each other's way. Reservations are kept in an open addressing hash table
+ * keyed by the time step and cell index, so the table only takes space for the cells and
+ * times that are reserved rather than for the whole grid at every time.
+ */
+public class ReservationTable {
+	private static final long EMPTY = -1L;
+	private long[] keys;
+	private int[] owners;
+	private int mask;
+	// Slot of each reservation in the hash table, so only used slots are cleared
+	private int[] slots;
+	private int size;
+
+	/**
+	 * Constructor
+	 */
+	public ReservationTable() {
+		keys = new long[1024];
+		Arrays.fill(keys, EMPTY);
+		owners = new int[keys.length];
+		mask = keys.length - 1;
+		slots = new int[256];
+	}
+
+	/**
+	 * Removes every reservation, only the used slots are touched
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			keys[slots[i]] = EMPTY;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Getter: gets the number of reservations
+	 * @return number of reserved cells and times
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the agent that reserved a cell at a time step
+	 * @param cell index of the cell
+	 * @param time time step
+	 * @return id of the agent, or -1 if the cell is free at that time
+	 */
+	public int getOwner(int cell, int time) {
+		long key = key(cell, time);
+		for (int slot = hash(key); ; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) return owners[slot];
+			if (keys[slot] == EMPTY) return -1;
+		}
+	}
+
+	/**
+	 * Checks if an agent may be in a cell at a time step
+	 * @param cell index of the cell
+	 * @param time time step
+	 * @param agent id of the agent
+	 * @return if the cell is free or already reserved by the agent
+	 */
+	public boolean isFree(int cell, int time, int agent) {
+		int owner = getOwner(cell, time);
+		return owner == -1 || owner == agent;
+	}
+
+	/**
+	 * Checks if an agent may move between two cells from one time step to the next without
+	 * entering a cell reserved by another agent or swapping places with one
+	 * @param fromCell index of the cell moved from
+	 * @param toCell index of the cell moved to
+	 * @param time time step the move starts at
+	 * @param agent id of the agent
+	 * @return if the move is free
+	 */
+	public boolean isMoveFree(int fromCell, int toCell, int time, int agent) {
+		if (!isFree(toCell, time + 1, agent)) return false;
+		if (fromCell == toCell) return true;
+		// Two agents swapping cells would pass through each other
+		int other = getOwner(toCell, time);
+		return other == -1 || other == agent || getOwner(fromCell, time + 1) != other;
+	}
+
+	/**
+	 * Reserves a cell at a time step for an agent
+	 * @param cell index of the cell
+	 * @param time time step
+	 * @param agent id of the agent, which cannot be negative
+	 * @return false if another agent already holds the cell at that time, in which case
+	 * the reservation is left with the other agent
+	 */
+	public boolean reserve(int cell, int time, int agent) {
+		long key = key(cell, time);
+		int slot = hash(key);
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) return owners[slot] == agent;
+			slot = (slot + 1) & mask;
+		}
+		if (size == slots.length) {
+			slots = Arrays.copyOf(slots, size * 2);
+		}
+		keys[slot] = key;
+		owners[slot] = agent;
+		slots[size++] = slot;
+		// Keep the table at most half full so probe sequences stay short
+		if (size * 2 >= keys.length) {
+			rehash(keys.length * 2);
+		}
+		return true;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldOwners = owners;
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		owners = new int[capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < size; i++) {
+			long key = oldKeys[slots[i]];
+			int slot = hash(key);
+			while (keys[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			owners[slot] = oldOwners[slots[i]];
+			slots[i] = slot;
+		}
+	}
+
+	private static long key(int cell, int time) {
+		return ((long) time << 32) | (cell & 0xFFFFFFFFL);
+	}
+
+	private int hash(long key) {
+		long mixed = key * 0x9E3779B97F4A7C15L;
+		return (int) (mixed >>> 32) & mask;
+	}
+}
@@ -0,0 +1,80 @@
+package agentMap.Core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the work a search may do on one query, as a number of expanded nodes, a deadline
+ * or both. A search that runs out of budget returns the best path it has found so far.
+ * The deadline is fixed when the budget is created, so a budget should be created for
+ * each query.
+ */
+public class SearchBudget {
+	// The clock is only read every this many expansions
+	private static final int CLOCK_INTERVAL = 64;
+	private int maxExpanded;
+	private long deadline;
+	private boolean hasDeadline;
+
+	/**
+	 * Constructor for a budget with a deadline and a node limit
+	 * @param timeout time the search may take from now
+	 * @param unit unit of the timeout
+	 * @param maxExpanded largest number of nodes the search may expand
+	 */
+	public SearchBudget(long timeout, TimeUnit unit, int maxExpanded) {
+		this.maxExpanded = maxExpanded;
+		deadline = System.nanoTime() + unit.toNanos(timeout);
+		hasDeadline = true;
+	}
+
+	private SearchBudget(int maxExpanded) {
+		this.maxExpanded = maxExpanded;
+	}
+
+	/**
+	 * Creates a budget that never runs out
+	 * @return an unlimited budget
+	 */
+	public static SearchBudget unlimited() {
+		return new SearchBudget(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a budget that only limits the number of expanded nodes, which makes the result
+	 * of a query the same however fast the machine is
+	 * @param maxExpanded largest number of nodes the search may expand
+	 * @return the budget
+	 */
+	public static SearchBudget ofNodes(int maxExpanded) {
+		return new SearchBudget(maxExpanded);
+	}
+
+	/**
+	 * Creates a budget that only limits the time taken
+	 * @param timeout time the search may take from now
+	 * @param unit unit of the timeout
+	 * @return the budget
+	 */
+	public static SearchBudget ofTime(long timeout, TimeUnit unit) {
+		return new SearchBudget(timeout, unit, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Checks if a search has used up the budget, the deadline is only checked every 64
+	 * expansions since reading the clock costs more than expanding a node
+	 * @param expanded number of nodes the search has expanded so far
+	 * @return if the search has to stop
+	 */
+	public boolean isExhausted(int expanded) {
+		if (expanded >= maxExpanded) return true;
+		return hasDeadline && expanded % CLOCK_INTERVAL == 0 && System.nanoTime() - deadline >= 0;
+	}
+
+	/**
+	 * Getter: gets the largest number of nodes the search may expand
+	 * @return node limit
+	 */
+	public int getMaxExpanded() {
+		return maxExpanded;
+	}
+}
@@ -0,0 +1,158 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A search listener that aggregates the statistics of every query it is told about: the
+ * number of queries, failed queries and cache hits, the nodes expanded and a histogram of
+ * query latencies. The histogram has a bucket for each power of two nanoseconds, so
+ * percentiles are accurate to within a factor of two. It can be shared between threads.
+ */
+public class SearchMetrics implements ISearchListener {
+	private static final int NUM_BUCKETS = 64;
+	private AtomicLong queries;
+	private AtomicLong failures;
+	private AtomicLong cacheHits;
+	private AtomicLong totalExpanded;
+	private AtomicLong maxExpanded;
+	private AtomicLong totalWallTime;
+	// Bucket b counts queries that took from 2^b up to 2^(b+1) nanoseconds
+	private AtomicLongArray latencyBuckets;
+
+	/**
+	 * Constructor
+	 */
+	public SearchMetrics() {
+		queries = new AtomicLong();
+		failures = new AtomicLong();
+		cacheHits = new AtomicLong();
+		totalExpanded = new AtomicLong();
+		maxExpanded = new AtomicLong();
+		totalWallTime = new AtomicLong();
+		latencyBuckets = new AtomicLongArray(NUM_BUCKETS);
+	}
+
+	@Override
+	public void searchCompleted(Point startLoc, Point destLoc, SearchStats stats) {
+		queries.incrementAndGet();
+		if (stats.getPathCost() < 0) failures.incrementAndGet();
+		if (stats.isCacheHit()) cacheHits.incrementAndGet();
+		int expanded = stats.getNodesExpanded();
+		totalExpanded.addAndGet(expanded);
+		long max = maxExpanded.get();
+		while (expanded > max && !maxExpanded.compareAndSet(max, expanded)) {
+			max = maxExpanded.get();
+		}
+		long wallTime = Math.max(1, stats.getWallTimeNanos());
+		totalWallTime.addAndGet(wallTime);
+		latencyBuckets.incrementAndGet(63 - Long.numberOfLeadingZeros(wallTime));
+	}
+
+	/**
+	 * Getter: gets the number of queries recorded
+	 * @return number of queries
+	 */
+	public long getQueries() {
+		return queries.get();
+	}
+
+	/**
+	 * Getter: gets the number of queries that found no path
+	 * @return number of failed queries
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * Getter: gets the number of queries answered by the path cache
+	 * @return number of cache hits
+	 */
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * Getter: gets the number of nodes expanded over all queries
+	 * @return total nodes expanded
+	 */
+	public long getTotalExpanded() {
+		return totalExpanded.get();
+	}
+
+	/**
+	 * Getter: gets the most nodes expanded by a single query
+	 * @return largest number of nodes expanded
+	 */
+	public long getMaxExpanded() {
+		return maxExpanded.get();
+	}
+
+	/**
+	 * Gets the mean time taken by a query
+	 * @return mean wall time in nanoseconds, or 0 if no queries were recorded
+	 */
+	public long getMeanLatencyNanos() {
+		long count = queries.get();
+		return (count == 0) ? 0 : totalWallTime.get() / count;
+	}
+
+	/**
+	 * Gets an upper bound on the time taken by the given fraction of queries
+	 * @param percentile fraction of queries between 0 and 1, e.g. 0.99
+	 * @return time in nanoseconds that at least that fraction of queries finished within,
+	 * or 0 if no queries were recorded
+	 */
+	public long getLatencyPercentile(double percentile) {
+		long count = 0;
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			count += latencyBuckets.get(bucket);
+		}
+		if (count == 0) return 0;
+		long target = (long) Math.ceil(percentile * count);
+		long seen = 0;
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			seen += latencyBuckets.get(bucket);
+			if (seen >= target && seen > 0) {
+				return (bucket >= 62) ? Long.MAX_VALUE : (1L << (bucket + 1));
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the number of queries recorded in each latency bucket
+	 * @return counts where index b covers 2^b up to 2^(b+1) nanoseconds
+	 */
+	public long[] getLatencyHistogram() {
+		long[] histogram = new long[NUM_BUCKETS];
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			histogram[bucket] = latencyBuckets.get(bucket);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Clears every recorded statistic
+	 */
+	public void reset() {
+		queries.set(0);
+		failures.set(0);
+		cacheHits.set(0);
+		totalExpanded.set(0);
+		maxExpanded.set(0);
+		totalWallTime.set(0);
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			latencyBuckets.set(bucket, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("queries=%d failures=%d cacheHits=%d expanded(total=%d max=%d) latency(mean=%dus p50<=%dus p99<=%dus)",
+				getQueries(), getFailures(), getCacheHits(), getTotalExpanded(), getMaxExpanded(),
+				getMeanLatencyNanos() / 1000, getLatencyPercentile(0.5) / 1000, getLatencyPercentile(0.99) / 1000);
+	}
+}
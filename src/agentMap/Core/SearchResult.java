@@ -0,0 +1,70 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.util.LinkedList;
+
+/**
+ * The result of a search that may stop before it has found the cheapest path. Along with
+ * the path it carries a proven bound on how far the path's cost can be from the cheapest
+ * path, and whether the search finished or ran out of budget.
+ */
+public class SearchResult {
+	private LinkedList<Pair<Direction, Point>> path;
+	private int pathCost;
+	private double bound;
+	private boolean complete;
+
+	/**
+	 * Constructor
+	 * @param path the best path found, or null if none was found
+	 * @param pathCost cost of the path, or -1 if there is no path
+	 * @param bound the path costs at most this many times the cheapest path, infinite if
+	 * there is no path or the search cannot bound its cost
+	 * @param complete if the search finished rather than running out of budget
+	 */
+	public SearchResult(LinkedList<Pair<Direction, Point>> path, int pathCost, double bound, boolean complete) {
+		this.path = path;
+		this.pathCost = pathCost;
+		this.bound = bound;
+		this.complete = complete;
+	}
+
+	/**
+	 * Getter: gets the best path found
+	 * @return list of directions and points from the start to the destination, or null if
+	 * no path was found
+	 */
+	public LinkedList<Pair<Direction, Point>> getPath() {
+		return path;
+	}
+
+	/**
+	 * Getter: gets the cost of the path
+	 * @return path cost, or -1 if there is no path
+	 */
+	public int getPathCost() {
+		return pathCost;
+	}
+
+	/**
+	 * Getter: gets the suboptimality bound of the path, 1 means the path is the cheapest
+	 * @return largest possible ratio between the path's cost and the cheapest cost
+	 */
+	public double getBound() {
+		return bound;
+	}
+
+	/**
+	 * Getter: gets whether the search finished within its budget. A complete search with
+	 * no path proved that the destination cannot be reached.
+	 * @return if the search finished
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("pathCost=%d bound=%.3f%s", pathCost, bound, complete ? "" : " (out of budget)");
+	}
+}
@@ -0,0 +1,140 @@
+package agentMap.Core;
+
+/**
+ * Statistics about a single path query. Searches fill in the counts of the work they did,
+ * while the wall time and whether the path came from the cache are filled in by InternalMap.
+ * Counts a search does not keep are left at 0.
+ */
+public class SearchStats {
+	private int nodesExpanded;
+	private int nodesGenerated;
+	private int openPeak;
+	private int heuristicCalls;
+	private int pathCost;
+	private long wallTimeNanos;
+	private boolean cacheHit;
+
+	/**
+	 * Constructor for empty statistics
+	 */
+	public SearchStats() {
+		pathCost = -1;
+	}
+
+	/**
+	 * Copy constructor, used to keep statistics that a search will overwrite on its next query
+	 * @param other statistics to copy
+	 */
+	public SearchStats(SearchStats other) {
+		nodesExpanded = other.nodesExpanded;
+		nodesGenerated = other.nodesGenerated;
+		openPeak = other.openPeak;
+		heuristicCalls = other.heuristicCalls;
+		pathCost = other.pathCost;
+		wallTimeNanos = other.wallTimeNanos;
+		cacheHit = other.cacheHit;
+	}
+
+	/**
+	 * Records the work done by a search
+	 * @param nodesExpanded number of nodes taken off the open list and expanded
+	 * @param nodesGenerated number of times a node was added to the open list or had its cost lowered
+	 * @param openPeak largest size of the open list
+	 * @param heuristicCalls number of heuristic estimates made
+	 * @param pathCost cost of the path found, or -1 if no path was found
+	 */
+	public void record(int nodesExpanded, int nodesGenerated, int openPeak, int heuristicCalls, int pathCost) {
+		this.nodesExpanded = nodesExpanded;
+		this.nodesGenerated = nodesGenerated;
+		this.openPeak = openPeak;
+		this.heuristicCalls = heuristicCalls;
+		this.pathCost = pathCost;
+	}
+
+	/**
+	 * Getter: gets the number of nodes expanded
+	 * @return nodes taken off the open list
+	 */
+	public int getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/**
+	 * Getter: gets the number of nodes generated
+	 * @return nodes added to the open list or given a lower cost
+	 */
+	public int getNodesGenerated() {
+		return nodesGenerated;
+	}
+
+	/**
+	 * Getter: gets the largest size the open list reached
+	 * @return peak size of the open list
+	 */
+	public int getOpenPeak() {
+		return openPeak;
+	}
+
+	/**
+	 * Getter: gets the number of heuristic estimates made
+	 * @return number of heuristic calls
+	 */
+	public int getHeuristicCalls() {
+		return heuristicCalls;
+	}
+
+	/**
+	 * Getter: gets the cost of the path found
+	 * @return path cost, or -1 if no path was found
+	 */
+	public int getPathCost() {
+		return pathCost;
+	}
+
+	/**
+	 * Sets the cost of the path found
+	 * @param pathCost path cost, or -1 if no path was found
+	 */
+	public void setPathCost(int pathCost) {
+		this.pathCost = pathCost;
+	}
+
+	/**
+	 * Getter: gets the time the query took
+	 * @return wall time in nanoseconds
+	 */
+	public long getWallTimeNanos() {
+		return wallTimeNanos;
+	}
+
+	/**
+	 * Sets the time the query took
+	 * @param wallTimeNanos wall time in nanoseconds
+	 */
+	public void setWallTimeNanos(long wallTimeNanos) {
+		this.wallTimeNanos = wallTimeNanos;
+	}
+
+	/**
+	 * Getter: gets whether the path came from the path cache without searching
+	 * @return if the query was a cache hit
+	 */
+	public boolean isCacheHit() {
+		return cacheHit;
+	}
+
+	/**
+	 * Sets whether the path came from the path cache without searching
+	 * @param cacheHit if the query was a cache hit
+	 */
+	public void setCacheHit(boolean cacheHit) {
+		this.cacheHit = cacheHit;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("expanded=%d generated=%d openPeak=%d heuristicCalls=%d pathCost=%d time=%dus%s",
+				nodesExpanded, nodesGenerated, openPeak, heuristicCalls, pathCost, wallTimeNanos / 1000,
+				cacheHit ? " (cached)" : "");
+	}
+}
@@ -33,21 +33,43 @@ public class State implements Comparable<State> {
 	
 	/**
 	 * Generates a list of points that represent the path from one point
-	 * to the destination point.
+	 * to the destination point. The states are walked back to the first one
+	 * iteratively, so long paths do not run out of stack.
 	 * @return List of points representing the path from one point to another
 	 */
 	public LinkedList<Pair<Direction, Point>> getPath() {
-		// Stopping condition for recursion
-		LinkedList<Pair<Direction, Point>> currPath = null;
-		if (prevState == null) {
-			currPath = new LinkedList<Pair<Direction, Point>>();
-		} else {
-			currPath = prevState.getPath();
+		LinkedList<Pair<Direction, Point>> currPath = new LinkedList<Pair<Direction, Point>>();
+		for (State state = this; state != null; state = state.prevState) {
+			currPath.addFirst(new Pair<Direction, Point>(state.currDir, state.currLoc));
 		}
-		currPath.add(new Pair<Direction, Point>(currDir, currLoc));
 		return currPath;
 	}
 	
+	/**
+	 * Generates the path from the first state to this state in compact form
+	 * @return the path as a start point followed by runs of moves
+	 */
+	public CompactPath getCompactPath() {
+		// Directions are found from the end of the path so they are collected first
+		int numSteps = 0;
+		State first = this;
+		while (first.prevState != null) {
+			first = first.prevState;
+			numSteps++;
+		}
+		Direction[] directions = new Direction[numSteps];
+		State state = this;
+		for (int i = numSteps - 1; i >= 0; i--) {
+			directions[i] = state.currDir;
+			state = state.prevState;
+		}
+		CompactPath.Builder builder = new CompactPath.Builder(first.currLoc, first.currDir);
+		for (int i = 0; i < numSteps; i++) {
+			builder.add(directions[i]);
+		}
+		return builder.build();
+	}
+	
 	/**
 	 * Getter: Gets the current point on the map that the state is at
 	 * @return Current point of the state on the map
@@ -0,0 +1,706 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A compact grid of tiles which is stored in primitive arrays indexed by y * width + x.
+ * Each cell only holds the id of its tile blueprint, while the pass cost and passability
+ * of the cell are kept alongside so searches can read them directly without going
+ * through a Tile object.
+ * The arrays are split into chunks of 4096 consecutive cells. A snapshot shares the
+ * chunks of the grid rather than copying them, and the grid copies a chunk the first time
+ * it writes to it after a snapshot was taken, so taking a snapshot only copies the
+ * references to the chunks.
+ */
+public class TileGrid implements IGrid {
+	// Tile type ids are stored in a byte so at most 256 different tiles can be on the grid
+	public static final int MAX_TILE_TYPES = 256;
+	// Regions are square blocks of 2^REGION_SHIFT tiles a side that keep their own version
+	public static final int REGION_SHIFT = 4;
+	// Cells are stored in chunks of 2^CHUNK_SHIFT cells which snapshots can share
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private int width;
+	private int height;
+	private int size;
+	private byte[][] tileIds;
+	private int[][] passCosts;
+	private long[][] passable;
+	// Snapshot epoch in which the grid last copied each chunk, chunks from earlier epochs may
+	// be shared with a snapshot and are copied before they are written to
+	private int[] chunkEpochs;
+	private int epoch;
+	// Tile blueprints indexed by their tile type id
+	private Tile[] tileTypes;
+	private int numTileTypes;
+	private int[] tileCounts;
+	// Incremented every time a cell changes so derived data can tell when it is stale
+	private int version;
+	private int[] regionVersions;
+	private int regionsX;
+	// Incremented when a tile becomes passable or cheaper, which is when a cheaper path could appear
+	private int openingVersion;
+	private ArrayList<IMapListener> listeners;
+	// First tile type id registered for each tile character
+	private HashMap<Character, Integer> charToId;
+	// Snapshots of a grid cannot be changed
+	private boolean readOnly;
+
+	/**
+	 * Constructor for a grid where every cell starts as the default tile
+	 * @param width number of columns in the grid
+	 * @param height number of rows in the grid
+	 * @param defaultTile blueprint of the tile that fills the grid initially
+	 */
+	public TileGrid(int width, int height, Tile defaultTile) {
+		this(width, height, defaultTile, true);
+	}
+
+	/**
+	 * Constructor which can leave the cells for a loader to fill in, so the cells are not
+	 * filled twice
+	 * @param width number of columns in the grid
+	 * @param height number of rows in the grid
+	 * @param defaultTile blueprint of the tile with id 0
+	 * @param fill if every cell is filled with the default tile, otherwise the pass costs,
+	 * passability and counts of the cells are not filled in until finishLoading is called
+	 */
+	TileGrid(int width, int height, Tile defaultTile, boolean fill) {
+		this.width = width;
+		this.height = height;
+		size = width * height;
+		int numChunks = (size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+		tileIds = new byte[numChunks][];
+		passCosts = new int[numChunks][];
+		passable = new long[numChunks][];
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			tileIds[chunk] = new byte[CHUNK_SIZE];
+			passCosts[chunk] = new int[CHUNK_SIZE];
+			passable[chunk] = new long[CHUNK_SIZE >>> 6];
+		}
+		chunkEpochs = new int[numChunks];
+		tileTypes = new Tile[MAX_TILE_TYPES];
+		tileCounts = new int[MAX_TILE_TYPES];
+		charToId = new HashMap<Character, Integer>();
+		listeners = new ArrayList<IMapListener>();
+		regionsX = (width + (1 << REGION_SHIFT) - 1) >> REGION_SHIFT;
+		regionVersions = new int[regionsX * ((height + (1 << REGION_SHIFT) - 1) >> REGION_SHIFT)];
+		// The default tile always receives the id 0
+		addTileType(defaultTile);
+		if (!fill) return;
+		// The default tile has the id 0 which the ids are already filled with
+		tileCounts[0] = size;
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			// Cells past the end of the grid in the last chunk are left impassable
+			int cells = Math.min(CHUNK_SIZE, size - (chunk << CHUNK_SHIFT));
+			if (defaultTile.getPassable()) {
+				Arrays.fill(passable[chunk], 0, cells >>> 6, -1L);
+				if ((cells & 63) != 0) {
+					passable[chunk][cells >>> 6] = (1L << cells) - 1;
+				}
+			}
+			if (defaultTile.getPassCost() != 0) {
+				Arrays.fill(passCosts[chunk], 0, cells, defaultTile.getPassCost());
+			}
+		}
+	}
+
+	/**
+	 * Copy constructor used to take snapshots, the copy does not inherit any listeners
+	 * @param other grid to copy
+	 */
+	private TileGrid(TileGrid other) {
+		width = other.width;
+		height = other.height;
+		size = other.size;
+		// The chunks are shared, from now on the grid copies a chunk before writing to it
+		tileIds = other.tileIds.clone();
+		passCosts = other.passCosts.clone();
+		passable = other.passable.clone();
+		other.epoch++;
+		tileTypes = other.tileTypes.clone();
+		numTileTypes = other.numTileTypes;
+		tileCounts = other.tileCounts.clone();
+		version = other.version;
+		regionVersions = other.regionVersions.clone();
+		regionsX = other.regionsX;
+		openingVersion = other.openingVersion;
+		listeners = new ArrayList<IMapListener>();
+		charToId = new HashMap<Character, Integer>(other.charToId);
+		readOnly = true;
+	}
+
+	/**
+	 * Takes a read only copy of the grid as it is now, which searches on other threads can
+	 * read while this grid keeps changing. The copy shares the cells of the grid, so it
+	 * takes time in proportion to the number of chunks and regions rather than cells.
+	 * @return a snapshot of the grid
+	 */
+	public TileGrid snapshot() {
+		return new TileGrid(this);
+	}
+
+	/**
+	 * Getter: gets whether the grid is a snapshot that cannot be changed
+	 * @return if the grid is read only
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * Creates a grid from a 2d array of tiles, each tile in the array is treated as a
+	 * blueprint for its tile type
+	 * @param map 2d array of tiles in [y][x] order
+	 * @return a grid containing the same tiles as the array
+	 */
+	public static TileGrid fromTiles(Tile[][] map) {
+		TileGrid grid = new TileGrid(map[0].length, map.length, map[0][0]);
+		for (int y = 0; y < map.length; y++) {
+			for (int x = 0; x < map[0].length; x++) {
+				grid.setTile(x, y, map[y][x]);
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Registers a tile blueprint with the grid, a blueprint matching an existing one
+	 * in character, passability and pass cost shares the existing tile type id
+	 * @param tile the tile blueprint to register
+	 * @return the tile type id of the blueprint
+	 */
+	public int addTileType(Tile tile) {
+		checkWritable();
+		Integer firstId = charToId.get(tile.getTileChar());
+		if (firstId != null) {
+			for (int id = firstId; id < numTileTypes; id++) {
+				if (sameTileType(tileTypes[id], tile)) return id;
+			}
+		}
+		if (numTileTypes == MAX_TILE_TYPES) {
+			throw new IllegalStateException("A grid cannot hold more than " + MAX_TILE_TYPES + " tile types");
+		}
+		int newId = numTileTypes++;
+		tileTypes[newId] = tile;
+		if (firstId == null) {
+			charToId.put(tile.getTileChar(), newId);
+		}
+		return newId;
+	}
+
+	/**
+	 * Checks if two tiles describe the same tile type
+	 * @param first tile to compare
+	 * @param second tile to compare
+	 * @return if the tiles share character, passability and pass cost
+	 */
+	private static boolean sameTileType(Tile first, Tile second) {
+		return first.getTileChar() == second.getTileChar()
+				&& first.getPassable() == second.getPassable()
+				&& first.getPassCost() == second.getPassCost();
+	}
+
+	/**
+	 * Places a tile on the grid, registering its tile type if it has not been seen before
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @param tile blueprint of the tile to place
+	 * @throws IllegalArgumentException if the cell is off the grid, which would otherwise be
+	 * wrapped onto another row by the cell index
+	 */
+	public void setTile(int x, int y, Tile tile) {
+		if (!inBounds(x, y)) {
+			throw new IllegalArgumentException("Point (" + x + "," + y + ") is outside the map");
+		}
+		setTileId(index(x, y), addTileType(tile));
+	}
+
+	/**
+	 * Sets the tile type id of a cell and updates its pass cost and passability
+	 * @param index index of the cell
+	 * @param tileId id of a registered tile type
+	 */
+	public void setTileId(int index, int tileId) {
+		checkWritable();
+		int chunk = index >>> CHUNK_SHIFT;
+		int offset = index & CHUNK_MASK;
+		int oldId = tileIds[chunk][offset] & 0xFF;
+		if (oldId == tileId) return;
+		ownChunk(chunk);
+		Tile tile = tileTypes[tileId];
+		version++;
+		regionVersions[regionOf(index % width, index / width)]++;
+		if (tile.getPassable() && (!isPassable(index) || tile.getPassCost() < getPassCost(index))) {
+			openingVersion++;
+		}
+		tileCounts[oldId]--;
+		tileCounts[tileId]++;
+		tileIds[chunk][offset] = (byte) tileId;
+		passCosts[chunk][offset] = tile.getPassCost();
+		if (tile.getPassable()) {
+			passable[chunk][offset >>> 6] |= 1L << index;
+		} else {
+			passable[chunk][offset >>> 6] &= ~(1L << index);
+		}
+		for (int i = 0; i < listeners.size(); i++) {
+			listeners.get(i).tileChanged(index % width, index / width, tileTypes[oldId], tile);
+		}
+	}
+
+	/**
+	 * Copies a chunk if it may be shared with a snapshot, so the grid can write to it
+	 * @param chunk index of the chunk
+	 */
+	private void ownChunk(int chunk) {
+		if (chunkEpochs[chunk] == epoch) return;
+		tileIds[chunk] = tileIds[chunk].clone();
+		passCosts[chunk] = passCosts[chunk].clone();
+		passable[chunk] = passable[chunk].clone();
+		chunkEpochs[chunk] = epoch;
+	}
+
+	/**
+	 * Replaces the tile type id of every cell at once, used by loaders which fill a new grid.
+	 * Listeners are not told about the cells that change.
+	 * @param ids tile type id of each cell, which must all be registered. Only the first
+	 * size() ids are read, so a loader can pass an array with room left at the end.
+	 */
+	void loadTileIds(byte[] ids) {
+		checkWritable();
+		if (ids.length < size) {
+			throw new IllegalArgumentException("Expected " + size + " tile ids but got " + ids.length);
+		}
+		for (int chunk = 0; chunk < tileIds.length; chunk++) {
+			ownChunk(chunk);
+			int start = chunk << CHUNK_SHIFT;
+			System.arraycopy(ids, start, tileIds[chunk], 0, Math.min(CHUNK_SIZE, size - start));
+		}
+		finishLoading();
+	}
+
+	/**
+	 * Reads the tile type ids of a range of cells straight from a buffer into the chunks of
+	 * the grid, used by loaders which fill a new grid a range at a time. finishLoading has
+	 * to be called once every cell has been filled.
+	 * @param in buffer to read the ids from, from its position
+	 * @param start index of the first cell
+	 * @param length number of cells
+	 * @throws IllegalArgumentException if the range is not on the grid
+	 */
+	void loadTileIds(ByteBuffer in, int start, int length) {
+		checkRange(start, length);
+		while (length > 0) {
+			int chunk = start >>> CHUNK_SHIFT;
+			int count = Math.min(length, CHUNK_SIZE - (start & CHUNK_MASK));
+			ownChunk(chunk);
+			in.get(tileIds[chunk], start & CHUNK_MASK, count);
+			start += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Sets the tile type id of a range of cells, used by loaders which fill a new grid a
+	 * range at a time. finishLoading has to be called once every cell has been filled.
+	 * @param start index of the first cell
+	 * @param length number of cells
+	 * @param id tile type id of the cells
+	 * @throws IllegalArgumentException if the range is not on the grid
+	 */
+	void fillTileIds(int start, int length, byte id) {
+		checkRange(start, length);
+		while (length > 0) {
+			int chunk = start >>> CHUNK_SHIFT;
+			int count = Math.min(length, CHUNK_SIZE - (start & CHUNK_MASK));
+			ownChunk(chunk);
+			Arrays.fill(tileIds[chunk], start & CHUNK_MASK, (start & CHUNK_MASK) + count, id);
+			start += count;
+			length -= count;
+		}
+	}
+
+	private void checkRange(int start, int length) {
+		checkWritable();
+		if (start < 0 || length < 0 || start > size - length) {
+			throw new IllegalArgumentException("Cells " + start + " to " + (start + length) + " are not on the grid");
+		}
+	}
+
+	/**
+	 * Fills in the pass costs, passability and counts of the cells from the tile type ids a
+	 * loader has written, which listeners are not told about
+	 * @throws IllegalArgumentException if a cell holds a tile type id that is not registered
+	 */
+	void finishLoading() {
+		checkWritable();
+		int[] costOfId = new int[MAX_TILE_TYPES];
+		long[] passableOfId = new long[MAX_TILE_TYPES];
+		for (int id = 0; id < numTileTypes; id++) {
+			costOfId[id] = tileTypes[id].getPassCost();
+			passableOfId[id] = tileTypes[id].getPassable() ? 1L : 0L;
+		}
+		Arrays.fill(tileCounts, 0);
+		for (int chunk = 0; chunk < tileIds.length; chunk++) {
+			ownChunk(chunk);
+			int cells = Math.min(CHUNK_SIZE, size - (chunk << CHUNK_SHIFT));
+			byte[] chunkIds = tileIds[chunk];
+			int[] chunkCosts = passCosts[chunk];
+			long[] chunkPassable = passable[chunk];
+			Arrays.fill(chunkPassable, 0L);
+			for (int i = 0; i < cells; i++) {
+				int id = chunkIds[i] & 0xFF;
+				if (id >= numTileTypes) {
+					throw new IllegalArgumentException("Tile type id " + id + " has not been registered");
+				}
+				tileCounts[id]++;
+				chunkCosts[i] = costOfId[id];
+				chunkPassable[i >>> 6] |= passableOfId[id] << i;
+			}
+		}
+		version++;
+		openingVersion++;
+		for (int region = 0; region < regionVersions.length; region++) {
+			regionVersions[region]++;
+		}
+	}
+
+	private void checkWritable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("A snapshot of a grid cannot be changed");
+		}
+	}
+
+	/**
+	 * Registers a listener to be told about every tile that changes on the grid
+	 * @param listener the listener to add
+	 */
+	public void addListener(IMapListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Stops a listener from being told about changes to the grid
+	 * @param listener the listener to remove
+	 */
+	public void removeListener(IMapListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Getter: gets the number of columns in the grid
+	 * @return width of the grid
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Getter: gets the number of rows in the grid
+	 * @return height of the grid
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the number of cells in the grid
+	 * @return width * height
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Converts a position on the grid into the index of its cell
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return index of the cell in the flat arrays
+	 */
+	public int index(int x, int y) {
+		return y * width + x;
+	}
+
+	/**
+	 * Checks if a position lies on the grid
+	 * @param x column of the position
+	 * @param y row of the position
+	 * @return if the position is inside the grid
+	 */
+	public boolean inBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	/**
+	 * Gets whether the tile in a cell can be bypassed by the agent
+	 * @param index index of the cell
+	 * @return if the cell is passable
+	 */
+	public boolean isPassable(int index) {
+		return (passable[index >>> CHUNK_SHIFT][(index & CHUNK_MASK) >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Gets whether the tile at a position can be bypassed by the agent
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return if the cell is passable
+	 */
+	public boolean isPassable(int x, int y) {
+		return isPassable(index(x, y));
+	}
+
+	/**
+	 * Checks if every cell in a range of cell indices is passable, testing 64 cells at a
+	 * time against the passability bits
+	 * @param from index of the first cell
+	 * @param to index of the last cell, which is not before the first
+	 * @return if every cell from the first to the last is passable
+	 */
+	private boolean isRangePassable(int from, int to) {
+		while (from <= to) {
+			long[] bits = passable[from >>> CHUNK_SHIFT];
+			int first = from & CHUNK_MASK;
+			int last = Math.min(first + (to - from), CHUNK_MASK);
+			int lastWord = last >>> 6;
+			for (int word = first >>> 6; word <= lastWord; word++) {
+				long mask = -1L;
+				if (word == first >>> 6) mask &= -1L << first;
+				if (word == lastWord) mask &= -1L >>> (63 - (last & 63));
+				if ((bits[word] & mask) != mask) return false;
+			}
+			from += last - first + 1;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if a straight line from the centre of one cell to the centre of another only
+	 * crosses passable cells. A line through the corner where two cells meet needs both
+	 * cells beside the corner to be passable, so an agent following the line never cuts
+	 * a corner. The cells crossed in each row are tested together as one range of bits.
+	 * @param x0 column of the starting cell
+	 * @param y0 row of the starting cell
+	 * @param x1 column of the end cell
+	 * @param y1 row of the end cell
+	 * @return if every cell the line crosses is passable
+	 */
+	public boolean hasLineOfSight(int x0, int y0, int x1, int y1) {
+		if (y1 < y0) {
+			return hasLineOfSight(x1, y1, x0, y0);
+		}
+		if (y0 == y1) {
+			return isRangePassable(index(Math.min(x0, x1), y0), index(Math.max(x0, x1), y0));
+		}
+		// The cells are the same as GridLine finds, but the x coordinates where the line
+		// crosses each row are stepped along as a whole part and a remainder over den
+		long den = 2L * (y1 - y0);
+		int dx = x1 - x0;
+		long halfQ = Math.floorDiv(dx, den);
+		long halfR = dx - halfQ * den;
+		long fullQ = Math.floorDiv(2L * dx, den);
+		long fullR = 2L * dx - fullQ * den;
+		// The first row starts at the centre of the starting cell and ends half a row further on
+		long topQ = x0;
+		long topR = den / 2;
+		long bottomQ = topQ + halfQ;
+		long bottomR = topR + halfR;
+		if (bottomR >= den) {
+			bottomQ++;
+			bottomR -= den;
+		}
+		for (int y = y0; ; y++) {
+			if (y == y1) {
+				bottomQ = x1;
+				bottomR = den / 2;
+			}
+			long minQ = (dx >= 0) ? topQ : bottomQ;
+			long minR = (dx >= 0) ? topR : bottomR;
+			long maxQ = (dx >= 0) ? bottomQ : topQ;
+			// The cells crossed run from just below the left crossing up to the right crossing
+			int first = (int) ((minR > 0) ? minQ : minQ - 1);
+			int rowStart = y * width;
+			if (!isRangePassable(rowStart + first, rowStart + (int) maxQ)) return false;
+			if (y == y1) return true;
+			topQ = bottomQ;
+			topR = bottomR;
+			bottomQ += fullQ;
+			bottomR += fullR;
+			if (bottomR >= den) {
+				bottomQ++;
+				bottomR -= den;
+			}
+		}
+	}
+
+	/**
+	 * Gets the cost of passing the tile in a cell
+	 * @param index index of the cell
+	 * @return pass cost of the cell
+	 */
+	public int getPassCost(int index) {
+		return passCosts[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+
+	/**
+	 * Gets the cost of passing the tile at a position
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return pass cost of the cell
+	 */
+	public int getPassCost(int x, int y) {
+		return getPassCost(index(x, y));
+	}
+
+	/**
+	 * Gets the tile type id of a cell
+	 * @param index index of the cell
+	 * @return the tile type id of the cell
+	 */
+	public int getTileId(int index) {
+		return tileIds[index >>> CHUNK_SHIFT][index & CHUNK_MASK] & 0xFF;
+	}
+
+	/**
+	 * Gets the tile blueprint registered under a tile type id
+	 * @param tileId id of the tile type
+	 * @return the tile blueprint
+	 */
+	public Tile getTileType(int tileId) {
+		return tileTypes[tileId];
+	}
+
+	/**
+	 * Gets the number of tile types registered with the grid
+	 * @return number of tile types
+	 */
+	public int getNumTileTypes() {
+		return numTileTypes;
+	}
+
+	/**
+	 * Getter: gets the version of the grid which changes whenever a cell is set
+	 * @return current version of the grid
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the region that a position belongs to
+	 * @param x column of the position
+	 * @param y row of the position
+	 * @return index of the region
+	 */
+	public int regionOf(int x, int y) {
+		return (y >> REGION_SHIFT) * regionsX + (x >> REGION_SHIFT);
+	}
+
+	/**
+	 * Gets the version of a region which changes whenever a cell in the region is set
+	 * @param region index of the region
+	 * @return current version of the region
+	 */
+	public int getRegionVersion(int region) {
+		return regionVersions[region];
+	}
+
+	/**
+	 * Getter: gets the version that changes whenever a tile becomes passable or cheaper to
+	 * pass. While it is unchanged no path cheaper than a previously found path can exist
+	 * unless a tile on that path has changed.
+	 * @return current opening version of the grid
+	 */
+	public int getOpeningVersion() {
+		return openingVersion;
+	}
+
+	/**
+	 * Checks if every passable tile on the grid has the same pass cost
+	 * @return if all passable cells cost the same to pass
+	 */
+	public boolean isUniformCost() {
+		int cost = 0;
+		boolean found = false;
+		for (int id = 0; id < numTileTypes; id++) {
+			Tile tile = tileTypes[id];
+			if (tileCounts[id] == 0 || !tile.getPassable()) continue;
+			if (found && tile.getPassCost() != cost) return false;
+			cost = tile.getPassCost();
+			found = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the character of the tile at a position
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return character representing the tile
+	 */
+	public char getTileChar(int x, int y) {
+		return tileTypes[getTileId(index(x, y))].getTileChar();
+	}
+
+	/**
+	 * Gets a copy of the tile blueprint in a cell which carries the position of the cell
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return a tile with its position on the grid
+	 */
+	public Tile getTile(int x, int y) {
+		return tileTypes[getTileId(index(x, y))].clone(new Point(x, y));
+	}
+
+	/**
+	 * Counts the cells holding a tile with the given character
+	 * @param tileChar character of the tile
+	 * @return number of cells containing the tile
+	 */
+	public int getTileCount(char tileChar) {
+		int count = 0;
+		for (int id = 0; id < numTileTypes; id++) {
+			if (tileTypes[id].getTileChar() == tileChar) count += tileCounts[id];
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the position of every cell holding a tile with the given character, the
+	 * positions are ordered row by row
+	 * @param tileChar character of the tile
+	 * @return list of positions of the tile
+	 */
+	public ArrayList<Point> findTiles(char tileChar) {
+		boolean[] matches = new boolean[MAX_TILE_TYPES];
+		for (int id = 0; id < numTileTypes; id++) {
+			matches[id] = tileTypes[id].getTileChar() == tileChar;
+		}
+		ArrayList<Point> points = new ArrayList<Point>();
+		for (int i = 0; i < size; i++) {
+			if (matches[getTileId(i)]) {
+				points.add(new Point(i % width, i / width));
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * Expands the grid into a 2d array of tiles for code that works on Tile objects
+	 * @return 2d array of tiles in [y][x] order
+	 */
+	public Tile[][] toTileArray() {
+		Tile[][] map = new Tile[height][width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				map[y][x] = getTile(x, y);
+			}
+		}
+		return map;
+	}
+}
@@ -0,0 +1,296 @@
+package agentMap.Core;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A spatial index of where the tiles of each character are on a TileGrid, kept up to date
+ * as tiles change. The index of a character is built the first time it is queried and is
+ * a bitset laid out region by region, so the 16 x 16 cells of a region take 4 longs and an
+ * empty region is skipped by checking those 4 longs. Queries for a rectangle or radius only
+ * look at the regions that overlap it, which makes finding a handful of resources near an
+ * agent cheap however large the map is.
+ */
+public class TileIndex implements IMapListener {
+	private static final int REGION_SIZE = 1 << TileGrid.REGION_SHIFT;
+	// Each row of a region is 16 bits so 4 rows fit in a long
+	private static final int ROWS_PER_WORD = 64 / REGION_SIZE;
+	private static final int WORDS_PER_REGION = REGION_SIZE / ROWS_PER_WORD;
+	private static final long ROW_MASK = (1L << REGION_SIZE) - 1;
+	private TileGrid grid;
+	private int regionsX;
+	private int regionsY;
+	// Characters that have been indexed along with their bitsets and counts
+	private char[] indexedChars;
+	private long[][] bits;
+	private int[] counts;
+	private int numIndexed;
+	// Version of the grid the index matches, changes the index was not told about force a rebuild
+	private int version;
+
+	/**
+	 * Constructor, the index starts listening to the grid straight away
+	 * @param grid grid to index
+	 */
+	public TileIndex(TileGrid grid) {
+		this.grid = grid;
+		regionsX = (grid.getWidth() + REGION_SIZE - 1) >> TileGrid.REGION_SHIFT;
+		regionsY = (grid.getHeight() + REGION_SIZE - 1) >> TileGrid.REGION_SHIFT;
+		indexedChars = new char[4];
+		bits = new long[4][];
+		counts = new int[4];
+		version = grid.getVersion();
+		grid.addListener(this);
+	}
+
+	/**
+	 * Stops the index from listening to the grid, after which it should not be used
+	 */
+	public void detach() {
+		grid.removeListener(this);
+	}
+
+	@Override
+	public void tileChanged(int x, int y, Tile oldTile, Tile newTile) {
+		if (version + 1 != grid.getVersion()) {
+			// Missed a change, rebuild on the next query
+			return;
+		}
+		version = grid.getVersion();
+		char oldChar = oldTile.getTileChar();
+		char newChar = newTile.getTileChar();
+		if (oldChar == newChar) return;
+		int bit = bitOf(x, y);
+		for (int i = 0; i < numIndexed; i++) {
+			if (indexedChars[i] == oldChar) {
+				bits[i][bit >>> 6] &= ~(1L << bit);
+				counts[i]--;
+			} else if (indexedChars[i] == newChar) {
+				bits[i][bit >>> 6] |= 1L << bit;
+				counts[i]++;
+			}
+		}
+	}
+
+	/**
+	 * Gets the position of a cell in the region by region bitset
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return index of the bit for the cell
+	 */
+	private int bitOf(int x, int y) {
+		int region = (y >> TileGrid.REGION_SHIFT) * regionsX + (x >> TileGrid.REGION_SHIFT);
+		return (region << (2 * TileGrid.REGION_SHIFT)) + ((y & (REGION_SIZE - 1)) << TileGrid.REGION_SHIFT)
+				+ (x & (REGION_SIZE - 1));
+	}
+
+	/**
+	 * Finds the index of a character, building it if it has not been queried before
+	 * @param tileChar character of the tile
+	 * @return position of the character in the indexed arrays
+	 */
+	private int indexOf(char tileChar) {
+		if (version != grid.getVersion()) {
+			rebuild();
+		}
+		for (int i = 0; i < numIndexed; i++) {
+			if (indexedChars[i] == tileChar) return i;
+		}
+		if (numIndexed == indexedChars.length) {
+			indexedChars = Arrays.copyOf(indexedChars, numIndexed * 2);
+			bits = Arrays.copyOf(bits, numIndexed * 2);
+			counts = Arrays.copyOf(counts, numIndexed * 2);
+		}
+		int i = numIndexed++;
+		indexedChars[i] = tileChar;
+		bits[i] = new long[regionsX * regionsY * WORDS_PER_REGION];
+		fill(i);
+		return i;
+	}
+
+	/**
+	 * Rebuilds every indexed character after the grid changed without telling the index
+	 */
+	private void rebuild() {
+		version = grid.getVersion();
+		for (int i = 0; i < numIndexed; i++) {
+			Arrays.fill(bits[i], 0L);
+			fill(i);
+		}
+	}
+
+	/**
+	 * Scans the grid for the cells holding an indexed character
+	 * @param i position of the character in the indexed arrays
+	 */
+	private void fill(int i) {
+		boolean[] matches = new boolean[TileGrid.MAX_TILE_TYPES];
+		for (int id = 0; id < grid.getNumTileTypes(); id++) {
+			matches[id] = grid.getTileType(id).getTileChar() == indexedChars[i];
+		}
+		long[] charBits = bits[i];
+		int count = 0;
+		int width = grid.getWidth();
+		for (int cell = 0; cell < grid.size(); cell++) {
+			if (matches[grid.getTileId(cell)]) {
+				int bit = bitOf(cell % width, cell / width);
+				charBits[bit >>> 6] |= 1L << bit;
+				count++;
+			}
+		}
+		counts[i] = count;
+	}
+
+	/**
+	 * Counts the cells holding a tile with the given character
+	 * @param tileChar character of the tile
+	 * @return number of cells containing the tile
+	 */
+	public int getCount(char tileChar) {
+		return counts[indexOf(tileChar)];
+	}
+
+	/**
+	 * Finds the position of every cell holding a tile with the given character, the
+	 * positions are ordered row by row
+	 * @param tileChar character of the tile
+	 * @return list of positions of the tile
+	 */
+	public ArrayList<Point> findTiles(char tileChar) {
+		return findTiles(tileChar, new Rectangle(0, 0, grid.getWidth(), grid.getHeight()));
+	}
+
+	/**
+	 * Finds the position of every cell inside a rectangle holding a tile with the given
+	 * character, the positions are ordered row by row
+	 * @param tileChar character of the tile
+	 * @param area rectangle of cells to search, which may reach past the edges of the grid
+	 * @return list of positions of the tile
+	 */
+	public ArrayList<Point> findTiles(char tileChar, Rectangle area) {
+		ArrayList<Point> points = new ArrayList<Point>();
+		search(tileChar, area.x, area.y, area.x + area.width - 1, area.y + area.height - 1, null, 0, points);
+		return points;
+	}
+
+	/**
+	 * Finds the position of every cell within a distance of a point holding a tile with the
+	 * given character, the positions are ordered row by row
+	 * @param tileChar character of the tile
+	 * @param center point to measure the distance from
+	 * @param radius largest straight line distance from the center, in tiles
+	 * @return list of positions of the tile
+	 */
+	public ArrayList<Point> findTilesInRadius(char tileChar, Point center, int radius) {
+		ArrayList<Point> points = new ArrayList<Point>();
+		search(tileChar, center.x - radius, center.y - radius, center.x + radius, center.y + radius,
+				center, (long) radius * radius, points);
+		return points;
+	}
+
+	/**
+	 * Finds the index of every cell holding a tile with the given character without creating
+	 * a position for each, the cells are ordered region by region
+	 * @param tileChar character of the tile
+	 * @return cell indices of the tile
+	 */
+	public int[] findTileCells(char tileChar) {
+		int i = indexOf(tileChar);
+		long[] charBits = bits[i];
+		int[] cells = new int[counts[i]];
+		int width = grid.getWidth();
+		int found = 0;
+		for (int word = 0; word < charBits.length; word++) {
+			long wordBits = charBits[word];
+			while (wordBits != 0) {
+				int bit = (word << 6) + Long.numberOfTrailingZeros(wordBits);
+				wordBits &= wordBits - 1;
+				int region = bit >>> (2 * TileGrid.REGION_SHIFT);
+				int x = ((region % regionsX) << TileGrid.REGION_SHIFT) + (bit & (REGION_SIZE - 1));
+				int y = ((region / regionsX) << TileGrid.REGION_SHIFT) + ((bit >>> TileGrid.REGION_SHIFT) & (REGION_SIZE - 1));
+				cells[found++] = y * width + x;
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Counts the cells inside a rectangle holding a tile with the given character without
+	 * creating their positions
+	 * @param tileChar character of the tile
+	 * @param area rectangle of cells to search, which may reach past the edges of the grid
+	 * @return number of cells containing the tile
+	 */
+	public int countTiles(char tileChar, Rectangle area) {
+		return search(tileChar, area.x, area.y, area.x + area.width - 1, area.y + area.height - 1, null, 0, null);
+	}
+
+	/**
+	 * Visits the cells holding a character inside a rectangle in row by row order, only
+	 * looking at the regions that overlap the rectangle and hold the character
+	 * @param tileChar character of the tile
+	 * @param minX first column of the rectangle
+	 * @param minY first row of the rectangle
+	 * @param maxX last column of the rectangle
+	 * @param maxY last row of the rectangle
+	 * @param center if not null only cells within the distance of this point are visited
+	 * @param radiusSq square of the largest distance from the center
+	 * @param points list the positions are added to, or null to only count them
+	 * @return number of cells visited
+	 */
+	private int search(char tileChar, int minX, int minY, int maxX, int maxY, Point center, long radiusSq,
+			ArrayList<Point> points) {
+		long[] charBits = bits[indexOf(tileChar)];
+		minX = Math.max(minX, 0);
+		minY = Math.max(minY, 0);
+		maxX = Math.min(maxX, grid.getWidth() - 1);
+		maxY = Math.min(maxY, grid.getHeight() - 1);
+		if (minX > maxX || minY > maxY) return 0;
+		int found = 0;
+		int firstRegionX = minX >> TileGrid.REGION_SHIFT;
+		int lastRegionX = maxX >> TileGrid.REGION_SHIFT;
+		int[] regions = new int[lastRegionX - firstRegionX + 1];
+		for (int regionY = minY >> TileGrid.REGION_SHIFT; regionY <= maxY >> TileGrid.REGION_SHIFT; regionY++) {
+			// Only the regions in this row of regions that hold the character are looked at
+			int numRegions = 0;
+			for (int regionX = firstRegionX; regionX <= lastRegionX; regionX++) {
+				int region = regionY * regionsX + regionX;
+				int word = region * WORDS_PER_REGION;
+				long any = 0;
+				for (int w = 0; w < WORDS_PER_REGION; w++) {
+					any |= charBits[word + w];
+				}
+				if (any != 0) regions[numRegions++] = region;
+			}
+			if (numRegions == 0) continue;
+			int top = Math.max(minY, regionY << TileGrid.REGION_SHIFT);
+			int bottom = Math.min(maxY, ((regionY + 1) << TileGrid.REGION_SHIFT) - 1);
+			for (int y = top; y <= bottom; y++) {
+				int row = y & (REGION_SIZE - 1);
+				for (int r = 0; r < numRegions; r++) {
+					int region = regions[r];
+					int regionLeft = (region % regionsX) << TileGrid.REGION_SHIFT;
+					long rowBits = (charBits[region * WORDS_PER_REGION + row / ROWS_PER_WORD]
+							>>> ((row % ROWS_PER_WORD) * REGION_SIZE)) & ROW_MASK;
+					// Drop the columns outside the rectangle
+					if (minX > regionLeft) rowBits &= ROW_MASK << (minX - regionLeft);
+					if (maxX < regionLeft + REGION_SIZE - 1) rowBits &= ROW_MASK >>> (REGION_SIZE - 1 - (maxX - regionLeft));
+					while (rowBits != 0) {
+						int x = regionLeft + Long.numberOfTrailingZeros(rowBits);
+						rowBits &= rowBits - 1;
+						if (center != null) {
+							long dx = x - center.x;
+							long dy = y - center.y;
+							if (dx * dx + dy * dy > radiusSq) continue;
+						}
+						found++;
+						if (points != null) points.add(new Point(x, y));
+					}
+				}
+			}
+		}
+		return found;
+	}
+}
@@ -14,8 +14,13 @@ public class ChebyshevDist implements IHeuristic {
 
 	@Override
 	public int calcHeuristic(Point currLoc, Point goalLoc) {
-		int xDist = Math.abs(currLoc.x - goalLoc.x);
-		int yDist = Math.abs(currLoc.y - goalLoc.y);
+		return calcHeuristic(currLoc.x, currLoc.y, goalLoc.x, goalLoc.y);
+	}
+	
+	@Override
+	public int calcHeuristic(int currX, int currY, int goalX, int goalY) {
+		int xDist = Math.abs(currX - goalX);
+		int yDist = Math.abs(currY - goalY);
 		return (xDist > yDist) ? xDist : yDist;
 	}
 
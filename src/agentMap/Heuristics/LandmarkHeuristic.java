@@ -0,0 +1,450 @@
+package agentMap.Heuristics;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import agentMap.Core.Direction;
+import agentMap.Core.IHeuristic;
+import agentMap.Core.IMapListener;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+import agentMap.Modules.IndexedMinHeap;
+import agentMap.Modules.SearchContext;
+
+/**
+ * The ALT heuristic, which bounds the cost between two tiles with the triangle inequality
+ * over the exact costs to and from a few landmark tiles. For a landmark L the cost from n
+ * to g is at least d(L, g) - d(L, n) and at least d(n, L) - d(g, L), and the largest of
+ * these bounds is used. On maze-like maps this is far closer to the real cost than a
+ * geometric distance, so A* expands far fewer tiles.
+ *
+ * Landmarks are chosen by farthest-point selection within the largest connected area of
+ * the grid, and the costs to and from every landmark are found with Dijkstra searches.
+ * The costs are kept in one int array with the costs of a tile next to each other, so an
+ * estimate reads a single stretch of memory. They can be saved and loaded with the map.
+ * The heuristic listens to its grid: a tile becoming passable or cheaper could make the
+ * costs overestimate, so they are recomputed before the next estimate, while tiles that
+ * only became more expensive leave the costs a valid but weaker bound and are only
+ * recomputed once enough of them have built up.
+ */
+public class LandmarkHeuristic implements IHeuristic, IMapListener {
+	// Cost stored for a tile that cannot reach or be reached from a landmark
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+	private static final int MAGIC = 0x414C544C;
+	private static final int FORMAT_VERSION = 1;
+	private static final int DEFAULT_REFRESH_THRESHOLD = 64;
+	private TileGrid grid;
+	private int width;
+	private int height;
+	private boolean eightDirections;
+	// Geometric bound combined with the landmark bound, or null to use the landmarks alone
+	private IHeuristic base;
+	private int numLandmarks;
+	private int[] landmarks;
+	// Cost from landmark i to a cell at [cell * 2 * numLandmarks + 2 * i], to the landmark at + 1.
+	// Replaced as a whole when refreshed so searches on other threads never see half the costs.
+	private volatile int[] costs;
+	// Checksum of the grid as it was when the costs were computed
+	private long costsChecksum;
+	private volatile boolean stale;
+	// Number of changes that made tiles more expensive since the costs were computed
+	private int closings;
+	private int refreshThreshold;
+	// Landmark costs of the last goal, shared by the estimates of one search
+	private volatile GoalCosts goalCosts;
+
+	/**
+	 * Costs between the landmarks and one goal tile
+	 */
+	private static class GoalCosts {
+		final int goal;
+		// Costs of every tile the goal's costs were read from
+		final int[] source;
+		final int[] costs;
+
+		GoalCosts(int goal, int[] source, int[] costs) {
+			this.goal = goal;
+			this.source = source;
+			this.costs = costs;
+		}
+	}
+
+	/**
+	 * Constructor which combines the landmarks with the Manhattan or Chebyshev distance,
+	 * which assumes every passable tile costs at least 1 to pass
+	 * @param grid grid the heuristic estimates costs on
+	 * @param numLandmarks number of landmarks to choose
+	 * @param eightDirections if the agent is able to move diagonally
+	 */
+	public LandmarkHeuristic(TileGrid grid, int numLandmarks, boolean eightDirections) {
+		this(grid, numLandmarks, eightDirections, eightDirections ? new ChebyshevDist() : new ManhattanDist());
+	}
+
+	/**
+	 * Constructor which chooses the landmarks and computes their costs
+	 * @param grid grid the heuristic estimates costs on
+	 * @param numLandmarks number of landmarks to choose
+	 * @param eightDirections if the agent is able to move diagonally
+	 * @param base heuristic whose estimate is used when it is larger, or null for none
+	 */
+	public LandmarkHeuristic(TileGrid grid, int numLandmarks, boolean eightDirections, IHeuristic base) {
+		this(grid, eightDirections, base);
+		landmarks = selectLandmarks(numLandmarks);
+		this.numLandmarks = landmarks.length;
+		computeCosts();
+	}
+
+	private LandmarkHeuristic(TileGrid grid, boolean eightDirections, IHeuristic base) {
+		this.grid = grid;
+		this.eightDirections = eightDirections;
+		this.base = base;
+		width = grid.getWidth();
+		height = grid.getHeight();
+		refreshThreshold = DEFAULT_REFRESH_THRESHOLD;
+		grid.addListener(this);
+	}
+
+	/**
+	 * Stops the heuristic from listening to the grid, after which its costs are not refreshed
+	 */
+	public void detach() {
+		grid.removeListener(this);
+	}
+
+	@Override
+	public int calcHeuristic(Point currLoc, Point goalLoc) {
+		return calcHeuristic(currLoc.x, currLoc.y, goalLoc.x, goalLoc.y);
+	}
+
+	@Override
+	public int calcHeuristic(int currX, int currY, int goalX, int goalY) {
+		if (stale) refresh();
+		int h = (base == null) ? 0 : base.calcHeuristic(currX, currY, goalX, goalY);
+		int goal = goalY * width + goalX;
+		int[] costs = this.costs;
+		GoalCosts goalCosts = this.goalCosts;
+		if (goalCosts == null || goalCosts.goal != goal || goalCosts.source != costs) {
+			int stride = costs.length / grid.size();
+			goalCosts = new GoalCosts(goal, costs, Arrays.copyOfRange(costs, goal * stride, (goal + 1) * stride));
+			this.goalCosts = goalCosts;
+		}
+		int[] toGoal = goalCosts.costs;
+		int stride = toGoal.length;
+		int offset = (currY * width + currX) * stride;
+		for (int i = 0; i < stride; i += 2) {
+			int fromLandmark = costs[offset + i];
+			int toLandmark = costs[offset + i + 1];
+			// d(L, g) - d(L, n) and d(n, L) - d(g, L), skipping costs that are unreachable
+			if (fromLandmark != UNREACHABLE && toGoal[i] != UNREACHABLE && toGoal[i] - fromLandmark > h) {
+				h = toGoal[i] - fromLandmark;
+			}
+			if (toLandmark != UNREACHABLE && toGoal[i + 1] != UNREACHABLE && toLandmark - toGoal[i + 1] > h) {
+				h = toLandmark - toGoal[i + 1];
+			}
+		}
+		return h;
+	}
+
+	@Override
+	public void tileChanged(int x, int y, Tile oldTile, Tile newTile) {
+		boolean opened = newTile.getPassable()
+				&& (!oldTile.getPassable() || newTile.getPassCost() < oldTile.getPassCost());
+		if (opened || ++closings >= refreshThreshold) {
+			stale = true;
+		}
+	}
+
+	/**
+	 * Sets how many changes that only make tiles more expensive are allowed before the costs
+	 * are recomputed. Until then the estimates stay admissible but can be weaker.
+	 * @param refreshThreshold number of changes, 1 recomputes the costs after every change
+	 */
+	public void setRefreshThreshold(int refreshThreshold) {
+		this.refreshThreshold = Math.max(1, refreshThreshold);
+	}
+
+	/**
+	 * Recomputes the costs if the grid has changed enough since they were computed, choosing
+	 * new landmarks if a landmark can no longer be passed. Estimates call this themselves,
+	 * calling it directly moves the work out of the next search.
+	 */
+	public synchronized void refresh() {
+		if (!stale) return;
+		for (int landmark : landmarks) {
+			if (!grid.isPassable(landmark)) {
+				landmarks = selectLandmarks(landmarks.length);
+				numLandmarks = landmarks.length;
+				break;
+			}
+		}
+		computeCosts();
+	}
+
+	/**
+	 * Getter: gets the positions of the landmarks
+	 * @return landmark positions
+	 */
+	public Point[] getLandmarks() {
+		Point[] points = new Point[numLandmarks];
+		for (int i = 0; i < numLandmarks; i++) {
+			points[i] = new Point(landmarks[i] % width, landmarks[i] / width);
+		}
+		return points;
+	}
+
+	/**
+	 * Chooses landmarks spread as far apart as possible. The first is the tile farthest from
+	 * a tile of the largest connected area, and each next one is the tile farthest from all
+	 * landmarks chosen so far.
+	 * @param count number of landmarks wanted
+	 * @return cells of the landmarks, fewer than wanted if the area is too small
+	 */
+	private int[] selectLandmarks(int count) {
+		int seed = largestAreaCell();
+		if (seed == -1 || count < 1) return new int[0];
+		int[] dist = new int[grid.size()];
+		IndexedMinHeap open = new IndexedMinHeap(grid.size());
+		dijkstra(seed, false, dist, open);
+		int[] minDist = dist.clone();
+		int[] chosen = new int[count];
+		int numChosen = 0;
+		while (numChosen < count) {
+			int farthest = -1;
+			for (int cell = 0; cell < minDist.length; cell++) {
+				if (minDist[cell] != UNREACHABLE && minDist[cell] > 0
+						&& (farthest == -1 || minDist[cell] > minDist[farthest])) {
+					farthest = cell;
+				}
+			}
+			if (farthest == -1) break;
+			chosen[numChosen++] = farthest;
+			dijkstra(farthest, false, dist, open);
+			// The seed only served to find the first landmark
+			for (int cell = 0; cell < minDist.length; cell++) {
+				if (numChosen == 1 || dist[cell] < minDist[cell]) minDist[cell] = dist[cell];
+			}
+		}
+		return Arrays.copyOf(chosen, numChosen);
+	}
+
+	/**
+	 * Finds a tile in the largest area of passable tiles connected to each other
+	 * @return cell of the tile, or -1 if no tile is passable
+	 */
+	private int largestAreaCell() {
+		int numMoves = eightDirections ? 8 : 4;
+		boolean[] visited = new boolean[grid.size()];
+		int[] stack = new int[64];
+		int best = -1;
+		int bestSize = 0;
+		for (int start = 0; start < visited.length; start++) {
+			if (visited[start] || !grid.isPassable(start)) continue;
+			int size = 0;
+			int stackSize = 0;
+			stack[stackSize++] = start;
+			visited[start] = true;
+			while (stackSize > 0) {
+				int cell = stack[--stackSize];
+				size++;
+				int x = cell % width;
+				int y = cell / width;
+				for (int i = 0; i < numMoves; i++) {
+					Direction direction = SearchContext.MOVES[i];
+					int nextX = x + direction.dx;
+					int nextY = y + direction.dy;
+					if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+					int nextCell = nextY * width + nextX;
+					if (visited[nextCell] || !grid.isPassable(nextCell)) continue;
+					visited[nextCell] = true;
+					if (stackSize == stack.length) stack = Arrays.copyOf(stack, stackSize * 2);
+					stack[stackSize++] = nextCell;
+				}
+			}
+			if (size > bestSize) {
+				best = start;
+				bestSize = size;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Computes the costs to and from every landmark and marks the heuristic as up to date
+	 */
+	private void computeCosts() {
+		// Cleared first so a tile that opens while the costs are computed marks them stale again
+		stale = false;
+		closings = 0;
+		long checksum = gridChecksum();
+		int size = grid.size();
+		int stride = 2 * numLandmarks;
+		int[] newCosts = new int[size * stride];
+		int[] dist = new int[size];
+		IndexedMinHeap open = new IndexedMinHeap(size);
+		for (int i = 0; i < numLandmarks; i++) {
+			dijkstra(landmarks[i], false, dist, open);
+			for (int cell = 0; cell < size; cell++) {
+				newCosts[cell * stride + 2 * i] = dist[cell];
+			}
+			dijkstra(landmarks[i], true, dist, open);
+			for (int cell = 0; cell < size; cell++) {
+				newCosts[cell * stride + 2 * i + 1] = dist[cell];
+			}
+		}
+		costsChecksum = checksum;
+		costs = newCosts;
+		goalCosts = null;
+	}
+
+	/**
+	 * Finds the cost of the cheapest path from a source tile to every tile, or from every
+	 * tile to the source tile. Moving onto a tile costs its pass cost, so costs are not
+	 * symmetric when tiles have different pass costs.
+	 * @param source cell of the source tile
+	 * @param toSource if the costs of paths ending at the source are wanted
+	 * @param dist array the cost of each cell is written to
+	 * @param open empty heap to use as the open list
+	 */
+	private void dijkstra(int source, boolean toSource, int[] dist, IndexedMinHeap open) {
+		int numMoves = eightDirections ? 8 : 4;
+		Arrays.fill(dist, UNREACHABLE);
+		dist[source] = 0;
+		open.update(source, 0);
+		while (!open.isEmpty()) {
+			int cell = open.pop();
+			// A path can only continue through a tile that can be passed
+			if (toSource && !grid.isPassable(cell)) continue;
+			int x = cell % width;
+			int y = cell / width;
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = x + direction.dx;
+				int nextY = y + direction.dy;
+				if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+				int nextCell = nextY * width + nextX;
+				int cost;
+				if (toSource) {
+					// The step from the neighbour onto this tile costs this tile's pass cost
+					cost = dist[cell] + grid.getPassCost(cell);
+				} else {
+					if (!grid.isPassable(nextCell)) continue;
+					cost = dist[cell] + grid.getPassCost(nextCell);
+				}
+				if (cost >= dist[nextCell]) continue;
+				dist[nextCell] = cost;
+				open.update(nextCell, cost);
+			}
+		}
+	}
+
+	/**
+	 * Saves the landmarks and their costs to a file, replacing the file if it exists. Costs
+	 * that are stale are recomputed first, so the saved costs never overestimate.
+	 * @param file file to save to
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void save(String file) throws IOException {
+		refresh();
+		int[] costs = this.costs;
+		FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(29 + numLandmarks * 4);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(width).putInt(height)
+					.put((byte) (eightDirections ? 1 : 0)).putLong(costsChecksum).putInt(numLandmarks);
+			for (int landmark : landmarks) {
+				header.putInt(landmark);
+			}
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			// Written a block of cells at a time to keep the buffer small
+			ByteBuffer block = ByteBuffer.allocate(1 << 16);
+			IntBuffer ints = block.asIntBuffer();
+			for (int start = 0; start < costs.length; start += ints.capacity()) {
+				int length = Math.min(ints.capacity(), costs.length - start);
+				ints.clear();
+				ints.put(costs, start, length);
+				block.clear();
+				block.limit(length * 4);
+				while (block.hasRemaining()) {
+					channel.write(block);
+				}
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Loads landmarks and their costs saved for a grid. If the grid has changed since the
+	 * costs were saved they are recomputed for the saved landmarks before the first estimate.
+	 * @param file file holding saved landmarks
+	 * @param grid grid the landmarks were saved for
+	 * @param base heuristic whose estimate is used when it is larger, or null for none
+	 * @return the heuristic
+	 * @throws IOException if the file cannot be read, is not saved landmarks or was saved
+	 * for a grid of a different size
+	 */
+	public static LandmarkHeuristic load(String file, TileGrid grid, IHeuristic base) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+		try {
+			ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (in.getInt() != MAGIC) {
+				throw new IOException("Not saved landmarks");
+			}
+			int formatVersion = in.getInt();
+			if (formatVersion != FORMAT_VERSION) {
+				throw new IOException("Unsupported saved landmarks version " + formatVersion);
+			}
+			if (in.getInt() != grid.getWidth() || in.getInt() != grid.getHeight()) {
+				throw new IOException("Landmarks were saved for a grid of a different size");
+			}
+			LandmarkHeuristic heuristic = new LandmarkHeuristic(grid, in.get() != 0, base);
+			long checksum = in.getLong();
+			int numLandmarks = in.getInt();
+			if (numLandmarks < 0 || (long) numLandmarks * 2 * grid.size() > Integer.MAX_VALUE) {
+				throw new IOException("Saved landmarks have an invalid header");
+			}
+			heuristic.numLandmarks = numLandmarks;
+			heuristic.landmarks = new int[numLandmarks];
+			for (int i = 0; i < numLandmarks; i++) {
+				heuristic.landmarks[i] = in.getInt();
+				if (heuristic.landmarks[i] < 0 || heuristic.landmarks[i] >= grid.size()) {
+					throw new IOException("Saved landmarks are corrupt");
+				}
+			}
+			heuristic.costs = new int[numLandmarks * 2 * grid.size()];
+			in.asIntBuffer().get(heuristic.costs);
+			heuristic.costsChecksum = checksum;
+			if (checksum != heuristic.gridChecksum()) {
+				heuristic.stale = true;
+			}
+			return heuristic;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Saved landmarks are truncated", e);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Hashes the passability and pass cost of every tile, which is all the costs depend on
+	 * @return checksum of the grid
+	 */
+	private long gridChecksum() {
+		long checksum = 1125899906842597L;
+		for (int cell = 0; cell < grid.size(); cell++) {
+			checksum = 31 * checksum + (grid.isPassable(cell) ? grid.getPassCost(cell) : -1);
+		}
+		return checksum;
+	}
+}
@@ -8,7 +8,12 @@ public class ManhattanDist implements IHeuristic {
 
 	@Override
 	public int calcHeuristic(Point currLoc, Point goalLoc) {
-		return Math.abs(currLoc.x - goalLoc.x) + Math.abs(currLoc.y - goalLoc.y);
+		return calcHeuristic(currLoc.x, currLoc.y, goalLoc.x, goalLoc.y);
+	}
+	
+	@Override
+	public int calcHeuristic(int currX, int currY, int goalX, int goalY) {
+		return Math.abs(currX - goalX) + Math.abs(currY - goalY);
 	}
 
 }
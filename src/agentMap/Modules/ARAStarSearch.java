@@ -0,0 +1,273 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import agentMap.Core.Direction;
+import agentMap.Core.IHeuristic;
+import agentMap.Core.ISearch;
+import agentMap.Core.Pair;
+import agentMap.Core.SearchBudget;
+import agentMap.Core.SearchResult;
+import agentMap.Core.SearchStats;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+
+/**
+ * Anytime Repairing A* (ARA*). The first pass is a weighted A* search ordered by
+ * g + epsilon * h, which finds a path quickly whose cost is at most epsilon times the
+ * cheapest. Each later pass lowers epsilon and improves the path, keeping the g costs of
+ * the previous passes so only the cells whose cost can still drop are expanded again.
+ * When the search runs out of budget it returns the best path of the passes it finished,
+ * along with the bound proven for it: the path's cost divided by the lowest g + h of the
+ * cells still waiting to be expanded, which never exceeds the epsilon of its pass.
+ * The heuristic has to be consistent for the bounds to hold.
+ */
+public class ARAStarSearch implements ISearch {
+	// Priorities hold g + epsilon * h in 1/256ths, shifted up to leave room for a tie break on h
+	private static final double KEY_SCALE = 256;
+	private static final int TIE_BITS = 16;
+	private IHeuristic heuristic;
+	private boolean eightDirections;
+	private double initialEpsilon;
+	private double finalEpsilon;
+	private double epsilonStep;
+	private SearchContext context;
+	// Closed cells whose g cost dropped during a pass, which are expanded again in the next pass
+	private int[] incons;
+	private int numIncons;
+	private int[] scratch;
+	private SearchStats stats;
+	private int expanded;
+	private int generated;
+	private int openPeak;
+	private int heuristicCalls;
+
+	/**
+	 * Constructor
+	 * @param heuristic consistent heuristic used to estimate the cost to the destination
+	 * @param eightDirections if the agent is able to move diagonally
+	 * @param initialEpsilon weight of the heuristic in the first pass
+	 * @param finalEpsilon weight of the heuristic in the last pass, 1 for the cheapest path
+	 * @param epsilonStep amount the weight is lowered by after each pass
+	 */
+	public ARAStarSearch(IHeuristic heuristic, boolean eightDirections, double initialEpsilon,
+			double finalEpsilon, double epsilonStep) {
+		if (finalEpsilon < 1 || initialEpsilon < finalEpsilon || epsilonStep <= 0) {
+			throw new IllegalArgumentException("Epsilon has to fall from the initial value to a final value of at least 1");
+		}
+		this.heuristic = heuristic;
+		this.eightDirections = eightDirections;
+		this.initialEpsilon = initialEpsilon;
+		this.finalEpsilon = finalEpsilon;
+		this.epsilonStep = epsilonStep;
+		context = new SearchContext(0);
+		incons = new int[64];
+		scratch = new int[64];
+		stats = new SearchStats();
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, Tile[][] map) {
+		return getPath(currLoc, destLoc, TileGrid.fromTiles(map));
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, TileGrid map) {
+		return getPath(currLoc, destLoc, map, SearchBudget.unlimited()).getPath();
+	}
+
+	@Override
+	public SearchResult getPath(Point currLoc, Point destLoc, TileGrid map, SearchBudget budget) {
+		// A point off the map would be wrapped onto another row by the cell index
+		if (!map.inBounds(currLoc.x, currLoc.y) || !map.inBounds(destLoc.x, destLoc.y)) {
+			stats.record(0, 0, 0, 0, -1);
+			return new SearchResult(null, -1, Double.POSITIVE_INFINITY, true);
+		}
+		context.prepare(map.size());
+		IndexedMinHeap open = context.getOpen();
+		numIncons = 0;
+		int startCell = map.index(currLoc.x, currLoc.y);
+		int destCell = map.index(destLoc.x, destLoc.y);
+		double epsilon = initialEpsilon;
+		context.reach(startCell, 0, -1, Direction.NONE);
+		open.update(startCell, priority(0, heuristic.calcHeuristic(currLoc.x, currLoc.y, destLoc.x, destLoc.y), epsilon));
+		expanded = 0;
+		generated = 1;
+		openPeak = 1;
+		heuristicCalls = 1;
+		LinkedList<Pair<Direction, Point>> bestPath = null;
+		int bestCost = -1;
+		double bestBound = Double.POSITIVE_INFINITY;
+		while (true) {
+			if (!improvePath(map, destCell, destLoc, epsilon, budget)) {
+				stats.record(expanded, generated, openPeak, heuristicCalls, bestCost);
+				return new SearchResult(bestPath, bestCost, bestBound, false);
+			}
+			if (!context.isSeen(destCell)) {
+				// Every reachable cell was expanded without reaching the destination
+				stats.record(expanded, generated, openPeak, heuristicCalls, -1);
+				return new SearchResult(null, -1, Double.POSITIVE_INFINITY, true);
+			}
+			LinkedList<Pair<Direction, Point>> path = context.buildPath(destCell, currLoc, map.getWidth());
+			int cost = pathCost(path, map);
+			if (bestPath == null || cost < bestCost) {
+				bestPath = path;
+				bestCost = cost;
+			}
+			int lowerBound = lowerBound(map, destLoc, bestCost);
+			bestBound = Math.min(epsilon, (lowerBound > 0) ? (double) bestCost / lowerBound : (bestCost == 0 ? 1 : epsilon));
+			if (epsilon <= finalEpsilon || bestBound <= 1) {
+				stats.record(expanded, generated, openPeak, heuristicCalls, bestCost);
+				return new SearchResult(bestPath, bestCost, bestBound, true);
+			}
+			epsilon = Math.max(finalEpsilon, Math.min(epsilon - epsilonStep, bestBound));
+			reorder(map, destLoc, epsilon);
+			context.clearClosed();
+		}
+	}
+
+	/**
+	 * Adds up the cost of a path. The parent links can lead along a path cheaper than the
+	 * destination's g cost, since a cell can be given a lower cost after the cells it was
+	 * the parent of were last reached.
+	 * @param path path built from the parent links
+	 * @param map grid the path is on
+	 * @return cost of the path
+	 */
+	private static int pathCost(LinkedList<Pair<Direction, Point>> path, TileGrid map) {
+		int cost = 0;
+		boolean first = true;
+		for (Pair<Direction, Point> step : path) {
+			if (!first) cost += map.getPassCost(step.second.x, step.second.y);
+			first = false;
+		}
+		return cost;
+	}
+
+	/**
+	 * Expands cells in order of g + epsilon * h until none could lead to a cheaper path to the
+	 * destination at this epsilon
+	 * @param map grid to search
+	 * @param destCell index of the destination cell
+	 * @param destLoc position of the destination
+	 * @param epsilon weight of the heuristic
+	 * @param budget limit on the number of cells expanded
+	 * @return if the pass finished, false if the budget ran out first
+	 */
+	private boolean improvePath(TileGrid map, int destCell, Point destLoc, double epsilon, SearchBudget budget) {
+		int mapWidth = map.getWidth();
+		int mapHeight = map.getHeight();
+		int numMoves = eightDirections ? 8 : 4;
+		IndexedMinHeap open = context.getOpen();
+		while (!open.isEmpty()) {
+			// The destination's own priority is its cost as its heuristic is 0
+			long destPriority = context.isSeen(destCell) ? priority(context.getGCost(destCell), 0, epsilon) : Long.MAX_VALUE;
+			if (open.peekPriority() >= destPriority) break;
+			if (budget.isExhausted(expanded)) return false;
+			int currCell = open.pop();
+			context.close(currCell);
+			expanded++;
+			int currX = currCell % mapWidth;
+			int currY = currCell / mapWidth;
+			int currGCost = context.getGCost(currCell);
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = currX + direction.dx;
+				int nextY = currY + direction.dy;
+				if (nextX < 0 || nextY < 0 || nextX >= mapWidth || nextY >= mapHeight) continue;
+				int nextCell = currCell + direction.dy * mapWidth + direction.dx;
+				if (!map.isPassable(nextCell)) continue;
+				int gCost = currGCost + map.getPassCost(nextCell);
+				if (context.isSeen(nextCell) && gCost >= context.getGCost(nextCell)) continue;
+				context.reach(nextCell, gCost, currCell, direction);
+				generated++;
+				if (context.isClosed(nextCell)) {
+					// Expanding it again in this pass could not improve the bound, so wait for the next
+					if (numIncons == incons.length) incons = Arrays.copyOf(incons, numIncons * 2);
+					incons[numIncons++] = nextCell;
+				} else {
+					int hCost = heuristic.calcHeuristic(nextX, nextY, destLoc.x, destLoc.y);
+					heuristicCalls++;
+					open.update(nextCell, priority(gCost, hCost, epsilon));
+					if (open.size() > openPeak) openPeak = open.size();
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the lowest g + h of the cells waiting to be expanded, which no path to the
+	 * destination can cost less than
+	 * @param map grid being searched
+	 * @param destLoc position of the destination
+	 * @param pathCost cost of the path found
+	 * @return lower bound on the cheapest cost to the destination
+	 */
+	private int lowerBound(TileGrid map, Point destLoc, int pathCost) {
+		IndexedMinHeap open = context.getOpen();
+		int width = map.getWidth();
+		int lowest = pathCost;
+		for (int i = 0; i < open.size() + numIncons; i++) {
+			int cell = (i < open.size()) ? open.getCell(i) : incons[i - open.size()];
+			int gCost = context.getGCost(cell);
+			if (gCost >= lowest) continue;
+			int f = gCost + heuristic.calcHeuristic(cell % width, cell / width, destLoc.x, destLoc.y);
+			heuristicCalls++;
+			if (f < lowest) lowest = f;
+		}
+		return lowest;
+	}
+
+	/**
+	 * Queues the cells improved in the last pass and orders every queued cell by the new epsilon
+	 * @param map grid being searched
+	 * @param destLoc position of the destination
+	 * @param epsilon weight of the heuristic in the next pass
+	 */
+	private void reorder(TileGrid map, Point destLoc, double epsilon) {
+		IndexedMinHeap open = context.getOpen();
+		int width = map.getWidth();
+		int numCells = open.size();
+		if (scratch.length < numCells + numIncons) scratch = new int[numCells + numIncons];
+		for (int i = 0; i < numCells; i++) {
+			scratch[i] = open.getCell(i);
+		}
+		System.arraycopy(incons, 0, scratch, numCells, numIncons);
+		numCells += numIncons;
+		numIncons = 0;
+		open.clear();
+		for (int i = 0; i < numCells; i++) {
+			int cell = scratch[i];
+			int hCost = heuristic.calcHeuristic(cell % width, cell / width, destLoc.x, destLoc.y);
+			heuristicCalls++;
+			open.update(cell, priority(context.getGCost(cell), hCost, epsilon));
+		}
+		if (open.size() > openPeak) openPeak = open.size();
+	}
+
+	/**
+	 * Orders cells by g + epsilon * h, breaking ties in favour of the cell estimated to be
+	 * closer to the destination
+	 * @param gCost cost of the path to the cell
+	 * @param hCost estimated cost from the cell to the destination
+	 * @param epsilon weight of the heuristic
+	 * @return priority of the cell in the open list
+	 */
+	private static long priority(int gCost, int hCost, double epsilon) {
+		long f = (long) Math.floor((gCost + epsilon * hCost) * KEY_SCALE);
+		return (f << TIE_BITS) | Math.min(hCost, (1 << TIE_BITS) - 1);
+	}
+
+	@Override
+	public SearchStats getLastStats() {
+		return stats;
+	}
+
+	@Override
+	public ISearch copy() {
+		return new ARAStarSearch(heuristic, eightDirections, initialEpsilon, finalEpsilon, epsilonStep);
+	}
+}
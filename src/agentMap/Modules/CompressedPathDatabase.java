@@ -0,0 +1,678 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import agentMap.Core.CompactPath;
+import agentMap.Core.Direction;
+import agentMap.Core.ISearch;
+import agentMap.Core.Pair;
+import agentMap.Core.SearchStats;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+
+/**
+ * Answers path queries on a map that does not change without searching, from the first
+ * move of a cheapest path between every pair of passable cells. The first moves are found
+ * ahead of time with a search from every cell, which runs in parallel, and a path is read
+ * off one move at a time by looking up the first move from each cell on it towards the
+ * destination.
+ * The passable cells are numbered in the order a depth first search reaches them, so cells
+ * close to each other get close numbers and each connected component is one range of
+ * numbers. The first moves from a cell towards the cells of its component, taken in that
+ * order, mostly come in long runs of the same move, so only the number where each run
+ * starts and its move are stored and a lookup is a binary search over the runs.
+ * Destinations in other components are turned down without a lookup.
+ * Building takes a search from every passable cell, so it is meant for maps of up to a few
+ * hundred thousand cells, and the database can be saved to a file and loaded again. A map
+ * that no longer matches the one the database was built from is searched with A* instead.
+ *
+ * Saved layout, big endian:
+ * magic (int), format version (int), width (int), height (int), eight directions (byte),
+ * fingerprint of the map (long), number of passable cells (int), the cell of every number
+ * (int each), number of components (int), the first number of every component and the
+ * number of cells (int each), then per cell in numbered order the number of runs (int) and
+ * each run as its first number shifted left by 3 bits and joined with its move (int each).
+ */
+public class CompressedPathDatabase implements ISearch {
+	private static final int MAGIC = 0x43504442;
+	private static final int FORMAT_VERSION = 1;
+	// Each run keeps its move in the bottom bits and the number where it starts in the rest
+	private static final int MOVE_BITS = 3;
+	private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+	private int width;
+	private int height;
+	private boolean eightDirections;
+	private long fingerprint;
+	// Number of each cell, or -1 for impassable cells
+	private int[] numberOf;
+	// Cell of each number
+	private int[] cellAt;
+	// Component of each number, where component c holds the numbers componentStart[c] up to componentStart[c + 1]
+	private int[] componentOf;
+	private int[] componentStart;
+	// Runs of first moves from each numbered cell
+	private int[][] runs;
+	// Searches maps that do not match the database
+	private aStarSearch fallback;
+	private SearchStats stats;
+	private SearchStats lastStats;
+	// Last grid checked against the database and whether it matched
+	private TileGrid checkedGrid;
+	private int checkedVersion;
+	private boolean checkedMatch;
+
+	/**
+	 * Constructor for a database whose tables have been built or loaded
+	 * @param width width of the map
+	 * @param height height of the map
+	 * @param eightDirections if the agent is able to move diagonally
+	 * @param fingerprint fingerprint of the map
+	 * @param cellAt cell of each number
+	 * @param componentStart first number of each component followed by the number of cells
+	 * @param runs runs of first moves from each numbered cell
+	 */
+	private CompressedPathDatabase(int width, int height, boolean eightDirections, long fingerprint,
+			int[] cellAt, int[] componentStart, int[][] runs) {
+		this.width = width;
+		this.height = height;
+		this.eightDirections = eightDirections;
+		this.fingerprint = fingerprint;
+		this.cellAt = cellAt;
+		this.componentStart = componentStart;
+		this.runs = runs;
+		numberOf = new int[width * height];
+		Arrays.fill(numberOf, -1);
+		for (int i = 0; i < cellAt.length; i++) {
+			numberOf[cellAt[i]] = i;
+		}
+		componentOf = new int[cellAt.length];
+		for (int c = 0; c + 1 < componentStart.length; c++) {
+			Arrays.fill(componentOf, componentStart[c], componentStart[c + 1], c);
+		}
+		init();
+	}
+
+	/**
+	 * Constructor for a copy that shares the tables of another database, which never change
+	 * @param other database to copy
+	 */
+	private CompressedPathDatabase(CompressedPathDatabase other) {
+		width = other.width;
+		height = other.height;
+		eightDirections = other.eightDirections;
+		fingerprint = other.fingerprint;
+		numberOf = other.numberOf;
+		cellAt = other.cellAt;
+		componentOf = other.componentOf;
+		componentStart = other.componentStart;
+		runs = other.runs;
+		init();
+	}
+
+	private void init() {
+		fallback = new aStarSearch(eightDirections ? new ChebyshevDist() : new ManhattanDist(), eightDirections);
+		stats = new SearchStats();
+		lastStats = stats;
+		checkedVersion = -1;
+	}
+
+	/**
+	 * Builds the database for a map, searching from every passable cell in parallel on the
+	 * common fork/join pool
+	 * @param grid map to build the database for, which must not change while it is built,
+	 * so a snapshot should be passed for a map that is still being updated
+	 * @param eightDirections if the agent is able to move diagonally
+	 * @return the database
+	 */
+	public static CompressedPathDatabase build(TileGrid grid, boolean eightDirections) {
+		int size = grid.size();
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int numMoves = eightDirections ? 8 : 4;
+		int[] numberOf = new int[size];
+		Arrays.fill(numberOf, -1);
+		int[] cellAt = new int[size];
+		int[] componentStart = new int[16];
+		int numComponents = 0;
+		int numbered = 0;
+		// Depth first search keeping the next move to try from each cell on the stack
+		int[] stackCell = new int[size];
+		int[] stackMove = new int[size];
+		for (int root = 0; root < size; root++) {
+			if (numberOf[root] != -1 || !grid.isPassable(root)) continue;
+			if (numComponents + 1 >= componentStart.length) {
+				componentStart = Arrays.copyOf(componentStart, componentStart.length * 2);
+			}
+			componentStart[numComponents++] = numbered;
+			numberOf[root] = numbered;
+			cellAt[numbered++] = root;
+			stackCell[0] = root;
+			stackMove[0] = 0;
+			int depth = 1;
+			while (depth > 0) {
+				int cell = stackCell[depth - 1];
+				int move = stackMove[depth - 1]++;
+				if (move == numMoves) {
+					depth--;
+					continue;
+				}
+				Direction direction = SearchContext.MOVES[move];
+				int nextX = cell % width + direction.dx;
+				int nextY = cell / width + direction.dy;
+				if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+				int next = nextY * width + nextX;
+				if (numberOf[next] != -1 || !grid.isPassable(next)) continue;
+				numberOf[next] = numbered;
+				cellAt[numbered++] = next;
+				stackCell[depth] = next;
+				stackMove[depth] = 0;
+				depth++;
+			}
+		}
+		componentStart[numComponents] = numbered;
+		int[][] runs = new int[numbered][];
+		CompressedPathDatabase database = new CompressedPathDatabase(width, height, eightDirections,
+				fingerprint(grid), Arrays.copyOf(cellAt, numbered), Arrays.copyOf(componentStart, numComponents + 1), runs);
+		int leafSize = Math.max(16, numbered / (ForkJoinPool.getCommonPoolParallelism() * 16));
+		ForkJoinPool.commonPool().invoke(database.new BuildTask(grid, 0, numbered, leafSize));
+		return database;
+	}
+
+	/**
+	 * Fork/join task that finds the runs of first moves for a range of numbered cells,
+	 * splitting the range in half until it is small enough to search on one thread
+	 */
+	private class BuildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private TileGrid grid;
+		private int from;
+		private int to;
+		private int leafSize;
+
+		BuildTask(TileGrid grid, int from, int to, int leafSize) {
+			this.grid = grid;
+			this.from = from;
+			this.to = to;
+			this.leafSize = leafSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= leafSize) {
+				FirstMoves firstMoves = new FirstMoves(grid);
+				for (int number = from; number < to; number++) {
+					runs[number] = firstMoves.findRuns(number);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new BuildTask(grid, from, middle, leafSize), new BuildTask(grid, middle, to, leafSize));
+		}
+	}
+
+	/**
+	 * Working memory of one thread building the database, which searches from one cell at a
+	 * time and records every move from that cell that starts a cheapest path to each cell
+	 */
+	private class FirstMoves {
+		private TileGrid grid;
+		private boolean uniformCost;
+		private int[] reached;
+		private int generation;
+		// Cost of the cheapest path to each cell in the top half and its number of moves in the bottom half
+		private long[] best;
+		// Bit i is set if SearchContext.MOVES[i] starts a cheapest path to the cell
+		private byte[] firstMoves;
+		private int[] queue;
+		private IndexedMinHeap open;
+		private int[] buffer;
+
+		FirstMoves(TileGrid grid) {
+			this.grid = grid;
+			uniformCost = grid.isUniformCost();
+			int size = grid.size();
+			reached = new int[size];
+			best = new long[size];
+			firstMoves = new byte[size];
+			if (uniformCost) {
+				queue = new int[size];
+			} else {
+				open = new IndexedMinHeap(size);
+			}
+			buffer = new int[16];
+		}
+
+		/**
+		 * Searches from a cell and run length encodes the first moves towards the other
+		 * cells of its component in numbered order. A run goes on for as long as some move
+		 * is a first move to every cell in it, which gives far fewer runs than choosing one
+		 * first move per cell beforehand.
+		 * @param number number of the cell to search from
+		 * @return runs of first moves
+		 */
+		int[] findRuns(int number) {
+			int source = cellAt[number];
+			generation++;
+			if (uniformCost) {
+				breadthFirst(source);
+			} else {
+				dijkstra(source);
+			}
+			int component = componentOf[number];
+			int numRuns = 0;
+			// Moves that are first moves to every cell of the current run
+			int common = 0;
+			for (int i = componentStart[component]; i < componentStart[component + 1]; i++) {
+				// The cell itself is never looked up, so it joins whichever run it is in
+				if (i == number) continue;
+				int moves = firstMoves[cellAt[i]] & 0xFF;
+				if ((common & moves) != 0) {
+					common &= moves;
+					continue;
+				}
+				if (numRuns > 0) {
+					buffer[numRuns - 1] |= Integer.numberOfTrailingZeros(common);
+				}
+				if (numRuns == buffer.length) buffer = Arrays.copyOf(buffer, numRuns * 2);
+				// The first run starts at the start of the component in case it is the cell itself
+				int start = (numRuns == 0) ? componentStart[component] : i;
+				buffer[numRuns++] = start << MOVE_BITS;
+				common = moves;
+			}
+			if (numRuns > 0) {
+				buffer[numRuns - 1] |= Integer.numberOfTrailingZeros(common);
+			}
+			return Arrays.copyOf(buffer, numRuns);
+		}
+
+		/**
+		 * Records that a cell can be reached from the one before it on a path, keeping the
+		 * first moves of the cheapest paths to it
+		 * @param cell cell the path reaches it from
+		 * @param next the cell reached
+		 * @param move index of the move taken from the cell
+		 * @param source cell the search started from
+		 * @param cost cost of the path to the cell reached along with its number of moves
+		 * @return if the cost of the cell went down
+		 */
+		private boolean relax(int cell, int next, int move, int source, long cost) {
+			// Cells next to the source are reached by their own move and the rest inherit the moves
+			int moves = (cell == source) ? 1 << move : firstMoves[cell];
+			if (reached[next] != generation || cost < best[next]) {
+				reached[next] = generation;
+				best[next] = cost;
+				firstMoves[next] = (byte) moves;
+				return true;
+			}
+			if (cost == best[next]) {
+				firstMoves[next] |= moves;
+			}
+			return false;
+		}
+
+		/**
+		 * Finds the first moves on a map where every step costs the same
+		 * @param source cell to search from
+		 */
+		private void breadthFirst(int source) {
+			int numMoves = eightDirections ? 8 : 4;
+			reached[source] = generation;
+			best[source] = 0;
+			queue[0] = source;
+			int tail = 1;
+			for (int head = 0; head < tail; head++) {
+				int cell = queue[head];
+				int x = cell % width;
+				int y = cell / width;
+				for (int i = 0; i < numMoves; i++) {
+					Direction direction = SearchContext.MOVES[i];
+					int nextX = x + direction.dx;
+					int nextY = y + direction.dy;
+					if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+					int next = nextY * width + nextX;
+					if (!grid.isPassable(next)) continue;
+					if (relax(cell, next, i, source, best[cell] + 1)) {
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Finds the first moves on a map where the pass costs differ. Paths of the same cost
+		 * are told apart by their number of moves, so that following the first moves from
+		 * cell to cell always gets closer to the destination even across tiles that cost
+		 * nothing to pass.
+		 * @param source cell to search from
+		 */
+		private void dijkstra(int source) {
+			int numMoves = eightDirections ? 8 : 4;
+			open.clear();
+			reached[source] = generation;
+			best[source] = 0;
+			open.update(source, 0);
+			while (!open.isEmpty()) {
+				int cell = open.pop();
+				int x = cell % width;
+				int y = cell / width;
+				for (int i = 0; i < numMoves; i++) {
+					Direction direction = SearchContext.MOVES[i];
+					int nextX = x + direction.dx;
+					int nextY = y + direction.dy;
+					if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+					int next = nextY * width + nextX;
+					if (!grid.isPassable(next)) continue;
+					long cost = best[cell] + ((long) grid.getPassCost(next) << 32) + 1;
+					if (relax(cell, next, i, source, cost)) {
+						open.update(next, cost);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Works out a fingerprint of the passability and pass cost of every cell of a map, used
+	 * to tell if a map is the one a database was built from
+	 * @param grid the map
+	 * @return fingerprint of the map
+	 */
+	private static long fingerprint(TileGrid grid) {
+		// 64 bit FNV-1a over the pass cost of each cell, with -1 for impassable cells
+		long hash = 0xCBF29CE484222325L;
+		hash = (hash ^ grid.getWidth()) * 0x100000001B3L;
+		hash = (hash ^ grid.getHeight()) * 0x100000001B3L;
+		for (int cell = 0; cell < grid.size(); cell++) {
+			hash = (hash ^ (grid.isPassable(cell) ? grid.getPassCost(cell) : -1)) * 0x100000001B3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Checks if a map is the one the database was built from, remembering the answer until
+	 * the map changes
+	 * @param grid the map
+	 * @return if the database holds the paths of the map
+	 */
+	public boolean isBuiltFor(TileGrid grid) {
+		if (grid != checkedGrid || grid.getVersion() != checkedVersion) {
+			checkedMatch = grid.getWidth() == width && grid.getHeight() == height && fingerprint(grid) == fingerprint;
+			checkedGrid = grid;
+			checkedVersion = grid.getVersion();
+		}
+		return checkedMatch;
+	}
+
+	/**
+	 * Looks up the first move from a numbered cell towards another in the same component
+	 * @param from number of the cell to move from
+	 * @param to number of the destination cell
+	 * @return index of the move in SearchContext.MOVES
+	 */
+	private int lookup(int from, int to) {
+		int[] cellRuns = runs[from];
+		// Find the last run starting at or before the destination
+		int low = 0;
+		int high = cellRuns.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if ((cellRuns[middle] >>> MOVE_BITS) <= to) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return cellRuns[low] & MOVE_MASK;
+	}
+
+	/**
+	 * Gets the first move of a cheapest path from one point to another
+	 * @param currLoc Position to start from, which has to be passable
+	 * @param destLoc Position to end at
+	 * @return direction of the first move, or NONE if the points are the same or the
+	 * destination cannot be reached or either point is off the map
+	 */
+	public Direction getFirstMove(Point currLoc, Point destLoc) {
+		if (!inBounds(currLoc) || !inBounds(destLoc)) return Direction.NONE;
+		int from = numberOf[currLoc.y * width + currLoc.x];
+		int to = numberOf[destLoc.y * width + destLoc.x];
+		if (from == -1 || to == -1 || from == to || componentOf[from] != componentOf[to]) return Direction.NONE;
+		return SearchContext.MOVES[lookup(from, to)];
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, Tile[][] map) {
+		return getPath(currLoc, destLoc, TileGrid.fromTiles(map));
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, TileGrid map) {
+		if (!canLookUp(currLoc, map)) {
+			lastStats = fallback.getLastStats();
+			return fallback.getPath(currLoc, destLoc, map);
+		}
+		CompactPath path = readPath(currLoc, destLoc, map);
+		return (path == null) ? null : path.toQueue();
+	}
+
+	@Override
+	public CompactPath getCompactPath(Point currLoc, Point destLoc, TileGrid map) {
+		if (!canLookUp(currLoc, map)) {
+			lastStats = fallback.getLastStats();
+			return fallback.getCompactPath(currLoc, destLoc, map);
+		}
+		return readPath(currLoc, destLoc, map);
+	}
+
+	/**
+	 * Checks if a query can be answered from the database, which needs the map it was
+	 * built from and a passable starting point on it
+	 * @param currLoc Position to start from
+	 * @param map map being searched
+	 * @return if the path can be looked up
+	 */
+	private boolean canLookUp(Point currLoc, TileGrid map) {
+		return isBuiltFor(map) && inBounds(currLoc) && numberOf[currLoc.y * width + currLoc.x] != -1;
+	}
+
+	/**
+	 * Checks if a point is on the map the database was built from, since a point off the
+	 * map would be wrapped onto another row by the cell index
+	 * @param loc the point
+	 * @return if the point is on the map
+	 */
+	private boolean inBounds(Point loc) {
+		return loc.x >= 0 && loc.y >= 0 && loc.x < width && loc.y < height;
+	}
+
+	/**
+	 * Reads a path off the database one move at a time
+	 * @param currLoc Position to start from, which is a numbered cell
+	 * @param destLoc Position to end at
+	 * @param map map the database was built from
+	 * @return the path, or null if the destination cannot be reached
+	 */
+	private CompactPath readPath(Point currLoc, Point destLoc, TileGrid map) {
+		lastStats = stats;
+		if (!inBounds(destLoc)) {
+			stats.record(0, 0, 0, 0, -1);
+			return null;
+		}
+		int cell = currLoc.y * width + currLoc.x;
+		int destCell = destLoc.y * width + destLoc.x;
+		int to = numberOf[destCell];
+		if (cell != destCell && (to == -1 || componentOf[numberOf[cell]] != componentOf[to])) {
+			stats.record(0, 0, 0, 0, -1);
+			return null;
+		}
+		CompactPath.Builder builder = new CompactPath.Builder(currLoc, Direction.NONE);
+		int cost = 0;
+		int lookups = 0;
+		while (cell != destCell) {
+			// A cheapest path visits each cell at most once
+			if (lookups++ == cellAt.length) {
+				throw new IllegalStateException("The path database does not lead to the destination");
+			}
+			Direction direction = SearchContext.MOVES[lookup(numberOf[cell], to)];
+			cell += direction.dy * width + direction.dx;
+			builder.add(direction);
+			cost += map.getPassCost(cell);
+		}
+		stats.record(lookups, 0, 0, 0, cost);
+		return builder.build();
+	}
+
+	/**
+	 * Gets the number of runs stored over all cells, which is what the database takes up
+	 * @return total number of runs
+	 */
+	public long getNumRuns() {
+		long total = 0;
+		for (int i = 0; i < runs.length; i++) {
+			total += runs[i].length;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the number of passable cells, the database holds a first move for every pair
+	 * of them in the same component
+	 * @return number of passable cells
+	 */
+	public int getNumCells() {
+		return cellAt.length;
+	}
+
+	/**
+	 * Saves the database to a file, replacing the file if it exists
+	 * @param file file to save the database to
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(String file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(file))));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(width);
+			out.writeInt(height);
+			out.writeByte(eightDirections ? 1 : 0);
+			out.writeLong(fingerprint);
+			out.writeInt(cellAt.length);
+			for (int i = 0; i < cellAt.length; i++) {
+				out.writeInt(cellAt[i]);
+			}
+			out.writeInt(componentStart.length - 1);
+			for (int i = 0; i < componentStart.length; i++) {
+				out.writeInt(componentStart[i]);
+			}
+			for (int i = 0; i < runs.length; i++) {
+				out.writeInt(runs[i].length);
+				for (int j = 0; j < runs[i].length; j++) {
+					out.writeInt(runs[i][j]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads a database saved with save
+	 * @param file file holding a saved database
+	 * @return the database
+	 * @throws IOException if the file cannot be read or does not hold a valid database
+	 */
+	public static CompressedPathDatabase load(String file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(file))));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a saved path database");
+			}
+			int formatVersion = in.readInt();
+			if (formatVersion != FORMAT_VERSION) {
+				throw new IOException("Unsupported saved path database version " + formatVersion);
+			}
+			int width = in.readInt();
+			int height = in.readInt();
+			boolean eightDirections = in.readByte() != 0;
+			long fingerprint = in.readLong();
+			int numCells = in.readInt();
+			if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE
+					|| numCells < 0 || numCells > width * height) {
+				throw new IOException("Saved path database has an invalid header");
+			}
+			int[] cellAt = new int[numCells];
+			boolean[] seen = new boolean[width * height];
+			for (int i = 0; i < numCells; i++) {
+				cellAt[i] = in.readInt();
+				if (cellAt[i] < 0 || cellAt[i] >= seen.length || seen[cellAt[i]]) {
+					throw new IOException("Saved path database has an invalid cell order");
+				}
+				seen[cellAt[i]] = true;
+			}
+			int numComponents = in.readInt();
+			if (numComponents < 0 || numComponents > numCells) {
+				throw new IOException("Saved path database has an invalid number of components");
+			}
+			int[] componentStart = new int[numComponents + 1];
+			for (int i = 0; i <= numComponents; i++) {
+				componentStart[i] = in.readInt();
+				if ((i == 0 && componentStart[i] != 0) || (i > 0 && componentStart[i] <= componentStart[i - 1])
+						|| (i == numComponents && componentStart[i] != numCells)) {
+					throw new IOException("Saved path database has invalid components");
+				}
+			}
+			int numMoves = eightDirections ? 8 : 4;
+			int[][] runs = new int[numCells][];
+			int component = 0;
+			for (int i = 0; i < numCells; i++) {
+				while (componentStart[component + 1] <= i) component++;
+				int numRuns = in.readInt();
+				boolean single = componentStart[component + 1] - componentStart[component] == 1;
+				if (numRuns < 0 || numRuns > numCells || (numRuns == 0) != single) {
+					throw new IOException("Saved path database has an invalid number of runs");
+				}
+				runs[i] = new int[numRuns];
+				for (int j = 0; j < numRuns; j++) {
+					int run = in.readInt();
+					int start = run >>> MOVE_BITS;
+					// Runs have to cover the component in order so every lookup finds a move
+					boolean inOrder = (j == 0) ? start == componentStart[component] : start > (runs[i][j - 1] >>> MOVE_BITS);
+					if (!inOrder || start >= componentStart[component + 1] || (run & MOVE_MASK) >= numMoves) {
+						throw new IOException("Saved path database has an invalid run");
+					}
+					runs[i][j] = run;
+				}
+			}
+			return new CompressedPathDatabase(width, height, eightDirections, fingerprint, cellAt, componentStart, runs);
+		} catch (EOFException e) {
+			throw new IOException("Saved path database is truncated", e);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Override
+	public SearchStats getLastStats() {
+		return lastStats;
+	}
+
+	@Override
+	public ISearch copy() {
+		return new CompressedPathDatabase(this);
+	}
+}
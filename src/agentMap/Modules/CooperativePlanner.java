@@ -0,0 +1,591 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import agentMap.Core.Direction;
+import agentMap.Core.IHeuristic;
+import agentMap.Core.Pair;
+import agentMap.Core.ReservationTable;
+import agentMap.Core.SearchBudget;
+import agentMap.Core.TileGrid;
+
+/**
+ * Plans paths for many agents at once so they never share a cell or swap places, using
+ * Windowed Hierarchical Cooperative A* (WHCA*). Agents are planned one after another in
+ * priority order, each with an A* search over cells and time steps that avoids the cells
+ * reserved by the agents planned before it. A search only looks a window of time steps
+ * ahead and then estimates the rest of the way, and only the first part
+ * of each window is followed before every agent plans again, so the work done for each
+ * window is bounded by the number of agents rather than by how crowded the map is.
+ * The estimate is the true cost to the goal ignoring other agents, found by a reverse
+ * search from each agent's goal which is resumed whenever it is asked about a cell it has
+ * not reached yet and kept for as long as the agent has the same goal.
+ * Agents that could not find a safe path in a window are planned first in the next one,
+ * the order of the others is shuffled, and agents already resting on their goals are
+ * planned last so they make way for the rest.
+ * Waiting in place is a move that costs the pass cost of the cell, and the agents plan
+ * together so no collisions have to be detected and repaired afterwards.
+ */
+public class CooperativePlanner {
+	// Times a window is planned again with the agents that were boxed in going first
+	private static final int MAX_ATTEMPTS = 4;
+	private IHeuristic heuristic;
+	private boolean eightDirections;
+	private int window;
+	private int replanInterval;
+	private int maxExpandedPerAgent;
+	private ReservationTable reservations;
+	// Cells of the agents not planned yet in the current window, which nobody may move into
+	// on the first time step since those agents can always wait there
+	private HashSet<Integer> unplannedCells;
+	// Nodes of the search are keyed by cell index and time step in place of column and row
+	private SparseSearchContext context;
+	// Order agents are planned in, the first agent has the highest priority
+	private int[] order;
+	private int[] failed;
+	// Cell and move of each agent at every time step of the current window
+	private int[][] planCells;
+	private Direction[][] planMoves;
+	// Reverse search from the goal of each agent giving the cost of reaching it
+	private GoalDistance[] distances;
+	private TileGrid distanceGrid;
+	private int distanceVersion;
+	private int lastExpanded;
+	private int lastFailed;
+	private int lastConflicts;
+	// Time steps at the start of the last window that are free of conflicts
+	private int lastSafeSteps;
+	// Shuffles the priorities each window, seeded so the same agents get the same plans
+	private Random random;
+
+	/**
+	 * Constructor
+	 * @param heuristic heuristic aimed at each agent by the reverse searches from the goals,
+	 * which has to be consistent
+	 * @param eightDirections if agents are able to move diagonally
+	 * @param window number of time steps each search looks ahead
+	 */
+	public CooperativePlanner(IHeuristic heuristic, boolean eightDirections, int window) {
+		if (window < 1) {
+			throw new IllegalArgumentException("The window has to be at least one time step");
+		}
+		this.heuristic = heuristic;
+		this.eightDirections = eightDirections;
+		this.window = window;
+		replanInterval = Math.max(1, window / 2);
+		maxExpandedPerAgent = 64 * window;
+		reservations = new ReservationTable();
+		unplannedCells = new HashSet<Integer>();
+		context = new SparseSearchContext();
+		order = new int[0];
+		failed = new int[0];
+		planCells = new int[0][];
+		planMoves = new Direction[0][];
+		distances = new GoalDistance[0];
+		random = new Random(0);
+	}
+
+	/**
+	 * Reverse Resumable A* from a goal, which gives the cheapest cost of reaching the goal
+	 * from a cell. The search is aimed at the agent's starting cell and only carries on when
+	 * it is asked about a cell it has not expanded, since an expanded cell's cost is final.
+	 */
+	private class GoalDistance {
+		private int goal;
+		private int target;
+		private SparseSearchContext reverse;
+
+		/**
+		 * Constructor
+		 * @param goal cell index of the goal
+		 * @param target cell index of the agent, which the search is aimed at
+		 * @param grid grid the agent moves on
+		 */
+		GoalDistance(int goal, int target, TileGrid grid) {
+			this.goal = goal;
+			this.target = target;
+			reverse = new SparseSearchContext();
+			reverse.prepare();
+			int node = reverse.reach(goal, 0, 0, -1, Direction.NONE);
+			reverse.getOpen().update(node, priority(0, estimate(goal, grid.getWidth())));
+		}
+
+		private int estimate(int cell, int width) {
+			return heuristic.calcHeuristic(cell % width, cell / width, target % width, target / width);
+		}
+
+		/**
+		 * Gets the cheapest cost of reaching the goal from a cell, expanding more of the
+		 * reverse search if the cell has not been expanded yet
+		 * @param cell index of the cell
+		 * @param grid grid the agent moves on
+		 * @return cost to the goal, or Integer.MAX_VALUE / 2 if it cannot be reached
+		 */
+		int get(int cell, TileGrid grid) {
+			int node = reverse.getNode(cell, 0);
+			if (node != -1 && reverse.isClosed(node)) return reverse.getGCost(node);
+			int width = grid.getWidth();
+			int height = grid.getHeight();
+			int numMoves = eightDirections ? 8 : 4;
+			IndexedMinHeap open = reverse.getOpen();
+			while (!open.isEmpty()) {
+				int currNode = open.pop();
+				reverse.close(currNode);
+				int currCell = reverse.getX(currNode);
+				// Moving from a neighbour onto this cell costs this cell's pass cost
+				int gCost = reverse.getGCost(currNode) + grid.getPassCost(currCell);
+				int currX = currCell % width;
+				int currY = currCell / width;
+				for (int i = 0; i < numMoves; i++) {
+					Direction direction = SearchContext.MOVES[i];
+					int nextX = currX + direction.dx;
+					int nextY = currY + direction.dy;
+					if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+					int nextCell = nextY * width + nextX;
+					if (!grid.isPassable(nextCell)) continue;
+					int next = reverse.getNode(nextCell, 0);
+					if (next != -1 && (reverse.isClosed(next) || gCost >= reverse.getGCost(next))) continue;
+					next = reverse.reach(nextCell, 0, gCost, currNode, direction);
+					open.update(next, priority(gCost, estimate(nextCell, width)));
+				}
+				if (currCell == cell) return reverse.getGCost(currNode);
+			}
+			return Integer.MAX_VALUE / 2;
+		}
+	}
+
+	/**
+	 * Setter: sets the number of time steps followed before planning again
+	 * @param replanInterval steps between plans, from 1 up to the window
+	 */
+	public void setReplanInterval(int replanInterval) {
+		if (replanInterval < 1 || replanInterval > window) {
+			throw new IllegalArgumentException("The replan interval has to be between 1 and the window");
+		}
+		this.replanInterval = replanInterval;
+	}
+
+	/**
+	 * Getter: gets the number of time steps followed before planning again
+	 * @return steps between plans
+	 */
+	public int getReplanInterval() {
+		return replanInterval;
+	}
+
+	/**
+	 * Setter: sets the most nodes a single agent's search may expand in a window. An agent
+	 * that runs out moves as close to its goal as the nodes it expanded allow.
+	 * @param maxExpandedPerAgent node limit for each agent
+	 */
+	public void setMaxExpandedPerAgent(int maxExpandedPerAgent) {
+		this.maxExpandedPerAgent = maxExpandedPerAgent;
+	}
+
+	/**
+	 * Getter: gets the number of nodes expanded by every agent in the last window
+	 * @return nodes expanded
+	 */
+	public int getLastExpanded() {
+		return lastExpanded;
+	}
+
+	/**
+	 * Getter: gets the number of agents in the last window that did not find a path to the
+	 * end of the window or to their goal, and instead moved as close to it as they could
+	 * @return number of agents
+	 */
+	public int getLastFailed() {
+		return lastFailed;
+	}
+
+	/**
+	 * Getter: gets the number of reservations in the last window that another agent already
+	 * held. This only happens when an agent is boxed in by the agents planned before it and
+	 * cannot even wait where it is, and is 0 when the plans are collision free. Agents are
+	 * never boxed in on the first time step, and only the time steps before the first
+	 * conflict are followed.
+	 * @return number of conflicts
+	 */
+	public int getLastConflicts() {
+		return lastConflicts;
+	}
+
+	/**
+	 * Plans the moves of every agent until they are all at their goals
+	 * @param starts position of each agent
+	 * @param goals goal of each agent, in the same order as the starting points
+	 * @param grid grid the agents move on
+	 * @param maxSteps most time steps to plan for, after which agents that have not reached
+	 * their goals are left where they are
+	 * @return path of each agent in the same order as the agents. Each path starts with the
+	 * agent's position paired with NONE and has an entry for every time step up to when the
+	 * agent stops moving, where an entry with the direction NONE is a wait in place.
+	 */
+	public List<LinkedList<Pair<Direction, Point>>> plan(List<Point> starts, List<Point> goals, TileGrid grid, int maxSteps) {
+		int numAgents = checkAgents(starts, goals, grid);
+		int width = grid.getWidth();
+		int[] positions = new int[numAgents];
+		int[] goalCells = new int[numAgents];
+		int atGoal = 0;
+		List<LinkedList<Pair<Direction, Point>>> paths = new ArrayList<LinkedList<Pair<Direction, Point>>>(numAgents);
+		for (int agent = 0; agent < numAgents; agent++) {
+			positions[agent] = grid.index(starts.get(agent).x, starts.get(agent).y);
+			goalCells[agent] = grid.index(goals.get(agent).x, goals.get(agent).y);
+			if (positions[agent] == goalCells[agent]) atGoal++;
+			LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+			path.add(new Pair<Direction, Point>(Direction.NONE, new Point(starts.get(agent))));
+			paths.add(path);
+		}
+		int steps = 0;
+		while (steps < maxSteps && atGoal < numAgents) {
+			planWindow(positions, goalCells, grid, SearchBudget.unlimited());
+			int safeSteps = Math.min(replanInterval, lastSafeSteps);
+			for (int t = 1; t <= safeSteps && steps < maxSteps && atGoal < numAgents; t++) {
+				steps++;
+				for (int agent = 0; agent < numAgents; agent++) {
+					int cell = planCells[agent][t];
+					if (positions[agent] == goalCells[agent]) atGoal--;
+					if (cell == goalCells[agent]) atGoal++;
+					positions[agent] = cell;
+					paths.get(agent).add(new Pair<Direction, Point>(planMoves[agent][t], new Point(cell % width, cell / width)));
+				}
+			}
+		}
+		// Waiting after the last move is the same as stopping
+		for (int agent = 0; agent < numAgents; agent++) {
+			LinkedList<Pair<Direction, Point>> path = paths.get(agent);
+			while (path.size() > 1 && path.getLast().first == Direction.NONE) {
+				path.removeLast();
+			}
+		}
+		return paths;
+	}
+
+	/**
+	 * Plans the next moves of every agent for one window, for callers that move the agents
+	 * themselves each tick. Calling this every replan interval steps with the agents' new
+	 * positions keeps them moving to their goals without colliding.
+	 * @param positions position of each agent
+	 * @param goals goal of each agent, in the same order as the positions
+	 * @param grid grid the agents move on
+	 * @param budget limit on the nodes expanded and time taken by all of the agents together,
+	 * agents planned after it runs out wait where they are if they can. The reverse searches
+	 * from the goals are not counted, most of their work is done in the first window after
+	 * an agent is given a new goal.
+	 * @return moves of each agent for the replan interval, in the same order as the agents.
+	 * Each list starts with the agent's position paired with NONE, followed by one entry for
+	 * each time step where an entry with the direction NONE is a wait in place. The lists are
+	 * cut short before the first time step where a boxed in agent could not avoid another,
+	 * so there is always at least one step and the agents have to plan again sooner.
+	 */
+	public List<LinkedList<Pair<Direction, Point>>> planWindow(List<Point> positions, List<Point> goals, TileGrid grid,
+			SearchBudget budget) {
+		int numAgents = checkAgents(positions, goals, grid);
+		int width = grid.getWidth();
+		int[] positionCells = new int[numAgents];
+		int[] goalCells = new int[numAgents];
+		for (int agent = 0; agent < numAgents; agent++) {
+			positionCells[agent] = grid.index(positions.get(agent).x, positions.get(agent).y);
+			goalCells[agent] = grid.index(goals.get(agent).x, goals.get(agent).y);
+		}
+		planWindow(positionCells, goalCells, grid, budget);
+		int safeSteps = Math.min(replanInterval, lastSafeSteps);
+		List<LinkedList<Pair<Direction, Point>>> moves = new ArrayList<LinkedList<Pair<Direction, Point>>>(numAgents);
+		for (int agent = 0; agent < numAgents; agent++) {
+			LinkedList<Pair<Direction, Point>> agentMoves = new LinkedList<Pair<Direction, Point>>();
+			agentMoves.add(new Pair<Direction, Point>(Direction.NONE, new Point(positions.get(agent))));
+			for (int t = 1; t <= safeSteps; t++) {
+				int cell = planCells[agent][t];
+				agentMoves.add(new Pair<Direction, Point>(planMoves[agent][t], new Point(cell % width, cell / width)));
+			}
+			moves.add(agentMoves);
+		}
+		return moves;
+	}
+
+	/**
+	 * Checks that every agent has a goal, that no two agents start or end on the same cell
+	 * and that every position is on the grid
+	 * @param positions position of each agent
+	 * @param goals goal of each agent
+	 * @param grid grid the agents move on
+	 * @return number of agents
+	 */
+	private static int checkAgents(List<Point> positions, List<Point> goals, TileGrid grid) {
+		if (positions.size() != goals.size()) {
+			throw new IllegalArgumentException("Every agent needs a goal");
+		}
+		HashSet<Integer> positionCells = new HashSet<Integer>();
+		HashSet<Integer> goalCells = new HashSet<Integer>();
+		for (int agent = 0; agent < positions.size(); agent++) {
+			Point position = positions.get(agent);
+			Point goal = goals.get(agent);
+			if (!grid.inBounds(position.x, position.y) || !grid.inBounds(goal.x, goal.y)) {
+				throw new IllegalArgumentException("Agent " + agent + " is outside the map");
+			}
+			if (!positionCells.add(grid.index(position.x, position.y)) || !goalCells.add(grid.index(goal.x, goal.y))) {
+				throw new IllegalArgumentException("Agent " + agent + " shares a position or goal with another agent");
+			}
+		}
+		return positions.size();
+	}
+
+	/**
+	 * Plans every agent for one window, leaving the cell and move of each agent at every time
+	 * step in planCells and planMoves
+	 * @param positions cell index of each agent
+	 * @param goals cell index of each agent's goal
+	 * @param grid grid the agents move on
+	 * @param budget limit on the work done by all of the agents together
+	 */
+	private void planWindow(int[] positions, int[] goals, TileGrid grid, SearchBudget budget) {
+		int numAgents = positions.length;
+		if (order.length != numAgents) {
+			order = new int[numAgents];
+			for (int agent = 0; agent < numAgents; agent++) {
+				order[agent] = agent;
+			}
+			failed = new int[numAgents];
+			planCells = new int[numAgents][window + 1];
+			planMoves = new Direction[numAgents][window + 1];
+		}
+		// The costs to the goals are kept while the grid and the goals stay the same
+		if (distances.length != numAgents || distanceGrid != grid || distanceVersion != grid.getVersion()) {
+			distances = new GoalDistance[numAgents];
+			distanceGrid = grid;
+			distanceVersion = grid.getVersion();
+		}
+		for (int agent = 0; agent < numAgents; agent++) {
+			if (distances[agent] == null || distances[agent].goal != goals[agent]) {
+				distances[agent] = new GoalDistance(goals[agent], positions[agent], grid);
+			}
+		}
+		// Shuffling the agents that did not fail stops two groups of agents from blocking each
+		// other in the same way window after window
+		for (int i = numAgents - 1; i > lastFailed; i--) {
+			int j = lastFailed + random.nextInt(i - lastFailed + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		// Agents resting on their goals go last so they step aside for the agents still moving
+		int[] newOrder = new int[numAgents];
+		int next = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < numAgents; i++) {
+				int agent = order[i];
+				if ((positions[agent] == goals[agent]) == (pass == 1)) newOrder[next++] = agent;
+			}
+		}
+		order = newOrder;
+		lastExpanded = 0;
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			int numFailed = planAll(positions, goals, grid, budget);
+			lastFailed = numFailed;
+			if (numFailed > 0) prioritizeFailed(numFailed);
+			if (lastConflicts == 0 || budget.isExhausted(lastExpanded)) break;
+		}
+	}
+
+	/**
+	 * Plans every agent for one window in the current order
+	 * @param positions cell index of each agent
+	 * @param goals cell index of each agent's goal
+	 * @param grid grid the agents move on
+	 * @param budget limit on the work done by all of the agents together
+	 * @return number of agents that did not find a path through the window, which are left
+	 * at the start of the failed array
+	 */
+	private int planAll(int[] positions, int[] goals, TileGrid grid, SearchBudget budget) {
+		int numAgents = positions.length;
+		reservations.clear();
+		unplannedCells.clear();
+		// Agents that have not been planned yet still hold their current cells, and keep them
+		// for the first time step so they can always wait there
+		for (int agent = 0; agent < numAgents; agent++) {
+			reservations.reserve(positions[agent], 0, agent);
+			unplannedCells.add(positions[agent]);
+		}
+		lastConflicts = 0;
+		lastSafeSteps = window;
+		int numFailed = 0;
+		for (int i = 0; i < numAgents; i++) {
+			int agent = order[i];
+			boolean boxedIn = false;
+			unplannedCells.remove(positions[agent]);
+			if (!planAgent(agent, positions[agent], goals[agent], grid, budget)) {
+				failed[numFailed++] = agent;
+			}
+			for (int t = 1; t <= window; t++) {
+				if (!reservations.reserve(planCells[agent][t], t, agent)) {
+					lastConflicts++;
+					lastSafeSteps = Math.min(lastSafeSteps, t - 1);
+					boxedIn = true;
+				}
+			}
+			// A boxed in agent has to go before the agents that boxed it in
+			if (boxedIn && (numFailed == 0 || failed[numFailed - 1] != agent)) {
+				failed[numFailed++] = agent;
+			}
+		}
+		return numFailed;
+	}
+
+	/**
+	 * Moves the agents that failed to the front of the order, keeping the order of the rest
+	 * @param numFailed number of agents at the start of the failed array
+	 */
+	private void prioritizeFailed(int numFailed) {
+		int numAgents = order.length;
+		int[] newOrder = new int[numAgents];
+		System.arraycopy(failed, 0, newOrder, 0, numFailed);
+		boolean[] isFailed = new boolean[numAgents];
+		for (int i = 0; i < numFailed; i++) {
+			isFailed[failed[i]] = true;
+		}
+		int next = numFailed;
+		for (int i = 0; i < numAgents; i++) {
+			if (!isFailed[order[i]]) newOrder[next++] = order[i];
+		}
+		order = newOrder;
+	}
+
+	/**
+	 * Searches over cells and time steps for the path of one agent through the window that
+	 * avoids the reservations of the agents planned before it. The search ends at a node at
+	 * the end of the window or at the goal once the agent can wait there until the end of
+	 * the window, whichever has the lowest cost plus estimated cost to the goal.
+	 * @param agent id of the agent
+	 * @param start cell the agent is in
+	 * @param goal cell of the agent's goal
+	 * @param grid grid the agent moves on
+	 * @param budget limit on the work done by all of the agents together
+	 * @return if a path through the window was found, otherwise the agent is sent to the
+	 * expanded node closest to its goal where it can wait until the end of the window
+	 */
+	private boolean planAgent(int agent, int start, int goal, TileGrid grid, SearchBudget budget) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int numMoves = eightDirections ? 8 : 4;
+		GoalDistance distance = distances[agent];
+		context.prepare();
+		IndexedMinHeap open = context.getOpen();
+		int startNode = context.reach(start, 0, 0, -1, Direction.NONE);
+		open.update(startNode, priority(0, distance.get(start, grid)));
+		int expanded = 0;
+		int end = -1;
+		while (!open.isEmpty()) {
+			if (expanded >= maxExpandedPerAgent || budget.isExhausted(lastExpanded)) break;
+			int currNode = open.pop();
+			context.close(currNode);
+			expanded++;
+			lastExpanded++;
+			int currCell = context.getX(currNode);
+			int time = context.getY(currNode);
+			if (time == window || (currCell == goal && canWait(agent, currCell, time))) {
+				end = currNode;
+				break;
+			}
+			int currX = currCell % width;
+			int currY = currCell / width;
+			int currGCost = context.getGCost(currNode);
+			// Index numMoves stands for waiting in place
+			for (int i = 0; i <= numMoves; i++) {
+				int nextX = currX;
+				int nextY = currY;
+				Direction direction = Direction.NONE;
+				if (i < numMoves) {
+					direction = SearchContext.MOVES[i];
+					nextX += direction.dx;
+					nextY += direction.dy;
+					if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+				}
+				int nextCell = nextY * width + nextX;
+				if (!grid.isPassable(nextCell)) continue;
+				if (!reservations.isMoveFree(currCell, nextCell, time, agent)) continue;
+				if (time == 0 && unplannedCells.contains(nextCell)) continue;
+				int node = context.getNode(nextCell, time + 1);
+				if (node != -1 && context.isClosed(node)) continue;
+				int gCost = currGCost + grid.getPassCost(nextCell);
+				if (node != -1 && gCost >= context.getGCost(node)) continue;
+				node = context.reach(nextCell, time + 1, gCost, currNode, direction);
+				open.update(node, priority(gCost, distance.get(nextCell, grid)));
+			}
+		}
+		boolean found = end != -1;
+		if (!found) {
+			end = fallback(agent, grid);
+		}
+		// Walk back from the end node, then wait there until the end of the window
+		int endTime = context.getY(end);
+		int endCell = context.getX(end);
+		for (int t = window; t > endTime; t--) {
+			planCells[agent][t] = endCell;
+			planMoves[agent][t] = Direction.NONE;
+		}
+		for (int node = end; node != -1; node = context.getParent(node)) {
+			int t = context.getY(node);
+			planCells[agent][t] = context.getX(node);
+			planMoves[agent][t] = context.getParentDirection(node);
+		}
+		return found;
+	}
+
+	/**
+	 * Picks the expanded node closest to the goal where the agent can wait until the end of
+	 * the window, used when the search ran out of budget or nodes
+	 * @param agent id of the agent
+	 * @param grid grid the agent moves on
+	 * @return node to end the agent's plan at, which is the start node when no node can be
+	 * waited at
+	 */
+	private int fallback(int agent, TileGrid grid) {
+		int numNodes = context.getNumNodes();
+		long[] candidates = new long[numNodes];
+		int numCandidates = 0;
+		for (int node = 0; node < numNodes; node++) {
+			if (!context.isClosed(node)) continue;
+			int hCost = distances[agent].get(context.getX(node), grid);
+			candidates[numCandidates++] = ((long) hCost << 32) | node;
+		}
+		Arrays.sort(candidates, 0, numCandidates);
+		for (int i = 0; i < numCandidates; i++) {
+			int node = (int) candidates[i];
+			if (canWait(agent, context.getX(node), context.getY(node))) return node;
+		}
+		// Boxed in, the agent waits where it is and the reservations it cannot take are counted
+		return 0;
+	}
+
+	/**
+	 * Checks if an agent can stay in a cell from a time step until the end of the window
+	 * @param agent id of the agent
+	 * @param cell index of the cell
+	 * @param time first time step in the cell
+	 * @return if no other agent has reserved the cell for those time steps
+	 */
+	private boolean canWait(int agent, int cell, int time) {
+		for (int t = time + 1; t <= window; t++) {
+			if (!reservations.isFree(cell, t, agent)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Orders nodes by g + h, breaking ties in favour of the node estimated to be closer to
+	 * the goal
+	 * @param gCost cost of the path to the node
+	 * @param hCost estimated cost from the node to the goal
+	 * @return priority of the node in the open list
+	 */
+	private static long priority(int gCost, int hCost) {
+		return ((long) (gCost + hCost) << 32) | hCost;
+	}
+}
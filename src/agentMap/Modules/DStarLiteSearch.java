@@ -0,0 +1,263 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import agentMap.Core.Direction;
+import agentMap.Core.IHeuristic;
+import agentMap.Core.IMapListener;
+import agentMap.Core.ISearch;
+import agentMap.Core.Pair;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+
+/**
+ * D* Lite search for a single agent heading to a fixed destination. The search runs
+ * backwards from the destination and keeps its search tree between calls, so when tiles
+ * change under the agent (e.g. a wall is discovered as it moves) only the part of the tree
+ * affected by the changed tiles is repaired on the next call to getPath.
+ * Each agent should have its own instance, the tree is started again whenever the
+ * destination or the grid being searched changes.
+ */
+public class DStarLiteSearch implements ISearch, IMapListener {
+	private static final int INFINITY = Integer.MAX_VALUE;
+	private IHeuristic heuristic;
+	private boolean eightDirections;
+	private int numMoves;
+	private TileGrid map;
+	private int width;
+	private int height;
+	private int goalCell;
+	private int startCell;
+	// Position of the agent when the keys were last corrected for its movement
+	private int lastCell;
+	private int keyModifier;
+	// Cost to the goal from each tile, and the one-step lookahead of that cost
+	private int[] gCosts;
+	private int[] rhsCosts;
+	private IndexedMinHeap open;
+	// Tiles changed since the last search that still have to be repaired
+	private int[] changedCells;
+	private int numChanged;
+
+	/**
+	 * Constructor
+	 * @param heuristic heuristic estimating the cost between two tiles
+	 * @param eightDirections if the agent is able to move diagonally
+	 */
+	public DStarLiteSearch(IHeuristic heuristic, boolean eightDirections) {
+		this.heuristic = heuristic;
+		this.eightDirections = eightDirections;
+		numMoves = eightDirections ? 8 : 4;
+		changedCells = new int[16];
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, Tile[][] map) {
+		return getPath(currLoc, destLoc, TileGrid.fromTiles(map));
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, TileGrid map) {
+		// A point off the map would be wrapped onto another row by the cell index
+		if (!map.inBounds(currLoc.x, currLoc.y) || !map.inBounds(destLoc.x, destLoc.y)) return null;
+		int destCell = map.index(destLoc.x, destLoc.y);
+		startCell = map.index(currLoc.x, currLoc.y);
+		if (map != this.map || destCell != goalCell) {
+			initialise(map, destCell);
+		} else {
+			// Keys already queued were made from the old position, so later keys are raised to match
+			if (startCell != lastCell) {
+				keyModifier += heuristic.calcHeuristic(lastCell % width, lastCell / width, currLoc.x, currLoc.y);
+				lastCell = startCell;
+			}
+			for (int i = 0; i < numChanged; i++) {
+				int cell = changedCells[i];
+				updateVertex(cell);
+				int x = cell % width;
+				int y = cell / width;
+				for (int j = 0; j < numMoves; j++) {
+					Direction direction = SearchContext.MOVES[j];
+					int prevX = x - direction.dx;
+					int prevY = y - direction.dy;
+					if (prevX < 0 || prevY < 0 || prevX >= width || prevY >= height) continue;
+					updateVertex(prevY * width + prevX);
+				}
+			}
+		}
+		numChanged = 0;
+		computeShortestPath();
+		return extractPath(currLoc);
+	}
+
+	/**
+	 * Stops listening to the grid that was last searched
+	 */
+	public void detach() {
+		if (map != null) map.removeListener(this);
+		map = null;
+	}
+
+	@Override
+	public void tileChanged(int x, int y, Tile oldTile, Tile newTile) {
+		if (numChanged == changedCells.length) {
+			changedCells = Arrays.copyOf(changedCells, numChanged * 2);
+		}
+		changedCells[numChanged++] = y * width + x;
+	}
+
+	/**
+	 * Starts a new search tree towards a destination
+	 * @param newMap grid to search
+	 * @param destCell index of the destination tile
+	 */
+	private void initialise(TileGrid newMap, int destCell) {
+		if (newMap != map) {
+			detach();
+			map = newMap;
+			map.addListener(this);
+			width = map.getWidth();
+			height = map.getHeight();
+		}
+		if (gCosts == null || gCosts.length != map.size()) {
+			gCosts = new int[map.size()];
+			rhsCosts = new int[map.size()];
+			open = new IndexedMinHeap(map.size());
+		}
+		Arrays.fill(gCosts, INFINITY);
+		Arrays.fill(rhsCosts, INFINITY);
+		open.clear();
+		goalCell = destCell;
+		lastCell = startCell;
+		keyModifier = 0;
+		updateVertex(goalCell);
+	}
+
+	/**
+	 * Orders tiles by the smaller of their two costs plus the heuristic to the agent, breaking
+	 * ties on the smaller cost
+	 * @param cell index of the tile
+	 * @return priority of the tile in the open list
+	 */
+	private long calcKey(int cell) {
+		int cost = Math.min(gCosts[cell], rhsCosts[cell]);
+		if (cost == INFINITY) return Long.MAX_VALUE;
+		long first = (long) cost + heuristic.calcHeuristic(startCell % width, startCell / width, cell % width, cell / width) + keyModifier;
+		return (first << 32) | cost;
+	}
+
+	/**
+	 * Recalculates the lookahead cost of a tile from its neighbours and queues it if its
+	 * cost is no longer consistent
+	 * @param cell index of the tile
+	 */
+	private void updateVertex(int cell) {
+		if (cell == goalCell) {
+			// The goal costs nothing to reach from itself, but cannot be reached once blocked
+			rhsCosts[cell] = map.isPassable(cell) ? 0 : INFINITY;
+		} else {
+			rhsCosts[cell] = bestNeighbourCost(cell);
+		}
+		if (gCosts[cell] != rhsCosts[cell]) {
+			open.update(cell, calcKey(cell));
+		} else {
+			open.remove(cell);
+		}
+	}
+
+	/**
+	 * Finds the cheapest cost to the goal from a tile through one of its neighbours
+	 * @param cell index of the tile
+	 * @return cost of the step plus the neighbour's cost to the goal
+	 */
+	private int bestNeighbourCost(int cell) {
+		if (!map.isPassable(cell)) return INFINITY;
+		int x = cell % width;
+		int y = cell / width;
+		int best = INFINITY;
+		for (int i = 0; i < numMoves; i++) {
+			Direction direction = SearchContext.MOVES[i];
+			int nextX = x + direction.dx;
+			int nextY = y + direction.dy;
+			if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+			int nextCell = nextY * width + nextX;
+			if (gCosts[nextCell] == INFINITY || !map.isPassable(nextCell)) continue;
+			int cost = gCosts[nextCell] + map.getPassCost(nextCell);
+			if (cost < best) best = cost;
+		}
+		return best;
+	}
+
+	/**
+	 * Expands inconsistent tiles until the agent's tile has its correct cost
+	 */
+	private void computeShortestPath() {
+		while (!open.isEmpty()
+				&& (open.peekPriority() < calcKey(startCell) || rhsCosts[startCell] != gCosts[startCell])) {
+			int cell = open.peek();
+			long oldKey = open.peekPriority();
+			long newKey = calcKey(cell);
+			if (oldKey < newKey) {
+				open.update(cell, newKey);
+				continue;
+			}
+			open.pop();
+			int x = cell % width;
+			int y = cell / width;
+			if (gCosts[cell] > rhsCosts[cell]) {
+				gCosts[cell] = rhsCosts[cell];
+			} else {
+				gCosts[cell] = INFINITY;
+				updateVertex(cell);
+			}
+			// Tiles that can step onto this tile may now have a different best cost
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int prevX = x - direction.dx;
+				int prevY = y - direction.dy;
+				if (prevX < 0 || prevY < 0 || prevX >= width || prevY >= height) continue;
+				updateVertex(prevY * width + prevX);
+			}
+		}
+	}
+
+	/**
+	 * Follows the cheapest neighbour from the agent to the goal
+	 * @param currLoc position of the agent
+	 * @return list of directions and points from the agent to the goal, or null if the goal
+	 * cannot be reached
+	 */
+	private LinkedList<Pair<Direction, Point>> extractPath(Point currLoc) {
+		if (startCell != goalCell && gCosts[startCell] == INFINITY) return null;
+		LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+		path.add(new Pair<Direction, Point>(Direction.NONE, currLoc));
+		int cell = startCell;
+		// Tiles with no pass cost could form a loop of equal costs, so the walk is bounded
+		for (int steps = 0; cell != goalCell && steps < map.size(); steps++) {
+			int x = cell % width;
+			int y = cell / width;
+			int bestCell = -1;
+			int bestMove = -1;
+			long best = INFINITY;
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = x + direction.dx;
+				int nextY = y + direction.dy;
+				if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+				int nextCell = nextY * width + nextX;
+				if (gCosts[nextCell] == INFINITY || !map.isPassable(nextCell)) continue;
+				long cost = (long) gCosts[nextCell] + map.getPassCost(nextCell);
+				if (cost < best) {
+					best = cost;
+					bestCell = nextCell;
+					bestMove = i;
+				}
+			}
+			if (bestCell == -1) return null;
+			path.add(new Pair<Direction, Point>(SearchContext.MOVES[bestMove], new Point(bestCell % width, bestCell / width)));
+			cell = bestCell;
+		}
+		return (cell == goalCell) ? path : null;
+	}
+}
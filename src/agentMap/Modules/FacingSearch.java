@@ -0,0 +1,289 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import agentMap.Core.Action;
+import agentMap.Core.ActionPath;
+import agentMap.Core.CompactPath;
+import agentMap.Core.Direction;
+import agentMap.Core.IHeuristic;
+import agentMap.Core.ISearch;
+import agentMap.Core.Pair;
+import agentMap.Core.SearchBudget;
+import agentMap.Core.SearchResult;
+import agentMap.Core.SearchStats;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+
+/**
+ * A* search for agents that have to face the way they move and pay to turn. A state is a
+ * cell and the heading the agent faces packed into one int as cell * headings + heading,
+ * and is kept in a SearchContext like a cell in aStarSearch. From each state the agent can
+ * step forward onto the next cell for its pass cost or turn left or right on the spot for
+ * the turn cost, where the headings on either side come from fixed tables.
+ * The plan is returned as an ActionPath of forward and turn actions. Used as an ISearch the
+ * agent may start facing any direction and only the moves of the plan are returned, which
+ * gives paths with fewer turns than aStarSearch.
+ * The context holds a slot for every state, so it takes 4 or 8 times the memory of
+ * aStarSearch on the same grid.
+ */
+public class FacingSearch implements ISearch {
+	// Headings in clockwise order, so turning right adds one and turning left takes one away
+	private static final Direction[] HEADINGS_8 = {
+		Direction.N, Direction.NE, Direction.E, Direction.SE,
+		Direction.S, Direction.SW, Direction.W, Direction.NW
+	};
+	private static final Direction[] HEADINGS_4 = {
+		Direction.N, Direction.E, Direction.S, Direction.W
+	};
+	private IHeuristic heuristic;
+	private boolean eightDirections;
+	private int turnCost;
+	private Direction[] headings;
+	private int numHeadings;
+	// Heading index on the left and right of each heading index
+	private int[] leftOf;
+	private int[] rightOf;
+	// Heading index of each direction by ordinal, or -1 if the agent cannot face it
+	private int[] headingOf;
+	private SearchContext context;
+	private SearchStats stats;
+
+	/**
+	 * Constructor
+	 * @param heuristic heuristic used to estimate the cost of the moves to the destination
+	 * @param eightDirections if the agent is able to move diagonally, in which case a turn is
+	 * an eighth of a full turn rather than a quarter
+	 * @param turnCost cost of one turn
+	 */
+	public FacingSearch(IHeuristic heuristic, boolean eightDirections, int turnCost) {
+		if (turnCost < 0) {
+			throw new IllegalArgumentException("The turn cost cannot be negative");
+		}
+		this.heuristic = heuristic;
+		this.eightDirections = eightDirections;
+		this.turnCost = turnCost;
+		headings = eightDirections ? HEADINGS_8 : HEADINGS_4;
+		numHeadings = headings.length;
+		leftOf = new int[numHeadings];
+		rightOf = new int[numHeadings];
+		for (int i = 0; i < numHeadings; i++) {
+			leftOf[i] = (i + numHeadings - 1) % numHeadings;
+			rightOf[i] = (i + 1) % numHeadings;
+		}
+		headingOf = new int[Direction.values().length];
+		Arrays.fill(headingOf, -1);
+		for (int i = 0; i < numHeadings; i++) {
+			headingOf[headings[i].ordinal()] = i;
+		}
+		context = new SearchContext(0);
+		stats = new SearchStats();
+	}
+
+	/**
+	 * Setter: sets the cost of one turn
+	 * @param turnCost cost of turning left or right once
+	 */
+	public void setTurnCost(int turnCost) {
+		if (turnCost < 0) {
+			throw new IllegalArgumentException("The turn cost cannot be negative");
+		}
+		this.turnCost = turnCost;
+	}
+
+	/**
+	 * Getter: gets the cost of one turn
+	 * @return turn cost
+	 */
+	public int getTurnCost() {
+		return turnCost;
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, Tile[][] map) {
+		return getPath(currLoc, destLoc, TileGrid.fromTiles(map));
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, TileGrid map) {
+		ActionPath plan = getActionPath(currLoc, Direction.NONE, destLoc, Direction.NONE, map);
+		return (plan == null) ? null : plan.toPath();
+	}
+
+	@Override
+	public SearchResult getPath(Point currLoc, Point destLoc, TileGrid map, SearchBudget budget) {
+		// The search always runs to the end, but with turns costing something the plan with the
+		// cheapest moves and turns is not always the path with the cheapest moves
+		LinkedList<Pair<Direction, Point>> path = getPath(currLoc, destLoc, map);
+		if (path == null) return new SearchResult(null, -1, Double.POSITIVE_INFINITY, true);
+		return new SearchResult(path, CompactPath.fromPath(path).getCost(map), (turnCost == 0) ? 1 : Double.POSITIVE_INFINITY, true);
+	}
+
+	/**
+	 * Finds the cheapest plan of moves and turns from a position and heading to a destination
+	 * @param currLoc Position to start from
+	 * @param heading direction the agent faces at the start, or NONE to let it start facing
+	 * whichever way is cheapest
+	 * @param destLoc Position to end at
+	 * @param destHeading direction the agent has to face at the end, or NONE for any
+	 * @param map grid to search
+	 * @return the plan, or null if the destination cannot be reached
+	 */
+	public ActionPath getActionPath(Point currLoc, Direction heading, Point destLoc, Direction destHeading, TileGrid map) {
+		int startHeading = checkHeading(heading);
+		int endHeading = checkHeading(destHeading);
+		int goal = search(currLoc, startHeading, destLoc, endHeading, map);
+		if (goal == -1) return null;
+		// Count the actions first so the plan is filled into an array of the right size
+		int length = 0;
+		int state = goal;
+		while (context.getParent(state) != -1) {
+			length++;
+			state = context.getParent(state);
+		}
+		Direction first = headings[state % numHeadings];
+		byte[] actions = new byte[length];
+		state = goal;
+		for (int i = length - 1; i >= 0; i--) {
+			int parent = context.getParent(state);
+			Action action;
+			if (parent / numHeadings != state / numHeadings) {
+				action = Action.FORWARD;
+			} else if (rightOf[parent % numHeadings] == state % numHeadings) {
+				action = Action.TURN_RIGHT;
+			} else {
+				action = Action.TURN_LEFT;
+			}
+			actions[i] = (byte) action.ordinal();
+			state = parent;
+		}
+		return new ActionPath(currLoc, first, eightDirections, actions, context.getGCost(goal));
+	}
+
+	/**
+	 * Finds the heading index of a direction
+	 * @param direction direction to face, or NONE for any
+	 * @return heading index, or -1 for NONE
+	 */
+	private int checkHeading(Direction direction) {
+		if (direction == Direction.NONE) return -1;
+		int index = headingOf[direction.ordinal()];
+		if (index == -1) {
+			throw new IllegalArgumentException("An agent moving in 4 directions cannot face " + direction);
+		}
+		return index;
+	}
+
+	/**
+	 * Runs A* over cells and headings, leaving the parent links of the plan in the context
+	 * @param currLoc Position to start from
+	 * @param startHeading heading index at the start, or -1 for any
+	 * @param destLoc Position to end at
+	 * @param endHeading heading index at the end, or -1 for any
+	 * @param map grid to search
+	 * @return state at the end of the plan, or -1 if the destination cannot be reached
+	 */
+	private int search(Point currLoc, int startHeading, Point destLoc, int endHeading, TileGrid map) {
+		int mapWidth = map.getWidth();
+		int mapHeight = map.getHeight();
+		// A point off the map would be wrapped onto another row by the cell index
+		if (!map.inBounds(currLoc.x, currLoc.y) || !map.inBounds(destLoc.x, destLoc.y)) {
+			stats.record(0, 0, 0, 0, -1);
+			return -1;
+		}
+		context.prepare(map.size() * numHeadings);
+		IndexedMinHeap open = context.getOpen();
+		int startCell = map.index(currLoc.x, currLoc.y);
+		int destCell = map.index(destLoc.x, destLoc.y);
+		int startH = heuristic.calcHeuristic(currLoc.x, currLoc.y, destLoc.x, destLoc.y);
+		int expanded = 0;
+		int generated = 0;
+		int openPeak = 0;
+		int heuristicCalls = 1;
+		for (int i = 0; i < numHeadings; i++) {
+			if (startHeading != -1 && i != startHeading) continue;
+			int state = startCell * numHeadings + i;
+			context.reach(state, 0, -1, Direction.NONE);
+			open.update(state, priority(0, startH));
+			generated++;
+		}
+		while (!open.isEmpty()) {
+			if (open.size() > openPeak) openPeak = open.size();
+			int currState = open.pop();
+			context.close(currState);
+			expanded++;
+			int currCell = currState / numHeadings;
+			int currHeading = currState % numHeadings;
+			int currGCost = context.getGCost(currState);
+			if (currCell == destCell && (endHeading == -1 || currHeading == endHeading)) {
+				stats.record(expanded, generated, openPeak, heuristicCalls, currGCost);
+				return currState;
+			}
+			int currX = currCell % mapWidth;
+			int currY = currCell / mapWidth;
+			int hCost = heuristic.calcHeuristic(currX, currY, destLoc.x, destLoc.y);
+			heuristicCalls++;
+			// Turning keeps the cell, so the estimate of the turned state is the same
+			for (int turn = 0; turn < 2; turn++) {
+				int nextState = currCell * numHeadings + ((turn == 0) ? leftOf[currHeading] : rightOf[currHeading]);
+				int gCost = currGCost + turnCost;
+				if (relax(nextState, gCost, currState)) {
+					open.update(nextState, priority(gCost, hCost));
+					generated++;
+				}
+			}
+			Direction heading = headings[currHeading];
+			int nextX = currX + heading.dx;
+			int nextY = currY + heading.dy;
+			if (nextX < 0 || nextY < 0 || nextX >= mapWidth || nextY >= mapHeight) continue;
+			int nextCell = currCell + heading.dy * mapWidth + heading.dx;
+			if (!map.isPassable(nextCell)) continue;
+			int nextState = nextCell * numHeadings + currHeading;
+			int gCost = currGCost + map.getPassCost(nextCell);
+			if (relax(nextState, gCost, currState)) {
+				open.update(nextState, priority(gCost, heuristic.calcHeuristic(nextX, nextY, destLoc.x, destLoc.y)));
+				heuristicCalls++;
+				generated++;
+			}
+		}
+		stats.record(expanded, generated, openPeak, heuristicCalls, -1);
+		return -1;
+	}
+
+	/**
+	 * Records a cheaper way of reaching a state
+	 * @param state the state reached
+	 * @param gCost cost of reaching it
+	 * @param parentState state it was reached from
+	 * @return if the state should be queued with the new cost
+	 */
+	private boolean relax(int state, int gCost, int parentState) {
+		if (context.isClosed(state)) return false;
+		if (context.isSeen(state) && gCost >= context.getGCost(state)) return false;
+		context.reach(state, gCost, parentState, Direction.NONE);
+		return true;
+	}
+
+	/**
+	 * Orders states by g + h, breaking ties in favour of the state estimated to be closer
+	 * to the destination
+	 * @param gCost cost of reaching the state
+	 * @param hCost estimated cost from the state to the destination
+	 * @return priority of the state in the open list
+	 */
+	private static long priority(int gCost, int hCost) {
+		return ((long) (gCost + hCost) << 32) | hCost;
+	}
+
+	@Override
+	public SearchStats getLastStats() {
+		return stats;
+	}
+
+	@Override
+	public ISearch copy() {
+		return new FacingSearch(heuristic, eightDirections, turnCost);
+	}
+}
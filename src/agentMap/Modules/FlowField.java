@@ -0,0 +1,239 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import agentMap.Core.Direction;
+import agentMap.Core.IMapListener;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+
+/**
+ * A flow field holds the cost from every tile of a grid to the closest of a set of goal
+ * tiles, along with the direction of the first step on that cheapest path. Any number of
+ * agents heading to the same goals can read their next step from it without searching.
+ * The field listens to its grid and repairs only the tiles whose cost is affected when a
+ * tile changes, rather than computing the whole field again.
+ */
+public class FlowField implements IMapListener {
+	// Cost of a tile from which no goal can be reached
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	private TileGrid map;
+	private boolean eightDirections;
+	private int width;
+	private int height;
+	private BitSet goals;
+	private int[] distances;
+	// Index in SearchContext.MOVES of the first step from each tile, or -1 if there is none
+	private byte[] moves;
+	private IndexedMinHeap open;
+	// Tiles whose cost has to be found again after a tile becomes more expensive
+	private BitSet affected;
+	private int[] stack;
+
+	/**
+	 * Constructor which computes the field and starts listening to the grid for changes
+	 * @param map grid the field covers
+	 * @param goals the tiles to move towards
+	 * @param eightDirections if the agent is able to move diagonally
+	 */
+	public FlowField(TileGrid map, Point[] goals, boolean eightDirections) {
+		this.map = map;
+		this.eightDirections = eightDirections;
+		width = map.getWidth();
+		height = map.getHeight();
+		this.goals = new BitSet(map.size());
+		for (Point goal : goals) {
+			if (!map.inBounds(goal.x, goal.y)) {
+				throw new IllegalArgumentException("Goal " + goal + " is outside the map");
+			}
+			this.goals.set(map.index(goal.x, goal.y));
+		}
+		distances = new int[map.size()];
+		moves = new byte[map.size()];
+		open = new IndexedMinHeap(map.size());
+		affected = new BitSet(map.size());
+		stack = new int[64];
+		computeAll();
+		map.addListener(this);
+	}
+
+	/**
+	 * Stops the field from listening to the grid, after which it is no longer kept up to date
+	 */
+	public void detach() {
+		map.removeListener(this);
+	}
+
+	/**
+	 * Gets the direction of the first step from a tile towards the closest goal
+	 * @param loc position of the tile
+	 * @return direction to move in, or NONE at a goal, where no goal can be reached or off
+	 * the map
+	 */
+	public Direction getDirection(Point loc) {
+		if (!map.inBounds(loc.x, loc.y)) return Direction.NONE;
+		int move = moves[map.index(loc.x, loc.y)];
+		return (move < 0) ? Direction.NONE : SearchContext.MOVES[move];
+	}
+
+	/**
+	 * Gets the cost of the cheapest path from a tile to a goal
+	 * @param loc position of the tile
+	 * @return cost of the path, or UNREACHABLE if no goal can be reached or the tile is off
+	 * the map
+	 */
+	public int getDistance(Point loc) {
+		if (!map.inBounds(loc.x, loc.y)) return UNREACHABLE;
+		return distances[map.index(loc.x, loc.y)];
+	}
+
+	/**
+	 * Computes the field from scratch with a Dijkstra search outwards from the goals
+	 */
+	private void computeAll() {
+		Arrays.fill(distances, UNREACHABLE);
+		Arrays.fill(moves, (byte) -1);
+		open.clear();
+		for (int goal = goals.nextSetBit(0); goal >= 0; goal = goals.nextSetBit(goal + 1)) {
+			if (map.isPassable(goal)) {
+				distances[goal] = 0;
+				open.update(goal, 0);
+			}
+		}
+		propagate();
+	}
+
+	/**
+	 * Lowers the cost of tiles next to queued tiles until no cost can be lowered. Moving onto
+	 * a tile costs its pass cost, so a tile beside a queued tile costs the queued tile's
+	 * cost plus its pass cost.
+	 */
+	private void propagate() {
+		int numMoves = eightDirections ? 8 : 4;
+		while (!open.isEmpty()) {
+			int cell = open.pop();
+			int x = cell % width;
+			int y = cell / width;
+			int cost = distances[cell] + map.getPassCost(cell);
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int prevX = x - direction.dx;
+				int prevY = y - direction.dy;
+				if (prevX < 0 || prevY < 0 || prevX >= width || prevY >= height) continue;
+				int prevCell = prevY * width + prevX;
+				if (!map.isPassable(prevCell) || cost >= distances[prevCell]) continue;
+				distances[prevCell] = cost;
+				moves[prevCell] = (byte) i;
+				open.update(prevCell, cost);
+			}
+		}
+	}
+
+	@Override
+	public void tileChanged(int x, int y, Tile oldTile, Tile newTile) {
+		int cell = y * width + x;
+		if (goals.get(cell)) {
+			// The start of every path changes, so the whole field is computed again
+			computeAll();
+			return;
+		}
+		boolean morePassable = newTile.getPassable() && !oldTile.getPassable();
+		boolean lessPassable = oldTile.getPassable() && !newTile.getPassable();
+		if (lessPassable || (newTile.getPassable() && newTile.getPassCost() > oldTile.getPassCost())) {
+			raise(cell, lessPassable);
+		}
+		if (morePassable || (newTile.getPassable() && newTile.getPassCost() < oldTile.getPassCost())) {
+			lower(cell);
+		}
+	}
+
+	/**
+	 * Repairs the field after a tile became more expensive or impassable. Every tile whose path
+	 * passes through the tile loses its cost, and those tiles are then given the cheapest
+	 * cost reachable through the tiles around them that were not affected.
+	 * @param cell index of the changed tile
+	 * @param blocked if the tile can no longer be passed
+	 */
+	private void raise(int cell, boolean blocked) {
+		int numMoves = eightDirections ? 8 : 4;
+		affected.clear();
+		// Collect the tiles whose first steps lead through the changed tile
+		int stackSize = 0;
+		stack[stackSize++] = cell;
+		if (blocked) affected.set(cell);
+		while (stackSize > 0) {
+			int curr = stack[--stackSize];
+			int x = curr % width;
+			int y = curr / width;
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int prevX = x - direction.dx;
+				int prevY = y - direction.dy;
+				if (prevX < 0 || prevY < 0 || prevX >= width || prevY >= height) continue;
+				int prevCell = prevY * width + prevX;
+				if (moves[prevCell] != i || affected.get(prevCell)) continue;
+				affected.set(prevCell);
+				if (stackSize == stack.length) stack = Arrays.copyOf(stack, stackSize * 2);
+				stack[stackSize++] = prevCell;
+			}
+		}
+		for (int curr = affected.nextSetBit(0); curr >= 0; curr = affected.nextSetBit(curr + 1)) {
+			distances[curr] = UNREACHABLE;
+			moves[curr] = -1;
+		}
+		// Give each affected tile its best cost through an unaffected neighbour
+		for (int curr = affected.nextSetBit(0); curr >= 0; curr = affected.nextSetBit(curr + 1)) {
+			if (!map.isPassable(curr)) continue;
+			int x = curr % width;
+			int y = curr / width;
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = x + direction.dx;
+				int nextY = y + direction.dy;
+				if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+				int nextCell = nextY * width + nextX;
+				if (affected.get(nextCell) || distances[nextCell] == UNREACHABLE || !map.isPassable(nextCell)) continue;
+				int cost = distances[nextCell] + map.getPassCost(nextCell);
+				if (cost < distances[curr]) {
+					distances[curr] = cost;
+					moves[curr] = (byte) i;
+				}
+			}
+			if (distances[curr] != UNREACHABLE) open.update(curr, distances[curr]);
+		}
+		propagate();
+	}
+
+	/**
+	 * Repairs the field after a tile became cheaper or passable by lowering the costs of the
+	 * tiles that can now reach a goal more cheaply through it
+	 * @param cell index of the changed tile
+	 */
+	private void lower(int cell) {
+		int numMoves = eightDirections ? 8 : 4;
+		int x = cell % width;
+		int y = cell / width;
+		// A tile that has just become passable needs a cost of its own first
+		if (distances[cell] == UNREACHABLE) {
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = x + direction.dx;
+				int nextY = y + direction.dy;
+				if (nextX < 0 || nextY < 0 || nextX >= width || nextY >= height) continue;
+				int nextCell = nextY * width + nextX;
+				if (distances[nextCell] == UNREACHABLE || !map.isPassable(nextCell)) continue;
+				int cost = distances[nextCell] + map.getPassCost(nextCell);
+				if (cost < distances[cell]) {
+					distances[cell] = cost;
+					moves[cell] = (byte) i;
+				}
+			}
+		}
+		if (distances[cell] != UNREACHABLE) {
+			open.update(cell, distances[cell]);
+			propagate();
+		}
+	}
+}
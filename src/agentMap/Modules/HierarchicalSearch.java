@@ -0,0 +1,569 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import agentMap.Core.CompactPath;
+import agentMap.Core.Direction;
+import agentMap.Core.IHeuristic;
+import agentMap.Core.IMapListener;
+import agentMap.Core.ISearch;
+import agentMap.Core.Pair;
+import agentMap.Core.SearchBudget;
+import agentMap.Core.SearchResult;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+
+/**
+ * Hierarchical path-finding (HPA*) over a TileGrid. The grid is split into square clusters
+ * and the passable gaps along the border of each pair of neighbouring clusters become
+ * entrance nodes of an abstract graph. Entrances in the same cluster are joined by the
+ * cost of the cheapest path between them inside the cluster, so a search only has to
+ * cross the abstract graph before the result is refined into a path of tiles one
+ * cluster at a time.
+ * The search listens to the grid and a changed tile only marks its own cluster for
+ * rebuilding, the rebuild happens on the next search and only spreads to a neighbouring
+ * cluster when the entrances on their shared border change.
+ * Paths found this way are close to, but not always, the cheapest path. When the abstract
+ * graph cannot connect the two points (e.g. they only touch diagonally across a cluster
+ * corner) an A* search of the whole grid is used instead.
+ */
+public class HierarchicalSearch implements ISearch, IMapListener {
+	// Entrances that are at least this wide get a node at both ends instead of the middle
+	private static final int WIDE_ENTRANCE = 6;
+	/* Edge cost of a step across a border, which is read from the tile being stepped onto
+	so the edge stays correct when only the cluster on the far side is rebuilt */
+	private static final int CROSSING_COST = -1;
+	private IHeuristic heuristic;
+	private boolean eightDirections;
+	private aStarSearch fallback;
+	private TileGrid map;
+	private int width;
+	private int height;
+	private int clusterSize;
+	private int clustersX;
+	private int clustersY;
+	private Cluster[] clusters;
+	/* Entrance tiles along each border stored as pairs of cells, the first cell of a pair
+	is in the cluster to the left or above the border */
+	private int[][] verticalBorders;
+	private int[][] horizontalBorders;
+	private HashMap<Integer, Node> nodeAt;
+	// Nodes indexed by their id, ids of removed nodes are reused
+	private ArrayList<Node> nodes;
+	private ArrayList<Integer> freeIds;
+	private boolean[] dirty;
+	private ArrayList<Integer> dirtyClusters;
+	// Working memory for searches of tiles and of the abstract graph
+	private SearchContext cellContext;
+	private SearchContext nodeContext;
+	private int[] goalCosts;
+	private int[] goalStamps;
+	private int goalGeneration;
+	private int[] startEdgeIds;
+	private int[] startEdgeCosts;
+	private int numStartEdges;
+
+	/**
+	 * A square region of the grid and the entrance nodes on its side of its borders
+	 */
+	private static class Cluster {
+		int minX;
+		int minY;
+		int maxX;
+		int maxY;
+		ArrayList<Node> nodes = new ArrayList<Node>();
+	}
+
+	/**
+	 * An entrance tile in the abstract graph with edges to the nodes it can reach directly
+	 */
+	private static class Node {
+		int id;
+		int cell;
+		int cluster;
+		Node[] edgeTo = new Node[4];
+		int[] edgeCost = new int[4];
+		int numEdges;
+
+		void addEdge(Node to, int cost) {
+			if (numEdges == edgeTo.length) {
+				edgeTo = Arrays.copyOf(edgeTo, numEdges * 2);
+				edgeCost = Arrays.copyOf(edgeCost, numEdges * 2);
+			}
+			edgeTo[numEdges] = to;
+			edgeCost[numEdges] = cost;
+			numEdges++;
+		}
+	}
+
+	/**
+	 * Constructor which builds the abstract graph of a grid and listens to it for changes
+	 * @param map grid to search
+	 * @param heuristic heuristic used for both the abstract graph and the tiles
+	 * @param eightDirections if the agent is able to move diagonally
+	 * @param clusterSize width and height of each cluster in tiles
+	 */
+	public HierarchicalSearch(TileGrid map, IHeuristic heuristic, boolean eightDirections, int clusterSize) {
+		this.map = map;
+		this.heuristic = heuristic;
+		this.eightDirections = eightDirections;
+		this.clusterSize = clusterSize;
+		fallback = new aStarSearch(heuristic, eightDirections);
+		width = map.getWidth();
+		height = map.getHeight();
+		clustersX = (width + clusterSize - 1) / clusterSize;
+		clustersY = (height + clusterSize - 1) / clusterSize;
+		clusters = new Cluster[clustersX * clustersY];
+		for (int cy = 0; cy < clustersY; cy++) {
+			for (int cx = 0; cx < clustersX; cx++) {
+				Cluster cluster = new Cluster();
+				cluster.minX = cx * clusterSize;
+				cluster.minY = cy * clusterSize;
+				cluster.maxX = Math.min(width, cluster.minX + clusterSize) - 1;
+				cluster.maxY = Math.min(height, cluster.minY + clusterSize) - 1;
+				clusters[cy * clustersX + cx] = cluster;
+			}
+		}
+		verticalBorders = new int[Math.max(0, clustersX - 1) * clustersY][];
+		horizontalBorders = new int[clustersX * Math.max(0, clustersY - 1)][];
+		nodeAt = new HashMap<Integer, Node>();
+		nodes = new ArrayList<Node>();
+		freeIds = new ArrayList<Integer>();
+		dirty = new boolean[clusters.length];
+		dirtyClusters = new ArrayList<Integer>();
+		cellContext = new SearchContext(map.size());
+		nodeContext = new SearchContext(0);
+		goalCosts = new int[0];
+		goalStamps = new int[0];
+		startEdgeIds = new int[16];
+		startEdgeCosts = new int[16];
+		// Build the whole hierarchy by treating every cluster as changed
+		for (int i = 0; i < clusters.length; i++) {
+			markDirty(i);
+		}
+		rebuildDirty();
+		map.addListener(this);
+	}
+
+	/**
+	 * Stops the search from listening to the grid it was built for
+	 */
+	public void detach() {
+		map.removeListener(this);
+	}
+
+	@Override
+	public void tileChanged(int x, int y, Tile oldTile, Tile newTile) {
+		markDirty((y / clusterSize) * clustersX + x / clusterSize);
+	}
+
+	private void markDirty(int cluster) {
+		if (!dirty[cluster]) {
+			dirty[cluster] = true;
+			dirtyClusters.add(cluster);
+		}
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, Tile[][] map) {
+		return fallback.getPath(currLoc, destLoc, map);
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, TileGrid map) {
+		// The abstract graph only describes the grid it was built for
+		if (map != this.map) {
+			return fallback.getPath(currLoc, destLoc, map);
+		}
+		// A point off the map would be wrapped onto another row by the cell index
+		if (!map.inBounds(currLoc.x, currLoc.y) || !map.inBounds(destLoc.x, destLoc.y)) return null;
+		rebuildDirty();
+		int startCell = map.index(currLoc.x, currLoc.y);
+		int destCell = map.index(destLoc.x, destLoc.y);
+		if (startCell == destCell) {
+			LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+			path.add(new Pair<Direction, Point>(Direction.NONE, currLoc));
+			return path;
+		}
+		// A tile that cannot be passed can never be moved onto
+		if (!map.isPassable(destCell)) return null;
+		int[] chain = searchAbstract(startCell, destCell, currLoc, destLoc);
+		if (chain == null) {
+			return fallback.getPath(currLoc, destLoc, map);
+		}
+		return refine(chain, startCell, destCell, currLoc);
+	}
+
+	@Override
+	public SearchResult getPath(Point currLoc, Point destLoc, TileGrid map, SearchBudget budget) {
+		// The search always runs to the end, but its paths are not always the cheapest so no bound is known
+		LinkedList<Pair<Direction, Point>> path = getPath(currLoc, destLoc, map);
+		if (path == null) return new SearchResult(null, -1, Double.POSITIVE_INFINITY, true);
+		return new SearchResult(path, CompactPath.fromPath(path).getCost(map), Double.POSITIVE_INFINITY, true);
+	}
+
+	/**
+	 * Searches the abstract graph with the start and goal connected to the nodes of their clusters
+	 * @return ids of the nodes on the abstract path ending with the goal id, or null if none exists
+	 */
+	private int[] searchAbstract(int startCell, int destCell, Point currLoc, Point destLoc) {
+		int startId = nodes.size();
+		int goalId = startId + 1;
+		Cluster startCluster = clusters[clusterOf(startCell)];
+		int destCluster = clusterOf(destCell);
+		// Costs from the start to the nodes of its cluster, and to the goal if it shares the cluster
+		searchCluster(startCell, -1, startCluster, false);
+		numStartEdges = 0;
+		for (int i = 0; i < startCluster.nodes.size(); i++) {
+			Node node = startCluster.nodes.get(i);
+			if (cellContext.isSeen(node.cell)) addStartEdge(node.id, cellContext.getGCost(node.cell));
+		}
+		if (clusters[destCluster] == startCluster && cellContext.isSeen(destCell)) {
+			addStartEdge(goalId, cellContext.getGCost(destCell));
+		}
+		// Costs from the nodes of the goal's cluster to the goal
+		searchCluster(destCell, -1, clusters[destCluster], true);
+		if (goalCosts.length < goalId) {
+			goalCosts = new int[goalId * 2];
+			goalStamps = new int[goalId * 2];
+		}
+		goalGeneration++;
+		for (int i = 0; i < clusters[destCluster].nodes.size(); i++) {
+			Node node = clusters[destCluster].nodes.get(i);
+			if (cellContext.isSeen(node.cell)) {
+				goalCosts[node.id] = cellContext.getGCost(node.cell);
+				goalStamps[node.id] = goalGeneration;
+			}
+		}
+		nodeContext.prepare(goalId + 1);
+		IndexedMinHeap open = nodeContext.getOpen();
+		nodeContext.reach(startId, 0, -1, Direction.NONE);
+		open.update(startId, aStarSearch.priority(0, heuristic.calcHeuristic(currLoc.x, currLoc.y, destLoc.x, destLoc.y)));
+		while (!open.isEmpty()) {
+			int curr = open.pop();
+			nodeContext.close(curr);
+			if (curr == goalId) {
+				int length = 0;
+				for (int id = curr; id != startId; id = nodeContext.getParent(id)) length++;
+				int[] chain = new int[length];
+				for (int id = curr; id != startId; id = nodeContext.getParent(id)) chain[--length] = id;
+				return chain;
+			}
+			int gCost = nodeContext.getGCost(curr);
+			if (curr == startId) {
+				for (int i = 0; i < numStartEdges; i++) {
+					relax(curr, startEdgeIds[i], gCost + startEdgeCosts[i], goalId, destCell, destLoc);
+				}
+				continue;
+			}
+			Node node = nodes.get(curr);
+			for (int i = 0; i < node.numEdges; i++) {
+				Node to = node.edgeTo[i];
+				int edgeCost = node.edgeCost[i];
+				if (edgeCost == CROSSING_COST) edgeCost = map.getPassCost(to.cell);
+				relax(curr, to.id, gCost + edgeCost, goalId, destCell, destLoc);
+			}
+			if (goalStamps[curr] == goalGeneration) {
+				relax(curr, goalId, gCost + goalCosts[curr], goalId, destCell, destLoc);
+			}
+		}
+		return null;
+	}
+
+	private void relax(int from, int to, int gCost, int goalId, int destCell, Point destLoc) {
+		if (nodeContext.isClosed(to)) return;
+		if (nodeContext.isSeen(to) && gCost >= nodeContext.getGCost(to)) return;
+		nodeContext.reach(to, gCost, from, Direction.NONE);
+		int cell = (to == goalId) ? destCell : nodes.get(to).cell;
+		int hCost = heuristic.calcHeuristic(cell % width, cell / width, destLoc.x, destLoc.y);
+		nodeContext.getOpen().update(to, aStarSearch.priority(gCost, hCost));
+	}
+
+	private void addStartEdge(int id, int cost) {
+		if (numStartEdges == startEdgeIds.length) {
+			startEdgeIds = Arrays.copyOf(startEdgeIds, numStartEdges * 2);
+			startEdgeCosts = Arrays.copyOf(startEdgeCosts, numStartEdges * 2);
+		}
+		startEdgeIds[numStartEdges] = id;
+		startEdgeCosts[numStartEdges] = cost;
+		numStartEdges++;
+	}
+
+	/**
+	 * Turns an abstract path into a path of tiles, each step inside a cluster is refined
+	 * with a search limited to that cluster
+	 * @param chain ids of the nodes on the abstract path
+	 * @return list of directions and points from the start to the goal
+	 */
+	private LinkedList<Pair<Direction, Point>> refine(int[] chain, int startCell, int destCell, Point currLoc) {
+		LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+		path.add(new Pair<Direction, Point>(Direction.NONE, currLoc));
+		int goalId = nodes.size() + 1;
+		int prevCell = startCell;
+		for (int i = 0; i < chain.length; i++) {
+			int nextCell = (chain[i] == goalId) ? destCell : nodes.get(chain[i]).cell;
+			if (nextCell == prevCell) continue;
+			int prevCluster = clusterOf(prevCell);
+			if (prevCluster != clusterOf(nextCell)) {
+				// Nodes in different clusters are always neighbouring tiles across a border
+				int dx = nextCell % width - prevCell % width;
+				int dy = nextCell / width - prevCell / width;
+				path.add(new Pair<Direction, Point>(stepDirection(dx, dy), new Point(nextCell % width, nextCell / width)));
+			} else {
+				searchCluster(prevCell, nextCell, clusters[prevCluster], false);
+				LinkedList<Pair<Direction, Point>> segment = new LinkedList<Pair<Direction, Point>>();
+				for (int cell = nextCell; cell != prevCell; cell = cellContext.getParent(cell)) {
+					segment.addFirst(new Pair<Direction, Point>(cellContext.getParentDirection(cell),
+							new Point(cell % width, cell / width)));
+				}
+				path.addAll(segment);
+			}
+			prevCell = nextCell;
+		}
+		return path;
+	}
+
+	private static Direction stepDirection(int dx, int dy) {
+		for (Direction direction : SearchContext.MOVES) {
+			if (direction.dx == dx && direction.dy == dy) return direction;
+		}
+		return Direction.NONE;
+	}
+
+	/**
+	 * Searches the tiles of a single cluster. Without a target every reachable tile of the
+	 * cluster is given its cost, and a reverse search gives the cost from each tile to the source.
+	 * @param source cell to search from
+	 * @param target cell to stop at, or -1 to search the whole cluster
+	 * @param cluster cluster the search is limited to
+	 * @param reverse if costs should be to the source rather than from it
+	 * @return if the target was reached
+	 */
+	private boolean searchCluster(int source, int target, Cluster cluster, boolean reverse) {
+		int numMoves = eightDirections ? 8 : 4;
+		int targetX = target % width;
+		int targetY = target / width;
+		cellContext.prepare(map.size());
+		IndexedMinHeap open = cellContext.getOpen();
+		cellContext.reach(source, 0, -1, Direction.NONE);
+		open.update(source, 0);
+		while (!open.isEmpty()) {
+			int currCell = open.pop();
+			cellContext.close(currCell);
+			if (currCell == target) return true;
+			int currX = currCell % width;
+			int currY = currCell / width;
+			int currGCost = cellContext.getGCost(currCell);
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = currX + direction.dx;
+				int nextY = currY + direction.dy;
+				if (nextX < cluster.minX || nextY < cluster.minY || nextX > cluster.maxX || nextY > cluster.maxY) continue;
+				int nextCell = nextY * width + nextX;
+				if (cellContext.isClosed(nextCell) || !map.isPassable(nextCell)) continue;
+				// Moving onto a tile costs its pass cost, so a reverse step costs the tile being left
+				int gCost = currGCost + map.getPassCost(reverse ? currCell : nextCell);
+				if (cellContext.isSeen(nextCell) && gCost >= cellContext.getGCost(nextCell)) continue;
+				cellContext.reach(nextCell, gCost, currCell, direction);
+				int hCost = (target == -1) ? 0 : heuristic.calcHeuristic(nextX, nextY, targetX, targetY);
+				open.update(nextCell, aStarSearch.priority(gCost, hCost));
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Rebuilds the clusters that have changed since the last search. The entrances on the
+	 * borders of a changed cluster are found again, and any neighbouring cluster whose
+	 * entrances differ is rebuilt as well.
+	 */
+	private void rebuildDirty() {
+		if (dirtyClusters.isEmpty()) return;
+		boolean[] touched = new boolean[clusters.length];
+		ArrayList<Integer> rebuild = new ArrayList<Integer>();
+		for (int i = 0; i < dirtyClusters.size(); i++) {
+			int cluster = dirtyClusters.get(i);
+			touch(cluster, touched, rebuild);
+			int cx = cluster % clustersX;
+			int cy = cluster / clustersX;
+			if (cx > 0) updateBorder(true, cy * (clustersX - 1) + cx - 1, cluster - 1, touched, rebuild);
+			if (cx < clustersX - 1) updateBorder(true, cy * (clustersX - 1) + cx, cluster + 1, touched, rebuild);
+			if (cy > 0) updateBorder(false, (cy - 1) * clustersX + cx, cluster - clustersX, touched, rebuild);
+			if (cy < clustersY - 1) updateBorder(false, cy * clustersX + cx, cluster + clustersX, touched, rebuild);
+			dirty[cluster] = false;
+		}
+		dirtyClusters.clear();
+		// Every node has to exist before edges between clusters can be made
+		for (int i = 0; i < rebuild.size(); i++) {
+			refreshNodes(rebuild.get(i));
+		}
+		for (int i = 0; i < rebuild.size(); i++) {
+			buildEdges(rebuild.get(i));
+		}
+	}
+
+	private void touch(int cluster, boolean[] touched, ArrayList<Integer> rebuild) {
+		if (!touched[cluster]) {
+			touched[cluster] = true;
+			rebuild.add(cluster);
+		}
+	}
+
+	/**
+	 * Finds the entrances along a border and marks the cluster on the other side for rebuilding
+	 * if they have changed
+	 */
+	private void updateBorder(boolean vertical, int border, int neighbour, boolean[] touched, ArrayList<Integer> rebuild) {
+		int[][] borders = vertical ? verticalBorders : horizontalBorders;
+		int[] entrances = findEntrances(vertical, border);
+		if (!Arrays.equals(entrances, borders[border])) {
+			borders[border] = entrances;
+			touch(neighbour, touched, rebuild);
+		}
+	}
+
+	/**
+	 * Finds each run of tiles that is passable on both sides of a border and places
+	 * entrance pairs in it
+	 * @param vertical if the border is between clusters side by side
+	 * @param border index of the border
+	 * @return pairs of cells that can be crossed between
+	 */
+	private int[] findEntrances(boolean vertical, int border) {
+		int firstX;
+		int firstY;
+		int length;
+		// Step along the border, and step across it
+		int along;
+		int across;
+		if (vertical) {
+			int cx = border % (clustersX - 1);
+			int cy = border / (clustersX - 1);
+			firstX = (cx + 1) * clusterSize - 1;
+			firstY = cy * clusterSize;
+			length = Math.min(height, firstY + clusterSize) - firstY;
+			along = width;
+			across = 1;
+		} else {
+			int cx = border % clustersX;
+			int cy = border / clustersX;
+			firstX = cx * clusterSize;
+			firstY = (cy + 1) * clusterSize - 1;
+			length = Math.min(width, firstX + clusterSize) - firstX;
+			along = 1;
+			across = width;
+		}
+		int first = firstY * width + firstX;
+		int[] entrances = new int[length * 2];
+		int count = 0;
+		int runStart = -1;
+		for (int i = 0; i <= length; i++) {
+			int cell = first + i * along;
+			boolean open = i < length && map.isPassable(cell) && map.isPassable(cell + across);
+			if (open && runStart == -1) {
+				runStart = i;
+			} else if (!open && runStart != -1) {
+				int runEnd = i - 1;
+				if (runEnd - runStart + 1 >= WIDE_ENTRANCE) {
+					entrances[count++] = first + runStart * along;
+					entrances[count++] = first + runStart * along + across;
+					entrances[count++] = first + runEnd * along;
+					entrances[count++] = first + runEnd * along + across;
+				} else {
+					int middle = first + ((runStart + runEnd) / 2) * along;
+					entrances[count++] = middle;
+					entrances[count++] = middle + across;
+				}
+				runStart = -1;
+			}
+		}
+		return Arrays.copyOf(entrances, count);
+	}
+
+	/**
+	 * Replaces the nodes of a cluster with the entrance tiles now on its borders, nodes
+	 * that are still entrances keep their id
+	 * @param cluster index of the cluster
+	 */
+	private void refreshNodes(int cluster) {
+		ArrayList<Node> oldNodes = clusters[cluster].nodes;
+		ArrayList<Node> newNodes = new ArrayList<Node>();
+		int cx = cluster % clustersX;
+		int cy = cluster / clustersX;
+		if (cx > 0) addBorderNodes(verticalBorders[cy * (clustersX - 1) + cx - 1], 1, cluster, newNodes);
+		if (cx < clustersX - 1) addBorderNodes(verticalBorders[cy * (clustersX - 1) + cx], 0, cluster, newNodes);
+		if (cy > 0) addBorderNodes(horizontalBorders[(cy - 1) * clustersX + cx], 1, cluster, newNodes);
+		if (cy < clustersY - 1) addBorderNodes(horizontalBorders[cy * clustersX + cx], 0, cluster, newNodes);
+		for (int i = 0; i < oldNodes.size(); i++) {
+			Node node = oldNodes.get(i);
+			if (nodeAt.get(node.cell) == node && !newNodes.contains(node)) {
+				nodeAt.remove(node.cell);
+				nodes.set(node.id, null);
+				freeIds.add(node.id);
+			}
+		}
+		clusters[cluster].nodes = newNodes;
+	}
+
+	private void addBorderNodes(int[] entrances, int side, int cluster, ArrayList<Node> newNodes) {
+		for (int i = side; i < entrances.length; i += 2) {
+			Node node = nodeAt.get(entrances[i]);
+			if (node == null) {
+				node = new Node();
+				node.cell = entrances[i];
+				node.cluster = cluster;
+				if (freeIds.isEmpty()) {
+					node.id = nodes.size();
+					nodes.add(node);
+				} else {
+					node.id = freeIds.remove(freeIds.size() - 1);
+					nodes.set(node.id, node);
+				}
+				nodeAt.put(node.cell, node);
+			}
+			if (!newNodes.contains(node)) newNodes.add(node);
+		}
+	}
+
+	/**
+	 * Connects every node of a cluster to the other nodes it can reach inside the cluster
+	 * and to the nodes it faces across the cluster's borders
+	 * @param cluster index of the cluster
+	 */
+	private void buildEdges(int cluster) {
+		ArrayList<Node> clusterNodes = clusters[cluster].nodes;
+		for (int i = 0; i < clusterNodes.size(); i++) {
+			Node node = clusterNodes.get(i);
+			node.numEdges = 0;
+			searchCluster(node.cell, -1, clusters[cluster], false);
+			for (int j = 0; j < clusterNodes.size(); j++) {
+				Node other = clusterNodes.get(j);
+				if (other != node && cellContext.isSeen(other.cell)) {
+					node.addEdge(other, cellContext.getGCost(other.cell));
+				}
+			}
+		}
+		int cx = cluster % clustersX;
+		int cy = cluster / clustersX;
+		if (cx > 0) addCrossingEdges(verticalBorders[cy * (clustersX - 1) + cx - 1], 1);
+		if (cx < clustersX - 1) addCrossingEdges(verticalBorders[cy * (clustersX - 1) + cx], 0);
+		if (cy > 0) addCrossingEdges(horizontalBorders[(cy - 1) * clustersX + cx], 1);
+		if (cy < clustersY - 1) addCrossingEdges(horizontalBorders[cy * clustersX + cx], 0);
+	}
+
+	private void addCrossingEdges(int[] entrances, int side) {
+		for (int i = 0; i < entrances.length; i += 2) {
+			int from = entrances[i + side];
+			int to = entrances[i + 1 - side];
+			nodeAt.get(from).addEdge(nodeAt.get(to), CROSSING_COST);
+		}
+	}
+
+	private int clusterOf(int cell) {
+		return ((cell / width) / clusterSize) * clustersX + (cell % width) / clusterSize;
+	}
+}
@@ -0,0 +1,201 @@
+package agentMap.Modules;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of cell indices ordered by a long priority. The position of every
+ * cell in the heap is tracked so the priority of a queued cell can be changed in place,
+ * and the heap can be reused between searches without allocating.
+ */
+public class IndexedMinHeap {
+	private int[] cells;
+	private long[] priorities;
+	// Position of each cell in the heap, or -1 if the cell is not queued
+	private int[] positions;
+	private int size;
+
+	/**
+	 * Constructor for the heap
+	 * @param capacity number of cells that can be queued
+	 */
+	public IndexedMinHeap(int capacity) {
+		cells = new int[capacity];
+		priorities = new long[capacity];
+		positions = new int[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	/**
+	 * Grows the heap so cell indices below the capacity can be queued
+	 * @param capacity number of cells that can be queued
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity <= positions.length) return;
+		int oldCapacity = positions.length;
+		cells = Arrays.copyOf(cells, capacity);
+		priorities = Arrays.copyOf(priorities, capacity);
+		positions = Arrays.copyOf(positions, capacity);
+		Arrays.fill(positions, oldCapacity, capacity, -1);
+	}
+
+	/**
+	 * Removes every cell from the heap, only the queued cells are touched
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[cells[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Getter: gets the number of queued cells
+	 * @return number of cells in the heap
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if no cells are queued
+	 * @return if the heap is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Checks if a cell is queued
+	 * @param cell index of the cell
+	 * @return if the cell is in the heap
+	 */
+	public boolean contains(int cell) {
+		return positions[cell] != -1;
+	}
+
+	/**
+	 * Gets the priority of a queued cell
+	 * @param cell index of a queued cell
+	 * @return priority of the cell
+	 */
+	public long getPriority(int cell) {
+		return priorities[positions[cell]];
+	}
+
+	/**
+	 * Queues a cell, or changes its priority if it is already queued
+	 * @param cell index of the cell
+	 * @param priority priority of the cell, lower priorities are popped first
+	 */
+	public void update(int cell, long priority) {
+		int pos = positions[cell];
+		if (pos == -1) {
+			pos = size++;
+			cells[pos] = cell;
+			priorities[pos] = priority;
+			positions[cell] = pos;
+			siftUp(pos);
+		} else if (priority < priorities[pos]) {
+			priorities[pos] = priority;
+			siftUp(pos);
+		} else {
+			priorities[pos] = priority;
+			siftDown(pos);
+		}
+	}
+
+	/**
+	 * Gets the cell at a position in the heap, used to visit every queued cell in no
+	 * particular order
+	 * @param position position in the heap, below size()
+	 * @return index of the cell at the position
+	 */
+	public int getCell(int position) {
+		return cells[position];
+	}
+
+	/**
+	 * Gets the cell with the lowest priority without removing it
+	 * @return index of the cell at the top of the heap
+	 */
+	public int peek() {
+		return cells[0];
+	}
+
+	/**
+	 * Gets the lowest priority in the heap
+	 * @return priority of the cell at the top of the heap
+	 */
+	public long peekPriority() {
+		return priorities[0];
+	}
+
+	/**
+	 * Removes the cell with the lowest priority
+	 * @return index of the removed cell
+	 */
+	public int pop() {
+		int top = cells[0];
+		removeAt(0);
+		return top;
+	}
+
+	/**
+	 * Removes a cell from the heap if it is queued
+	 * @param cell index of the cell
+	 */
+	public void remove(int cell) {
+		int pos = positions[cell];
+		if (pos != -1) removeAt(pos);
+	}
+
+	private void removeAt(int pos) {
+		positions[cells[pos]] = -1;
+		size--;
+		if (pos == size) return;
+		// Move the last cell into the gap and restore the heap order
+		cells[pos] = cells[size];
+		priorities[pos] = priorities[size];
+		positions[cells[pos]] = pos;
+		siftDown(pos);
+		siftUp(pos);
+	}
+
+	private void siftUp(int pos) {
+		int cell = cells[pos];
+		long priority = priorities[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (priorities[parent] <= priority) break;
+			move(parent, pos);
+			pos = parent;
+		}
+		place(cell, priority, pos);
+	}
+
+	private void siftDown(int pos) {
+		int cell = cells[pos];
+		long priority = priorities[pos];
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			if (child + 1 < size && priorities[child + 1] < priorities[child]) child++;
+			if (priority <= priorities[child]) break;
+			move(child, pos);
+			pos = child;
+		}
+		place(cell, priority, pos);
+	}
+
+	private void move(int from, int to) {
+		cells[to] = cells[from];
+		priorities[to] = priorities[from];
+		positions[cells[to]] = to;
+	}
+
+	private void place(int cell, long priority, int pos) {
+		cells[pos] = cell;
+		priorities[pos] = priority;
+		positions[cell] = pos;
+	}
+}
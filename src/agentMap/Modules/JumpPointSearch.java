@@ -0,0 +1,463 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.LinkedList;
+
+import agentMap.Core.Direction;
+import agentMap.Core.IHeuristic;
+import agentMap.Core.ISearch;
+import agentMap.Core.Pair;
+import agentMap.Core.SearchStats;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+
+/**
+ * Jump Point Search over a grid where every passable tile has the same pass cost. Rather
+ * than adding every neighbouring tile to the open list, the search jumps along straight
+ * and diagonal lines and only stops at tiles where the path could need to turn.
+ * When moving in 4 directions, horizontal moves are preferred over vertical moves in the
+ * same way that diagonal moves are preferred when moving in 8 directions.
+ * With precomputed jumps (JPS+), the distance to the next jump point or wall from every
+ * tile in every direction is stored so a jump is a table lookup instead of a scan. The
+ * table is rebuilt on the first search after the map changes.
+ * Maps with different pass costs are searched with A* instead.
+ */
+public class JumpPointSearch implements ISearch {
+	// Directions indexed by [dy + 1][dx + 1]
+	private static final Direction[][] STEP_DIRECTIONS = {
+		{Direction.NW, Direction.N, Direction.NE},
+		{Direction.W, Direction.NONE, Direction.E},
+		{Direction.SW, Direction.S, Direction.SE}
+	};
+	private IHeuristic heuristic;
+	private boolean eightDirections;
+	private boolean precomputeJumps;
+	private aStarSearch fallback;
+	private SearchContext context;
+	// Grid currently being searched along with the goal of the search
+	private TileGrid map;
+	private int width;
+	private int height;
+	private int destX;
+	private int destY;
+	private int destCell;
+	/* Precomputed jumps for each direction in SearchContext.MOVES order. A positive value is
+	the number of steps to the next jump point and any other value is the negated number of
+	steps that can be taken before reaching a wall */
+	private int[][] jumpTable;
+	private TileGrid tableMap;
+	private int tableVersion;
+	// Statistics of the last search, the counts are kept in fields as jumps are found in tryJump
+	private SearchStats stats;
+	private SearchStats lastStats;
+	private int expanded;
+	private int generated;
+	private int openPeak;
+	private int heuristicCalls;
+
+	/**
+	 * Constructor for a search which scans for jump points while searching
+	 * @param heuristic heuristic used to order the jump points
+	 * @param eightDirections if the agent is able to move diagonally
+	 */
+	public JumpPointSearch(IHeuristic heuristic, boolean eightDirections) {
+		this(heuristic, eightDirections, false);
+	}
+
+	/**
+	 * Constructor
+	 * @param heuristic heuristic used to order the jump points
+	 * @param eightDirections if the agent is able to move diagonally
+	 * @param precomputeJumps if the jump distances should be precomputed (JPS+)
+	 */
+	public JumpPointSearch(IHeuristic heuristic, boolean eightDirections, boolean precomputeJumps) {
+		this.heuristic = heuristic;
+		this.eightDirections = eightDirections;
+		this.precomputeJumps = precomputeJumps;
+		fallback = new aStarSearch(heuristic, eightDirections);
+		context = new SearchContext(0);
+		stats = new SearchStats();
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, Tile[][] map) {
+		return getPath(currLoc, destLoc, TileGrid.fromTiles(map));
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, TileGrid map) {
+		// Jump points are only valid when every step costs the same
+		if (!map.isUniformCost()) {
+			lastStats = fallback.getLastStats();
+			return fallback.getPath(currLoc, destLoc, map);
+		}
+		lastStats = stats;
+		// A point off the map would be wrapped onto another row by the cell index
+		if (!map.inBounds(currLoc.x, currLoc.y) || !map.inBounds(destLoc.x, destLoc.y)) {
+			stats.record(0, 0, 0, 0, -1);
+			return null;
+		}
+		this.map = map;
+		width = map.getWidth();
+		height = map.getHeight();
+		destX = destLoc.x;
+		destY = destLoc.y;
+		destCell = map.index(destX, destY);
+		if (precomputeJumps && (tableMap != map || tableVersion != map.getVersion())) {
+			buildJumpTable();
+		}
+		context.prepare(map.size());
+		IndexedMinHeap open = context.getOpen();
+		int startCell = map.index(currLoc.x, currLoc.y);
+		context.reach(startCell, 0, -1, Direction.NONE);
+		open.update(startCell, aStarSearch.priority(0, heuristic.calcHeuristic(currLoc.x, currLoc.y, destX, destY)));
+		expanded = 0;
+		generated = 1;
+		openPeak = 1;
+		heuristicCalls = 1;
+		while (!open.isEmpty()) {
+			int currCell = open.pop();
+			context.close(currCell);
+			expanded++;
+			if (currCell == destCell) {
+				stats.record(expanded, generated, openPeak, heuristicCalls, context.getGCost(currCell));
+				LinkedList<Pair<Direction, Point>> path = buildPath(currCell, currLoc);
+				this.map = null;
+				return path;
+			}
+			expand(currCell);
+		}
+		stats.record(expanded, generated, openPeak, heuristicCalls, -1);
+		this.map = null;
+		return null;
+	}
+
+	@Override
+	public SearchStats getLastStats() {
+		return lastStats;
+	}
+
+	@Override
+	public ISearch copy() {
+		return new JumpPointSearch(heuristic, eightDirections, precomputeJumps);
+	}
+
+	/**
+	 * Jumps in every direction that is not pruned by the direction the jump point was reached from
+	 * @param cell index of the jump point to expand
+	 */
+	private void expand(int cell) {
+		int x = cell % width;
+		int y = cell / width;
+		Direction parentDir = context.getParentDirection(cell);
+		int dx = parentDir.dx;
+		int dy = parentDir.dy;
+		if (dx == 0 && dy == 0) {
+			// The start tile has no parent so every direction is searched
+			int numMoves = eightDirections ? 8 : 4;
+			for (int i = 0; i < numMoves; i++) {
+				Direction move = SearchContext.MOVES[i];
+				tryJump(cell, x, y, move.dx, move.dy);
+			}
+		} else if (eightDirections) {
+			if (dx != 0 && dy != 0) {
+				// Diagonal moves carry on diagonally and along both of their components
+				tryJump(cell, x, y, dx, 0);
+				tryJump(cell, x, y, 0, dy);
+				tryJump(cell, x, y, dx, dy);
+				// Forced neighbours appear behind walls next to the diagonal
+				if (!free(x - dx, y) && free(x - dx, y + dy)) tryJump(cell, x, y, -dx, dy);
+				if (!free(x, y - dy) && free(x + dx, y - dy)) tryJump(cell, x, y, dx, -dy);
+			} else if (dx != 0) {
+				tryJump(cell, x, y, dx, 0);
+				if (!free(x, y - 1) && free(x + dx, y - 1)) tryJump(cell, x, y, dx, -1);
+				if (!free(x, y + 1) && free(x + dx, y + 1)) tryJump(cell, x, y, dx, 1);
+			} else {
+				tryJump(cell, x, y, 0, dy);
+				if (!free(x - 1, y) && free(x - 1, y + dy)) tryJump(cell, x, y, -1, dy);
+				if (!free(x + 1, y) && free(x + 1, y + dy)) tryJump(cell, x, y, 1, dy);
+			}
+		} else if (dx != 0) {
+			// Horizontal moves can always turn vertically
+			tryJump(cell, x, y, dx, 0);
+			tryJump(cell, x, y, 0, -1);
+			tryJump(cell, x, y, 0, 1);
+		} else {
+			// Vertical moves can only turn once the tile beside the previous tile is a wall
+			tryJump(cell, x, y, 0, dy);
+			if (!free(x - 1, y - dy) && free(x - 1, y)) tryJump(cell, x, y, -1, 0);
+			if (!free(x + 1, y - dy) && free(x + 1, y)) tryJump(cell, x, y, 1, 0);
+		}
+	}
+
+	/**
+	 * Jumps from a jump point in a direction and adds the jump point found to the open list
+	 * @param cell index of the jump point being expanded
+	 * @param x x position of the jump point
+	 * @param y y position of the jump point
+	 * @param dx change in x of each step
+	 * @param dy change in y of each step
+	 */
+	private void tryJump(int cell, int x, int y, int dx, int dy) {
+		int steps = precomputeJumps ? jumpWithTable(x, y, dx, dy) : jump(x, y, dx, dy);
+		if (steps <= 0) return;
+		int nextX = x + steps * dx;
+		int nextY = y + steps * dy;
+		int nextCell = map.index(nextX, nextY);
+		if (context.isClosed(nextCell)) return;
+		int gCost = context.getGCost(cell) + steps * map.getPassCost(nextCell);
+		if (context.isSeen(nextCell) && gCost >= context.getGCost(nextCell)) return;
+		context.reach(nextCell, gCost, cell, STEP_DIRECTIONS[dy + 1][dx + 1]);
+		int hCost = heuristic.calcHeuristic(nextX, nextY, destX, destY);
+		IndexedMinHeap open = context.getOpen();
+		open.update(nextCell, aStarSearch.priority(gCost, hCost));
+		generated++;
+		heuristicCalls++;
+		if (open.size() > openPeak) openPeak = open.size();
+	}
+
+	/**
+	 * Checks if a position is on the map and passable
+	 * @param x x position
+	 * @param y y position
+	 * @return if the agent can move onto the position
+	 */
+	private boolean free(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height && map.isPassable(y * width + x);
+	}
+
+	/**
+	 * Scans from a position until a jump point is found
+	 * @param x x position to jump from
+	 * @param y y position to jump from
+	 * @param dx change in x of each step
+	 * @param dy change in y of each step
+	 * @return number of steps to the jump point, or 0 if a wall is reached first
+	 */
+	private int jump(int x, int y, int dx, int dy) {
+		int steps = 0;
+		while (true) {
+			x += dx;
+			y += dy;
+			steps++;
+			if (!free(x, y)) return 0;
+			if (x == destX && y == destY) return steps;
+			if (dx != 0 && dy != 0) {
+				if ((!free(x - dx, y) && free(x - dx, y + dy)) || (!free(x, y - dy) && free(x + dx, y - dy))) {
+					return steps;
+				}
+				if (jump(x, y, dx, 0) > 0 || jump(x, y, 0, dy) > 0) return steps;
+			} else if (eightDirections) {
+				if (isForcedStraight(x, y, dx, dy)) return steps;
+			} else if (dx != 0) {
+				if (jump(x, y, 0, -1) > 0 || jump(x, y, 0, 1) > 0) return steps;
+			} else {
+				if (isForcedVertical(x, y, dy)) return steps;
+			}
+		}
+	}
+
+	/**
+	 * Checks if moving straight onto a position in 8 directions creates a forced neighbour
+	 * @param x x position
+	 * @param y y position
+	 * @param dx change in x of the move
+	 * @param dy change in y of the move
+	 * @return if the position is a jump point
+	 */
+	private boolean isForcedStraight(int x, int y, int dx, int dy) {
+		if (dx != 0) {
+			return (!free(x, y - 1) && free(x + dx, y - 1)) || (!free(x, y + 1) && free(x + dx, y + 1));
+		}
+		return (!free(x - 1, y) && free(x - 1, y + dy)) || (!free(x + 1, y) && free(x + 1, y + dy));
+	}
+
+	/**
+	 * Checks if moving vertically onto a position in 4 directions creates a forced neighbour
+	 * @param x x position
+	 * @param y y position
+	 * @param dy change in y of the move
+	 * @return if the position is a jump point
+	 */
+	private boolean isForcedVertical(int x, int y, int dy) {
+		return (!free(x - 1, y - dy) && free(x - 1, y)) || (!free(x + 1, y - dy) && free(x + 1, y));
+	}
+
+	/**
+	 * Jumps from a position using the precomputed jump table, the goal is checked for separately
+	 * as the table does not depend on it
+	 * @param x x position to jump from
+	 * @param y y position to jump from
+	 * @param dx change in x of each step
+	 * @param dy change in y of each step
+	 * @return number of steps to the jump point, or 0 if a wall is reached first
+	 */
+	private int jumpWithTable(int x, int y, int dx, int dy) {
+		int entry = jumpTable[moveIndex(dx, dy)][y * width + x];
+		int reach = entry > 0 ? entry : -entry;
+		if (dx == 0 || dy == 0) {
+			// The goal is reached if it lies on the line before the jump point or wall
+			int goalSteps = stepsAlong(x, y, dx, dy, destX, destY);
+			if (goalSteps > 0 && goalSteps <= reach) return goalSteps;
+			// Horizontal moves in 4 directions stop in the column of the goal if it can be reached vertically
+			if (!eightDirections && dx != 0) {
+				int column = (destX - x) * dx;
+				if (column > 0 && column <= reach && reachesGoal(x + column * dx, y)) return column;
+			}
+			return entry > 0 ? entry : 0;
+		}
+		// Diagonal moves stop in the row or column of the goal if it can be reached from there
+		int goalSteps = Math.min((destX - x) * dx, (destY - y) * dy);
+		if (goalSteps > 0 && goalSteps <= reach && (entry <= 0 || goalSteps < entry)
+				&& reachesGoal(x + goalSteps * dx, y + goalSteps * dy)) {
+			return goalSteps;
+		}
+		return entry > 0 ? entry : 0;
+	}
+
+	/**
+	 * Checks if the goal can be reached from a position by moving in a straight line
+	 * @param x x position
+	 * @param y y position
+	 * @return if the goal is the position or is reached by a straight jump from it
+	 */
+	private boolean reachesGoal(int x, int y) {
+		if (x == destX && y == destY) return true;
+		int dx = Integer.signum(destX - x);
+		int dy = Integer.signum(destY - y);
+		if (dx != 0 && dy != 0) return false;
+		int entry = jumpTable[moveIndex(dx, dy)][y * width + x];
+		int reach = entry > 0 ? entry : -entry;
+		return Math.abs(destX - x) + Math.abs(destY - y) <= reach;
+	}
+
+	/**
+	 * Gets the number of steps along a straight line from a position to a target
+	 * @return steps to the target, or 0 if the target is not on the line ahead
+	 */
+	private static int stepsAlong(int x, int y, int dx, int dy, int targetX, int targetY) {
+		if (dx == 0) {
+			return (targetX == x && (targetY - y) * dy > 0) ? (targetY - y) * dy : 0;
+		}
+		return (targetY == y && (targetX - x) * dx > 0) ? (targetX - x) * dx : 0;
+	}
+
+	/**
+	 * Gets the position of a direction in SearchContext.MOVES
+	 * @param dx change in x of the direction
+	 * @param dy change in y of the direction
+	 * @return index of the direction
+	 */
+	private static int moveIndex(int dx, int dy) {
+		if (dy == 0) return dx < 0 ? 0 : 1;
+		if (dx == 0) return dy < 0 ? 2 : 3;
+		if (dy < 0) return dx < 0 ? 4 : 5;
+		return dx < 0 ? 6 : 7;
+	}
+
+	/**
+	 * Precomputes the jump distance from every tile in every direction. Straight lines are
+	 * filled first as horizontal moves in 4 directions and diagonal moves in 8 directions
+	 * stop where a straight jump finds a jump point.
+	 */
+	private void buildJumpTable() {
+		int size = map.size();
+		int numMoves = eightDirections ? 8 : 4;
+		if (jumpTable == null || jumpTable.length != numMoves || jumpTable[0].length != size) {
+			jumpTable = new int[numMoves][size];
+		}
+		if (eightDirections) {
+			for (int i = 0; i < 4; i++) fillJumps(SearchContext.MOVES[i]);
+			for (int i = 4; i < 8; i++) fillJumps(SearchContext.MOVES[i]);
+		} else {
+			fillJumps(Direction.N);
+			fillJumps(Direction.S);
+			fillJumps(Direction.W);
+			fillJumps(Direction.E);
+		}
+		tableMap = map;
+		tableVersion = map.getVersion();
+	}
+
+	/**
+	 * Fills the jump table for one direction by visiting tiles in the opposite order to the
+	 * direction, so the tile one step ahead is always filled first
+	 * @param direction direction of the jumps
+	 */
+	private void fillJumps(Direction direction) {
+		int dx = direction.dx;
+		int dy = direction.dy;
+		int[] table = jumpTable[moveIndex(dx, dy)];
+		int startY = dy > 0 ? height - 1 : 0;
+		int startX = dx > 0 ? width - 1 : 0;
+		int stepY = dy > 0 ? -1 : 1;
+		int stepX = dx > 0 ? -1 : 1;
+		for (int y = startY; y >= 0 && y < height; y += stepY) {
+			for (int x = startX; x >= 0 && x < width; x += stepX) {
+				int nextX = x + dx;
+				int nextY = y + dy;
+				int entry;
+				if (!free(nextX, nextY)) {
+					entry = 0;
+				} else if (isJumpPoint(nextX, nextY, dx, dy)) {
+					entry = 1;
+				} else {
+					int nextEntry = table[nextY * width + nextX];
+					entry = nextEntry > 0 ? nextEntry + 1 : nextEntry - 1;
+				}
+				table[y * width + x] = entry;
+			}
+		}
+	}
+
+	/**
+	 * Checks if a passable tile is a jump point when reached in a direction, ignoring the goal
+	 * @param x x position
+	 * @param y y position
+	 * @param dx change in x of the move
+	 * @param dy change in y of the move
+	 * @return if the tile is a jump point
+	 */
+	private boolean isJumpPoint(int x, int y, int dx, int dy) {
+		int cell = y * width + x;
+		if (dx != 0 && dy != 0) {
+			if ((!free(x - dx, y) && free(x - dx, y + dy)) || (!free(x, y - dy) && free(x + dx, y - dy))) {
+				return true;
+			}
+			return jumpTable[moveIndex(dx, 0)][cell] > 0 || jumpTable[moveIndex(0, dy)][cell] > 0;
+		}
+		if (eightDirections) return isForcedStraight(x, y, dx, dy);
+		if (dx != 0) {
+			return jumpTable[moveIndex(0, -1)][cell] > 0 || jumpTable[moveIndex(0, 1)][cell] > 0;
+		}
+		return isForcedVertical(x, y, dy);
+	}
+
+	/**
+	 * Builds the path by filling in every tile between consecutive jump points
+	 * @param goal index of the goal tile
+	 * @param startLoc position of the start tile
+	 * @return list of directions and points from the start to the goal
+	 */
+	private LinkedList<Pair<Direction, Point>> buildPath(int goal, Point startLoc) {
+		LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+		int cell = goal;
+		int parent = context.getParent(cell);
+		while (parent != -1) {
+			Direction direction = context.getParentDirection(cell);
+			int x = cell % width;
+			int y = cell / width;
+			int parentX = parent % width;
+			int parentY = parent / width;
+			while (x != parentX || y != parentY) {
+				path.addFirst(new Pair<Direction, Point>(direction, new Point(x, y)));
+				x -= direction.dx;
+				y -= direction.dy;
+			}
+			cell = parent;
+			parent = context.getParent(cell);
+		}
+		path.addFirst(new Pair<Direction, Point>(Direction.NONE, startLoc));
+		return path;
+	}
+}
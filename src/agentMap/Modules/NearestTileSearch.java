@@ -0,0 +1,92 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import agentMap.Core.Direction;
+import agentMap.Core.Pair;
+import agentMap.Core.TileGrid;
+
+/**
+ * Finds the paths to the closest tiles of a given type with a single Dijkstra search
+ * that stops at the first tiles of that type it expands, instead of running a separate
+ * search towards every tile of the type.
+ */
+public class NearestTileSearch {
+	private boolean eightDirections;
+	private SearchContext context;
+
+	/**
+	 * Constructor
+	 * @param eightDirections if the agent is able to move diagonally
+	 */
+	public NearestTileSearch(boolean eightDirections) {
+		this.eightDirections = eightDirections;
+		context = new SearchContext(0);
+	}
+
+	/**
+	 * Gets the path to the closest tile with the given character
+	 * @param currLoc Position to start from
+	 * @param tileChar character of the tile to find
+	 * @param map grid to search
+	 * @return path to the closest tile, or null if no tile of the type can be reached
+	 */
+	public LinkedList<Pair<Direction, Point>> getPathToNearest(Point currLoc, char tileChar, TileGrid map) {
+		ArrayList<LinkedList<Pair<Direction, Point>>> paths = getPathsToNearest(currLoc, tileChar, 1, map);
+		return paths.isEmpty() ? null : paths.get(0);
+	}
+
+	/**
+	 * Gets the paths to the k closest tiles with the given character, closest first. A tile
+	 * the search starts on counts as the closest tile.
+	 * @param currLoc Position to start from
+	 * @param tileChar character of the tiles to find
+	 * @param k number of tiles to find
+	 * @param map grid to search
+	 * @return paths to at most k tiles, fewer if not enough tiles of the type can be reached
+	 */
+	public ArrayList<LinkedList<Pair<Direction, Point>>> getPathsToNearest(Point currLoc, char tileChar, int k, TileGrid map) {
+		ArrayList<LinkedList<Pair<Direction, Point>>> paths = new ArrayList<LinkedList<Pair<Direction, Point>>>();
+		// Stop once every tile of the type has been found, which avoids searching the whole map
+		int remaining = Math.min(k, map.getTileCount(tileChar));
+		if (remaining <= 0 || !map.inBounds(currLoc.x, currLoc.y)) return paths;
+		boolean[] isTarget = new boolean[TileGrid.MAX_TILE_TYPES];
+		for (int id = 0; id < map.getNumTileTypes(); id++) {
+			isTarget[id] = map.getTileType(id).getTileChar() == tileChar;
+		}
+		int mapWidth = map.getWidth();
+		int mapHeight = map.getHeight();
+		int numMoves = eightDirections ? 8 : 4;
+		context.prepare(map.size());
+		IndexedMinHeap open = context.getOpen();
+		int startCell = map.index(currLoc.x, currLoc.y);
+		context.reach(startCell, 0, -1, Direction.NONE);
+		open.update(startCell, 0);
+		while (!open.isEmpty()) {
+			int currCell = open.pop();
+			context.close(currCell);
+			if (isTarget[map.getTileId(currCell)]) {
+				paths.add(context.buildPath(currCell, currLoc, mapWidth));
+				if (--remaining == 0) break;
+			}
+			int currX = currCell % mapWidth;
+			int currY = currCell / mapWidth;
+			int currGCost = context.getGCost(currCell);
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = currX + direction.dx;
+				int nextY = currY + direction.dy;
+				if (nextX < 0 || nextY < 0 || nextX >= mapWidth || nextY >= mapHeight) continue;
+				int nextCell = currCell + direction.dy * mapWidth + direction.dx;
+				if (context.isClosed(nextCell) || !map.isPassable(nextCell)) continue;
+				int gCost = currGCost + map.getPassCost(nextCell);
+				if (context.isSeen(nextCell) && gCost >= context.getGCost(nextCell)) continue;
+				context.reach(nextCell, gCost, currCell, direction);
+				open.update(nextCell, gCost);
+			}
+		}
+		return paths;
+	}
+}
@@ -0,0 +1,115 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import agentMap.Core.Direction;
+import agentMap.Core.Pair;
+import agentMap.Core.TileGrid;
+
+/**
+ * Shortens paths from a grid search into a few waypoints. Each waypoint is paired with the
+ * direction closest to the line from the waypoint before it, and the agent is expected to
+ * move in a straight line from one waypoint to the next.
+ */
+public class PathSmoother {
+	// tan(22.5 degrees) scaled by 1000, the slope where a line is as close to straight as to diagonal
+	private static final int TAN_22_5 = 414;
+
+	private PathSmoother() {
+	}
+
+	/**
+	 * Removes every point of a path that the agent could walk past in a straight line, so
+	 * each waypoint left is the furthest point of the path in sight of the waypoint before it.
+	 * Only passability is checked, so on a map with different pass costs the lines between
+	 * waypoints can cross tiles that the path went around.
+	 * @param path path of points where each point can be walked to from the one before
+	 * @param grid grid the path is on
+	 * @return a new list of waypoints from the start to the end of the path, or null if the
+	 * path is null
+	 */
+	public static LinkedList<Pair<Direction, Point>> smooth(Iterable<Pair<Direction, Point>> path, TileGrid grid) {
+		if (path == null) return null;
+		ArrayList<Pair<Direction, Point>> steps = new ArrayList<Pair<Direction, Point>>();
+		for (Pair<Direction, Point> step : path) {
+			steps.add(step);
+		}
+		LinkedList<Pair<Direction, Point>> waypoints = new LinkedList<Pair<Direction, Point>>();
+		if (steps.isEmpty()) return waypoints;
+		Point anchor = steps.get(0).second;
+		waypoints.add(new Pair<Direction, Point>(steps.get(0).first, new Point(anchor)));
+		int last = steps.size() - 1;
+		int i = 0;
+		while (i < last) {
+			// The next point is always reachable, so look past it for the furthest point in sight
+			i++;
+			while (i < last) {
+				Point next = steps.get(i + 1).second;
+				if (!grid.hasLineOfSight(anchor.x, anchor.y, next.x, next.y)) break;
+				i++;
+			}
+			Point waypoint = steps.get(i).second;
+			waypoints.add(new Pair<Direction, Point>(headingOf(waypoint.x - anchor.x, waypoint.y - anchor.y), new Point(waypoint)));
+			anchor = waypoint;
+		}
+		return waypoints;
+	}
+
+	/**
+	 * Removes the points in the middle of straight runs of a path, keeping the points where
+	 * it changes direction. Unlike smooth the path is not changed, so its cost stays the same.
+	 * @param path path of points where each point can be walked to from the one before
+	 * @return a new list of the start, the turning points and the end of the path, or null if
+	 * the path is null
+	 */
+	public static LinkedList<Pair<Direction, Point>> keepTurns(Iterable<Pair<Direction, Point>> path) {
+		if (path == null) return null;
+		LinkedList<Pair<Direction, Point>> waypoints = new LinkedList<Pair<Direction, Point>>();
+		Point anchor = null;
+		Point prev = null;
+		Direction heading = Direction.NONE;
+		for (Pair<Direction, Point> step : path) {
+			Point curr = step.second;
+			if (anchor == null) {
+				waypoints.add(new Pair<Direction, Point>(step.first, new Point(curr)));
+				anchor = curr;
+			} else {
+				Direction direction = headingOf(curr.x - prev.x, curr.y - prev.y);
+				if (prev != anchor && direction != heading) {
+					waypoints.add(new Pair<Direction, Point>(heading, new Point(prev)));
+					anchor = prev;
+				}
+				heading = direction;
+			}
+			prev = curr;
+		}
+		if (prev != anchor) {
+			waypoints.add(new Pair<Direction, Point>(heading, new Point(prev)));
+		}
+		return waypoints;
+	}
+
+	/**
+	 * Finds the direction closest to a line
+	 * @param dx change in x along the line
+	 * @param dy change in y along the line
+	 * @return the closest of the eight directions, or NONE if the line has no length
+	 */
+	static Direction headingOf(int dx, int dy) {
+		long absX = Math.abs((long) dx);
+		long absY = Math.abs((long) dy);
+		if (absY * 1000 <= absX * TAN_22_5) {
+			dy = 0;
+		} else if (absX * 1000 <= absY * TAN_22_5) {
+			dx = 0;
+		}
+		int signX = Integer.signum(dx);
+		int signY = Integer.signum(dy);
+		for (Direction direction : SearchContext.MOVES) {
+			if (direction.dx == signX && direction.dy == signY) return direction;
+		}
+		return Direction.NONE;
+	}
+}
@@ -0,0 +1,202 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import agentMap.Core.CompactPath;
+import agentMap.Core.Direction;
+import agentMap.Core.Pair;
+
+/**
+ * Working memory of a grid search that is kept between searches. Every cell has a
+ * g cost, a parent cell and the direction it was reached from, and these are only
+ * valid when the cell is stamped with the generation of the current search. Starting
+ * a new search therefore only increments the generation instead of clearing the arrays.
+ */
+public class SearchContext {
+	// Directions a cell can be left in, the first four are used when moving in 4 directions
+	public static final Direction[] MOVES = {
+		Direction.W, Direction.E, Direction.N, Direction.S,
+		Direction.NW, Direction.NE, Direction.SW, Direction.SE
+	};
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private int generation;
+	// Closed cells can be reopened without losing their g costs by moving to a new closed generation
+	private int closedGeneration;
+	// Generation in which the cell was reached and in which it was closed
+	private int[] seen;
+	private int[] closed;
+	private int[] gCost;
+	private int[] parent;
+	private byte[] parentDir;
+	private IndexedMinHeap open;
+
+	/**
+	 * Constructor for a context that can search grids of up to the given number of cells
+	 * @param capacity number of cells
+	 */
+	public SearchContext(int capacity) {
+		seen = new int[capacity];
+		closed = new int[capacity];
+		gCost = new int[capacity];
+		parent = new int[capacity];
+		parentDir = new byte[capacity];
+		open = new IndexedMinHeap(capacity);
+	}
+
+	/**
+	 * Resets the context for a new search on a grid with the given number of cells
+	 * @param capacity number of cells in the grid to search
+	 */
+	public void prepare(int capacity) {
+		if (capacity > seen.length) {
+			seen = Arrays.copyOf(seen, capacity);
+			closed = Arrays.copyOf(closed, capacity);
+			gCost = new int[capacity];
+			parent = new int[capacity];
+			parentDir = new byte[capacity];
+			open.ensureCapacity(capacity);
+		}
+		open.clear();
+		generation++;
+		// Once the generation wraps around old stamps could look current again
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(seen, 0);
+			generation = 1;
+		}
+		clearClosed();
+	}
+
+	/**
+	 * Marks every cell as not expanded while keeping the g costs and parents of the current
+	 * search, used by searches that make several passes over the same cells
+	 */
+	public void clearClosed() {
+		closedGeneration++;
+		if (closedGeneration == Integer.MAX_VALUE) {
+			Arrays.fill(closed, 0);
+			closedGeneration = 1;
+		}
+	}
+
+	/**
+	 * Getter: gets the open list of the current search
+	 * @return heap of cells waiting to be expanded
+	 */
+	public IndexedMinHeap getOpen() {
+		return open;
+	}
+
+	/**
+	 * Checks if a cell has been reached in the current search
+	 * @param cell index of the cell
+	 * @return if the cell has a g cost
+	 */
+	public boolean isSeen(int cell) {
+		return seen[cell] == generation;
+	}
+
+	/**
+	 * Checks if a cell has been expanded in the current search
+	 * @param cell index of the cell
+	 * @return if the cell is closed
+	 */
+	public boolean isClosed(int cell) {
+		return closed[cell] == closedGeneration;
+	}
+
+	/**
+	 * Marks a cell as expanded in the current search
+	 * @param cell index of the cell
+	 */
+	public void close(int cell) {
+		closed[cell] = closedGeneration;
+	}
+
+	/**
+	 * Records how a cell was reached in the current search
+	 * @param cell index of the cell
+	 * @param cost g cost of the cell
+	 * @param parentCell index of the cell it was reached from, or -1 for the start
+	 * @param direction direction moved to reach the cell
+	 */
+	public void reach(int cell, int cost, int parentCell, Direction direction) {
+		seen[cell] = generation;
+		gCost[cell] = cost;
+		parent[cell] = parentCell;
+		parentDir[cell] = (byte) direction.ordinal();
+	}
+
+	/**
+	 * Gets the g cost of a cell reached in the current search
+	 * @param cell index of the cell
+	 * @return cost of the best path found to the cell
+	 */
+	public int getGCost(int cell) {
+		return gCost[cell];
+	}
+
+	/**
+	 * Gets the cell a reached cell was reached from
+	 * @param cell index of the cell
+	 * @return index of the parent cell, or -1 for the start
+	 */
+	public int getParent(int cell) {
+		return parent[cell];
+	}
+
+	/**
+	 * Gets the direction moved to reach a cell
+	 * @param cell index of the cell
+	 * @return direction from the parent cell
+	 */
+	public Direction getParentDirection(int cell) {
+		return DIRECTIONS[parentDir[cell]];
+	}
+
+	/**
+	 * Walks the parent links back from a cell to build the path to it
+	 * @param goal index of the last cell on the path
+	 * @param startLoc position of the first cell on the path
+	 * @param width width of the grid the cells are on
+	 * @return list of directions and points from the start to the goal
+	 */
+	public LinkedList<Pair<Direction, Point>> buildPath(int goal, Point startLoc, int width) {
+		LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+		int cell = goal;
+		while (parent[cell] != -1) {
+			path.addFirst(new Pair<Direction, Point>(getParentDirection(cell), new Point(cell % width, cell / width)));
+			cell = parent[cell];
+		}
+		path.addFirst(new Pair<Direction, Point>(getParentDirection(cell), startLoc));
+		return path;
+	}
+
+	/**
+	 * Walks the parent links back from a cell to build the path to it in compact form
+	 * @param goal index of the last cell on the path
+	 * @param startLoc position of the first cell on the path
+	 * @return the path as a start point followed by runs of moves
+	 */
+	public CompactPath buildCompactPath(int goal, Point startLoc) {
+		int numSteps = 0;
+		int cell = goal;
+		while (parent[cell] != -1) {
+			cell = parent[cell];
+			numSteps++;
+		}
+		// The moves are found from the goal backwards, one byte each
+		byte[] directions = new byte[numSteps];
+		cell = goal;
+		for (int i = numSteps - 1; i >= 0; i--) {
+			directions[i] = parentDir[cell];
+			cell = parent[cell];
+		}
+		CompactPath.Builder builder = new CompactPath.Builder(startLoc, getParentDirection(cell));
+		for (int i = 0; i < numSteps; i++) {
+			builder.add(DIRECTIONS[directions[i]]);
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,245 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import agentMap.Core.Direction;
+import agentMap.Core.Pair;
+
+/**
+ * Working memory of a grid search for grids too large to give every cell a slot, such as a
+ * ChunkedGrid. Cells are given a node number the first time the search reaches them through
+ * an open addressing hash table keyed by position, so memory grows with the number of cells
+ * the search reaches rather than with the size of the grid.
+ */
+public class SparseSearchContext {
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final long EMPTY = -1L;
+	// Hash table from the position of a cell to its node number
+	private long[] keys;
+	private int[] nodes;
+	private int mask;
+	// Slot in the hash table of each node, so only used slots are cleared between searches
+	private int[] slots;
+	private int numNodes;
+	private int[] xs;
+	private int[] ys;
+	private int[] gCost;
+	private int[] parent;
+	private byte[] parentDir;
+	private boolean[] closed;
+	private IndexedMinHeap open;
+
+	/**
+	 * Constructor
+	 */
+	public SparseSearchContext() {
+		keys = new long[1024];
+		Arrays.fill(keys, EMPTY);
+		nodes = new int[keys.length];
+		mask = keys.length - 1;
+		slots = new int[256];
+		xs = new int[256];
+		ys = new int[256];
+		gCost = new int[256];
+		parent = new int[256];
+		parentDir = new byte[256];
+		closed = new boolean[256];
+		open = new IndexedMinHeap(256);
+	}
+
+	/**
+	 * Resets the context for a new search
+	 */
+	public void prepare() {
+		for (int i = 0; i < numNodes; i++) {
+			keys[slots[i]] = EMPTY;
+		}
+		numNodes = 0;
+		open.clear();
+	}
+
+	/**
+	 * Getter: gets the open list of the current search, which holds node numbers
+	 * @return heap of nodes waiting to be expanded
+	 */
+	public IndexedMinHeap getOpen() {
+		return open;
+	}
+
+	/**
+	 * Finds the node of a cell reached in the current search
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @return node number of the cell, or -1 if the cell has not been reached
+	 */
+	public int getNode(int x, int y) {
+		long key = ((long) x << 32) | (y & 0xFFFFFFFFL);
+		for (int slot = hash(key); ; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) return nodes[slot];
+			if (keys[slot] == EMPTY) return -1;
+		}
+	}
+
+	/**
+	 * Records how a cell was reached in the current search, giving it a node if it has none
+	 * @param x column of the cell
+	 * @param y row of the cell
+	 * @param cost g cost of the cell
+	 * @param parentNode node it was reached from, or -1 for the start
+	 * @param direction direction moved to reach the cell
+	 * @return node number of the cell
+	 */
+	public int reach(int x, int y, int cost, int parentNode, Direction direction) {
+		int node = getNode(x, y);
+		if (node == -1) {
+			node = addNode(x, y);
+		}
+		gCost[node] = cost;
+		parent[node] = parentNode;
+		parentDir[node] = (byte) direction.ordinal();
+		return node;
+	}
+
+	private int addNode(int x, int y) {
+		if (numNodes == xs.length) {
+			int capacity = numNodes * 2;
+			slots = Arrays.copyOf(slots, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			gCost = Arrays.copyOf(gCost, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			parentDir = Arrays.copyOf(parentDir, capacity);
+			closed = Arrays.copyOf(closed, capacity);
+			open.ensureCapacity(capacity);
+		}
+		// Keep the table at most half full so probe sequences stay short
+		if (numNodes * 2 >= keys.length) {
+			rehash(keys.length * 2);
+		}
+		long key = ((long) x << 32) | (y & 0xFFFFFFFFL);
+		int slot = hash(key);
+		while (keys[slot] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		int node = numNodes++;
+		keys[slot] = key;
+		nodes[slot] = node;
+		slots[node] = slot;
+		xs[node] = x;
+		ys[node] = y;
+		closed[node] = false;
+		return node;
+	}
+
+	private void rehash(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		nodes = new int[capacity];
+		mask = capacity - 1;
+		for (int node = 0; node < numNodes; node++) {
+			long key = ((long) xs[node] << 32) | (ys[node] & 0xFFFFFFFFL);
+			int slot = hash(key);
+			while (keys[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			nodes[slot] = node;
+			slots[node] = slot;
+		}
+	}
+
+	private int hash(long key) {
+		long mixed = key * 0x9E3779B97F4A7C15L;
+		return (int) (mixed >>> 32) & mask;
+	}
+
+	/**
+	 * Checks if a node has been expanded in the current search
+	 * @param node node number
+	 * @return if the node is closed
+	 */
+	public boolean isClosed(int node) {
+		return closed[node];
+	}
+
+	/**
+	 * Marks a node as expanded in the current search
+	 * @param node node number
+	 */
+	public void close(int node) {
+		closed[node] = true;
+	}
+
+	/**
+	 * Gets the g cost of a node
+	 * @param node node number
+	 * @return cost of the best path found to the node's cell
+	 */
+	public int getGCost(int node) {
+		return gCost[node];
+	}
+
+	/**
+	 * Getter: gets the column of a node's cell
+	 * @param node node number
+	 * @return x position of the cell
+	 */
+	public int getX(int node) {
+		return xs[node];
+	}
+
+	/**
+	 * Getter: gets the row of a node's cell
+	 * @param node node number
+	 * @return y position of the cell
+	 */
+	public int getY(int node) {
+		return ys[node];
+	}
+
+	/**
+	 * Gets the node a node was reached from
+	 * @param node node number
+	 * @return node number of the parent, or -1 for the start
+	 */
+	public int getParent(int node) {
+		return parent[node];
+	}
+
+	/**
+	 * Gets the direction moved to reach a node from its parent
+	 * @param node node number
+	 * @return direction of the move
+	 */
+	public Direction getParentDirection(int node) {
+		return DIRECTIONS[parentDir[node]];
+	}
+
+	/**
+	 * Getter: gets the number of nodes reached in the current search, which are numbered
+	 * from 0
+	 * @return number of nodes
+	 */
+	public int getNumNodes() {
+		return numNodes;
+	}
+
+	/**
+	 * Walks the parent links back from a node to build the path to it
+	 * @param goal node of the last cell on the path
+	 * @param startLoc position of the first cell on the path
+	 * @return list of directions and points from the start to the goal
+	 */
+	public LinkedList<Pair<Direction, Point>> buildPath(int goal, Point startLoc) {
+		LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+		int node = goal;
+		while (parent[node] != -1) {
+			path.addFirst(new Pair<Direction, Point>(DIRECTIONS[parentDir[node]], new Point(xs[node], ys[node])));
+			node = parent[node];
+		}
+		path.addFirst(new Pair<Direction, Point>(DIRECTIONS[parentDir[node]], startLoc));
+		return path;
+	}
+}
@@ -0,0 +1,305 @@
+package agentMap.Modules;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import agentMap.Core.CompactPath;
+import agentMap.Core.Direction;
+import agentMap.Core.ISearch;
+import agentMap.Core.Pair;
+import agentMap.Core.SearchBudget;
+import agentMap.Core.SearchResult;
+import agentMap.Core.SearchStats;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+
+/**
+ * Any-angle search (Theta*) which returns a path of waypoints joined by straight lines
+ * rather than one point per tile. The search moves between neighbouring tiles like A*, but
+ * a tile in sight of its parent's parent is linked straight to it, so the parent links
+ * become the corners of the path and costs are Euclidean distances.
+ * Lazy Theta* assumes the line of sight holds when a tile is reached and only checks it
+ * when the tile is expanded, falling back to the best expanded neighbour if it does not.
+ * This checks line of sight once per expanded tile rather than once per neighbour.
+ * Each waypoint is paired with the direction closest to the line from the waypoint before
+ * it. The compact form of a path joins the waypoints by moves through the cells whose line
+ * of sight was checked, along rows and columns only when moving in four directions.
+ * Line of sight ignores pass costs, so maps with different pass costs are searched with
+ * A* instead and the path is cut down to the points where it turns. The compact form of
+ * those paths is the A* path itself.
+ */
+public class ThetaStarSearch implements ISearch {
+	private boolean eightDirections;
+	private boolean lazy;
+	private aStarSearch fallback;
+	private SearchContext context;
+	// Euclidean cost of the cheapest path found to each cell, valid for cells seen by the context
+	private double[] gCosts;
+	private SearchStats stats;
+	private SearchStats lastStats;
+
+	/**
+	 * Constructor
+	 * @param eightDirections if the agent is able to move diagonally between neighbouring tiles
+	 * @param lazy if line of sight should only be checked when a tile is expanded (Lazy Theta*)
+	 */
+	public ThetaStarSearch(boolean eightDirections, boolean lazy) {
+		this.eightDirections = eightDirections;
+		this.lazy = lazy;
+		fallback = new aStarSearch(eightDirections ? new ChebyshevDist() : new ManhattanDist(), eightDirections);
+		context = new SearchContext(0);
+		gCosts = new double[0];
+		stats = new SearchStats();
+		lastStats = stats;
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, Tile[][] map) {
+		return getPath(currLoc, destLoc, TileGrid.fromTiles(map));
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, TileGrid map) {
+		if (!map.isUniformCost()) {
+			lastStats = fallback.getLastStats();
+			return PathSmoother.keepTurns(fallback.getPath(currLoc, destLoc, map));
+		}
+		lastStats = stats;
+		int goal = search(currLoc, destLoc, map);
+		return (goal == -1) ? null : buildWaypoints(goal, currLoc, map.getWidth());
+	}
+
+	@Override
+	public SearchResult getPath(Point currLoc, Point destLoc, TileGrid map, SearchBudget budget) {
+		if (!map.isUniformCost()) {
+			// A* finds the cheapest path and keeping only its turns leaves the cost the same
+			LinkedList<Pair<Direction, Point>> path = getPath(currLoc, destLoc, map);
+			if (path == null) return new SearchResult(null, -1, Double.POSITIVE_INFINITY, true);
+			return new SearchResult(path, CompactPath.fromPath(path).getCost(map), 1, true);
+		}
+		lastStats = stats;
+		int goal = search(currLoc, destLoc, map);
+		if (goal == -1) return new SearchResult(null, -1, Double.POSITIVE_INFINITY, true);
+		// The search always runs to the end, but moving along the lines between the waypoints
+		// is not always the cheapest way across the grid so no bound is known
+		int width = map.getWidth();
+		return new SearchResult(buildWaypoints(goal, currLoc, width), buildCompactPath(goal, currLoc, width).getCost(map),
+				Double.POSITIVE_INFINITY, true);
+	}
+
+	/**
+	 * Builds the waypoints of the path found from the parent links in the context
+	 * @param goal index of the destination cell
+	 * @param currLoc Position the search started from
+	 * @param width width of the grid searched
+	 * @return the waypoints from the start to the destination
+	 */
+	private LinkedList<Pair<Direction, Point>> buildWaypoints(int goal, Point currLoc, int width) {
+		LinkedList<Pair<Direction, Point>> path = new LinkedList<Pair<Direction, Point>>();
+		int cell = goal;
+		int parent = context.getParent(cell);
+		while (parent != -1) {
+			int x = cell % width;
+			int y = cell / width;
+			path.addFirst(new Pair<Direction, Point>(
+					PathSmoother.headingOf(x - parent % width, y - parent / width), new Point(x, y)));
+			cell = parent;
+			parent = context.getParent(cell);
+		}
+		path.addFirst(new Pair<Direction, Point>(Direction.NONE, new Point(currLoc)));
+		return path;
+	}
+
+	@Override
+	public CompactPath getCompactPath(Point currLoc, Point destLoc, TileGrid map) {
+		if (!map.isUniformCost()) {
+			CompactPath path = fallback.getCompactPath(currLoc, destLoc, map);
+			lastStats = fallback.getLastStats();
+			return path;
+		}
+		lastStats = stats;
+		int goal = search(currLoc, destLoc, map);
+		return (goal == -1) ? null : buildCompactPath(goal, currLoc, map.getWidth());
+	}
+
+	/**
+	 * Builds the compact form of the path found from the parent links in the context, which
+	 * joins the waypoints by moves through the cells whose line of sight was checked
+	 * @param goal index of the destination cell
+	 * @param currLoc Position the search started from
+	 * @param width width of the grid searched
+	 * @return the path from the start to the destination
+	 */
+	private CompactPath buildCompactPath(int goal, Point currLoc, int width) {
+		// The parent links run back from the destination, so gather the waypoints first
+		LinkedList<Integer> waypoints = new LinkedList<Integer>();
+		for (int cell = goal; cell != -1; cell = context.getParent(cell)) {
+			waypoints.addFirst(cell);
+		}
+		CompactPath.Builder builder = new CompactPath.Builder(currLoc, Direction.NONE);
+		int prevX = currLoc.x;
+		int prevY = currLoc.y;
+		waypoints.removeFirst();
+		for (int cell : waypoints) {
+			int x = cell % width;
+			int y = cell / width;
+			int dx = x - prevX;
+			int dy = y - prevY;
+			// A diagonal run only crosses the cells beside it when moving in eight directions
+			if (eightDirections && Math.abs(dx) == Math.abs(dy)) {
+				builder.add(PathSmoother.headingOf(dx, dy), Math.abs(dx));
+			} else {
+				builder.addLine(new Point(x, y));
+			}
+			prevX = x;
+			prevY = y;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Runs Theta* or Lazy Theta*, leaving the parent links of the path found in the context
+	 * @param currLoc Position to start from
+	 * @param destLoc Position to end at
+	 * @param map grid to search, where every passable tile has the same pass cost
+	 * @return index of the destination cell, or -1 if it cannot be reached
+	 */
+	private int search(Point currLoc, Point destLoc, TileGrid map) {
+		int mapWidth = map.getWidth();
+		int mapHeight = map.getHeight();
+		int numMoves = eightDirections ? 8 : 4;
+		// A point off the map would be wrapped onto another row by the cell index
+		if (!map.inBounds(currLoc.x, currLoc.y) || !map.inBounds(destLoc.x, destLoc.y)) {
+			stats.record(0, 0, 0, 0, -1);
+			return -1;
+		}
+		context.prepare(map.size());
+		if (gCosts.length < map.size()) {
+			gCosts = Arrays.copyOf(gCosts, map.size());
+		}
+		IndexedMinHeap open = context.getOpen();
+		int startCell = map.index(currLoc.x, currLoc.y);
+		int destCell = map.index(destLoc.x, destLoc.y);
+		context.reach(startCell, 0, -1, Direction.NONE);
+		gCosts[startCell] = 0;
+		open.update(startCell, priority(0, distance(currLoc.x, currLoc.y, destLoc.x, destLoc.y)));
+		int expanded = 0;
+		int generated = 1;
+		int openPeak = 1;
+		int heuristicCalls = 1;
+		while (!open.isEmpty()) {
+			int currCell = open.pop();
+			context.close(currCell);
+			expanded++;
+			int currX = currCell % mapWidth;
+			int currY = currCell / mapWidth;
+			if (lazy) {
+				checkParent(currCell, currX, currY, map);
+			}
+			if (currCell == destCell) {
+				// Costs are counted in tiles, so scale them by the pass cost every tile shares
+				int cost = (currCell == startCell) ? 0 : (int) Math.round(gCosts[currCell] * map.getPassCost(destCell));
+				stats.record(expanded, generated, openPeak, heuristicCalls, cost);
+				return currCell;
+			}
+			int parent = context.getParent(currCell);
+			int parentX = (parent == -1) ? currX : parent % mapWidth;
+			int parentY = (parent == -1) ? currY : parent / mapWidth;
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = currX + direction.dx;
+				int nextY = currY + direction.dy;
+				if (nextX < 0 || nextY < 0 || nextX >= mapWidth || nextY >= mapHeight) continue;
+				int nextCell = currCell + direction.dy * mapWidth + direction.dx;
+				if (context.isClosed(nextCell) || !map.isPassable(nextCell)) continue;
+				double gCost;
+				int nextParent;
+				// Lazy Theta* links to the grandparent now and checks the line when the tile is expanded
+				if (parent != -1 && (lazy || map.hasLineOfSight(parentX, parentY, nextX, nextY))) {
+					gCost = gCosts[parent] + distance(parentX, parentY, nextX, nextY);
+					nextParent = parent;
+				} else {
+					gCost = gCosts[currCell] + distance(currX, currY, nextX, nextY);
+					nextParent = currCell;
+				}
+				if (context.isSeen(nextCell) && gCost >= gCosts[nextCell]) continue;
+				context.reach(nextCell, 0, nextParent, Direction.NONE);
+				gCosts[nextCell] = gCost;
+				open.update(nextCell, priority(gCost, distance(nextX, nextY, destLoc.x, destLoc.y)));
+				generated++;
+				heuristicCalls++;
+				if (open.size() > openPeak) openPeak = open.size();
+			}
+		}
+		stats.record(expanded, generated, openPeak, heuristicCalls, -1);
+		return -1;
+	}
+
+	/**
+	 * Checks the line from a tile being expanded to the parent Lazy Theta* assumed it could
+	 * see, and if it is blocked links the tile to the expanded neighbour it is cheapest to
+	 * come from instead
+	 * @param cell index of the tile
+	 * @param x column of the tile
+	 * @param y row of the tile
+	 * @param map grid being searched
+	 */
+	private void checkParent(int cell, int x, int y, TileGrid map) {
+		int parent = context.getParent(cell);
+		if (parent == -1) return;
+		int width = map.getWidth();
+		int parentX = parent % width;
+		int parentY = parent / width;
+		if (map.hasLineOfSight(parentX, parentY, x, y)) return;
+		int numMoves = eightDirections ? 8 : 4;
+		double best = Double.POSITIVE_INFINITY;
+		int bestParent = -1;
+		for (int i = 0; i < numMoves; i++) {
+			Direction direction = SearchContext.MOVES[i];
+			int nextX = x + direction.dx;
+			int nextY = y + direction.dy;
+			if (!map.inBounds(nextX, nextY)) continue;
+			int next = cell + direction.dy * width + direction.dx;
+			if (!context.isClosed(next)) continue;
+			double gCost = gCosts[next] + distance(x, y, nextX, nextY);
+			if (gCost < best) {
+				best = gCost;
+				bestParent = next;
+			}
+		}
+		// The tile was reached from an expanded neighbour, so one is always found
+		context.reach(cell, 0, bestParent, Direction.NONE);
+		gCosts[cell] = best;
+	}
+
+	private static double distance(int x0, int y0, int x1, int y1) {
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Orders tiles by g + h, breaking ties in favour of the tile estimated to be closer to
+	 * the destination. The bits of a positive float order the same way as its value, so the
+	 * costs are packed as floats into the two halves of the priority.
+	 * @param gCost cost of the path so far
+	 * @param hCost straight line distance to the destination
+	 * @return priority of the tile in the open list
+	 */
+	private static long priority(double gCost, double hCost) {
+		return ((long) Float.floatToIntBits((float) (gCost + hCost)) << 32) | Float.floatToIntBits((float) hCost);
+	}
+
+	@Override
+	public SearchStats getLastStats() {
+		return lastStats;
+	}
+
+	@Override
+	public ISearch copy() {
+		return new ThetaStarSearch(eightDirections, lazy);
+	}
+}
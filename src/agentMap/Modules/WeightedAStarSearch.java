@@ -0,0 +1,34 @@
+package agentMap.Modules;
+
+import agentMap.Core.IHeuristic;
+import agentMap.Core.ISearch;
+
+/**
+ * Weighted A*, which orders cells by g + weight * h and never expands a cell twice. It
+ * expands far fewer cells than A* when the heuristic underestimates by a lot, and the path
+ * it finds costs at most weight times the cheapest path. This is a single pass of ARA*, so
+ * a budgeted query also reports the tighter bound proven from the cells left unexpanded.
+ */
+public class WeightedAStarSearch extends ARAStarSearch {
+	private IHeuristic heuristic;
+	private boolean eightDirections;
+	private double weight;
+
+	/**
+	 * Constructor
+	 * @param heuristic consistent heuristic used to estimate the cost to the destination
+	 * @param eightDirections if the agent is able to move diagonally
+	 * @param weight weight of the heuristic, at least 1
+	 */
+	public WeightedAStarSearch(IHeuristic heuristic, boolean eightDirections, double weight) {
+		super(heuristic, eightDirections, weight, weight, 1);
+		this.heuristic = heuristic;
+		this.eightDirections = eightDirections;
+		this.weight = weight;
+	}
+
+	@Override
+	public ISearch copy() {
+		return new WeightedAStarSearch(heuristic, eightDirections, weight);
+	}
+}
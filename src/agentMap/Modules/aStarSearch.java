@@ -1,143 +1,204 @@
 package agentMap.Modules;
 
 import java.awt.Point;
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 
+import agentMap.Core.CompactPath;
 import agentMap.Core.Direction;
+import agentMap.Core.IGrid;
 import agentMap.Core.IHeuristic;
 import agentMap.Core.ISearch;
 import agentMap.Core.Pair;
-import agentMap.Core.State;
+import agentMap.Core.SearchStats;
 import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
 
+/**
+ * A* search over a grid of tiles. The open list, g costs and parent links are kept in a
+ * SearchContext which is reused by every search, so after the first search on a map
+ * only the returned path is allocated. Grids other than a TileGrid are searched with a
+ * SparseSearchContext which only holds the cells the search reaches.
+ */
 public class aStarSearch implements ISearch {
 	private IHeuristic heuristic;
 	private boolean eightDirections;
-	HashMap<Point, Boolean> visited;
-	
+	private SearchContext context;
+	// Created the first time a grid other than a TileGrid is searched
+	private SparseSearchContext sparseContext;
+	private SearchStats stats;
+
 	public aStarSearch(IHeuristic heuristic, boolean eightDirections) {
 		this.heuristic = heuristic;
 		this.eightDirections = eightDirections;
-		visited = new HashMap<Point, Boolean>();
+		context = new SearchContext(0);
+		stats = new SearchStats();
 	}
-	
+
 	@Override
 	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, Tile map[][]) {
+		return getPath(currLoc, destLoc, TileGrid.fromTiles(map));
+	}
+
+	@Override
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, TileGrid map) {
+		int goal = search(currLoc, destLoc, map);
+		return (goal == -1) ? null : context.buildPath(goal, currLoc, map.getWidth());
+	}
+
+	@Override
+	public CompactPath getCompactPath(Point currLoc, Point destLoc, TileGrid map) {
+		int goal = search(currLoc, destLoc, map);
+		return (goal == -1) ? null : context.buildCompactPath(goal, currLoc);
+	}
+
+	/**
+	 * Runs A* on a TileGrid, leaving the parent links of the path found in the context
+	 * @param currLoc Position to start from
+	 * @param destLoc Position to end at
+	 * @param map grid to search
+	 * @return index of the destination cell, or -1 if it cannot be reached
+	 */
+	private int search(Point currLoc, Point destLoc, TileGrid map) {
 		// Take note of the map's dimensions
-		int mapHeight = map.length;
-		int mapWidth = map[0].length;
-		// Initialise the first state in the priority queue
-		int hCost = heuristic.calcHeuristic(currLoc, destLoc);
-		State startState = new State(null, currLoc, 0, hCost, Direction.NONE);
-		PriorityQueue<State> pq = new PriorityQueue<State>();
-		pq.add(startState);
+		int mapHeight = map.getHeight();
+		int mapWidth = map.getWidth();
+		int numMoves = eightDirections ? 8 : 4;
+		// A point off the map would be wrapped onto another row by the cell index
+		if (!map.inBounds(currLoc.x, currLoc.y) || !map.inBounds(destLoc.x, destLoc.y)) {
+			stats.record(0, 0, 0, 0, -1);
+			return -1;
+		}
+		context.prepare(map.size());
+		IndexedMinHeap open = context.getOpen();
+		// Initialise the first state in the open list
+		int startCell = map.index(currLoc.x, currLoc.y);
+		int destCell = map.index(destLoc.x, destLoc.y);
+		int hCost = heuristic.calcHeuristic(currLoc.x, currLoc.y, destLoc.x, destLoc.y);
+		context.reach(startCell, 0, -1, Direction.NONE);
+		open.update(startCell, priority(0, hCost));
+		// Counted in locals so keeping statistics costs next to nothing
+		int expanded = 0;
+		int generated = 1;
+		int openPeak = 1;
+		int heuristicCalls = 1;
 		// Start the search
-		while (pq.size() != 0) {
-			State currState = pq.poll();
-			Point currStatePos = currState.getCurrLoc();
-			// Check if the state has been visited
-			if (visited.containsKey(currStatePos) && visited.get(currStatePos) == true) {
-				continue;
-			}
+		while (!open.isEmpty()) {
+			int currCell = open.pop();
+			context.close(currCell);
+			expanded++;
 			// Check if the state has reached the destination point
-			if (currStatePos.x == destLoc.x && currStatePos.y == destLoc.y) {
-				return currState.getPath();
-			}
-			// Continue the search
-			// Create a state for the tile to the left
-			if (currStatePos.x - 1 >= 0) {
-				addNewState(pq, currState, destLoc, Direction.W, map);
-			}
-			// Create a state for the tile to the Right
-			if (currStatePos.x + 1 < mapWidth) {
-				addNewState(pq, currState, destLoc, Direction.E, map);
+			if (currCell == destCell) {
+				stats.record(expanded, generated, openPeak, heuristicCalls, context.getGCost(currCell));
+				return currCell;
 			}
-			// Create a state for the tile above
-			if (currStatePos.y - 1 >= 0) {
-				addNewState(pq, currState, destLoc, Direction.N, map);
+			// Continue the search with a state for each neighbouring tile
+			int currX = currCell % mapWidth;
+			int currY = currCell / mapWidth;
+			int currGCost = context.getGCost(currCell);
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = currX + direction.dx;
+				int nextY = currY + direction.dy;
+				if (nextX < 0 || nextY < 0 || nextX >= mapWidth || nextY >= mapHeight) continue;
+				int nextCell = currCell + direction.dy * mapWidth + direction.dx;
+				// Skip tiles that have already been expanded or cannot be passed
+				if (context.isClosed(nextCell) || !map.isPassable(nextCell)) continue;
+				int gCost = currGCost + map.getPassCost(nextCell);
+				// Only keep the state if it is a cheaper way to reach the tile
+				if (context.isSeen(nextCell) && gCost >= context.getGCost(nextCell)) continue;
+				context.reach(nextCell, gCost, currCell, direction);
+				hCost = heuristic.calcHeuristic(nextX, nextY, destLoc.x, destLoc.y);
+				open.update(nextCell, priority(gCost, hCost));
+				generated++;
+				heuristicCalls++;
+				if (open.size() > openPeak) openPeak = open.size();
 			}
-			// Create a state for the tile below
-			if (currStatePos.y + 1 < mapHeight) {
-				addNewState(pq, currState, destLoc, Direction.S, map);
+		}
+		stats.record(expanded, generated, openPeak, heuristicCalls, -1);
+		return -1;
+	}
+
+	/**
+	 * Returns a path from a starting point to another point on any kind of grid, such as a
+	 * ChunkedGrid. Only A* can search a grid that is not a TileGrid, so this is not part of
+	 * ISearch.
+	 * @param currLoc Position to start from
+	 * @param destLoc Position to end at
+	 * @param map grid of tiles representing the map
+	 * @return list of directions and points from the start to the destination, or null if
+	 * the destination cannot be reached
+	 */
+	public LinkedList<Pair<Direction, Point>> getPath(Point currLoc, Point destLoc, IGrid map) {
+		if (map instanceof TileGrid) {
+			return getPath(currLoc, destLoc, (TileGrid) map);
+		}
+		if (sparseContext == null) {
+			sparseContext = new SparseSearchContext();
+		}
+		int numMoves = eightDirections ? 8 : 4;
+		if (!map.inBounds(currLoc.x, currLoc.y) || !map.inBounds(destLoc.x, destLoc.y)) {
+			stats.record(0, 0, 0, 0, -1);
+			return null;
+		}
+		sparseContext.prepare();
+		IndexedMinHeap open = sparseContext.getOpen();
+		int hCost = heuristic.calcHeuristic(currLoc.x, currLoc.y, destLoc.x, destLoc.y);
+		int startNode = sparseContext.reach(currLoc.x, currLoc.y, 0, -1, Direction.NONE);
+		open.update(startNode, priority(0, hCost));
+		int expanded = 0;
+		int generated = 1;
+		int openPeak = 1;
+		int heuristicCalls = 1;
+		while (!open.isEmpty()) {
+			int currNode = open.pop();
+			sparseContext.close(currNode);
+			expanded++;
+			int currX = sparseContext.getX(currNode);
+			int currY = sparseContext.getY(currNode);
+			if (currX == destLoc.x && currY == destLoc.y) {
+				stats.record(expanded, generated, openPeak, heuristicCalls, sparseContext.getGCost(currNode));
+				return sparseContext.buildPath(currNode, currLoc);
 			}
-			// Additional states if the agent is able to move diagonally
-			if (eightDirections) {
-				// Create a state for the tile north west
-				if (currStatePos.x - 1 >= 0 && currStatePos.y - 1 >= 0) {
-					addNewState(pq, currState, destLoc, Direction.NW, map);
-				}
-				// Create a state for the tile north east
-				if (currStatePos.x + 1 < mapWidth && currStatePos.y - 1 >= 0) {
-					addNewState(pq, currState, destLoc, Direction.NE, map);
-				}
-				// Create a state for the tile north west
-				if (currStatePos.x - 1 >= 0 && currStatePos.y + 1 < mapHeight) {
-					addNewState(pq, currState, destLoc, Direction.SW, map);
-				}
-				// Create a state for the tile north west
-				if (currStatePos.x + 1 < mapWidth && currStatePos.y + 1 < mapHeight) {
-					addNewState(pq, currState, destLoc, Direction.SE, map);
-				}
+			int currGCost = sparseContext.getGCost(currNode);
+			for (int i = 0; i < numMoves; i++) {
+				Direction direction = SearchContext.MOVES[i];
+				int nextX = currX + direction.dx;
+				int nextY = currY + direction.dy;
+				if (!map.inBounds(nextX, nextY) || !map.isPassable(nextX, nextY)) continue;
+				int nextNode = sparseContext.getNode(nextX, nextY);
+				if (nextNode != -1 && sparseContext.isClosed(nextNode)) continue;
+				int gCost = currGCost + map.getPassCost(nextX, nextY);
+				if (nextNode != -1 && gCost >= sparseContext.getGCost(nextNode)) continue;
+				nextNode = sparseContext.reach(nextX, nextY, gCost, currNode, direction);
+				hCost = heuristic.calcHeuristic(nextX, nextY, destLoc.x, destLoc.y);
+				open.update(nextNode, priority(gCost, hCost));
+				generated++;
+				heuristicCalls++;
+				if (open.size() > openPeak) openPeak = open.size();
 			}
-			visited.put(currStatePos, true);
 		}
+		stats.record(expanded, generated, openPeak, heuristicCalls, -1);
 		return null;
 	}
 
+	@Override
+	public SearchStats getLastStats() {
+		return stats;
+	}
+
+	@Override
+	public ISearch copy() {
+		return new aStarSearch(heuristic, eightDirections);
+	}
+
 	/**
-	 * Using the parameters given, generate a new state to add to the priority queue
-	 * to be used in the A* search
-	 * @param pq existing priority queue
-	 * @param currState State currently being looked at in the A* algorithm
-	 * @param destLoc Point for the A* to reach
-	 * @param direction Direction to create the new state
-	 * @param map Map containing tiles (Used to get passCost for a given tile)
-	 * @param heuristic Heuristic function
+	 * Orders states by f(n) = g(n) + h(n), breaking ties in favour of the state
+	 * estimated to be closer to the goal
+	 * @param gCost cost of the path so far
+	 * @param hCost estimated cost to the goal
+	 * @return priority of the state in the open list
 	 */
-	public void addNewState(PriorityQueue<State> pq, State currState, Point destLoc, 
-			Direction direction, Tile[][] map) {
-		Point nextPoint = null;
-		Point currStatePos = currState.getCurrLoc();
-		/* Determine the point of the new state using the current state's position
-		and the direction given*/ 
-		switch(direction) {
-		case W:
-			nextPoint = new Point(currStatePos.x - 1, currStatePos.y);
-			break;
-		case E:
-			nextPoint = new Point(currStatePos.x + 1, currStatePos.y);
-			break;
-		case N:
-			nextPoint = new Point(currStatePos.x, currStatePos.y - 1);
-			break;
-		case S:
-			nextPoint = new Point(currStatePos.x, currStatePos.y + 1);
-			break;
-		case NW:
-			nextPoint = new Point(currStatePos.x - 1, currStatePos.y - 1);
-			break;
-		case NE:
-			nextPoint = new Point(currStatePos.x + 1, currStatePos.y - 1);
-			break;
-		case SW:
-			nextPoint = new Point(currStatePos.x - 1, currStatePos.y + 1);
-			break;
-		case SE:
-			nextPoint = new Point(currStatePos.x + 1, currStatePos.y + 1);
-			break;
-		}
-		// Check if the point has already been visited previously
-		if (visited.containsKey(nextPoint) && visited.get(nextPoint) == true) {
-			return;
-		}
-		// Check if the point is passable
-		if (map[nextPoint.y][nextPoint.x].getPassable() == false) return;
-		// Create the new state and add it to the priority queue
-		int hCost = heuristic.calcHeuristic(nextPoint, destLoc);
-		int gCost = currState.getGCost() + map[nextPoint.y][nextPoint.x].getPassCost();
-		State newState = new State(currState, nextPoint, gCost, hCost, direction);
-		pq.add(newState);
+	static long priority(int gCost, int hCost) {
+		return ((long) (gCost + hCost) << 32) | (hCost & 0xFFFFFFFFL);
 	}
 }
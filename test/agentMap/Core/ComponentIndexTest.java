@@ -0,0 +1,145 @@
+package agentMap.Core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ComponentIndexTest {
+	private static final Tile FLOOR = new Tile('.', null, true, 1);
+	private static final Tile WALL = new Tile('#', null, false, 1);
+
+	@Test
+	public void matchesBreadthFirstSearchAsTilesChange() {
+		Random random = new Random(13);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			for (int trial = 0; trial < 10; trial++) {
+				TileGrid grid = randomGrid(random, 10 + random.nextInt(40), 10 + random.nextInt(40));
+				ComponentIndex index = new ComponentIndex(grid, eight);
+				for (int step = 0; step < 300; step++) {
+					toggleTile(random, grid);
+					if (step % 5 == 0) checkQueries(random, grid, index, eight);
+				}
+				index.detach();
+			}
+		}
+	}
+
+	/**
+	 * Snapshots are checked against the grid snapshot they were taken with after the index
+	 * has moved on, on maps large enough to span several chunks
+	 */
+	@Test
+	public void snapshotsKeepTheirLabels() {
+		Random random = new Random(14);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			for (int trial = 0; trial < 4; trial++) {
+				TileGrid grid = randomGrid(random, 60 + random.nextInt(80), 60 + random.nextInt(60));
+				ComponentIndex index = new ComponentIndex(grid, eight);
+				ArrayList<TileGrid> grids = new ArrayList<TileGrid>();
+				ArrayList<ComponentIndex> indexes = new ArrayList<ComponentIndex>();
+				for (int step = 0; step < 400; step++) {
+					toggleTile(random, grid);
+					if (step % 10 != 0) continue;
+					grids.add(grid.snapshot());
+					indexes.add(index.snapshot());
+					int pick = random.nextInt(grids.size());
+					assertEquals(grids.get(pick).getVersion(), indexes.get(pick).getVersion());
+					checkQueries(random, grids.get(pick), indexes.get(pick), eight);
+				}
+				index.detach();
+			}
+		}
+	}
+
+	private static TileGrid randomGrid(Random random, int width, int height) {
+		TileGrid grid = new TileGrid(width, height, FLOOR);
+		double walls = 0.2 + random.nextDouble() * 0.3;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (random.nextDouble() < walls) grid.setTile(x, y, WALL);
+			}
+		}
+		return grid;
+	}
+
+	private static void toggleTile(Random random, TileGrid grid) {
+		int x = random.nextInt(grid.getWidth());
+		int y = random.nextInt(grid.getHeight());
+		grid.setTile(x, y, grid.isPassable(x, y) ? WALL : FLOOR);
+	}
+
+	private static void checkQueries(Random random, TileGrid grid, ComponentIndex index, boolean eight) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int[] components = label(grid, eight);
+		for (int query = 0; query < 50; query++) {
+			int fromX = random.nextInt(width);
+			int fromY = random.nextInt(height);
+			int toX = random.nextInt(width);
+			int toY = random.nextInt(height);
+			int to = components[toY * width + toX];
+			boolean expected;
+			if (fromX == toX && fromY == toY) {
+				expected = true;
+			} else if (to == -1) {
+				expected = false;
+			} else if (components[fromY * width + fromX] != -1) {
+				expected = components[fromY * width + fromX] == to;
+			} else {
+				// An impassable start can step into any passable neighbour
+				expected = false;
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if ((dx == 0 && dy == 0) || (!eight && dx != 0 && dy != 0)) continue;
+						if (!grid.inBounds(fromX + dx, fromY + dy)) continue;
+						expected |= components[(fromY + dy) * width + fromX + dx] == to;
+					}
+				}
+			}
+			assertEquals("canReach from (" + fromX + "," + fromY + ") to (" + toX + "," + toY + ")",
+					expected, index.canReach(fromX, fromY, toX, toY));
+		}
+	}
+
+	/**
+	 * Labels the connected components with a breadth first search from each unlabelled cell
+	 * @return component of each cell, -1 for impassable cells
+	 */
+	private static int[] label(TileGrid grid, boolean eight) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int[] components = new int[grid.size()];
+		Arrays.fill(components, -1);
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		int numComponents = 0;
+		for (int cell = 0; cell < grid.size(); cell++) {
+			if (components[cell] != -1 || !grid.isPassable(cell)) continue;
+			components[cell] = numComponents;
+			queue.add(cell);
+			while (!queue.isEmpty()) {
+				int curr = queue.poll();
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if ((dx == 0 && dy == 0) || (!eight && dx != 0 && dy != 0)) continue;
+						int x = curr % width + dx;
+						int y = curr / width + dy;
+						if (x < 0 || y < 0 || x >= width || y >= height) continue;
+						int next = y * width + x;
+						if (components[next] != -1 || !grid.isPassable(next)) continue;
+						components[next] = numComponents;
+						queue.add(next);
+					}
+				}
+			}
+			numComponents++;
+		}
+		return components;
+	}
+}
@@ -0,0 +1,108 @@
+package agentMap.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.awt.Point;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class InternalMapTest {
+	private static final Tile FLOOR = new Tile('.', null, true, 1);
+	private static final Tile WALL = new Tile('#', null, false, 1);
+	private static final Tile GOLD = new Tile('g', null, true, 1);
+	private static final Tile[] TILES = {FLOOR, FLOOR, WALL, WALL, GOLD};
+
+	/**
+	 * Nearest tile queries are turned down from the components holding the tile type, which
+	 * in concurrent mode are published with each snapshot rather than read from the tile
+	 * index, and have to agree with a breadth first search as the map changes
+	 */
+	@Test
+	public void nearestTilesMatchBreadthFirstSearch() {
+		Random random = new Random(23);
+		for (int mode = 0; mode < 4; mode++) {
+			boolean eight = (mode & 1) == 1;
+			for (int trial = 0; trial < 8; trial++) {
+				int width = 10 + random.nextInt(30);
+				int height = 10 + random.nextInt(30);
+				InternalMap map = new InternalMap(new TileGrid(width, height, FLOOR), tileTypes(), eight);
+				for (int i = 0; i < width * height / 2; i++) {
+					changeTile(random, map);
+				}
+				if ((mode & 2) == 2) map.enableConcurrentMode();
+				for (int step = 0; step < 60; step++) {
+					changeTile(random, map);
+					for (int query = 0; query < 5; query++) {
+						Point start = new Point(random.nextInt(width), random.nextInt(height));
+						char tileChar = TILES[random.nextInt(TILES.length)].getTileChar();
+						boolean expected = canReachTile(map.getGrid(), start, tileChar, eight);
+						String name = "Nearest " + tileChar + " from " + start;
+						assertEquals(name, expected, map.getPathToNearest(start, tileChar) != null);
+						assertEquals(name, expected, !map.getPathsToNearest(start, tileChar, 2).isEmpty());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void offMapPointsCannotBeReached() {
+		InternalMap map = new InternalMap(new TileGrid(5, 4, FLOOR), tileTypes(), true);
+		Point onMap = new Point(0, 0);
+		Point[] offMap = {new Point(5, 0), new Point(-1, 0), new Point(0, 4), new Point(4, -1)};
+		for (int mode = 0; mode < 2; mode++) {
+			if (mode == 1) map.enableConcurrentMode();
+			for (Point point : offMap) {
+				assertFalse("Reached " + point, map.canReach(onMap, point));
+				assertFalse("Reached from " + point, map.canReach(point, onMap));
+			}
+		}
+	}
+
+	private static HashMap<Character, Tile> tileTypes() {
+		HashMap<Character, Tile> tileTypes = new HashMap<Character, Tile>();
+		for (Tile tile : TILES) {
+			tileTypes.put(tile.getTileChar(), tile);
+		}
+		return tileTypes;
+	}
+
+	private static void changeTile(Random random, InternalMap map) {
+		TileGrid grid = map.getGrid();
+		Point point = new Point(random.nextInt(grid.getWidth()), random.nextInt(grid.getHeight()));
+		map.updateMap(TILES[random.nextInt(TILES.length)], point);
+	}
+
+	/**
+	 * Searches breadth first from a point, which may be impassable, for a tile of the type
+	 * @return if the point holds the tile type or a passable path leads to one
+	 */
+	private static boolean canReachTile(TileGrid grid, Point start, char tileChar, boolean eight) {
+		int width = grid.getWidth();
+		boolean[] seen = new boolean[grid.size()];
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		seen[grid.index(start.x, start.y)] = true;
+		queue.add(grid.index(start.x, start.y));
+		while (!queue.isEmpty()) {
+			int curr = queue.poll();
+			if (grid.getTileType(grid.getTileId(curr)).getTileChar() == tileChar) return true;
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if ((dx == 0 && dy == 0) || (!eight && dx != 0 && dy != 0)) continue;
+					int x = curr % width + dx;
+					int y = curr / width + dy;
+					if (!grid.inBounds(x, y)) continue;
+					int next = grid.index(x, y);
+					if (seen[next] || !grid.isPassable(next)) continue;
+					seen[next] = true;
+					queue.add(next);
+				}
+			}
+		}
+		return false;
+	}
+}
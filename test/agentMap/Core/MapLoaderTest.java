@@ -0,0 +1,87 @@
+package agentMap.Core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MapLoaderTest {
+	private static final Tile FLOOR = new Tile('.', null, true, 1);
+	private static final Tile WALL = new Tile('#', null, false, 1);
+	private static final Tile MUD = new Tile('m', null, true, 3);
+	private static final Tile UNKNOWN = new Tile('?', null, false, -99);
+	private static final String CHARS = ".#mx?z";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Maps with short, long and empty rows, Windows line endings, characters that are not
+	 * tile types and a character sharing the blueprint of another, read from a file, a
+	 * stream and a channel, are checked against the rows of the text
+	 */
+	@Test
+	public void matchesTheRowsOfTheText() throws IOException {
+		Random random = new Random(36);
+		HashMap<Character, Tile> tileTypes = new HashMap<Character, Tile>();
+		tileTypes.put('.', FLOOR);
+		tileTypes.put('#', WALL);
+		tileTypes.put('m', MUD);
+		tileTypes.put('x', FLOOR);
+		MapLoader loader = new MapLoader(tileTypes, UNKNOWN);
+		for (int trial = 0; trial < 30; trial++) {
+			int width = 1 + random.nextInt(trial < 20 ? 20 : 300);
+			int height = 1 + random.nextInt(trial < 20 ? 20 : 300);
+			List<String> rows = new ArrayList<String>();
+			StringBuilder text = new StringBuilder();
+			for (int y = 0; y < height; y++) {
+				// The first row sets the width, later rows may be shorter or longer
+				int length = (y == 0 || random.nextInt(4) != 0) ? width : random.nextInt(2 * width + 1);
+				StringBuilder row = new StringBuilder();
+				for (int x = 0; x < length; x++) {
+					row.append(CHARS.charAt(random.nextInt(CHARS.length())));
+				}
+				rows.add(row.toString());
+				text.append(row);
+				// The last line does not need a new line, unless it is empty
+				if (y < height - 1 || length == 0 || random.nextBoolean()) {
+					text.append(random.nextBoolean() ? "\r\n" : "\n");
+				}
+			}
+			byte[] bytes = text.toString().getBytes(StandardCharsets.ISO_8859_1);
+			File file = folder.newFile();
+			Files.write(file.toPath(), bytes);
+			checkGrid(loader.load(file.getPath()), rows, width, tileTypes);
+			checkGrid(loader.load(new ByteArrayInputStream(bytes)), rows, width, tileTypes);
+			checkGrid(loader.load(Channels.newChannel(new ByteArrayInputStream(bytes))), rows, width, tileTypes);
+		}
+	}
+
+	private static void checkGrid(TileGrid grid, List<String> rows, int width, HashMap<Character, Tile> tileTypes) {
+		assertEquals(width, grid.getWidth());
+		assertEquals(rows.size(), grid.getHeight());
+		for (int y = 0; y < rows.size(); y++) {
+			String row = rows.get(y);
+			for (int x = 0; x < width; x++) {
+				Tile expected = (x < row.length() && tileTypes.containsKey(row.charAt(x)))
+						? tileTypes.get(row.charAt(x)) : UNKNOWN;
+				String name = "Tile at (" + x + "," + y + ")";
+				assertEquals(name, expected.getTileChar(), grid.getTile(x, y).getTileChar());
+				assertEquals(name, expected.getPassable(), grid.isPassable(x, y));
+				if (expected.getPassable()) assertEquals(name, expected.getPassCost(), grid.getPassCost(x, y));
+			}
+		}
+	}
+}
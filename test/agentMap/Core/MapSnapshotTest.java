@@ -0,0 +1,85 @@
+package agentMap.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MapSnapshotTest {
+	private static final Tile[] TILES = {
+		new Tile('.', null, true, 1),
+		new Tile('#', null, false, 1),
+		new Tile('m', null, true, 3),
+		new Tile('w', null, true, 0),
+	};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Grids with long runs and noise, so the chunks of the file use both encodings and do not
+	 * line up with the chunks of the grid, have to come back with the same cells
+	 */
+	@Test
+	public void restoresEveryCell() throws IOException {
+		Random random = new Random(24);
+		for (int trial = 0; trial < 12; trial++) {
+			TileGrid grid = randomGrid(random, 1 + random.nextInt(300), 1 + random.nextInt(200));
+			File file = folder.newFile();
+			MapSnapshot.save(grid, file.getPath());
+			TileGrid loaded = MapSnapshot.load(file.getPath());
+			assertEquals(grid.getWidth(), loaded.getWidth());
+			assertEquals(grid.getHeight(), loaded.getHeight());
+			for (int cell = 0; cell < grid.size(); cell++) {
+				assertEquals("Tile of cell " + cell, grid.getTileId(cell), loaded.getTileId(cell));
+				assertEquals("Cost of cell " + cell, grid.getPassCost(cell), loaded.getPassCost(cell));
+				assertEquals("Passability of cell " + cell, grid.isPassable(cell), loaded.isPassable(cell));
+			}
+			for (Tile tile : TILES) {
+				assertEquals(grid.getTileCount(tile.getTileChar()), loaded.getTileCount(tile.getTileChar()));
+			}
+		}
+	}
+
+	@Test
+	public void truncatedFilesAreRejected() throws IOException {
+		TileGrid grid = randomGrid(new Random(25), 90, 150);
+		File file = folder.newFile();
+		MapSnapshot.save(grid, file.getPath());
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		Random random = new Random(26);
+		for (int trial = 0; trial < 20; trial++) {
+			int length = random.nextInt(bytes.length);
+			try {
+				MapSnapshot.load(ByteBuffer.wrap(bytes, 0, length).slice());
+				fail("Loaded a file cut down to " + length + " of " + bytes.length + " bytes");
+			} catch (IOException e) {
+				// Expected
+			}
+		}
+	}
+
+	private static TileGrid randomGrid(Random random, int width, int height) {
+		TileGrid grid = new TileGrid(width, height, TILES[0]);
+		for (int id = 1; id < TILES.length; id++) {
+			grid.addTileType(TILES[id]);
+		}
+		double noise = random.nextDouble() * 0.5;
+		Tile run = TILES[0];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (random.nextInt(200) == 0) run = TILES[random.nextInt(TILES.length)];
+				grid.setTile(x, y, (random.nextDouble() < noise) ? TILES[random.nextInt(TILES.length)] : run);
+			}
+		}
+		return grid;
+	}
+}
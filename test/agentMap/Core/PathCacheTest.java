@@ -0,0 +1,64 @@
+package agentMap.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+import agentMap.Modules.RandomGrids;
+import agentMap.Modules.aStarSearch;
+
+public class PathCacheTest {
+	private static final Tile[] TILES = {RandomGrids.FLOOR, RandomGrids.WALL, RandomGrids.MUD};
+
+	/**
+	 * A small set of queries is repeated while tiles change every few steps, so lookups often
+	 * find a cached result. A result that should have been dropped either crosses a wall
+	 * that has been built or costs more than a path that has opened up, including a cached
+	 * lack of a path.
+	 */
+	@Test
+	public void cachedPathsMatchFreshSearches() {
+		Random random = new Random(28);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			aStarSearch search = new aStarSearch(eight ? new ChebyshevDist() : new ManhattanDist(), eight);
+			long hits = 0;
+			long invalidations = 0;
+			for (int trial = 0; trial < 10; trial++) {
+				TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(50), 10 + random.nextInt(50), 0.3, 0.2);
+				PathCache cache = new PathCache(8 + random.nextInt(16));
+				Point[][] queries = new Point[12][];
+				for (int i = 0; i < queries.length; i++) {
+					queries[i] = new Point[] {RandomGrids.passablePoint(random, grid), RandomGrids.passablePoint(random, grid)};
+				}
+				for (int step = 0; step < 100; step++) {
+					for (int change = (step % 4 == 0) ? 1 + random.nextInt(3) : 0; change > 0; change--) {
+						RandomGrids.changeTile(random, grid, TILES);
+					}
+					for (int query = 0; query < 6; query++) {
+						Point[] pair = queries[random.nextInt(queries.length)];
+						Point start = pair[0];
+						Point dest = pair[1];
+						int cheapest = RandomGrids.cheapestCost(grid, start, dest, eight);
+						String name = "Path from " + start + " to " + dest + " at step " + step;
+						assertEquals(name, cheapest,
+								RandomGrids.pathCost(grid, cache.getPath(start, dest, grid, search), start, dest, eight));
+						CompactPath compact = cache.getCompactPath(start, dest, grid, search);
+						assertEquals(name, cheapest,
+								RandomGrids.pathCost(grid, (compact == null) ? null : compact.toQueue(), start, dest, eight));
+					}
+				}
+				hits += cache.getHits();
+				invalidations += cache.getInvalidations();
+			}
+			assertTrue(hits > 0);
+			assertTrue(invalidations > 0);
+		}
+	}
+}
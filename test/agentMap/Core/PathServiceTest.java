@@ -0,0 +1,115 @@
+package agentMap.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import agentMap.Modules.RandomGrids;
+
+public class PathServiceTest {
+	/**
+	 * Many queries for a few pairs of points, so queries often join a pending search, have
+	 * to each get their own copy of the cheapest path
+	 */
+	@Test
+	public void answersMatchDirectSearches() throws Exception {
+		Random random = new Random(34);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			TileGrid grid = RandomGrids.create(random, 60, 60, 0.25, 0.2);
+			PathService service = new PathService(new InternalMap(grid, tileTypes(), eight), 4, 8,
+					PathService.OverflowPolicy.BLOCK);
+			Point[][] pairs = randomPairs(random, grid, 10);
+			List<Point[]> queries = new ArrayList<Point[]>();
+			List<CompletableFuture<Queue<Pair<Direction, Point>>>> futures =
+					new ArrayList<CompletableFuture<Queue<Pair<Direction, Point>>>>();
+			for (int i = 0; i < 300; i++) {
+				Point[] pair = pairs[random.nextInt(pairs.length)];
+				queries.add(pair);
+				futures.add(service.getPath(pair[0], pair[1]));
+			}
+			IdentityHashMap<Queue<Pair<Direction, Point>>, Boolean> seen =
+					new IdentityHashMap<Queue<Pair<Direction, Point>>, Boolean>();
+			for (int i = 0; i < futures.size(); i++) {
+				Point[] pair = queries.get(i);
+				Queue<Pair<Direction, Point>> path = futures.get(i).get(10, TimeUnit.SECONDS);
+				assertEquals(RandomGrids.cheapestCost(grid, pair[0], pair[1], eight),
+						RandomGrids.pathCost(grid, path, pair[0], pair[1], eight));
+				if (path != null) assertTrue("Two queries share a path", seen.put(path, Boolean.TRUE) == null);
+			}
+			assertEquals(futures.size(), service.getSearches() + service.getCoalesced());
+			assertEquals(0, service.getRejected());
+			service.shutdown();
+			assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+			assertEquals(0, service.getPending());
+		}
+	}
+
+	/**
+	 * With load shedding every query either gets the cheapest path or fails, and the failures
+	 * are counted
+	 */
+	@Test
+	public void shedQueriesFail() throws Exception {
+		Random random = new Random(35);
+		TileGrid grid = RandomGrids.create(random, 80, 80, 0.2, 0.2);
+		PathService service = new PathService(new InternalMap(grid, tileTypes(), true), 1, 2,
+				PathService.OverflowPolicy.REJECT);
+		Point[][] pairs = randomPairs(random, grid, 200);
+		List<CompletableFuture<Queue<Pair<Direction, Point>>>> futures =
+				new ArrayList<CompletableFuture<Queue<Pair<Direction, Point>>>>();
+		for (Point[] pair : pairs) {
+			futures.add(service.getPath(pair[0], pair[1]));
+		}
+		int failed = 0;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				Queue<Pair<Direction, Point>> path = futures.get(i).get(10, TimeUnit.SECONDS);
+				assertEquals(RandomGrids.cheapestCost(grid, pairs[i][0], pairs[i][1], true),
+						RandomGrids.pathCost(grid, path, pairs[i][0], pairs[i][1], true));
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException);
+				failed++;
+			}
+		}
+		assertEquals(failed, service.getRejected());
+		assertEquals(futures.size(), service.getSearches() + service.getCoalesced() + service.getRejected());
+		service.shutdown();
+		try {
+			service.getPath(pairs[0][0], pairs[0][1]).get(10, TimeUnit.SECONDS);
+			fail("Answered a query after shutting down");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+	private static Point[][] randomPairs(Random random, TileGrid grid, int count) {
+		Point[][] pairs = new Point[count][];
+		for (int i = 0; i < count; i++) {
+			pairs[i] = new Point[] {RandomGrids.passablePoint(random, grid), RandomGrids.passablePoint(random, grid)};
+		}
+		return pairs;
+	}
+
+	private static HashMap<Character, Tile> tileTypes() {
+		HashMap<Character, Tile> tileTypes = new HashMap<Character, Tile>();
+		tileTypes.put(RandomGrids.FLOOR.getTileChar(), RandomGrids.FLOOR);
+		tileTypes.put(RandomGrids.WALL.getTileChar(), RandomGrids.WALL);
+		tileTypes.put(RandomGrids.MUD.getTileChar(), RandomGrids.MUD);
+		return tileTypes;
+	}
+}
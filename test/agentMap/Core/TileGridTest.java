@@ -0,0 +1,38 @@
+package agentMap.Core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.awt.Point;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+public class TileGridTest {
+	private static final Tile FLOOR = new Tile('.', null, true, 1);
+	private static final Tile WALL = new Tile('#', null, false, 1);
+
+	/**
+	 * A point just past the end of a row has the same cell index as the first cell of the
+	 * next row, so it has to be turned down rather than written there
+	 */
+	@Test
+	public void offMapTilesAreRejected() {
+		TileGrid grid = new TileGrid(5, 4, FLOOR);
+		HashMap<Character, Tile> tileTypes = new HashMap<Character, Tile>();
+		tileTypes.put(FLOOR.getTileChar(), FLOOR);
+		tileTypes.put(WALL.getTileChar(), WALL);
+		InternalMap map = new InternalMap(grid, tileTypes, false);
+		Point[] offMap = {new Point(5, 0), new Point(-1, 1), new Point(0, 4), new Point(4, -1)};
+		for (Point point : offMap) {
+			try {
+				map.updateMap(WALL, point);
+				fail("Placed a tile at " + point);
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+		assertEquals(0, grid.getTileCount(WALL.getTileChar()));
+		assertEquals(0, grid.getVersion());
+	}
+}
@@ -0,0 +1,110 @@
+package agentMap.Core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TileIndexTest {
+	private static final Tile[] TILES = {
+		new Tile('.', null, true, 1),
+		new Tile('#', null, false, 1),
+		new Tile('g', null, true, 1),
+		new Tile('t', null, true, 2),
+	};
+
+	/**
+	 * Rectangles and circles that reach past the edges of the grid are checked against every
+	 * cell as tiles change, including changes the index is not told about
+	 */
+	@Test
+	public void matchesEveryCellAsTilesChange() {
+		Random random = new Random(27);
+		for (int trial = 0; trial < 10; trial++) {
+			TileGrid grid = randomGrid(random, 1 + random.nextInt(70), 1 + random.nextInt(70));
+			TileIndex index = new TileIndex(grid);
+			for (int step = 0; step < 200; step++) {
+				if (step % 50 == 49) {
+					// Loading replaces every cell without telling the listeners
+					grid.loadTileIds(randomIds(random, grid));
+				} else {
+					grid.setTile(random.nextInt(grid.getWidth()), random.nextInt(grid.getHeight()),
+							TILES[random.nextInt(TILES.length)]);
+				}
+				if (step % 5 != 0) continue;
+				for (Tile tile : TILES) {
+					checkQueries(random, grid, index, tile.getTileChar());
+				}
+			}
+			index.detach();
+		}
+	}
+
+	private static void checkQueries(Random random, TileGrid grid, TileIndex index, char tileChar) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		ArrayList<Point> all = findTiles(grid, tileChar, new Rectangle(0, 0, width, height), null, 0);
+		assertEquals(all, index.findTiles(tileChar));
+		assertEquals(all.size(), index.getCount(tileChar));
+		int[] cells = new int[all.size()];
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = grid.index(all.get(i).x, all.get(i).y);
+		}
+		int[] indexCells = index.findTileCells(tileChar);
+		Arrays.sort(indexCells);
+		assertArrayEquals(cells, indexCells);
+		for (int query = 0; query < 5; query++) {
+			Rectangle area = new Rectangle(random.nextInt(width + 20) - 10, random.nextInt(height + 20) - 10,
+					random.nextInt(40), random.nextInt(40));
+			ArrayList<Point> inArea = findTiles(grid, tileChar, area, null, 0);
+			assertEquals("Tiles in " + area, inArea, index.findTiles(tileChar, area));
+			assertEquals("Count in " + area, inArea.size(), index.countTiles(tileChar, area));
+			Point center = new Point(random.nextInt(width + 20) - 10, random.nextInt(height + 20) - 10);
+			int radius = random.nextInt(25);
+			Rectangle square = new Rectangle(center.x - radius, center.y - radius, 2 * radius + 1, 2 * radius + 1);
+			assertEquals("Tiles within " + radius + " of " + center, findTiles(grid, tileChar, square, center, radius),
+					index.findTilesInRadius(tileChar, center, radius));
+		}
+	}
+
+	/**
+	 * Finds the tiles by looking at every cell of a rectangle, row by row
+	 */
+	private static ArrayList<Point> findTiles(TileGrid grid, char tileChar, Rectangle area, Point center, int radius) {
+		ArrayList<Point> points = new ArrayList<Point>();
+		for (int y = area.y; y < area.y + area.height; y++) {
+			for (int x = area.x; x < area.x + area.width; x++) {
+				if (!grid.inBounds(x, y) || grid.getTile(x, y).getTileChar() != tileChar) continue;
+				if (center != null && (long) (x - center.x) * (x - center.x) + (long) (y - center.y) * (y - center.y)
+						> (long) radius * radius) {
+					continue;
+				}
+				points.add(new Point(x, y));
+			}
+		}
+		return points;
+	}
+
+	private static TileGrid randomGrid(Random random, int width, int height) {
+		TileGrid grid = new TileGrid(width, height, TILES[0]);
+		for (int id = 1; id < TILES.length; id++) {
+			grid.addTileType(TILES[id]);
+		}
+		grid.loadTileIds(randomIds(random, grid));
+		return grid;
+	}
+
+	private static byte[] randomIds(Random random, TileGrid grid) {
+		byte[] ids = new byte[grid.size()];
+		for (int cell = 0; cell < ids.length; cell++) {
+			ids[cell] = (byte) random.nextInt(TILES.length);
+		}
+		return ids;
+	}
+}
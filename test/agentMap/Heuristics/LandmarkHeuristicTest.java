@@ -0,0 +1,76 @@
+package agentMap.Heuristics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+import agentMap.Modules.RandomGrids;
+import agentMap.Modules.aStarSearch;
+
+public class LandmarkHeuristicTest {
+	private static final Tile[] TILES = {RandomGrids.FLOOR, RandomGrids.WALL, RandomGrids.MUD};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Tiles that open up or become cheaper have to be taken into account before the next
+	 * estimate, while tiles that close may be left until enough have built up, and either
+	 * way an estimate must never be more than the cheapest cost
+	 */
+	@Test
+	public void neverOverestimatesAsTilesChange() {
+		Random random = new Random(30);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			for (int trial = 0; trial < 8; trial++) {
+				TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(40), 10 + random.nextInt(40), 0.3, 0.2);
+				LandmarkHeuristic heuristic = new LandmarkHeuristic(grid, 1 + random.nextInt(6), eight);
+				heuristic.setRefreshThreshold(1 + random.nextInt(8));
+				aStarSearch search = new aStarSearch(heuristic, eight);
+				for (int step = 0; step < 30; step++) {
+					RandomGrids.changeTile(random, grid, TILES);
+					for (int query = 0; query < 10; query++) {
+						Point start = RandomGrids.passablePoint(random, grid);
+						Point dest = RandomGrids.passablePoint(random, grid);
+						int cheapest = RandomGrids.cheapestCost(grid, start, dest, eight);
+						if (cheapest != -1) {
+							int estimate = heuristic.calcHeuristic(start, dest);
+							assertTrue("Estimate " + estimate + " from " + start + " to " + dest + " but cheapest is "
+									+ cheapest, estimate <= cheapest);
+						}
+						assertEquals(cheapest, RandomGrids.pathCost(grid, search.getPath(start, dest, grid), start, dest, eight));
+					}
+				}
+				heuristic.detach();
+			}
+		}
+	}
+
+	@Test
+	public void savedLandmarksGiveTheSameEstimates() throws IOException {
+		Random random = new Random(31);
+		TileGrid grid = RandomGrids.create(random, 40, 30, 0.3, 0.2);
+		LandmarkHeuristic heuristic = new LandmarkHeuristic(grid, 4, true);
+		File file = folder.newFile();
+		heuristic.save(file.getPath());
+		LandmarkHeuristic loaded = LandmarkHeuristic.load(file.getPath(), grid, new ChebyshevDist());
+		for (int query = 0; query < 200; query++) {
+			Point start = RandomGrids.passablePoint(random, grid);
+			Point dest = RandomGrids.passablePoint(random, grid);
+			assertEquals(heuristic.calcHeuristic(start, dest), loaded.calcHeuristic(start, dest));
+		}
+		heuristic.detach();
+		loaded.detach();
+	}
+}
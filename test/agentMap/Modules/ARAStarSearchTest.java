@@ -0,0 +1,88 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Core.IHeuristic;
+import agentMap.Core.SearchBudget;
+import agentMap.Core.SearchResult;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+
+public class ARAStarSearchTest {
+	@Test
+	public void fullSearchFindsCheapestPath() {
+		Random random = new Random(6);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			ARAStarSearch search = new ARAStarSearch(heuristic(eight), eight, 3, 1, 0.5);
+			for (int trial = 0; trial < 15; trial++) {
+				TileGrid grid = RandomGrids.create(random, 20 + random.nextInt(40), 20 + random.nextInt(40), 0.25, 0.2);
+				for (int query = 0; query < 20; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					int cheapest = RandomGrids.cheapestCost(grid, start, dest, eight);
+					SearchResult result = search.getPath(start, dest, grid, SearchBudget.unlimited());
+					assertTrue(result.isComplete());
+					assertEquals(cheapest, RandomGrids.pathCost(grid, result.getPath(), start, dest, eight));
+					assertEquals(cheapest, result.getPathCost());
+					if (cheapest != -1) assertEquals(1.0, result.getBound(), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void budgetedPathsStayWithinTheirBound() {
+		Random random = new Random(7);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			ARAStarSearch search = new ARAStarSearch(heuristic(eight), eight, 3, 1, 0.5);
+			for (int trial = 0; trial < 15; trial++) {
+				TileGrid grid = RandomGrids.create(random, 30 + random.nextInt(40), 30 + random.nextInt(40), 0.25, 0.2);
+				for (int query = 0; query < 20; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					int cheapest = RandomGrids.cheapestCost(grid, start, dest, eight);
+					SearchResult result = search.getPath(start, dest, grid, SearchBudget.ofNodes(1 + random.nextInt(400)));
+					int cost = RandomGrids.pathCost(grid, result.getPath(), start, dest, eight);
+					assertEquals(cost, result.getPathCost());
+					if (cost == -1) continue;
+					assertTrue("Budgeted path costs " + cost + " with bound " + result.getBound() + " but cheapest is " + cheapest,
+							cost <= result.getBound() * cheapest + 1e-9);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void weightedPathsStayWithinTheWeight() {
+		Random random = new Random(8);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			WeightedAStarSearch search = new WeightedAStarSearch(heuristic(eight), eight, 2);
+			for (int trial = 0; trial < 15; trial++) {
+				TileGrid grid = RandomGrids.create(random, 20 + random.nextInt(40), 20 + random.nextInt(40), 0.25, 0.2);
+				for (int query = 0; query < 20; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					int cheapest = RandomGrids.cheapestCost(grid, start, dest, eight);
+					int cost = RandomGrids.pathCost(grid, search.getPath(start, dest, grid), start, dest, eight);
+					assertEquals(cheapest == -1, cost == -1);
+					if (cost == -1) continue;
+					assertTrue("Weighted path costs " + cost + " but cheapest is " + cheapest, cost <= 2 * cheapest);
+				}
+			}
+		}
+	}
+
+	private static IHeuristic heuristic(boolean eight) {
+		return eight ? new ChebyshevDist() : new ManhattanDist();
+	}
+}
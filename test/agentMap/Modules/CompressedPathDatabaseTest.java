@@ -0,0 +1,98 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import agentMap.Core.TileGrid;
+
+public class CompressedPathDatabaseTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void pathsMatchAStar() {
+		Random random = new Random(9);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			for (int trial = 0; trial < 10; trial++) {
+				TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(20), 10 + random.nextInt(20), 0.25, 0.2);
+				CompressedPathDatabase database = CompressedPathDatabase.build(grid, eight);
+				assertTrue(database.isBuiltFor(grid));
+				for (int query = 0; query < 100; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					int cost = RandomGrids.pathCost(grid, database.getPath(start, dest, grid), start, dest, eight);
+					assertEquals("Database path from " + start + " to " + dest,
+							RandomGrids.cheapestCost(grid, start, dest, eight), cost);
+					assertEquals(cost, database.getCompactPath(start, dest, grid) == null ? -1
+							: database.getCompactPath(start, dest, grid).getCost(grid));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void savedDatabaseGivesTheSameMoves() throws IOException {
+		Random random = new Random(10);
+		TileGrid grid = RandomGrids.create(random, 24, 20, 0.25, 0.2);
+		CompressedPathDatabase database = CompressedPathDatabase.build(grid, true);
+		String file = new File(folder.getRoot(), "paths.cpd").getPath();
+		database.save(file);
+		CompressedPathDatabase loaded = CompressedPathDatabase.load(file);
+		assertTrue(loaded.isBuiltFor(grid));
+		assertEquals(database.getNumRuns(), loaded.getNumRuns());
+		for (int query = 0; query < 500; query++) {
+			Point start = RandomGrids.passablePoint(random, grid);
+			Point dest = RandomGrids.passablePoint(random, grid);
+			assertEquals(database.getFirstMove(start, dest), loaded.getFirstMove(start, dest));
+		}
+	}
+
+	@Test
+	public void truncatedFileIsRejected() throws IOException {
+		TileGrid grid = RandomGrids.create(new Random(11), 16, 16, 0.25, 0.2);
+		String file = new File(folder.getRoot(), "paths.cpd").getPath();
+		CompressedPathDatabase.build(grid, false).save(file);
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.setLength(out.length() / 2);
+		} finally {
+			out.close();
+		}
+		try {
+			CompressedPathDatabase.load(file);
+			fail("A truncated database was loaded");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void changedMapFallsBackToAStar() {
+		Random random = new Random(12);
+		TileGrid grid = RandomGrids.create(random, 20, 20, 0.2, 0.2);
+		CompressedPathDatabase database = CompressedPathDatabase.build(grid, true);
+		for (int change = 0; change < 10; change++) {
+			grid.setTile(random.nextInt(20), random.nextInt(20), RandomGrids.WALL);
+		}
+		assertFalse(database.isBuiltFor(grid));
+		for (int query = 0; query < 50; query++) {
+			Point start = RandomGrids.passablePoint(random, grid);
+			Point dest = RandomGrids.passablePoint(random, grid);
+			assertEquals(RandomGrids.cheapestCost(grid, start, dest, true),
+					RandomGrids.pathCost(grid, database.getPath(start, dest, grid), start, dest, true));
+		}
+	}
+}
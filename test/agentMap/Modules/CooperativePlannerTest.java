@@ -0,0 +1,175 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Core.Direction;
+import agentMap.Core.Pair;
+import agentMap.Core.SearchBudget;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+
+public class CooperativePlannerTest {
+	/**
+	 * Crowded maps where agents are often boxed in by the agents planned before them, which
+	 * still have to give plans without two agents in one cell or swapping places
+	 */
+	@Test
+	public void crowdedPlansAreCollisionFree() {
+		Random random = new Random(15);
+		for (int scenario = 0; scenario < 300; scenario++) {
+			boolean eight = random.nextBoolean();
+			TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(6), 10 + random.nextInt(6), 0.2, 0);
+			int numAgents = 20 + random.nextInt(25);
+			List<Point> starts = distinctPoints(random, grid, numAgents);
+			List<Point> goals = distinctPoints(random, grid, numAgents);
+			CooperativePlanner planner = new CooperativePlanner(eight ? new ChebyshevDist() : new ManhattanDist(), eight, 8);
+			List<LinkedList<Pair<Direction, Point>>> paths = planner.plan(starts, goals, grid, 60);
+			assertEquals(numAgents, paths.size());
+			List<List<Point>> positions = new ArrayList<List<Point>>();
+			for (int agent = 0; agent < numAgents; agent++) {
+				positions.add(checkMoves(grid, paths.get(agent), starts.get(agent), eight));
+			}
+			checkCollisions("Scenario " + scenario, positions);
+		}
+	}
+
+	/**
+	 * Agents moved by the caller a window at a time, with a budget that runs out partway
+	 * through the agents
+	 */
+	@Test
+	public void budgetedWindowsAreCollisionFree() {
+		Random random = new Random(16);
+		for (int scenario = 0; scenario < 100; scenario++) {
+			boolean eight = random.nextBoolean();
+			TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(6), 10 + random.nextInt(6), 0.2, 0);
+			int numAgents = 20 + random.nextInt(25);
+			List<Point> current = distinctPoints(random, grid, numAgents);
+			List<Point> goals = distinctPoints(random, grid, numAgents);
+			List<LinkedList<Pair<Direction, Point>>> paths = new ArrayList<LinkedList<Pair<Direction, Point>>>();
+			for (int agent = 0; agent < numAgents; agent++) {
+				paths.add(new LinkedList<Pair<Direction, Point>>());
+				paths.get(agent).add(new Pair<Direction, Point>(Direction.NONE, current.get(agent)));
+			}
+			CooperativePlanner planner = new CooperativePlanner(eight ? new ChebyshevDist() : new ManhattanDist(), eight, 8);
+			for (int round = 0; round < 10; round++) {
+				List<LinkedList<Pair<Direction, Point>>> moves = planner.planWindow(current, goals, grid,
+						SearchBudget.ofNodes(50 + random.nextInt(2000)));
+				int steps = moves.get(0).size();
+				assertTrue("A window has to move the agents at least one step", steps > 1);
+				for (int agent = 0; agent < numAgents; agent++) {
+					LinkedList<Pair<Direction, Point>> agentMoves = moves.get(agent);
+					assertEquals(steps, agentMoves.size());
+					assertEquals(current.get(agent), agentMoves.removeFirst().second);
+					paths.get(agent).addAll(agentMoves);
+					current.set(agent, agentMoves.getLast().second);
+				}
+			}
+			List<List<Point>> positions = new ArrayList<List<Point>>();
+			for (int agent = 0; agent < numAgents; agent++) {
+				positions.add(checkMoves(grid, paths.get(agent), paths.get(agent).getFirst().second, eight));
+			}
+			checkCollisions("Scenario " + scenario, positions);
+		}
+	}
+
+	@Test
+	public void agentsReachTheirGoalsOnOpenMaps() {
+		Random random = new Random(17);
+		for (int scenario = 0; scenario < 20; scenario++) {
+			boolean eight = random.nextBoolean();
+			TileGrid grid = RandomGrids.create(random, 20, 20, 0.1, 0.2);
+			List<Point> starts = distinctPoints(random, grid, 10);
+			List<Point> goals = distinctPoints(random, grid, 10);
+			CooperativePlanner planner = new CooperativePlanner(eight ? new ChebyshevDist() : new ManhattanDist(), eight, 8);
+			List<LinkedList<Pair<Direction, Point>>> paths = planner.plan(starts, goals, grid, 400);
+			for (int agent = 0; agent < goals.size(); agent++) {
+				if (RandomGrids.cheapestCost(grid, starts.get(agent), goals.get(agent), eight) == -1) continue;
+				assertEquals(goals.get(agent), paths.get(agent).getLast().second);
+			}
+		}
+	}
+
+	private static List<Point> distinctPoints(Random random, TileGrid grid, int count) {
+		HashSet<Point> used = new HashSet<Point>();
+		List<Point> points = new ArrayList<Point>();
+		while (points.size() < count) {
+			Point point = RandomGrids.passablePoint(random, grid);
+			if (used.add(point)) points.add(point);
+		}
+		return points;
+	}
+
+	/**
+	 * Checks that a path starts where the agent is and only makes single moves onto passable
+	 * cells or waits
+	 * @return position of the agent at every time step
+	 */
+	private static List<Point> checkMoves(TileGrid grid, List<Pair<Direction, Point>> path, Point start, boolean eight) {
+		List<Point> positions = new ArrayList<Point>();
+		Point prev = null;
+		for (Pair<Direction, Point> step : path) {
+			Point curr = step.second;
+			if (prev == null) {
+				assertEquals(start, curr);
+			} else {
+				int dx = curr.x - prev.x;
+				int dy = curr.y - prev.y;
+				assertEquals(step.first.dx, dx);
+				assertEquals(step.first.dy, dy);
+				assertTrue("Diagonal move without eight directions", eight || dx == 0 || dy == 0);
+			}
+			assertTrue("Path enters a wall at " + curr, grid.isPassable(curr.x, curr.y));
+			positions.add(curr);
+			prev = curr;
+		}
+		return positions;
+	}
+
+	/**
+	 * Fails if two agents are in the same cell at a time step or swap cells between two,
+	 * where agents stay on the last cell of their paths
+	 */
+	private static void checkCollisions(String scenario, List<List<Point>> positions) {
+		int length = 0;
+		for (List<Point> agentPositions : positions) {
+			length = Math.max(length, agentPositions.size());
+		}
+		for (int t = 0; t < length; t++) {
+			HashMap<Point, Integer> occupied = new HashMap<Point, Integer>();
+			for (int agent = 0; agent < positions.size(); agent++) {
+				Integer other = occupied.put(at(positions.get(agent), t), agent);
+				if (other != null) {
+					fail(scenario + ": agents " + other + " and " + agent + " share " + at(positions.get(agent), t) + " at time " + t);
+				}
+			}
+			if (t == 0) continue;
+			for (int agent = 0; agent < positions.size(); agent++) {
+				Point from = at(positions.get(agent), t - 1);
+				Point to = at(positions.get(agent), t);
+				if (from.equals(to)) continue;
+				Integer other = occupied.get(from);
+				if (other != null && at(positions.get(other), t - 1).equals(to)) {
+					fail(scenario + ": agents " + agent + " and " + other + " swap places at time " + t);
+				}
+			}
+		}
+	}
+
+	private static Point at(List<Point> positions, int t) {
+		return positions.get(Math.min(t, positions.size() - 1));
+	}
+}
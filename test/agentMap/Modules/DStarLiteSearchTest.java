@@ -0,0 +1,54 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.util.LinkedList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Core.Direction;
+import agentMap.Core.Pair;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+
+public class DStarLiteSearchTest {
+	private static final Tile[] CHANGES = {RandomGrids.WALL, RandomGrids.FLOOR, RandomGrids.MUD};
+
+	/**
+	 * An agent walks towards its destination while tiles change around it, and every repaired
+	 * path has to cost the same as a fresh A* search from where the agent is
+	 */
+	@Test
+	public void repairedPathsMatchAStar() {
+		Random random = new Random(5);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			for (int trial = 0; trial < 30; trial++) {
+				TileGrid grid = RandomGrids.create(random, 15 + random.nextInt(30), 15 + random.nextInt(30), 0.25, 0.2);
+				DStarLiteSearch search = new DStarLiteSearch(eight ? new ChebyshevDist() : new ManhattanDist(), eight);
+				Point position = RandomGrids.passablePoint(random, grid);
+				Point dest = RandomGrids.passablePoint(random, grid);
+				for (int turn = 0; turn < 60 && !position.equals(dest); turn++) {
+					LinkedList<Pair<Direction, Point>> path = search.getPath(position, dest, grid);
+					int cost = RandomGrids.pathCost(grid, path, position, dest, eight);
+					assertEquals("D* Lite from " + position + " to " + dest + " on turn " + turn,
+							RandomGrids.cheapestCost(grid, position, dest, eight), cost);
+					if (path == null) break;
+					// Take a step or two, then let the map change
+					path.removeFirst();
+					for (int step = 1 + random.nextInt(2); step > 0 && !path.isEmpty(); step--) {
+						position = path.removeFirst().second;
+					}
+					for (int change = random.nextInt(4); change > 0; change--) {
+						RandomGrids.changeTile(random, grid, CHANGES, position, dest);
+					}
+				}
+				search.detach();
+			}
+		}
+	}
+}
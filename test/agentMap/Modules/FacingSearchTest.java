@@ -0,0 +1,171 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Core.Action;
+import agentMap.Core.ActionPath;
+import agentMap.Core.Direction;
+import agentMap.Core.SearchBudget;
+import agentMap.Core.SearchResult;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+
+public class FacingSearchTest {
+	private static final Direction[] HEADINGS_4 = {Direction.N, Direction.E, Direction.S, Direction.W};
+	private static final Direction[] HEADINGS_8 = {
+		Direction.N, Direction.NE, Direction.E, Direction.SE,
+		Direction.S, Direction.SW, Direction.W, Direction.NW
+	};
+
+	/**
+	 * Plans are compared against a Dijkstra search over every cell and heading, and replayed
+	 * to check that they only step forward onto passable tiles and cost what they claim
+	 */
+	@Test
+	public void plansAreTheCheapest() {
+		Random random = new Random(32);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			Direction[] headings = eight ? HEADINGS_8 : HEADINGS_4;
+			for (int trial = 0; trial < 12; trial++) {
+				int turnCost = random.nextInt(4);
+				FacingSearch search = new FacingSearch(eight ? new ChebyshevDist() : new ManhattanDist(), eight, turnCost);
+				TileGrid grid = RandomGrids.create(random, 8 + random.nextInt(25), 8 + random.nextInt(25), 0.25, 0.2);
+				for (int query = 0; query < 20; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					Direction heading = random.nextBoolean() ? Direction.NONE : headings[random.nextInt(headings.length)];
+					Direction destHeading = random.nextBoolean() ? Direction.NONE : headings[random.nextInt(headings.length)];
+					int cheapest = cheapestPlan(grid, start, heading, dest, destHeading, turnCost, headings, eight);
+					ActionPath plan = search.getActionPath(start, heading, dest, destHeading, grid);
+					String name = "Plan from " + start + " facing " + heading + " to " + dest + " facing " + destHeading;
+					if (cheapest == -1) {
+						assertNull(name, plan);
+						continue;
+					}
+					assertNotNull(name, plan);
+					assertEquals(name, cheapest, plan.getCost());
+					assertEquals(name, cheapest, replay(grid, plan, start, dest, turnCost, eight));
+					if (heading != Direction.NONE) assertEquals(name, heading, plan.getStartHeading());
+					if (destHeading != Direction.NONE) assertEquals(name, destHeading, plan.getEndHeading());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Without a turn cost the moves of a plan are a cheapest path, and only then can a result
+	 * with a budget claim to be the cheapest
+	 */
+	@Test
+	public void pathsWithoutTurnCostsAreTheCheapest() {
+		Random random = new Random(33);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			FacingSearch free = new FacingSearch(eight ? new ChebyshevDist() : new ManhattanDist(), eight, 0);
+			FacingSearch turning = new FacingSearch(eight ? new ChebyshevDist() : new ManhattanDist(), eight, 2);
+			for (int trial = 0; trial < 10; trial++) {
+				TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(30), 10 + random.nextInt(30), 0.25, 0.2);
+				for (int query = 0; query < 20; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					int cheapest = RandomGrids.cheapestCost(grid, start, dest, eight);
+					SearchResult result = free.getPath(start, dest, grid, SearchBudget.unlimited());
+					assertEquals(cheapest, RandomGrids.pathCost(grid, result.getPath(), start, dest, eight));
+					assertEquals(cheapest, result.getPathCost());
+					if (cheapest == -1) continue;
+					assertEquals(1.0, result.getBound(), 0);
+					SearchResult turned = turning.getPath(start, dest, grid, SearchBudget.unlimited());
+					int cost = RandomGrids.pathCost(grid, turned.getPath(), start, dest, eight);
+					assertEquals(cost, turned.getPathCost());
+					assertTrue(cost >= cheapest);
+					assertEquals(Double.POSITIVE_INFINITY, turned.getBound(), 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the cost of the cheapest plan with a Dijkstra search over every cell and heading
+	 * @return cost of the plan, or -1 if there is none
+	 */
+	private static int cheapestPlan(TileGrid grid, Point start, Direction heading, Point dest, Direction destHeading,
+			int turnCost, Direction[] headings, boolean eight) {
+		int numHeadings = headings.length;
+		final int[] dist = new int[grid.size() * numHeadings];
+		Arrays.fill(dist, Integer.MAX_VALUE);
+		PriorityQueue<Integer> open = new PriorityQueue<Integer>(11, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Integer.compare(dist[a], dist[b]);
+			}
+		});
+		for (int h = 0; h < numHeadings; h++) {
+			if (heading != Direction.NONE && headings[h] != heading) continue;
+			int state = grid.index(start.x, start.y) * numHeadings + h;
+			dist[state] = 0;
+			open.add(state);
+		}
+		boolean[] done = new boolean[dist.length];
+		while (!open.isEmpty()) {
+			int state = open.poll();
+			if (done[state]) continue;
+			done[state] = true;
+			int cell = state / numHeadings;
+			int h = state % numHeadings;
+			if (cell == grid.index(dest.x, dest.y) && (destHeading == Direction.NONE || headings[h] == destHeading)) {
+				return dist[state];
+			}
+			int x = cell % grid.getWidth() + headings[h].dx;
+			int y = cell / grid.getWidth() + headings[h].dy;
+			if (grid.inBounds(x, y) && grid.isPassable(x, y)) {
+				relax(open, dist, grid.index(x, y) * numHeadings + h, dist[state] + grid.getPassCost(x, y));
+			}
+			relax(open, dist, cell * numHeadings + (h + 1) % numHeadings, dist[state] + turnCost);
+			relax(open, dist, cell * numHeadings + (h + numHeadings - 1) % numHeadings, dist[state] + turnCost);
+		}
+		return -1;
+	}
+
+	private static void relax(PriorityQueue<Integer> open, int[] dist, int state, int cost) {
+		if (cost >= dist[state]) return;
+		dist[state] = cost;
+		open.add(state);
+	}
+
+	/**
+	 * Steps through the actions of a plan, checking every forward step is onto a passable tile
+	 * @return cost of the moves and turns
+	 */
+	private static int replay(TileGrid grid, ActionPath plan, Point start, Point dest, int turnCost, boolean eight) {
+		assertEquals(start, plan.getStart());
+		Point curr = new Point(start);
+		Direction heading = plan.getStartHeading();
+		int cost = 0;
+		for (int i = 0; i < plan.size(); i++) {
+			Action action = plan.getAction(i);
+			if (action == Action.FORWARD) {
+				curr = new Point(curr.x + heading.dx, curr.y + heading.dy);
+				assertTrue("Plan steps onto a wall at " + curr, grid.inBounds(curr.x, curr.y) && grid.isPassable(curr.x, curr.y));
+				cost += grid.getPassCost(curr.x, curr.y);
+			} else {
+				heading = ActionPath.turn(heading, action, eight);
+				cost += turnCost;
+			}
+		}
+		assertEquals(dest, curr);
+		return cost;
+	}
+}
@@ -0,0 +1,91 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Core.Direction;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+
+public class FlowFieldTest {
+	private static final Tile[] TILES = {RandomGrids.FLOOR, RandomGrids.WALL, RandomGrids.MUD};
+
+	/**
+	 * The field is repaired as tiles change, including the goals, and has to give the cost of
+	 * the cheapest path to the closest goal that A* finds, with directions that walk a path
+	 * of that cost to a goal
+	 */
+	@Test
+	public void matchesAStarAsTilesChange() {
+		Random random = new Random(29);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			for (int trial = 0; trial < 10; trial++) {
+				TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(30), 10 + random.nextInt(30), 0.25, 0.2);
+				Point[] goals = new Point[1 + random.nextInt(3)];
+				for (int i = 0; i < goals.length; i++) {
+					goals[i] = RandomGrids.passablePoint(random, grid);
+				}
+				FlowField field = new FlowField(grid, goals, eight);
+				for (int step = 0; step < 40; step++) {
+					RandomGrids.changeTile(random, grid, TILES);
+					for (int query = 0; query < 10; query++) {
+						Point loc = new Point(random.nextInt(grid.getWidth()), random.nextInt(grid.getHeight()));
+						int expected = closestCost(grid, loc, goals, eight);
+						String name = "Distance from " + loc + " at step " + step;
+						assertEquals(name, expected, field.getDistance(loc));
+						assertEquals(name, expected, walk(grid, field, loc, goals, eight));
+					}
+				}
+				field.detach();
+			}
+		}
+	}
+
+	/**
+	 * Finds the cost to the closest goal with an A* search to each goal
+	 * @return cost of the cheapest path, or UNREACHABLE
+	 */
+	private static int closestCost(TileGrid grid, Point loc, Point[] goals, boolean eight) {
+		if (!grid.isPassable(loc.x, loc.y)) return FlowField.UNREACHABLE;
+		int closest = FlowField.UNREACHABLE;
+		for (Point goal : goals) {
+			if (!grid.isPassable(goal.x, goal.y)) continue;
+			int cost = RandomGrids.cheapestCost(grid, loc, goal, eight);
+			if (cost != -1) closest = Math.min(closest, cost);
+		}
+		return closest;
+	}
+
+	/**
+	 * Follows the directions of the field from a tile, checking each step is a valid move
+	 * @return cost of the walk to a goal, or UNREACHABLE if the field has no direction to follow
+	 */
+	private static int walk(TileGrid grid, FlowField field, Point loc, Point[] goals, boolean eight) {
+		int cost = 0;
+		Point curr = new Point(loc);
+		for (int steps = 0; steps <= grid.size(); steps++) {
+			Direction direction = field.getDirection(curr);
+			if (direction == Direction.NONE) {
+				return isGoal(grid, curr, goals) ? cost : FlowField.UNREACHABLE;
+			}
+			assertTrue("Diagonal step without eight directions", eight || direction.dx == 0 || direction.dy == 0);
+			curr = new Point(curr.x + direction.dx, curr.y + direction.dy);
+			assertTrue("Walk enters a wall at " + curr, grid.isPassable(curr.x, curr.y));
+			cost += grid.getPassCost(curr.x, curr.y);
+		}
+		throw new AssertionError("Walk from " + loc + " goes round in circles");
+	}
+
+	private static boolean isGoal(TileGrid grid, Point loc, Point[] goals) {
+		for (Point goal : goals) {
+			if (goal.equals(loc)) return grid.isPassable(loc.x, loc.y);
+		}
+		return false;
+	}
+}
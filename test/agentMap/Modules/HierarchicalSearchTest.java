@@ -0,0 +1,51 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+
+public class HierarchicalSearchTest {
+	private static final Tile[] CHANGES = {RandomGrids.WALL, RandomGrids.FLOOR, RandomGrids.MUD};
+
+	/**
+	 * HPA* paths are not always the cheapest, so they are checked for being valid, for being
+	 * found whenever A* finds a path and for costing no less than the cheapest path
+	 */
+	@Test
+	public void findsValidPathsAsTilesChange() {
+		Random random = new Random(4);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			for (int trial = 0; trial < 12; trial++) {
+				TileGrid grid = RandomGrids.create(random, 20 + random.nextInt(40), 20 + random.nextInt(40), 0.25, 0.2);
+				HierarchicalSearch search = new HierarchicalSearch(grid, eight ? new ChebyshevDist() : new ManhattanDist(),
+						eight, 8);
+				for (int query = 0; query < 40; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					for (int change = random.nextInt(4); change > 0; change--) {
+						RandomGrids.changeTile(random, grid, CHANGES, start, dest);
+					}
+					int cheapest = RandomGrids.cheapestCost(grid, start, dest, eight);
+					int cost = RandomGrids.pathCost(grid, search.getPath(start, dest, grid), start, dest, eight);
+					if (cheapest == -1) {
+						assertEquals("HPA* found a path to an unreachable tile", -1, cost);
+					} else {
+						assertTrue("HPA* found no path from " + start + " to " + dest, cost != -1);
+						assertTrue("HPA* path is cheaper than the cheapest path", cost >= cheapest);
+					}
+				}
+				search.detach();
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+
+public class JumpPointSearchTest {
+	@Test
+	public void matchesAStarOnUniformMaps() {
+		checkRandomMaps(0.0, false);
+	}
+
+	@Test
+	public void matchesAStarOnMapsWithMud() {
+		checkRandomMaps(0.2, false);
+	}
+
+	@Test
+	public void jumpTableFollowsChangedTiles() {
+		checkRandomMaps(0.0, true);
+	}
+
+	private void checkRandomMaps(double mud, boolean changeTiles) {
+		Random random = new Random(3);
+		for (int mode = 0; mode < 4; mode++) {
+			boolean eight = (mode & 1) != 0;
+			boolean precompute = (mode & 2) != 0;
+			JumpPointSearch search = new JumpPointSearch(eight ? new ChebyshevDist() : new ManhattanDist(), eight, precompute);
+			for (int trial = 0; trial < 15; trial++) {
+				TileGrid grid = RandomGrids.create(random, 16 + random.nextInt(32), 16 + random.nextInt(32), 0.3, mud);
+				for (int query = 0; query < 30; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					if (changeTiles) {
+						RandomGrids.changeTile(random, grid, new Tile[] {RandomGrids.WALL, RandomGrids.FLOOR}, start, dest);
+					}
+					int cost = RandomGrids.pathCost(grid, search.getPath(start, dest, grid), start, dest, eight);
+					assertEquals("JPS eight=" + eight + " precompute=" + precompute + " from " + start + " to " + dest,
+							RandomGrids.cheapestCost(grid, start, dest, eight), cost);
+				}
+			}
+		}
+	}
+}
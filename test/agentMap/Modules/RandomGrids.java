@@ -0,0 +1,135 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.Random;
+
+import agentMap.Core.Direction;
+import agentMap.Core.Pair;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+import agentMap.Heuristics.ManhattanDist;
+
+/**
+ * Random maps and path checks shared by the search tests. Every passable tile costs at
+ * least 1, so A* with the Manhattan or Chebyshev distance finds the cheapest path and its
+ * cost is what the other searches are compared against.
+ */
+public final class RandomGrids {
+	public static final Tile FLOOR = new Tile('.', null, true, 1);
+	public static final Tile WALL = new Tile('#', null, false, 1);
+	public static final Tile MUD = new Tile('m', null, true, 3);
+
+	private RandomGrids() {
+	}
+
+	/**
+	 * Creates a grid with walls and mud scattered at random
+	 * @param random source of the layout
+	 * @param width number of columns
+	 * @param height number of rows
+	 * @param walls chance of each tile being a wall
+	 * @param mud chance of each tile that is not a wall being mud
+	 * @return the grid
+	 */
+	public static TileGrid create(Random random, int width, int height, double walls, double mud) {
+		TileGrid grid = new TileGrid(width, height, FLOOR);
+		grid.addTileType(WALL);
+		grid.addTileType(MUD);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				double roll = random.nextDouble();
+				if (roll < walls) {
+					grid.setTile(x, y, WALL);
+				} else if (random.nextDouble() < mud) {
+					grid.setTile(x, y, MUD);
+				}
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Picks a passable tile at random
+	 * @param random source of the choice
+	 * @param grid grid with at least one passable tile
+	 * @return position of the tile
+	 */
+	public static Point passablePoint(Random random, TileGrid grid) {
+		while (true) {
+			int x = random.nextInt(grid.getWidth());
+			int y = random.nextInt(grid.getHeight());
+			if (grid.isPassable(x, y)) return new Point(x, y);
+		}
+	}
+
+	/**
+	 * Changes a random tile that is not one of the given points to one of the given tiles
+	 * @param random source of the change
+	 * @param grid grid to change
+	 * @param tiles tiles to choose from
+	 * @param keep points that are left as they are
+	 */
+	public static void changeTile(Random random, TileGrid grid, Tile[] tiles, Point... keep) {
+		while (true) {
+			int x = random.nextInt(grid.getWidth());
+			int y = random.nextInt(grid.getHeight());
+			boolean kept = false;
+			for (Point point : keep) {
+				kept |= point.x == x && point.y == y;
+			}
+			if (kept) continue;
+			grid.setTile(x, y, tiles[random.nextInt(tiles.length)]);
+			return;
+		}
+	}
+
+	/**
+	 * Finds the cost of the cheapest path with A*
+	 * @param grid grid to search
+	 * @param start starting point
+	 * @param dest destination point
+	 * @param eightDirections if the agent is able to move diagonally
+	 * @return cost of the cheapest path, or -1 if the destination cannot be reached
+	 */
+	public static int cheapestCost(TileGrid grid, Point start, Point dest, boolean eightDirections) {
+		aStarSearch search = new aStarSearch(eightDirections ? new ChebyshevDist() : new ManhattanDist(), eightDirections);
+		return pathCost(grid, search.getPath(start, dest, grid), start, dest, eightDirections);
+	}
+
+	/**
+	 * Checks that a path starts and ends at the right points and only moves one step at a
+	 * time onto passable tiles, and adds up its cost
+	 * @param grid grid the path is on
+	 * @param path the path, or null
+	 * @param start starting point
+	 * @param dest destination point
+	 * @param eightDirections if the agent is able to move diagonally
+	 * @return cost of the path, or -1 if the path is null
+	 */
+	public static int pathCost(TileGrid grid, Iterable<Pair<Direction, Point>> path, Point start, Point dest,
+			boolean eightDirections) {
+		if (path == null) return -1;
+		int cost = 0;
+		Point prev = null;
+		for (Pair<Direction, Point> step : path) {
+			Point curr = step.second;
+			if (prev == null) {
+				assertEquals("Path does not begin at the start", start, curr);
+			} else {
+				int dx = Math.abs(curr.x - prev.x);
+				int dy = Math.abs(curr.y - prev.y);
+				boolean oneStep = eightDirections ? Math.max(dx, dy) == 1 : dx + dy == 1;
+				assertTrue("Path jumps from " + prev + " to " + curr, oneStep);
+				assertTrue("Path crosses the wall at " + curr, grid.isPassable(curr.x, curr.y));
+				cost += grid.getPassCost(curr.x, curr.y);
+			}
+			prev = curr;
+		}
+		assertEquals("Path does not end at the destination", dest, prev);
+		return cost;
+	}
+}
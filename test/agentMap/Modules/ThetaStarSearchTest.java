@@ -0,0 +1,202 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Core.CompactPath;
+import agentMap.Core.Direction;
+import agentMap.Core.InternalMap;
+import agentMap.Core.Pair;
+import agentMap.Core.PathCache;
+import agentMap.Core.SearchBudget;
+import agentMap.Core.SearchResult;
+import agentMap.Core.Tile;
+import agentMap.Core.TileGrid;
+
+public class ThetaStarSearchTest {
+	private static final String[] MUDDY_MAP = {
+		".##.",
+		"#.#.",
+		"##.m",
+		"....",
+	};
+
+	/**
+	 * On maps with mud the path comes from A* cut down to its turns, and a cached copy used
+	 * to be redrawn as lines between the turns which went through the walls beside a
+	 * diagonal run. A cached path has to keep the waypoints of the fresh one, while the
+	 * compact path has a point per tile.
+	 */
+	@Test
+	public void cachedPathsKeepTheirWaypoints() {
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			for (int lazy = 0; lazy < 2; lazy++) {
+				InternalMap map = new InternalMap(gridOf(MUDDY_MAP), tileTypes(), eight);
+				map.setSearchAlgo(new ThetaStarSearch(eight, lazy == 1));
+				map.enablePathCache(16);
+				// The corner is walled in when moving in four directions
+				Point start = eight ? new Point(0, 0) : new Point(0, 3);
+				Point dest = eight ? new Point(2, 2) : new Point(3, 0);
+				List<Pair<Direction, Point>> fresh = copyOf(map.getPath(start, dest));
+				List<Pair<Direction, Point>> cached = copyOf(map.getPath(start, dest));
+				assertEquals(1, map.getPathCache().getHits());
+				assertEquals(pointsOf(fresh), pointsOf(cached));
+				assertTrue("The path should be cut down to its turns", cached.size() < 5);
+				int cheapest = RandomGrids.cheapestCost(map.getGrid(), start, dest, eight);
+				for (int lookup = 0; lookup < 2; lookup++) {
+					CompactPath compact = map.getCompactPath(start, dest);
+					assertEquals(cheapest, RandomGrids.pathCost(map.getGrid(), compact.toQueue(), start, dest, eight));
+				}
+				assertEquals(2, map.getPathCache().getHits());
+			}
+		}
+	}
+
+	@Test
+	public void compactPathsOnlyMakeValidMoves() {
+		Random random = new Random(18);
+		for (int mode = 0; mode < 4; mode++) {
+			boolean eight = (mode & 1) == 1;
+			ThetaStarSearch search = new ThetaStarSearch(eight, (mode & 2) == 2);
+			for (int trial = 0; trial < 20; trial++) {
+				boolean muddy = trial % 2 == 1;
+				TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(40), 10 + random.nextInt(40), 0.3,
+						muddy ? 0.2 : 0);
+				for (int query = 0; query < 30; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					int cheapest = RandomGrids.cheapestCost(grid, start, dest, eight);
+					CompactPath path = search.getCompactPath(start, dest, grid);
+					int cost = RandomGrids.pathCost(grid, (path == null) ? null : path.toQueue(), start, dest, eight);
+					assertEquals("Theta* found a path iff A* did", cheapest == -1, cost == -1);
+					// Mud is searched with A*, so those paths have to be the cheapest
+					if (muddy) assertEquals(cheapest, cost);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void waypointsAreInSightOfEachOther() {
+		Random random = new Random(19);
+		for (int mode = 0; mode < 4; mode++) {
+			boolean eight = (mode & 1) == 1;
+			ThetaStarSearch search = new ThetaStarSearch(eight, (mode & 2) == 2);
+			for (int trial = 0; trial < 20; trial++) {
+				TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(40), 10 + random.nextInt(40), 0.3, 0);
+				PathCache cache = new PathCache(64);
+				for (int query = 0; query < 30; query++) {
+					Point start = RandomGrids.passablePoint(random, grid);
+					Point dest = RandomGrids.passablePoint(random, grid);
+					List<Pair<Direction, Point>> waypoints = search.getPath(start, dest, grid);
+					if (RandomGrids.cheapestCost(grid, start, dest, eight) == -1) continue;
+					assertNotNull(waypoints);
+					Point prev = null;
+					for (Pair<Direction, Point> waypoint : waypoints) {
+						Point curr = waypoint.second;
+						// Waypoints one move apart are linked as neighbours, which may cut a corner
+						if (prev != null && !isOneMove(prev, curr, eight)) {
+							assertTrue("No line of sight from " + prev + " to " + curr,
+									grid.hasLineOfSight(prev.x, prev.y, curr.x, curr.y));
+						}
+						prev = curr;
+					}
+					assertEquals(dest, prev);
+					// Fresh and cached results from a path cache are the same waypoints
+					List<Pair<Direction, Point>> fresh = copyOf(cache.getPath(start, dest, grid, search));
+					assertEquals(pointsOf(copyOf(waypoints)), pointsOf(fresh));
+					assertEquals(pointsOf(fresh), pointsOf(cache.getPath(start, dest, grid, search)));
+					CompactPath compact = cache.getCompactPath(start, dest, grid, search);
+					RandomGrids.pathCost(grid, compact.toQueue(), start, dest, eight);
+					assertEquals(compact, cache.getCompactPath(start, dest, grid, search));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Walking the lines between waypoints is not always the cheapest way across the grid,
+	 * so results with a budget cannot claim to be the cheapest, except for the A* paths
+	 * used on maps with mud
+	 */
+	@Test
+	public void budgetedResultsOnlyClaimABoundForAStarPaths() {
+		TileGrid open = RandomGrids.create(new Random(21), 12, 6, 0, 0);
+		Point start = new Point(0, 0);
+		Point dest = new Point(10, 3);
+		SearchResult result = new ThetaStarSearch(true, false).getPath(start, dest, open, SearchBudget.unlimited());
+		assertEquals(Double.POSITIVE_INFINITY, result.getBound(), 0);
+		assertEquals(new ThetaStarSearch(true, false).getCompactPath(start, dest, open).getCost(open), result.getPathCost());
+		Random random = new Random(22);
+		for (int mode = 0; mode < 2; mode++) {
+			boolean eight = mode == 1;
+			ThetaStarSearch search = new ThetaStarSearch(eight, false);
+			for (int trial = 0; trial < 10; trial++) {
+				TileGrid grid = RandomGrids.create(random, 10 + random.nextInt(30), 10 + random.nextInt(30), 0.25, 0.2);
+				for (int query = 0; query < 20; query++) {
+					Point from = RandomGrids.passablePoint(random, grid);
+					Point to = RandomGrids.passablePoint(random, grid);
+					int cheapest = RandomGrids.cheapestCost(grid, from, to, eight);
+					SearchResult muddy = search.getPath(from, to, grid, SearchBudget.unlimited());
+					assertEquals(cheapest, muddy.getPathCost());
+					if (cheapest != -1) assertEquals(1.0, muddy.getBound(), 0);
+				}
+			}
+		}
+	}
+
+	private static boolean isOneMove(Point from, Point to, boolean eight) {
+		int dx = Math.abs(to.x - from.x);
+		int dy = Math.abs(to.y - from.y);
+		return eight ? Math.max(dx, dy) == 1 : dx + dy == 1;
+	}
+
+	private static TileGrid gridOf(String[] rows) {
+		TileGrid grid = new TileGrid(rows[0].length(), rows.length, RandomGrids.FLOOR);
+		HashMap<Character, Tile> tileTypes = tileTypes();
+		for (Tile tile : tileTypes.values()) {
+			grid.addTileType(tile);
+		}
+		for (int y = 0; y < rows.length; y++) {
+			for (int x = 0; x < rows[y].length(); x++) {
+				grid.setTile(x, y, tileTypes.get(rows[y].charAt(x)));
+			}
+		}
+		return grid;
+	}
+
+	private static HashMap<Character, Tile> tileTypes() {
+		HashMap<Character, Tile> tileTypes = new HashMap<Character, Tile>();
+		tileTypes.put(RandomGrids.FLOOR.getTileChar(), RandomGrids.FLOOR);
+		tileTypes.put(RandomGrids.WALL.getTileChar(), RandomGrids.WALL);
+		tileTypes.put(RandomGrids.MUD.getTileChar(), RandomGrids.MUD);
+		return tileTypes;
+	}
+
+	private static List<Pair<Direction, Point>> copyOf(Iterable<Pair<Direction, Point>> path) {
+		assertNotNull(path);
+		List<Pair<Direction, Point>> copy = new ArrayList<Pair<Direction, Point>>();
+		for (Pair<Direction, Point> step : path) {
+			copy.add(step);
+		}
+		return copy;
+	}
+
+	private static List<Point> pointsOf(List<Pair<Direction, Point>> path) {
+		List<Point> points = new ArrayList<Point>();
+		for (Pair<Direction, Point> step : path) {
+			points.add(step.second);
+		}
+		return points;
+	}
+}
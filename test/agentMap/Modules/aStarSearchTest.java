@@ -0,0 +1,49 @@
+package agentMap.Modules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Point;
+import java.util.Random;
+
+import org.junit.Test;
+
+import agentMap.Core.Direction;
+import agentMap.Core.ISearch;
+import agentMap.Core.TileGrid;
+import agentMap.Heuristics.ChebyshevDist;
+
+public class aStarSearchTest {
+	/**
+	 * A point just past the end of a row has the same cell index as the first cell of the
+	 * next row, which must not be taken for that cell
+	 */
+	@Test
+	public void offMapPointsHaveNoPath() {
+		TileGrid grid = RandomGrids.create(new Random(20), 30, 20, 0, 0);
+		ISearch[] searches = {
+			new aStarSearch(new ChebyshevDist(), true),
+			new JumpPointSearch(new ChebyshevDist(), true, false),
+			new JumpPointSearch(new ChebyshevDist(), true, true),
+			new HierarchicalSearch(grid, new ChebyshevDist(), true, 8),
+			new DStarLiteSearch(new ChebyshevDist(), true),
+			new ARAStarSearch(new ChebyshevDist(), true, 3, 1, 0.5),
+			new ThetaStarSearch(true, false),
+			new FacingSearch(new ChebyshevDist(), true, 1),
+			CompressedPathDatabase.build(grid, true),
+		};
+		Point[] offMap = {new Point(30, 0), new Point(-1, 1), new Point(0, 20), new Point(29, -1)};
+		Point onMap = new Point(0, 0);
+		for (ISearch search : searches) {
+			String name = search.getClass().getSimpleName();
+			for (Point point : offMap) {
+				assertNull(name + " to " + point, search.getPath(onMap, point, grid));
+				assertNull(name + " from " + point, search.getPath(point, onMap, grid));
+				assertNull(name + " compact to " + point, search.getCompactPath(onMap, point, grid));
+			}
+		}
+		CompressedPathDatabase database = CompressedPathDatabase.build(grid, true);
+		assertEquals(Direction.NONE, database.getFirstMove(onMap, new Point(30, 0)));
+		assertEquals(Direction.NONE, database.getFirstMove(new Point(-1, 1), onMap));
+	}
+}